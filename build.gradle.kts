@@ -3,6 +3,7 @@ plugins {
     `java-library`
     `maven-publish`
     id("com.gradleup.shadow") version "9.3.1"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "me.hash"
@@ -73,6 +74,14 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// Microbenchmarks in src/jmh, run with ./gradlew jmh
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+}
+
 java {
     toolchain {
         languageVersion.set(JavaLanguageVersion.of(21))
@@ -0,0 +1,161 @@
+package me.hash.mediaroulette.utils.media;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dominant color extraction from encoded bytes: the previous full ImageIO decode plus
+ * Graphics2D downscale and per-pixel getRGB, against {@link DominantColorKernel}'s subsampled
+ * decode and raster sampling.
+ * <p>
+ * Inputs are generated to match what the bot usually sees: a large 4chan-style JPEG photo, a
+ * tall Booru-style PNG with transparency and a small paletted GIF.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DominantColorBenchmark {
+
+    @Param({"jpeg_photo_2560x1440", "png_booru_1600x2400", "gif_640x360"})
+    public String input;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        bytes = switch (input) {
+            case "jpeg_photo_2560x1440" -> encode(scene(2560, 1440, BufferedImage.TYPE_INT_RGB), "jpg");
+            case "png_booru_1600x2400" -> encode(scene(1600, 2400, BufferedImage.TYPE_INT_ARGB), "png");
+            case "gif_640x360" -> encode(scene(640, 360, BufferedImage.TYPE_INT_RGB), "gif");
+            default -> throw new IllegalArgumentException(input);
+        };
+    }
+
+    @Benchmark
+    public Color legacy() throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+        try {
+            return legacyAverage(image);
+        } finally {
+            image.flush();
+        }
+    }
+
+    @Benchmark
+    public Color kernelAverage() throws IOException {
+        return DominantColorKernel.dominantColor(DominantColorKernel.decode(bytes), DominantColorKernel.Mode.AVERAGE);
+    }
+
+    @Benchmark
+    public Color kernelPalette() throws IOException {
+        return DominantColorKernel.dominantColor(DominantColorKernel.decode(bytes), DominantColorKernel.Mode.PALETTE);
+    }
+
+    /**
+     * The sampling ColorExtractor used before DominantColorKernel
+     */
+    private static Color legacyAverage(BufferedImage image) {
+        int w = Math.min(image.getWidth(), 64);
+        int h = Math.min(image.getHeight(), 64);
+        BufferedImage scaled = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g.drawImage(image, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+
+        long rSum = 0, gSum = 0, bSum = 0;
+        int count = 0;
+        for (int x = 0; x < w; x += 3) {
+            for (int y = 0; y < h; y += 3) {
+                int rgb = scaled.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF;
+                int gr = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                int brightness = (r + gr + b) / 3;
+                if (brightness > 30 && brightness < 225) {
+                    rSum += r;
+                    gSum += gr;
+                    bSum += b;
+                    count++;
+                }
+            }
+        }
+        scaled.flush();
+        return count == 0 ? null : new Color((int) (rSum / count), (int) (gSum / count), (int) (bSum / count));
+    }
+
+    /**
+     * Gradient background with scattered shapes and noise, so encoders cannot collapse it. Types
+     * with alpha get a cut-out look: outside a centred ellipse the canvas is cleared and only
+     * faint shapes are drawn, so much of it is transparent or translucent and the extractor's
+     * alpha skip is exercised.
+     */
+    private static BufferedImage scene(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D g = image.createGraphics();
+        try {
+            Random random = new Random(42);
+            g.setPaint(new GradientPaint(0, 0, new Color(40, 90, 160), width, height, new Color(220, 150, 60)));
+            g.fillRect(0, 0, width, height);
+            for (int i = 0; i < 200; i++) {
+                g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256), 128 + random.nextInt(128)));
+                g.fillOval(random.nextInt(width), random.nextInt(height), 20 + random.nextInt(width / 4), 20 + random.nextInt(height / 4));
+            }
+            if (image.getColorModel().hasAlpha()) {
+                Area outside = new Area(new Rectangle(0, 0, width, height));
+                outside.subtract(new Area(new Ellipse2D.Double(width / 6.0, height / 8.0, width * 2 / 3.0, height * 3 / 4.0)));
+                g.setComposite(AlphaComposite.Clear);
+                g.fill(outside);
+                g.setComposite(AlphaComposite.SrcOver);
+                // Faint shapes in the cleared area, both below and above the alpha skip threshold
+                g.clip(outside);
+                for (int i = 0; i < 60; i++) {
+                    g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256), 16 + random.nextInt(200)));
+                    g.fillOval(random.nextInt(width), random.nextInt(height), 20 + random.nextInt(width / 4), 20 + random.nextInt(height / 4));
+                }
+            }
+            // Noise keeps each pixel's alpha so it does not make the cleared areas opaque again
+            for (int i = 0; i < width * height / 20; i++) {
+                int x = random.nextInt(width);
+                int y = random.nextInt(height);
+                image.setRGB(x, y, (image.getRGB(x, y) & 0xFF000000) | (random.nextInt() & 0xFFFFFF));
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return out.toByteArray();
+    }
+}
@@ -145,16 +145,20 @@ public class Main {
         MongoCollection<Document> userCollection = database.getCollection("user");
         MongoCollection<Document> dictionaryCollection = database.getCollection("dictionary");
         MongoCollection<Document> assignmentCollection = database.getCollection("dictionary_assignment");
-
-        UserRepository userRepository = new MongoUserRepository(userCollection);
+        UserActivityRepository activityRepository = new MongoUserActivityRepository(
+                database.getCollection("user_transactions"),
+                database.getCollection("user_usage")
+        );
+        UserRepository userRepository = new MongoUserRepository(userCollection, activityRepository);
         DictionaryRepository dictionaryRepository = new MongoDictionaryRepository(
                 dictionaryCollection,
                 assignmentCollection
         );
 
-        userService = new UserService(userRepository);
+        userService = new UserService(userRepository, activityRepository);
         dictionaryService = new DictionaryService(dictionaryRepository);
         statsService = new StatsTrackingService(userRepository);
+        me.hash.mediaroulette.service.MediaPrefetchService.getInstance().start();
 
         initializeDefaultDictionaries();
     }
@@ -262,6 +266,7 @@ public class Main {
         if (bot != null) {
             safeShutdown("Bot", () -> {
                 bot.getShardManager().shutdown();
+                bot.getCooldownManager().shutdown();
                 bot.getExecutor().shutdown();
                 if (!bot.getExecutor().awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
                     bot.getExecutor().shutdownNow();
@@ -277,6 +282,26 @@ public class Main {
 
         safeShutdown("Giveaway Service", GiveawayManager::shutdown);
 
+        if (dictionaryService != null) {
+            safeShutdown("Dictionary Service", dictionaryService::shutdown);
+        }
+
+        if (userService != null) {
+            safeShutdown("User Service", userService::shutdown);
+        }
+
+        safeShutdown("Media Fetch Executor",
+                me.hash.mediaroulette.service.MediaFetchExecutor.getInstance()::shutdown
+        );
+
+        safeShutdown("Media Prefetch",
+                me.hash.mediaroulette.service.MediaPrefetchService.getInstance()::shutdown
+        );
+
+        safeShutdown("Media Providers",
+                me.hash.mediaroulette.content.factory.ProviderRegistry.getInstance()::shutdown
+        );
+
         safeShutdown("Image Interaction Service",
                 me.hash.mediaroulette.service.ImageInteractionService.getInstance()::shutdown
         );
@@ -288,6 +313,18 @@ public class Main {
 
     private static void shutdownMediaProcessing() {
         safeShutdown("Media Processing", MediaInitializer::shutdown);
+
+        safeShutdown("FFmpeg Jobs",
+                me.hash.mediaroulette.utils.media.ffmpeg.utils.FFmpegJobScheduler::shutdownShared
+        );
+
+        safeShutdown("FFmpeg Artifact Cache",
+                me.hash.mediaroulette.utils.media.ffmpeg.utils.ArtifactCache::shutdownInstance
+        );
+
+        safeShutdown("Color Extractor",
+                me.hash.mediaroulette.utils.ColorExtractor::shutdown
+        );
         
         safeShutdown("Media Container Cleanup", 
                 me.hash.mediaroulette.bot.MediaContainerManager::cleanup
@@ -6,6 +6,8 @@ import me.hash.mediaroulette.bot.utils.CommandCooldown;
 import me.hash.mediaroulette.config.LocalConfig;
 import me.hash.mediaroulette.bot.MediaContainerManager;
 import me.hash.mediaroulette.model.BotInventoryItem;
+import me.hash.mediaroulette.model.Transaction;
+import me.hash.mediaroulette.model.UsageType;
 import me.hash.mediaroulette.model.User;
 import me.hash.mediaroulette.service.BotInventoryService;
 import me.hash.mediaroulette.service.GiveawayService;
@@ -73,6 +75,9 @@ public class AdminCommand extends BaseCommand {
                                 .addOption(OptionType.USER, "user", "Target user", true),
                         new SubcommandData("userstats", "View user usage statistics")
                                 .addOption(OptionType.USER, "user", "Target user", true),
+                        new SubcommandData("transactions", "View a user's coin transactions")
+                                .addOption(OptionType.USER, "user", "Target user", true)
+                                .addOption(OptionType.INTEGER, "page", "Page number", false),
                         new SubcommandData("stats", "View comprehensive admin statistics"),
                         new SubcommandData("cleanup", "Clean up expired items and old data"),
                         new SubcommandData("maintenance", "Toggle maintenance mode")
@@ -105,6 +110,7 @@ public class AdminCommand extends BaseCommand {
             case "setpremium" -> handleSetPremium(event);
             case "userlookup" -> handleUserLookup(event);
             case "userstats" -> handleUserStats(event);
+            case "transactions" -> handleTransactions(event);
             case "stats" -> handleStats(event);
             case "cleanup" -> handleCleanup(event);
             case "maintenance" -> handleMaintenance(event);
@@ -540,7 +546,7 @@ public class AdminCommand extends BaseCommand {
                     String.format("<t:%d:R>", targetUser.getLastActiveDate().toEpochSecond(java.time.ZoneOffset.UTC)), true);
         }
         
-        embed.setFooter("Admin User Lookup • Use /admin userstats for detailed usage statistics", null);
+        embed.setFooter("Admin User Lookup • Use /admin userstats and /admin transactions for details", null);
         
         event.replyEmbeds(embed.build()).setEphemeral(true).queue();
     }
@@ -551,19 +557,19 @@ public class AdminCommand extends BaseCommand {
         
         EmbedBuilder embed = MediaContainerManager.createUserEmbed("User Usage Statistics", null, targetDiscordUser, targetUser);
         
+        // Usage counters are kept outside the user document and only loaded for this view
+        Map<String, Long> topCommands = Main.getUserService().getTopUsage(targetUser.getUserId(), UsageType.COMMAND, 3);
+        Map<String, Long> topSources = Main.getUserService().getTopUsage(targetUser.getUserId(), UsageType.SOURCE, 5);
+        Map<String, Long> topSubreddits = Main.getUserService().getTopUsage(targetUser.getUserId(), UsageType.SUBREDDIT, 5);
+
         // Command Usage Statistics
         StringBuilder commandStats = new StringBuilder();
         commandStats.append(String.format("**Total Commands Used:** %,d\n", targetUser.getTotalCommandsUsed()));
-        commandStats.append(String.format("**Most Used Command:** %s\n", targetUser.getMostUsedCommand()));
-        
-        var topCommands = targetUser.getCommandUsageCount().entrySet().stream()
-                .sorted(java.util.Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(3)
-                .toList();
+        commandStats.append(String.format("**Most Used Command:** %s\n", topCommands.keySet().stream().findFirst().orElse("None")));
         
         if (!topCommands.isEmpty()) {
             commandStats.append("**Top Commands:**\n");
-            for (var entry : topCommands) {
+            for (var entry : topCommands.entrySet()) {
                 commandStats.append(String.format("• %s: %,d uses\n", entry.getKey(), entry.getValue()));
             }
         }
@@ -572,16 +578,11 @@ public class AdminCommand extends BaseCommand {
         
         // Source Usage Statistics
         StringBuilder sourceStats = new StringBuilder();
-        sourceStats.append(String.format("**Most Used Source:** %s\n", targetUser.getMostUsedSource()));
-        
-        var topSources = targetUser.getSourceUsageCount().entrySet().stream()
-                .sorted(java.util.Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(5)
-                .toList();
+        sourceStats.append(String.format("**Most Used Source:** %s\n", topSources.keySet().stream().findFirst().orElse("None")));
         
         if (!topSources.isEmpty()) {
             sourceStats.append("**Source Usage:**\n");
-            for (var entry : topSources) {
+            for (var entry : topSources.entrySet()) {
                 sourceStats.append(String.format("• %s: %,d times\n", entry.getKey(), entry.getValue()));
             }
         }
@@ -590,13 +591,11 @@ public class AdminCommand extends BaseCommand {
         
         // Subreddit Usage Statistics
         StringBuilder subredditStats = new StringBuilder();
-        var topSubreddits = targetUser.getTopSubreddits(5);
         
         if (!topSubreddits.isEmpty()) {
             subredditStats.append("**Top Subreddits:**\n");
-            for (String subreddit : topSubreddits) {
-                int count = targetUser.getSubredditUsageCount().getOrDefault(subreddit, 0);
-                subredditStats.append(String.format("• r/%s: %d times\n", subreddit, count));
+            for (var entry : topSubreddits.entrySet()) {
+                subredditStats.append(String.format("• r/%s: %d times\n", entry.getKey(), entry.getValue()));
             }
         } else {
             subredditStats.append("No custom subreddits used yet.");
@@ -628,6 +627,39 @@ public class AdminCommand extends BaseCommand {
         event.replyEmbeds(embed.build()).setEphemeral(true).queue();
     }
     
+    private void handleTransactions(SlashCommandInteractionEvent event) {
+        net.dv8tion.jda.api.entities.User targetDiscordUser = event.getOption("user").getAsUser();
+        User targetUser = Main.getUserService().getOrCreateUser(targetDiscordUser.getId());
+        int pageSize = 10;
+        
+        long total = Main.getUserService().countTransactions(targetUser.getUserId());
+        int pages = (int) Math.max(1, (total + pageSize - 1) / pageSize);
+        int page = event.getOption("page") != null ? event.getOption("page").getAsInt() : 1;
+        page = Math.min(Math.max(page, 1), pages);
+        
+        List<Transaction> transactions = Main.getUserService().getTransactions(targetUser.getUserId(), page - 1, pageSize);
+        
+        EmbedBuilder embed = MediaContainerManager.createUserEmbed("Coin Transactions", null, targetDiscordUser, targetUser);
+        if (transactions.isEmpty()) {
+            embed.setDescription("No transactions recorded.");
+        } else {
+            StringBuilder lines = new StringBuilder();
+            for (Transaction transaction : transactions) {
+                lines.append(String.format("%s<t:%d:R> **%s** %s — %s\n",
+                        transaction.isFlagged() ? "⚠️ " : "",
+                        transaction.getTimestamp() != null ? transaction.getTimestamp().getEpochSecond() : 0,
+                        transaction.getType(),
+                        transaction.getFormattedAmount(),
+                        transaction.getDescription() != null ? transaction.getDescription() : "No description"));
+            }
+            embed.setDescription(lines.toString());
+        }
+        
+        embed.setFooter(String.format("Page %d/%d • %,d transactions", page, pages, total), null);
+        
+        event.replyEmbeds(embed.build()).setEphemeral(true).queue();
+    }
+    
     private void handleMaintenance(SlashCommandInteractionEvent event) {
         boolean enabled = event.getOption("enabled").getAsBoolean();
         LocalConfig config = LocalConfig.getInstance();
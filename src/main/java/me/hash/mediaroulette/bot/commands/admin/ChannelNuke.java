@@ -7,8 +7,9 @@ import me.hash.mediaroulette.bot.commands.BaseCommand;
 import me.hash.mediaroulette.bot.utils.CommandCooldown;
 import me.hash.mediaroulette.bot.utils.ErrorHandler;
 import me.hash.mediaroulette.bot.commands.CommandHandler;
-import me.hash.mediaroulette.content.factory.MediaServiceFactory;
+import me.hash.mediaroulette.content.factory.ProviderRegistry;
 import me.hash.mediaroulette.content.http.HttpClientWrapper;
+import me.hash.mediaroulette.plugins.images.ImageSource;
 import net.dv8tion.jda.api.Permission;
 import me.hash.mediaroulette.bot.Bot;
 import net.dv8tion.jda.api.EmbedBuilder;
@@ -53,7 +54,7 @@ public class ChannelNuke extends BaseCommand {
             EmbedBuilder embedBuilder = new EmbedBuilder();
             embedBuilder.setTitle("Channel Nuked");
             try {
-                embedBuilder.setImage(new MediaServiceFactory().createTenorProvider().getRandomMedia("nuke").toMap().get("image"));
+                embedBuilder.setImage(ProviderRegistry.getInstance().get(ImageSource.TENOR).getRandomMedia("nuke").toMap().get("image"));
             } catch (IOException ignored) {
             } catch (HttpClientWrapper.RateLimitException | InterruptedException e) {
                 throw new RuntimeException(e);
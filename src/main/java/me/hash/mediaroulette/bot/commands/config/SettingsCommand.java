@@ -962,7 +962,7 @@ public class SettingsCommand extends BaseCommand {
                     JSONArray defaultValues = new JSONArray(jsonContent);
                     
                     // Clear existing image options
-                    user.getImageOptionsMap().clear();
+                    user.clearImageOptions();
                     
                     // Set default values
                     for (int i = 0; i < defaultValues.length(); i++) {
@@ -5,13 +5,25 @@ import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.List;
 import java.util.ArrayList;
 
+/**
+ * Applies per-user command cooldowns declared with {@link CommandCooldown}.
+ * <p>
+ * Active cooldowns live in a {@link CooldownTable} keyed by the user's snowflake and a small
+ * integer id per command, so checking and starting a cooldown is O(1) and expired entries are
+ * dropped in the background instead of by scanning on every command.
+ */
 public class CooldownManager extends ListenerAdapter {
 
-    private final Map<String, Long> activeCooldowns = new ConcurrentHashMap<>();
+    private final CooldownTable activeCooldowns = new CooldownTable();
     private final Map<String, Integer> commandCooldownConfig = new ConcurrentHashMap<>();
+    // Command ids are never reused, so a removed and re-added command keeps its slot
+    private final Map<String, Integer> commandIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> commandNames = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCommandId = new AtomicInteger();
     private final List<String> registeredListeners = new ArrayList<>();
 
     /**
@@ -37,11 +49,11 @@ public class CooldownManager extends ListenerAdapter {
             String[] commands = annotation.commands();
             if (commands.length > 0) {
                 for (String command : commands) {
-                    commandCooldownConfig.put(command, annotation.value());
+                    configureCooldown(command, annotation.value());
                 }
             } else {
                 String inferredCommand = inferCommandFromClassName(clazz.getSimpleName());
-                commandCooldownConfig.put(inferredCommand, annotation.value());
+                configureCooldown(inferredCommand, annotation.value());
             }
         }
     }
@@ -60,16 +72,29 @@ public class CooldownManager extends ListenerAdapter {
                 String[] commands = annotation.commands();
                 if (commands.length > 0) {
                     for (String command : commands) {
-                        commandCooldownConfig.put(command, annotation.value());
+                        configureCooldown(command, annotation.value());
                     }
                 } else {
                     String inferredCommand = inferCommandFromClassName(clazz.getSimpleName());
-                    commandCooldownConfig.put(inferredCommand, annotation.value());
+                    configureCooldown(inferredCommand, annotation.value());
                 }
             }
         }
     }
 
+    private void configureCooldown(String commandName, int seconds) {
+        commandIdOf(commandName);
+        commandCooldownConfig.put(commandName, seconds);
+    }
+
+    private int commandIdOf(String commandName) {
+        return commandIds.computeIfAbsent(commandName, name -> {
+            int id = nextCommandId.getAndIncrement();
+            commandNames.put(id, name);
+            return id;
+        });
+    }
+
     /**
      * Try to infer command name from class name
      */
@@ -93,7 +118,6 @@ public class CooldownManager extends ListenerAdapter {
     @Override
     public void onSlashCommandInteraction(SlashCommandInteractionEvent event) {
         String commandName = event.getName();
-        String userId = event.getUser().getId();
 
         // check if this command has a cooldown configured
         Integer cooldownSeconds = commandCooldownConfig.get(commandName);
@@ -101,33 +125,19 @@ public class CooldownManager extends ListenerAdapter {
             return; // no cooldown for this command
         }
 
-        // check if user is currently on cooldown
-        String cooldownKey = userId + ":" + commandName;
-        Long cooldownExpiry = activeCooldowns.get(cooldownKey);
-        long currentTime = System.currentTimeMillis();
+        // start the cooldown unless the user is already on one
+        long remainingMs = activeCooldowns.tryAcquire(event.getUser().getIdLong(),
+                commandIds.get(commandName), cooldownSeconds * 1000L);
 
-        if (cooldownExpiry != null && currentTime < cooldownExpiry) {
+        if (remainingMs > 0) {
             // user is on cooldown; block this event
-            long remainingSeconds = (cooldownExpiry - currentTime) / 1000;
+            long remainingSeconds = remainingMs / 1000;
 
             event.reply("⏰ **Cooldown Active**\n" +
                             "Please wait **" + remainingSeconds + " seconds** before using `/" + commandName + "` again.")
                     .setEphemeral(true)
                     .queue();
-            return;
         }
-
-        // set new cooldown
-        activeCooldowns.put(cooldownKey, currentTime + (cooldownSeconds * 1000L));
-        cleanupExpiredCooldowns();
-    }
-
-    /**
-     * Remove expired cooldowns to prevent memory leaks
-     */
-    private void cleanupExpiredCooldowns() {
-        long currentTime = System.currentTimeMillis();
-        activeCooldowns.entrySet().removeIf(entry -> currentTime >= entry.getValue());
     }
 
     // === utility shit ===
@@ -136,7 +146,7 @@ public class CooldownManager extends ListenerAdapter {
      * Manually set a cooldown for a command
      */
     public void setCooldown(String commandName, int seconds) {
-        commandCooldownConfig.put(commandName, seconds);
+        configureCooldown(commandName, seconds);
     }
 
     /**
@@ -150,44 +160,48 @@ public class CooldownManager extends ListenerAdapter {
      * Clear a specific user's cooldown for a command
      */
     public void clearUserCooldown(String userId, String commandName) {
-        String key = userId + ":" + commandName;
-        activeCooldowns.remove(key);
+        Integer commandId = commandIds.get(commandName);
+        if (commandId != null) {
+            activeCooldowns.clear(Long.parseLong(userId), commandId);
+        }
     }
 
     /**
      * Clear all cooldowns for a user
      */
     public void clearAllUserCooldowns(String userId) {
-        activeCooldowns.entrySet().removeIf(entry -> entry.getKey().startsWith(userId + ":"));
+        activeCooldowns.clearUser(Long.parseLong(userId));
     }
 
     /**
      * Get remaining cooldown time for a user on a command
      */
     public long getRemainingCooldown(String userId, String commandName) {
-        String key = userId + ":" + commandName;
-        Long expiry = activeCooldowns.get(key);
-
-        if (expiry == null) return 0;
+        Integer commandId = commandIds.get(commandName);
+        if (commandId == null) return 0;
 
-        long remaining = (expiry - System.currentTimeMillis()) / 1000;
-        return Math.max(0, remaining);
+        return activeCooldowns.remaining(Long.parseLong(userId), commandId) / 1000;
     }
 
     public void printCooldownInfo() {
+        int activeUsers = activeCooldowns.activeUsers();
         System.out.println("\n📊 COOLDOWN MANAGER STATUS:");
         System.out.println("Registered Listeners: " + registeredListeners);
         System.out.println("Command Cooldowns: " + commandCooldownConfig);
-        System.out.println("Active Cooldowns: " + activeCooldowns.size());
+        System.out.println("Users On Cooldown: " + activeUsers);
 
-        if (!activeCooldowns.isEmpty()) {
+        if (activeUsers > 0) {
             System.out.println("Current Active Cooldowns:");
-            long now = System.currentTimeMillis();
-            activeCooldowns.forEach((key, expiry) -> {
-                long remaining = Math.max(0, (expiry - now) / 1000);
-                System.out.println("  " + key + " -> " + remaining + "s remaining");
-            });
+            activeCooldowns.forEachActive((userId, commandId, remainingMs) ->
+                    System.out.println("  " + userId + ":" + commandNames.get(commandId) + " -> " + remainingMs / 1000 + "s remaining"));
         }
         System.out.println();
     }
-}
\ No newline at end of file
+
+    /**
+     * Stop the background expiry of cooldowns
+     */
+    public void shutdown() {
+        activeCooldowns.shutdown();
+    }
+}
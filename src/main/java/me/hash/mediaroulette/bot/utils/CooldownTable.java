@@ -0,0 +1,370 @@
+package me.hash.mediaroulette.bot.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Active cooldowns keyed by (user id, command id) with O(1) check-and-set and background expiry.
+ * <p>
+ * Users live in lock-striped open-addressing tables keyed by the primitive snowflake; each user
+ * holds a small {@code long[]} of expiry times indexed by command id. A hashed timing wheel of
+ * {@link #WHEEL_SLOTS} one-tick slots schedules each user once, at their latest expiry, and the
+ * expiry task drops users whose cooldowns have all run out. Nothing on the command path scans
+ * other users. Locks are always taken stripe first, then wheel slot.
+ */
+class CooldownTable {
+    static final long DEFAULT_TICK_MS = 1000;
+    private static final int WHEEL_SLOTS = 64;
+    private static final int STRIPES = 32;
+    private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+    private static final class UserCooldowns {
+        long[] expiries;
+        long maxExpiry;
+        // Tick of the wheel slot this user is currently scheduled in
+        long scheduledTick;
+
+        UserCooldowns(int commandSlots) {
+            this.expiries = new long[commandSlots];
+        }
+    }
+
+    /**
+     * Linear-probing long -> UserCooldowns table; guarded by its own monitor. Key 0 marks an empty slot.
+     */
+    private static final class Stripe {
+        long[] keys = new long[INITIAL_STRIPE_CAPACITY];
+        UserCooldowns[] values = new UserCooldowns[INITIAL_STRIPE_CAPACITY];
+        int size;
+
+        UserCooldowns get(long key) {
+            int mask = keys.length - 1;
+            for (int i = index(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(long key, UserCooldowns value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        boolean remove(long key) {
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (keys[i] != key) {
+                if (keys[i] == 0) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            // Backward-shift deletion keeps probe chains intact without tombstones
+            int gap = i;
+            for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = index(keys[j], mask);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = 0;
+            values[gap] = null;
+            size--;
+            return true;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            UserCooldowns[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new UserCooldowns[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int index(long key, int mask) {
+            return (int) mix(key) & mask;
+        }
+    }
+
+    /**
+     * Users due in one tick of the wheel (or a later round of it) with the tick they were
+     * scheduled for; guarded by its own monitor
+     */
+    private static final class Slot {
+        long[] users = new long[16];
+        long[] ticks = new long[16];
+        int count;
+
+        void add(long userId, long tick) {
+            if (count == users.length) {
+                users = Arrays.copyOf(users, count * 2);
+                ticks = Arrays.copyOf(ticks, count * 2);
+            }
+            users[count] = userId;
+            ticks[count] = tick;
+            count++;
+        }
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Slot[] wheel = new Slot[WHEEL_SLOTS];
+    private final long tickMs;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService expiryExecutor;
+    private long processedTick;
+
+    /**
+     * Table with its own daemon expiry thread, driven by a monotonic millisecond clock
+     */
+    CooldownTable() {
+        this(DEFAULT_TICK_MS, () -> System.nanoTime() / 1_000_000, true);
+    }
+
+    /**
+     * @param clock          millisecond clock; must never go backwards
+     * @param startExpiryTask whether to run {@link #expire()} every tick on a daemon thread
+     */
+    CooldownTable(long tickMs, LongSupplier clock, boolean startExpiryTask) {
+        this.tickMs = tickMs;
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new Slot();
+        }
+        this.processedTick = clock.getAsLong() / tickMs;
+
+        if (startExpiryTask) {
+            expiryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Cooldown-Expiry");
+                t.setDaemon(true);
+                return t;
+            });
+            expiryExecutor.scheduleAtFixedRate(this::expire, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        } else {
+            expiryExecutor = null;
+        }
+    }
+
+    /**
+     * Start a cooldown unless one is active
+     * @return 0 if the cooldown was started, otherwise the milliseconds left on the active one
+     */
+    long tryAcquire(long userId, int commandId, long cooldownMs) {
+        checkUserId(userId);
+        long now = clock.getAsLong();
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            UserCooldowns user = stripe.get(userId);
+            if (user == null) {
+                user = new UserCooldowns(commandId + 1);
+                stripe.put(userId, user);
+            } else if (commandId < user.expiries.length && now < user.expiries[commandId]) {
+                return user.expiries[commandId] - now;
+            }
+
+            if (commandId >= user.expiries.length) {
+                user.expiries = Arrays.copyOf(user.expiries, commandId + 1);
+            }
+            long expiry = now + cooldownMs;
+            user.expiries[commandId] = expiry;
+            if (expiry > user.maxExpiry) {
+                user.maxExpiry = expiry;
+                long tick = tickOf(expiry);
+                if (tick > user.scheduledTick) {
+                    user.scheduledTick = tick;
+                    schedule(userId, tick);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Milliseconds left on a cooldown, 0 if none is active
+     */
+    long remaining(long userId, int commandId) {
+        checkUserId(userId);
+        long now = clock.getAsLong();
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            UserCooldowns user = stripe.get(userId);
+            if (user == null || commandId >= user.expiries.length) {
+                return 0;
+            }
+            return Math.max(0, user.expiries[commandId] - now);
+        }
+    }
+
+    void clear(long userId, int commandId) {
+        checkUserId(userId);
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            UserCooldowns user = stripe.get(userId);
+            if (user != null && commandId < user.expiries.length) {
+                user.expiries[commandId] = 0;
+            }
+        }
+    }
+
+    /**
+     * Drop every cooldown of a user; their pending wheel entry becomes stale and is skipped
+     */
+    void clearUser(long userId) {
+        checkUserId(userId);
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            stripe.remove(userId);
+        }
+    }
+
+    /**
+     * Process every wheel tick up to now. Called by the expiry thread; exposed for tests.
+     */
+    void expire() {
+        long now = clock.getAsLong();
+        long currentTick = now / tickMs;
+        long tick;
+        synchronized (this) {
+            tick = processedTick;
+            processedTick = Math.max(processedTick, currentTick);
+        }
+        // At most one full round is needed to visit every slot
+        for (long t = Math.max(tick + 1, currentTick - WHEEL_SLOTS + 1); t <= currentTick; t++) {
+            expireSlot(t, now);
+        }
+    }
+
+    private void expireSlot(long tick, long now) {
+        Slot slot = wheel[(int) (tick % WHEEL_SLOTS)];
+        long[] users;
+        long[] ticks;
+        int count;
+        synchronized (slot) {
+            users = slot.users;
+            ticks = slot.ticks;
+            count = slot.count;
+            int capacity = Math.max(16, count / 2);
+            slot.users = new long[capacity];
+            slot.ticks = new long[capacity];
+            slot.count = 0;
+        }
+
+        for (int i = 0; i < count; i++) {
+            long userId = users[i];
+            long scheduledFor = ticks[i];
+            Stripe stripe = stripeFor(userId);
+            synchronized (stripe) {
+                UserCooldowns user = stripe.get(userId);
+                if (user == null || user.scheduledTick != scheduledFor) {
+                    continue; // cleared, or a stale entry of a rescheduled user
+                }
+                if (scheduledFor > tick) {
+                    schedule(userId, scheduledFor); // due in a later round of the wheel
+                } else if (user.maxExpiry <= now) {
+                    stripe.remove(userId);
+                } else {
+                    user.scheduledTick = tickOf(user.maxExpiry);
+                    schedule(userId, user.scheduledTick);
+                }
+            }
+        }
+    }
+
+    private void schedule(long userId, long tick) {
+        Slot slot = wheel[(int) (tick % WHEEL_SLOTS)];
+        synchronized (slot) {
+            slot.add(userId, tick);
+        }
+    }
+
+    int activeUsers() {
+        int users = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                users += stripe.size;
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Visit every active cooldown as (user id, command id, milliseconds left)
+     */
+    void forEachActive(ActiveCooldownConsumer consumer) {
+        long now = clock.getAsLong();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.keys.length; i++) {
+                    if (stripe.keys[i] == 0) {
+                        continue;
+                    }
+                    long[] expiries = stripe.values[i].expiries;
+                    for (int command = 0; command < expiries.length; command++) {
+                        if (expiries[command] > now) {
+                            consumer.accept(stripe.keys[i], command, expiries[command] - now);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface ActiveCooldownConsumer {
+        void accept(long userId, int commandId, long remainingMs);
+    }
+
+    void shutdown() {
+        if (expiryExecutor != null) {
+            expiryExecutor.shutdownNow();
+        }
+    }
+
+    private long tickOf(long timeMs) {
+        // Round up so a user is never expired before their last cooldown ends
+        return (timeMs + tickMs - 1) / tickMs;
+    }
+
+    private Stripe stripeFor(long userId) {
+        return stripes[(int) (mix(userId) >>> 59) & (STRIPES - 1)];
+    }
+
+    private static void checkUserId(long userId) {
+        if (userId == 0) {
+            throw new IllegalArgumentException("User id 0 is not a valid snowflake");
+        }
+    }
+
+    /**
+     * Spread snowflake bits; their low bits are a per-process counter and cluster badly
+     */
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 32);
+    }
+}
@@ -17,6 +17,8 @@ public class LocalConfig {
     private static final ObjectMapper mapper = new ObjectMapper();
     private static LocalConfig instance;
     private Map<String, Object> config; // Fixed: Added generic types
+    // Bumped on every change so callers can cheaply tell whether derived state is stale
+    private volatile long version;
 
     static {
         mapper.enable(SerializationFeature.INDENT_OUTPUT);
@@ -81,6 +83,7 @@ public class LocalConfig {
         botConfig.put("cooldown_duration_ms", 2500);
         botConfig.put("max_favorites_per_user", 25);
         botConfig.put("max_inventory_size", 100);
+        botConfig.put("color_extraction_mode", "average");
         defaultConfig.put("bot_config", botConfig);
 
         return defaultConfig;
@@ -101,9 +104,17 @@ public class LocalConfig {
 
     public void set(String key, Object value) {
         config.put(key, value);
+        version++;
         saveConfig();
     }
 
+    /**
+     * Counter incremented whenever the config is changed or reloaded
+     */
+    public long getVersion() {
+        return version;
+    }
+
     // Specific getters for common values
     public boolean getMaintenanceMode() {
         return (Boolean) config.getOrDefault("maintenance_mode", false);
@@ -150,9 +161,19 @@ public class LocalConfig {
         return (String) botConfig.getOrDefault("default_locale", "en_US");
     }
 
+    /**
+     * How embed colors are picked from images: "average" or "palette" (largest median-cut cluster).
+     * Only applies to colors extracted after the change; cached colors are kept.
+     */
+    public String getColorExtractionMode() {
+        Map<String, Object> botConfig = getBotConfig();
+        return String.valueOf(botConfig.getOrDefault("color_extraction_mode", "average"));
+    }
+
     // Reload config from file
     public void reload() {
         loadConfig();
+        version++;
     }
 
     // Get all config as string for display
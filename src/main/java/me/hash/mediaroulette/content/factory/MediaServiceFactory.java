@@ -21,6 +21,13 @@ public class MediaServiceFactory {
         this.httpClient = SHARED_HTTP_CLIENT;
     }
     
+    /**
+     * The HTTP client shared by all providers (for stats and host tuning)
+     */
+    public static HttpClientWrapper getSharedHttpClient() {
+        return SHARED_HTTP_CLIENT;
+    }
+    
     public MediaProvider createUrbanDictionaryProvider() {
         return new UrbanDictionaryProvider(httpClient);
     }
@@ -0,0 +1,268 @@
+package me.hash.mediaroulette.content.factory;
+
+import me.hash.mediaroulette.content.http.HttpClientWrapper;
+import me.hash.mediaroulette.content.provider.MediaProvider;
+import me.hash.mediaroulette.model.content.MediaResult;
+import me.hash.mediaroulette.plugins.images.ImageSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Long-lived registry of the built-in media providers.
+ * <p>
+ * Each provider is created on first use and then shared by every caller, so the caches
+ * providers keep (4chan board queues, Google result queues, Imgur prefetch) stay warm
+ * between requests. Calls go through a thin wrapper that records per-provider health, and
+ * {@link #shutdown()} closes the providers that own background threads.
+ */
+public class ProviderRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ProviderRegistry.class);
+    private static final int DEGRADED_AFTER_FAILURES = 3;
+
+    private static volatile ProviderRegistry instance;
+
+    private final Map<String, ProviderHandle> handles = new LinkedHashMap<>();
+    private volatile boolean shutdown;
+
+    private ProviderRegistry() {
+        MediaServiceFactory factory = new MediaServiceFactory();
+        register(ImageSource.GOOGLE, factory, MediaServiceFactory::createGoogleProvider);
+        register(ImageSource.IMGUR, factory, MediaServiceFactory::createImgurProvider);
+        register(ImageSource.YOUTUBE, factory, MediaServiceFactory::createYouTubeProvider);
+        register(ImageSource.TENOR, factory, MediaServiceFactory::createTenorProvider);
+        register(ImageSource._4CHAN, factory, MediaServiceFactory::createFourChanProvider);
+        register(ImageSource.PICSUM, factory, MediaServiceFactory::createPicsumProvider);
+        register(ImageSource.BOORU, factory, MediaServiceFactory::createBooruProvider);
+        register(ImageSource.MOVIE, factory, MediaServiceFactory::createTMDBMovieProvider);
+        register(ImageSource.TVSHOW, factory, MediaServiceFactory::createTMDBTvProvider);
+        register(ImageSource.URBAN, factory, MediaServiceFactory::createUrbanDictionaryProvider);
+        register(ImageSource.SHORT, factory, MediaServiceFactory::createYouTubeShortsProvider);
+    }
+
+    public static ProviderRegistry getInstance() {
+        if (instance == null) {
+            synchronized (ProviderRegistry.class) {
+                if (instance == null) {
+                    instance = new ProviderRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private void register(String name, MediaServiceFactory factory, Function<MediaServiceFactory, MediaProvider> creator) {
+        handles.put(name, new ProviderHandle(name, () -> creator.apply(factory)));
+    }
+
+    /**
+     * Get the shared provider for a source, creating it on first use
+     * @param name the source name, e.g. {@link ImageSource#IMGUR}
+     * @throws IllegalArgumentException if no provider is registered under that name
+     */
+    public MediaProvider get(String name) {
+        ProviderHandle handle = handles.get(name);
+        if (handle == null) {
+            throw new IllegalArgumentException("Unknown provider: " + name);
+        }
+        if (shutdown) {
+            throw new IllegalStateException("Provider registry is shut down");
+        }
+        return handle;
+    }
+
+    public boolean has(String name) {
+        return handles.containsKey(name);
+    }
+
+    /**
+     * Names of all registered providers, in registration order
+     */
+    public List<String> getNames() {
+        return List.copyOf(handles.keySet());
+    }
+
+    /**
+     * Health of every registered provider, including ones not created yet
+     */
+    public Map<String, ProviderHealth> getHealth() {
+        Map<String, ProviderHealth> health = new LinkedHashMap<>();
+        handles.forEach((name, handle) -> health.put(name, handle.health));
+        return Collections.unmodifiableMap(health);
+    }
+
+    /**
+     * Close every created provider that is {@link AutoCloseable}, e.g. to stop its background threads
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+
+        for (ProviderHandle handle : handles.values()) {
+            handle.close();
+        }
+        logger.info("Provider registry shut down");
+    }
+
+    /**
+     * Success and failure counters of one provider
+     */
+    public static class ProviderHealth {
+        public enum State { NOT_STARTED, HEALTHY, DEGRADED }
+
+        private final AtomicLong successes = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile boolean started;
+        private volatile long lastFailureAt;
+        private volatile String lastError;
+
+        void recordSuccess() {
+            successes.incrementAndGet();
+            consecutiveFailures.set(0);
+        }
+
+        void recordFailure(Exception e) {
+            failures.incrementAndGet();
+            consecutiveFailures.incrementAndGet();
+            lastFailureAt = System.currentTimeMillis();
+            lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+
+        public State getState() {
+            if (!started) {
+                return State.NOT_STARTED;
+            }
+            return consecutiveFailures.get() >= DEGRADED_AFTER_FAILURES ? State.DEGRADED : State.HEALTHY;
+        }
+
+        public boolean isHealthy() {
+            return getState() != State.DEGRADED;
+        }
+
+        public long getSuccesses() {
+            return successes.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public int getConsecutiveFailures() {
+            return consecutiveFailures.get();
+        }
+
+        /**
+         * Epoch millis of the last failure, or 0 if there was none
+         */
+        public long getLastFailureAt() {
+            return lastFailureAt;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ProviderHealth[state=%s, successes=%d, failures=%d, consecutiveFailures=%d]",
+                    getState(), getSuccesses(), getFailures(), getConsecutiveFailures());
+        }
+    }
+
+    /**
+     * Lazily created provider that records the outcome of every call
+     */
+    private static class ProviderHandle implements MediaProvider {
+        private final String name;
+        private final Supplier<MediaProvider> creator;
+        private final ProviderHealth health = new ProviderHealth();
+        private volatile MediaProvider delegate;
+
+        ProviderHandle(String name, Supplier<MediaProvider> creator) {
+            this.name = name;
+            this.creator = creator;
+        }
+
+        private MediaProvider delegate() {
+            MediaProvider provider = delegate;
+            if (provider == null) {
+                synchronized (this) {
+                    provider = delegate;
+                    if (provider == null) {
+                        provider = creator.get();
+                        delegate = provider;
+                        health.started = true;
+                        logger.debug("Created provider {}", name);
+                    }
+                }
+            }
+            return provider;
+        }
+
+        @Override
+        public MediaResult getRandomMedia(String query) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
+            return track(() -> delegate().getRandomMedia(query));
+        }
+
+        @Override
+        public MediaResult getRandomMedia(String query, String userId) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
+            return track(() -> delegate().getRandomMedia(query, userId));
+        }
+
+        private MediaResult track(MediaCall call) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
+            try {
+                MediaResult result = call.run();
+                health.recordSuccess();
+                return result;
+            } catch (InterruptedException e) {
+                // Being cancelled says nothing about the provider
+                throw e;
+            } catch (IOException | HttpClientWrapper.RateLimitException | RuntimeException e) {
+                health.recordFailure(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean supportsQuery() {
+            return delegate().supportsQuery();
+        }
+
+        @Override
+        public String getProviderName() {
+            return delegate().getProviderName();
+        }
+
+        @Override
+        public boolean isNsfw() {
+            return delegate().isNsfw();
+        }
+
+        void close() {
+            if (delegate instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("Failed to close provider {}: {}", name, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface MediaCall {
+        MediaResult run() throws IOException, HttpClientWrapper.RateLimitException, InterruptedException;
+    }
+}
@@ -0,0 +1,87 @@
+package me.hash.mediaroulette.content.http;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Collects a response body into a byte array, aborting the transfer as soon as it
+ * exceeds a size limit. Bodies that declare an oversized Content-Length are rejected
+ * before any data is read.
+ */
+class CappedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+    private static final int DEFAULT_INITIAL_CAPACITY = 16 * 1024;
+
+    private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+    private final long maxBytes;
+    private final long declaredLength;
+    private final ByteArrayOutputStream buffer;
+    private Flow.Subscription subscription;
+
+    private CappedBodySubscriber(long maxBytes, long declaredLength) {
+        this.maxBytes = maxBytes;
+        this.declaredLength = declaredLength;
+        // Pre-size to the declared length so the buffer never has to grow
+        int initialCapacity = declaredLength >= 0 && declaredLength <= maxBytes
+                ? (int) declaredLength
+                : (int) Math.min(maxBytes, DEFAULT_INITIAL_CAPACITY);
+        this.buffer = new ByteArrayOutputStream(Math.max(initialCapacity, 32));
+    }
+
+    static HttpResponse.BodyHandler<byte[]> handler(long maxBytes) {
+        return responseInfo -> new CappedBodySubscriber(maxBytes,
+                responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1));
+    }
+
+    @Override
+    public CompletionStage<byte[]> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (declaredLength > maxBytes) {
+            subscription.cancel();
+            result.completeExceptionally(new HttpClientWrapper.BodyTooLargeException(maxBytes));
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        if (result.isDone()) {
+            return;
+        }
+        for (ByteBuffer item : items) {
+            if (buffer.size() + (long) item.remaining() > maxBytes) {
+                subscription.cancel();
+                result.completeExceptionally(new HttpClientWrapper.BodyTooLargeException(maxBytes));
+                return;
+            }
+            if (item.hasArray()) {
+                buffer.write(item.array(), item.arrayOffset() + item.position(), item.remaining());
+            } else {
+                byte[] chunk = new byte[item.remaining()];
+                item.get(chunk);
+                buffer.write(chunk, 0, chunk.length);
+            }
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        result.complete(buffer.toByteArray());
+    }
+}
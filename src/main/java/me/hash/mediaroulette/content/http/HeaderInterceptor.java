@@ -0,0 +1,33 @@
+package me.hash.mediaroulette.content.http;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Adds browser-like headers to avoid 403 errors (excluding restricted headers)
+ */
+class HeaderInterceptor implements HttpInterceptor {
+    static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> intercept(HttpExchange<T> exchange, Chain<T> chain) {
+        HttpRequest request = exchange.getRequest();
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+            .uri(request.uri())
+            .timeout(request.timeout().orElse(Duration.ofSeconds(30)))
+            .method(request.method(), request.bodyPublisher().orElse(HttpRequest.BodyPublishers.noBody()));
+
+        request.headers().map().forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        if (request.headers().firstValue("User-Agent").isEmpty()) {
+            builder.header("User-Agent", USER_AGENT);
+        }
+        if (exchange.wantsDocumentHeaders()) {
+            builder.header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
+                .header("Accept-Language", "en-US,en;q=0.5");
+        }
+
+        return chain.proceed(exchange.withRequest(builder.build()));
+    }
+}
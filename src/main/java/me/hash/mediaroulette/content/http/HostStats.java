@@ -0,0 +1,66 @@
+package me.hash.mediaroulette.content.http;
+
+import me.hash.mediaroulette.utils.LatencyWindow;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request and latency statistics for one remote host.
+ * Latency percentiles are computed over a sliding window of the most recent requests.
+ */
+public class HostStats {
+    private static final int WINDOW_SIZE = 512;
+
+    private final String host;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder http2Responses = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LatencyWindow latencyWindow = new LatencyWindow(WINDOW_SIZE);
+
+    HostStats(String host) {
+        this.host = host;
+    }
+
+    void requestStarted() {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+    }
+
+    void requestFinished(long latencyNanos, HttpClient.Version version, boolean success) {
+        inFlight.decrementAndGet();
+        requests.increment();
+        if (!success) {
+            failures.increment();
+        }
+        if (version == HttpClient.Version.HTTP_2) {
+            http2Responses.increment();
+        }
+        latencyWindow.record(latencyNanos);
+    }
+
+    public String getHost() { return host; }
+    public long getRequests() { return requests.sum(); }
+    public long getFailures() { return failures.sum(); }
+    public long getHttp2Responses() { return http2Responses.sum(); }
+    public int getInFlight() { return inFlight.get(); }
+    public int getPeakInFlight() { return peakInFlight.get(); }
+
+    /**
+     * Latency percentile in milliseconds over the recent window
+     * @param percentile value between 0 and 100
+     */
+    public double getLatencyPercentileMs(double percentile) {
+        return latencyWindow.getPercentileMs(percentile);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: requests=%d, failures=%d, inFlight=%d (peak %d), http2=%d, p50=%.0fms, p95=%.0fms, p99=%.0fms",
+                host, getRequests(), getFailures(), getInFlight(), getPeakInFlight(), getHttp2Responses(),
+                getLatencyPercentileMs(50), getLatencyPercentileMs(95), getLatencyPercentileMs(99));
+    }
+}
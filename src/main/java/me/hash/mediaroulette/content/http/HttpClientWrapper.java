@@ -1,208 +1,347 @@
 package me.hash.mediaroulette.content.http;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ExecutionException;
 
 /**
- * HTTP client wrapper with rate limiting and error handling
+ * HTTP client wrapper with rate limiting and error handling.
+ * <p>
+ * Every request goes through one pipeline of {@link HttpInterceptor} stages
+ * (headers, retries, per-host rate limiting, metrics) before being sent on a long-lived
+ * {@link HttpClient} chosen by redirect policy, so connections, TLS sessions and HTTP/2
+ * streams are reused. The blocking methods wait on the same futures returned by the
+ * async variants.
  */
 public class HttpClientWrapper {
-    
-    private final HttpClient httpClient;
-    private final ConcurrentHashMap<String, AtomicLong> rateLimitMap;
-    private static final long DEFAULT_RATE_LIMIT_DELAY = 100;
-    
+
+    /** Default cap for buffered binary bodies (Discord's upload limit) */
+    public static final long DEFAULT_MAX_BODY_BYTES = 25L * 1024 * 1024;
+
+    private final Map<HttpClient.Redirect, HttpClient> clients = new EnumMap<>(HttpClient.Redirect.class);
+    private final RequestScheduler scheduler;
+    private final ConcurrentHashMap<String, HostStats> hostStats = new ConcurrentHashMap<>();
+    private final List<HttpInterceptor> interceptors;
+
     public HttpClientWrapper() {
-        this.httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .followRedirects(HttpClient.Redirect.NORMAL)
-            .build();
-        this.rateLimitMap = new ConcurrentHashMap<>();
+        for (HttpClient.Redirect policy : List.of(HttpClient.Redirect.NORMAL, HttpClient.Redirect.NEVER)) {
+            clients.put(policy, HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(policy)
+                .build());
+        }
+        this.scheduler = new RequestScheduler();
+        this.interceptors = defaultInterceptors(scheduler, hostStats);
     }
-    
+
+    /**
+     * The built-in pipeline, outermost stage first. Retries sit outside rate limiting so every attempt
+     * takes its own slot, and metrics sit innermost so every attempt that reaches the network is recorded.
+     */
+    static List<HttpInterceptor> defaultInterceptors(RequestScheduler scheduler, ConcurrentHashMap<String, HostStats> hostStats) {
+        return List.of(
+            new HeaderInterceptor(),
+            new RetryInterceptor(2, 250),
+            new RateLimitInterceptor(scheduler),
+            new MetricsInterceptor(hostStats)
+        );
+    }
+
     /**
      * Send a GET request with rate limiting
      */
     public HttpResponse<String> get(String url) throws IOException, InterruptedException, RateLimitException {
-        return sendRequest(HttpRequest.newBuilder()
-            .uri(URI.create(url))
-            .timeout(Duration.ofSeconds(15))
-            .GET()
-            .build());
+        return await(getAsync(url));
     }
-    
+
     /**
      * Send a GET request with rate limiting (legacy method for compatibility)
      */
     public String get(String url, String source, Object unused) throws IOException, InterruptedException, RateLimitException {
         return get(url).body();
     }
-    
+
     /**
      * Get response body as string (convenience method)
      */
     public String getBody(String url) throws IOException, InterruptedException, RateLimitException {
         return get(url).body();
     }
-    
+
     /**
-     * Get response body as bytes (for images/media)
+     * Get response body as bytes (for images/media), capped at {@link #DEFAULT_MAX_BODY_BYTES}
      */
     public byte[] getBytes(String url) throws IOException, InterruptedException, RateLimitException {
-        HttpRequest request = HttpRequest.newBuilder()
+        return getBytes(url, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    /**
+     * Get response body as bytes, aborting the download once it exceeds maxBytes
+     * @throws BodyTooLargeException if the body is (or declares itself) larger than maxBytes
+     */
+    public byte[] getBytes(String url, long maxBytes) throws IOException, InterruptedException, RateLimitException {
+        return await(getBytesAsync(url, maxBytes));
+    }
+
+    /**
+     * Open the response body as a stream. Reading only part of it and closing the stream
+     * aborts the rest of the transfer, which makes this the cheap way to inspect headers of large media.
+     */
+    public InputStream openStream(String url) throws IOException, InterruptedException, RateLimitException {
+        return await(openStreamAsync(url));
+    }
+
+    public CompletableFuture<InputStream> openStreamAsync(String url) {
+        return execute(new HttpExchange<>(HttpRequest.newBuilder()
             .uri(URI.create(url))
             .timeout(Duration.ofSeconds(30))
             .GET()
-            .build();
-            
-        HttpResponse<byte[]> response = sendRequestBytes(request);
-        return response.body();
+            .build(), HttpResponse.BodyHandlers.ofInputStream(), HttpClient.Redirect.NORMAL, false, true, true))
+            .thenApply(HttpResponse::body);
     }
 
-    private HttpResponse<byte[]> sendRequestBytes(HttpRequest request) throws IOException, InterruptedException, RateLimitException {
-        String domain = request.uri().getHost();
-
-        AtomicLong lastRequest = rateLimitMap.computeIfAbsent(domain, k -> new AtomicLong(0));
-        long now = System.currentTimeMillis();
-        long timeSinceLastRequest = now - lastRequest.get();
+    /**
+     * Send a GET request without blocking the calling thread while waiting for a rate limit slot
+     */
+    public CompletableFuture<HttpResponse<String>> getAsync(String url) {
+        return execute(new HttpExchange<>(HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .timeout(Duration.ofSeconds(15))
+            .GET()
+            .build(), HttpResponse.BodyHandlers.ofString(), HttpClient.Redirect.NORMAL, true, true, true));
+    }
 
-        if (timeSinceLastRequest < DEFAULT_RATE_LIMIT_DELAY) {
-            long waitTime = DEFAULT_RATE_LIMIT_DELAY - timeSinceLastRequest;
-            Thread.sleep(waitTime);
+    /**
+     * Send a GET request with an If-Modified-Since header (an HTTP date, usually the Last-Modified
+     * of the previous response). A 304 Not Modified response is returned as-is with an empty body.
+     */
+    public CompletableFuture<HttpResponse<String>> getIfModifiedSinceAsync(String url, String lastModified) {
+        if (lastModified == null) {
+            return getAsync(url);
         }
+        return execute(new HttpExchange<>(HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .timeout(Duration.ofSeconds(15))
+            .header("If-Modified-Since", lastModified)
+            .GET()
+            .build(), HttpResponse.BodyHandlers.ofString(), HttpClient.Redirect.NORMAL, true, true, true));
+    }
 
-        lastRequest.set(now);
-        
-        HttpRequest requestWithHeaders = HttpRequest.newBuilder()
-            .uri(request.uri())
-            .timeout(request.timeout().orElse(Duration.ofSeconds(30)))
-            .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
-            .method(request.method(), request.bodyPublisher().orElse(HttpRequest.BodyPublishers.noBody()))
-            .build();
-        
-        HttpResponse<byte[]> response = httpClient.send(requestWithHeaders, HttpResponse.BodyHandlers.ofByteArray());
-        
-        if (response.statusCode() >= 400) {
-            if (response.statusCode() == 429) {
-                throw new RateLimitException("Server rate limit exceeded for " + domain);
-            }
-            throw new IOException("HTTP " + response.statusCode() + " error for " + request.uri());
-        }
-        
-        return response;
+    /**
+     * Get response body as bytes asynchronously
+     */
+    public CompletableFuture<byte[]> getBytesAsync(String url) {
+        return getBytesAsync(url, DEFAULT_MAX_BODY_BYTES);
     }
-    
+
+    public CompletableFuture<byte[]> getBytesAsync(String url, long maxBytes) {
+        return execute(new HttpExchange<>(HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .timeout(Duration.ofSeconds(30))
+            .GET()
+            .build(), CappedBodySubscriber.handler(maxBytes), HttpClient.Redirect.NORMAL, false, true, true))
+            .thenApply(HttpResponse::body);
+    }
+
     /**
      * Send a POST request with rate limiting
      */
     public HttpResponse<String> post(String url, String body) throws IOException, InterruptedException, RateLimitException {
-        return sendRequest(HttpRequest.newBuilder()
+        return await(execute(new HttpExchange<>(HttpRequest.newBuilder()
             .uri(URI.create(url))
             .timeout(Duration.ofSeconds(30))
             .POST(HttpRequest.BodyPublishers.ofString(body))
-            .build());
+            .build(), HttpResponse.BodyHandlers.ofString(), HttpClient.Redirect.NORMAL, true, true, true)));
+    }
+
+    /**
+     * Get the final URL after following redirects
+     */
+    public String getFinalUrl(String url) throws IOException, InterruptedException, RateLimitException {
+        HttpResponse<String> response = get(url);
+        return response.uri().toString();
+    }
+
+    /**
+     * Get response with redirect information (without following redirects).
+     * Does not queue for a rate limit slot and returns error statuses as-is.
+     */
+    public HttpResponse<String> getWithoutRedirects(String url) throws IOException, InterruptedException, RateLimitException {
+        return await(execute(new HttpExchange<>(HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .timeout(Duration.ofSeconds(30))
+            .GET()
+            .build(), HttpResponse.BodyHandlers.ofString(), HttpClient.Redirect.NEVER, true, false, false)));
     }
-    
+
     /**
-     * Send HTTP request with rate limiting and redirect handling
+     * Override the request rate and burst allowed for a host
      */
-    private HttpResponse<String> sendRequest(HttpRequest request) throws IOException, InterruptedException, RateLimitException {
-        String domain = request.uri().getHost();
+    public void configureHostRateLimit(String host, double requestsPerSecond, int burst) {
+        scheduler.configureHost(host, requestsPerSecond, burst);
+    }
 
-        AtomicLong lastRequest = rateLimitMap.computeIfAbsent(domain, k -> new AtomicLong(0));
-        long now = System.currentTimeMillis();
-        long timeSinceLastRequest = now - lastRequest.get();
+    /**
+     * Per-host request and latency statistics, keyed by host name
+     */
+    public Map<String, HostStats> getHostStats() {
+        return Map.copyOf(hostStats);
+    }
+
+    /**
+     * Run an exchange through the interceptor pipeline
+     */
+    private <T> CompletableFuture<HttpResponse<T>> execute(HttpExchange<T> exchange) {
+        return proceed(interceptors, exchange, 0, this::send);
+    }
 
-        if (timeSinceLastRequest < DEFAULT_RATE_LIMIT_DELAY) {
-            long waitTime = DEFAULT_RATE_LIMIT_DELAY - timeSinceLastRequest;
-            Thread.sleep(waitTime);
+    /**
+     * Run an exchange through the stages from {@code index} on, ending in {@code last}
+     */
+    static <T> CompletableFuture<HttpResponse<T>> proceed(List<HttpInterceptor> interceptors, HttpExchange<T> exchange,
+                                                          int index, HttpInterceptor.Chain<T> last) {
+        if (index == interceptors.size()) {
+            return last.proceed(exchange);
         }
+        return interceptors.get(index).intercept(exchange, next -> proceed(interceptors, next, index + 1, last));
+    }
+
+    /**
+     * Final pipeline stage: send on the pooled client and turn HTTP errors into exceptions
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpExchange<T> exchange) {
+        HttpClient client = clients.get(exchange.getRedirectPolicy());
+        return client.sendAsync(exchange.getRequest(), exchange.getBodyHandler())
+            .thenApply(response -> exchange.checksStatus() ? checkStatus(response) : response);
+    }
 
-        lastRequest.set(now);
-        
-        // Add user agent to avoid 403 errors (excluding restricted headers)
-        HttpRequest requestWithHeaders = HttpRequest.newBuilder()
-            .uri(request.uri())
-            .timeout(request.timeout().orElse(Duration.ofSeconds(30)))
-            .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
-            .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
-            .header("Accept-Language", "en-US,en;q=0.5")
-            .method(request.method(), request.bodyPublisher().orElse(HttpRequest.BodyPublishers.noBody()))
-            .build();
-        
-        HttpResponse<String> response = httpClient.send(requestWithHeaders, HttpResponse.BodyHandlers.ofString());
-        
+    private static <T> HttpResponse<T> checkStatus(HttpResponse<T> response) {
         // Handle HTTP error codes
         if (response.statusCode() >= 400) {
+            if (response.body() instanceof InputStream stream) {
+                // Release the connection of a streamed error body nobody will read
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
             if (response.statusCode() == 429) {
-                throw new RateLimitException("Server rate limit exceeded for " + domain);
+                throw new CompletionException(new RateLimitException(
+                    "Server rate limit exceeded for " + response.request().uri().getHost(), parseRetryAfter(response)));
             }
-            throw new IOException("HTTP " + response.statusCode() + " error for " + request.uri());
+            throw new CompletionException(new HttpStatusException(response.statusCode(), response.request().uri()));
         }
-        
         return response;
     }
-    
+
     /**
-     * Get the final URL after following redirects
+     * Parse a Retry-After header given either in seconds or as an HTTP date
      */
-    public String getFinalUrl(String url) throws IOException, InterruptedException, RateLimitException {
-        HttpResponse<String> response = get(url);
-        return response.uri().toString();
+    static Duration parseRetryAfter(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration delay = Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt);
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
     }
-    
+
     /**
-     * Get response with redirect information (without following redirects)
+     * Block on an async request, unwrapping failures into the checked exceptions of the sync API
      */
-    public HttpResponse<String> getWithoutRedirects(String url) throws IOException, InterruptedException, RateLimitException {
-        String domain = url.substring(url.indexOf("://") + 3, url.indexOf("/", url.indexOf("://") + 3));
-        
-        // Check rate limit
-        AtomicLong lastRequest = rateLimitMap.computeIfAbsent(domain, k -> new AtomicLong(0));
-        long now = System.currentTimeMillis();
-        long timeSinceLastRequest = now - lastRequest.get();
-        
-        if (timeSinceLastRequest < DEFAULT_RATE_LIMIT_DELAY) {
-            long waitTime = DEFAULT_RATE_LIMIT_DELAY - timeSinceLastRequest;
-            throw new RateLimitException("Rate limit exceeded for " + domain + ". Wait " + waitTime + "ms");
+    private static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException, RateLimitException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RateLimitException rateLimit) {
+                throw rateLimit;
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * HTTP error status returned by the server
+     */
+    public static class HttpStatusException extends IOException {
+        private final int statusCode;
+
+        public HttpStatusException(int statusCode, URI uri) {
+            super("HTTP " + statusCode + " error for " + uri);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
         }
-        
-        lastRequest.set(now);
-        
-        // Create a client that doesn't follow redirects
-        HttpClient noRedirectClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(30))
-            .followRedirects(HttpClient.Redirect.NEVER)
-            .build();
-        
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(url))
-            .timeout(Duration.ofSeconds(30))
-            .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
-            .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
-            .header("Accept-Language", "en-US,en;q=0.5")
-            .GET()
-            .build();
-        
-        return noRedirectClient.send(request, HttpResponse.BodyHandlers.ofString());
     }
-    
+
+    /**
+     * Response body exceeded the size limit of the request; the transfer was aborted
+     */
+    public static class BodyTooLargeException extends IOException {
+        public BodyTooLargeException(long maxBytes) {
+            super("Response body exceeds " + maxBytes + " bytes");
+        }
+    }
+
     /**
      * Custom exception for rate limiting
      */
     public static class RateLimitException extends Exception {
+        private final Duration retryAfter;
+
         public RateLimitException(String message) {
+            this(message, null);
+        }
+
+        public RateLimitException(String message, Duration retryAfter) {
             super(message);
+            this.retryAfter = retryAfter;
         }
-        
+
+        /**
+         * Delay requested by the server through Retry-After, or null if it sent none
+         */
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
         public String getUserFriendlyMessage() {
             return "Rate limit exceeded. Please try again later.";
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package me.hash.mediaroulette.content.http;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * A single request travelling through the {@link HttpInterceptor} pipeline
+ * together with the options that steer the built-in stages.
+ */
+public class HttpExchange<T> {
+    private final HttpRequest request;
+    private final HttpResponse.BodyHandler<T> bodyHandler;
+    private final HttpClient.Redirect redirectPolicy;
+    private final boolean documentHeaders;
+    private final boolean waitForSlot;
+    private final boolean checkStatus;
+
+    HttpExchange(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, HttpClient.Redirect redirectPolicy,
+                 boolean documentHeaders, boolean waitForSlot, boolean checkStatus) {
+        this.request = request;
+        this.bodyHandler = bodyHandler;
+        this.redirectPolicy = redirectPolicy;
+        this.documentHeaders = documentHeaders;
+        this.waitForSlot = waitForSlot;
+        this.checkStatus = checkStatus;
+    }
+
+    public HttpRequest getRequest() { return request; }
+    public HttpResponse.BodyHandler<T> getBodyHandler() { return bodyHandler; }
+    public HttpClient.Redirect getRedirectPolicy() { return redirectPolicy; }
+    public String getHost() { return request.uri().getHost(); }
+
+    /** Whether browser-like Accept headers should be sent (pages/JSON) rather than just a User-Agent (media) */
+    public boolean wantsDocumentHeaders() { return documentHeaders; }
+
+    /** Whether to queue for a rate limit slot, or fail fast with a RateLimitException */
+    public boolean waitsForSlot() { return waitForSlot; }
+
+    /** Whether HTTP error statuses should fail the exchange */
+    public boolean checksStatus() { return checkStatus; }
+
+    public HttpExchange<T> withRequest(HttpRequest newRequest) {
+        return new HttpExchange<>(newRequest, bodyHandler, redirectPolicy, documentHeaders, waitForSlot, checkStatus);
+    }
+}
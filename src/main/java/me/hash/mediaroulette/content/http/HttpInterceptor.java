@@ -0,0 +1,21 @@
+package me.hash.mediaroulette.content.http;
+
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A stage of the {@link HttpClientWrapper} request pipeline.
+ * Each stage may rewrite the exchange, delay or repeat the call to the next stage,
+ * or observe the result.
+ */
+public interface HttpInterceptor {
+
+    <T> CompletableFuture<HttpResponse<T>> intercept(HttpExchange<T> exchange, Chain<T> chain);
+
+    /**
+     * The remainder of the pipeline after the current stage
+     */
+    interface Chain<T> {
+        CompletableFuture<HttpResponse<T>> proceed(HttpExchange<T> exchange);
+    }
+}
@@ -0,0 +1,26 @@
+package me.hash.mediaroulette.content.http;
+
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records per-host latency, in-flight and error counts for every attempt that reaches the network
+ */
+class MetricsInterceptor implements HttpInterceptor {
+    private final ConcurrentHashMap<String, HostStats> stats;
+
+    MetricsInterceptor(ConcurrentHashMap<String, HostStats> stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> intercept(HttpExchange<T> exchange, Chain<T> chain) {
+        HostStats hostStats = stats.computeIfAbsent(exchange.getHost(), HostStats::new);
+        long start = System.nanoTime();
+        hostStats.requestStarted();
+
+        return chain.proceed(exchange).whenComplete((response, error) ->
+            hostStats.requestFinished(System.nanoTime() - start, response != null ? response.version() : null, error == null));
+    }
+}
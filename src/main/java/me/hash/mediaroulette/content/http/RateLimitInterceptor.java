@@ -0,0 +1,42 @@
+package me.hash.mediaroulette.content.http;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Paces requests per host through the {@link RequestScheduler} and pauses a host
+ * when it answers 429
+ */
+class RateLimitInterceptor implements HttpInterceptor {
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final RequestScheduler scheduler;
+
+    RateLimitInterceptor(RequestScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> intercept(HttpExchange<T> exchange, Chain<T> chain) {
+        String host = exchange.getHost();
+
+        CompletableFuture<Void> slot;
+        if (exchange.waitsForSlot()) {
+            slot = scheduler.acquire(host);
+        } else if (scheduler.tryAcquire(host)) {
+            slot = CompletableFuture.completedFuture(null);
+        } else {
+            return CompletableFuture.failedFuture(new HttpClientWrapper.RateLimitException("Rate limit exceeded for " + host));
+        }
+
+        return slot.thenCompose(ignored -> chain.proceed(exchange).whenComplete((response, error) -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof HttpClientWrapper.RateLimitException rateLimit) {
+                Duration retryAfter = rateLimit.getRetryAfter();
+                scheduler.pause(host, retryAfter != null ? retryAfter : DEFAULT_RETRY_AFTER);
+            }
+        }));
+    }
+}
@@ -0,0 +1,267 @@
+package me.hash.mediaroulette.content.http;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Non-blocking per-host request pacing based on token buckets.
+ * <p>
+ * Each host has a bucket refilled at a configurable rate up to a burst size. Callers get a
+ * future that completes once a token is granted; waiters for the same host are served in
+ * FIFO order from a single timer thread, so no caller thread is parked while waiting.
+ * A host can also be paused, e.g. when it answers 429 with a {@code Retry-After} header.
+ * <p>
+ * A bucket that has sat unused at full tokens for the idle expiry behaves exactly like a new one,
+ * so acquires drop such buckets (at most once per expiry period) and random hosts don't pile up.
+ */
+public class RequestScheduler {
+    private static final double DEFAULT_RATE_PER_SECOND = 10.0;
+    private static final int DEFAULT_BURST = 3;
+    private static final int MAX_QUEUED_PER_HOST = 256;
+    private static final Duration DEFAULT_IDLE_EXPIRY = Duration.ofMinutes(5);
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "RequestScheduler-Timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ConcurrentHashMap<String, HostBucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, double[]> hostLimits = new ConcurrentHashMap<>();
+    private final double defaultRatePerSecond;
+    private final int defaultBurst;
+    private final long idleExpiryNanos;
+    private final AtomicLong nextExpiry;
+
+    public RequestScheduler() {
+        this(DEFAULT_RATE_PER_SECOND, DEFAULT_BURST);
+    }
+
+    public RequestScheduler(double defaultRatePerSecond, int defaultBurst) {
+        this(defaultRatePerSecond, defaultBurst, DEFAULT_IDLE_EXPIRY);
+    }
+
+    RequestScheduler(double defaultRatePerSecond, int defaultBurst, Duration idleExpiry) {
+        this.defaultRatePerSecond = defaultRatePerSecond;
+        this.defaultBurst = defaultBurst;
+        this.idleExpiryNanos = idleExpiry.toNanos();
+        this.nextExpiry = new AtomicLong(System.nanoTime() + idleExpiryNanos);
+    }
+
+    /**
+     * Override the rate and burst for a single host. Takes effect for buckets created afterwards
+     * and immediately for an existing bucket.
+     */
+    public void configureHost(String host, double ratePerSecond, int burst) {
+        hostLimits.put(host, new double[]{ratePerSecond, burst});
+        HostBucket bucket = buckets.get(host);
+        if (bucket != null) {
+            bucket.reconfigure(ratePerSecond, burst);
+        }
+    }
+
+    /**
+     * Wait asynchronously for a request slot on the given host
+     * @return a future completed when the request may be sent, or failed with
+     *         {@link HttpClientWrapper.RateLimitException} if the host queue is full
+     */
+    public CompletableFuture<Void> acquire(String host) {
+        expireIdleBuckets();
+        return withBucket(host, HostBucket::acquire);
+    }
+
+    /**
+     * Take a request slot only if one is available right now
+     */
+    public boolean tryAcquire(String host) {
+        return withBucket(host, HostBucket::tryAcquire);
+    }
+
+    /**
+     * Stop granting slots for a host until the given delay has passed
+     */
+    public void pause(String host, Duration delay) {
+        withBucket(host, bucket -> {
+            bucket.pause(delay.toNanos());
+            return null;
+        });
+    }
+
+    public int getQueuedRequests(String host) {
+        HostBucket bucket = buckets.get(host);
+        return bucket == null ? 0 : bucket.queued();
+    }
+
+    int trackedHosts() {
+        return buckets.size();
+    }
+
+    /**
+     * Run an action on the host's live bucket; one that expired meanwhile is replaced by a new one
+     */
+    private <T> T withBucket(String host, Function<HostBucket, T> action) {
+        while (true) {
+            HostBucket bucket = bucket(host);
+            synchronized (bucket) {
+                if (!bucket.expired) {
+                    return action.apply(bucket);
+                }
+            }
+        }
+    }
+
+    private void expireIdleBuckets() {
+        long now = System.nanoTime();
+        long due = nextExpiry.get();
+        if (now - due < 0 || !nextExpiry.compareAndSet(due, now + idleExpiryNanos)) {
+            return;
+        }
+        buckets.forEach((host, bucket) -> {
+            if (bucket.expireIfIdle(idleExpiryNanos)) {
+                buckets.remove(host, bucket);
+            }
+        });
+    }
+
+    private HostBucket bucket(String host) {
+        return buckets.computeIfAbsent(host, h -> {
+            double[] limits = hostLimits.get(h);
+            return limits != null
+                    ? new HostBucket(h, limits[0], (int) limits[1])
+                    : new HostBucket(h, defaultRatePerSecond, defaultBurst);
+        });
+    }
+
+    private static class HostBucket {
+        private final String host;
+        private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private double ratePerNano;
+        private int burst;
+        private double tokens;
+        private long lastRefill;
+        private long pausedUntil;
+        private long lastUsed;
+        private boolean drainScheduled;
+        // Removed from the scheduler; callers holding it go back for a new one
+        private boolean expired;
+
+        HostBucket(String host, double ratePerSecond, int burst) {
+            this.host = host;
+            this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.burst = burst;
+            this.tokens = burst;
+            this.lastRefill = System.nanoTime();
+            this.lastUsed = lastRefill;
+        }
+
+        synchronized void reconfigure(double ratePerSecond, int burst) {
+            refill(System.nanoTime());
+            this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.burst = burst;
+            this.tokens = Math.min(tokens, burst);
+        }
+
+        synchronized CompletableFuture<Void> acquire() {
+            lastUsed = System.nanoTime();
+            if (waiters.isEmpty() && takeToken()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (waiters.size() >= MAX_QUEUED_PER_HOST) {
+                return CompletableFuture.failedFuture(new HttpClientWrapper.RateLimitException(
+                        "Too many queued requests for " + host));
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.addLast(waiter);
+            scheduleDrain();
+            return waiter;
+        }
+
+        synchronized boolean tryAcquire() {
+            lastUsed = System.nanoTime();
+            return waiters.isEmpty() && takeToken();
+        }
+
+        synchronized void pause(long delayNanos) {
+            lastUsed = System.nanoTime();
+            pausedUntil = Math.max(pausedUntil, lastUsed + delayNanos);
+            tokens = 0;
+        }
+
+        /**
+         * Mark the bucket expired if it has been unused for the given time and is back at full
+         * tokens with nothing queued or paused, i.e. indistinguishable from a new bucket
+         */
+        synchronized boolean expireIfIdle(long idleNanos) {
+            long now = System.nanoTime();
+            refill(now);
+            if (waiters.isEmpty() && !drainScheduled && tokens >= burst
+                    && now - pausedUntil >= 0 && now - lastUsed >= idleNanos) {
+                expired = true;
+            }
+            return expired;
+        }
+
+        synchronized int queued() {
+            return waiters.size();
+        }
+
+        private boolean takeToken() {
+            long now = System.nanoTime();
+            refill(now);
+            if (now - pausedUntil < 0 || tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerNano);
+            lastRefill = now;
+        }
+
+        private void scheduleDrain() {
+            if (drainScheduled) {
+                return;
+            }
+            long now = System.nanoTime();
+            refill(now);
+            long untilToken = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / ratePerNano);
+            long delay = Math.max(untilToken, pausedUntil - now);
+            drainScheduled = true;
+            TIMER.schedule(this::drain, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        }
+
+        private void drain() {
+            List<CompletableFuture<Void>> granted = new ArrayList<>();
+            synchronized (this) {
+                drainScheduled = false;
+                while (!waiters.isEmpty()) {
+                    if (waiters.peekFirst().isDone()) {
+                        // Cancelled by the caller, don't spend a token on it
+                        waiters.pollFirst();
+                        continue;
+                    }
+                    if (!takeToken()) {
+                        break;
+                    }
+                    granted.add(waiters.pollFirst());
+                }
+                if (!waiters.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+            granted.forEach(waiter -> waiter.complete(null));
+        }
+    }
+}
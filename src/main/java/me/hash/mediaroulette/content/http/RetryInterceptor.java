@@ -0,0 +1,65 @@
+package me.hash.mediaroulette.content.http;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries idempotent requests on connection failures and transient gateway errors,
+ * with a short linear backoff that does not hold a thread while waiting
+ */
+class RetryInterceptor implements HttpInterceptor {
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD");
+
+    private final int maxRetries;
+    private final long backoffMs;
+
+    RetryInterceptor(int maxRetries, long backoffMs) {
+        this.maxRetries = maxRetries;
+        this.backoffMs = backoffMs;
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> intercept(HttpExchange<T> exchange, Chain<T> chain) {
+        if (!IDEMPOTENT_METHODS.contains(exchange.getRequest().method())) {
+            return chain.proceed(exchange);
+        }
+        return attempt(exchange, chain, 0);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> attempt(HttpExchange<T> exchange, Chain<T> chain, int retry) {
+        return chain.proceed(exchange)
+            .handle((response, error) -> {
+                if (error == null) {
+                    return CompletableFuture.completedFuture(response);
+                }
+                if (retry >= maxRetries || !isRetryable(error)) {
+                    return CompletableFuture.<HttpResponse<T>>failedFuture(unwrap(error));
+                }
+                return CompletableFuture.runAsync(() -> {},
+                        CompletableFuture.delayedExecutor(backoffMs * (retry + 1), TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> attempt(exchange, chain, retry + 1));
+            })
+            .thenCompose(future -> future);
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof HttpClientWrapper.HttpStatusException status) {
+            return RETRYABLE_STATUSES.contains(status.getStatusCode());
+        }
+        // Timeouts already spent the caller's budget, and an oversized body will not shrink
+        return cause instanceof IOException
+            && !(cause instanceof HttpTimeoutException)
+            && !(cause instanceof HttpClientWrapper.BodyTooLargeException);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,156 @@
+package me.hash.mediaroulette.content.provider.impl.images;
+
+import me.hash.mediaroulette.content.http.HttpClientWrapper;
+import me.hash.mediaroulette.service.MediaFetchExecutor;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-board snapshots of 4chan catalogs.
+ * <p>
+ * A board's catalog is downloaded at most once per {@link #SNAPSHOT_TTL_MS}; after that it is
+ * revalidated with {@code If-Modified-Since}, so an unchanged catalog costs a 304 without a body.
+ * Concurrent lookups of a stale board share one request. Boards that fail to load are remembered
+ * as empty snapshots for {@link #FAILURE_TTL_MS}, which doubles as the board validation cache.
+ */
+class FourChanCatalogCache {
+    private static final Logger logger = LoggerFactory.getLogger(FourChanCatalogCache.class);
+    private static final String CATALOG_URL = "https://a.4cdn.org/%s/catalog.json";
+    // 4chan asks API clients not to poll a catalog more than about once a minute
+    private static final long SNAPSHOT_TTL_MS = TimeUnit.SECONDS.toMillis(90);
+    private static final long FAILURE_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long LOOKUP_TIMEOUT_SECONDS = 20;
+
+    /**
+     * A catalog thread that has at least one image
+     * @param images number of images in the thread including the opening post's
+     */
+    record CatalogThread(long number, int images) {}
+
+    /**
+     * @param lastModified Last-Modified header of the catalog response, null if unknown or failed
+     */
+    record Snapshot(String board, List<CatalogThread> threads, String lastModified, long fetchedAt, boolean failed) {
+        boolean isFresh(long now) {
+            return now - fetchedAt < (failed ? FAILURE_TTL_MS : SNAPSHOT_TTL_MS);
+        }
+    }
+
+    private final HttpClientWrapper httpClient;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Snapshot>> inFlight = new ConcurrentHashMap<>();
+
+    FourChanCatalogCache(HttpClientWrapper httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Current snapshot of a board, fetching or revalidating it if stale. Never throws for board or
+     * network errors; those produce a failed, empty snapshot.
+     */
+    CompletableFuture<Snapshot> getSnapshot(String board) {
+        Snapshot current = snapshots.get(board);
+        if (current != null && current.isFresh(System.currentTimeMillis())) {
+            return CompletableFuture.completedFuture(current);
+        }
+
+        CompletableFuture<Snapshot> created = new CompletableFuture<>();
+        CompletableFuture<Snapshot> existing = inFlight.putIfAbsent(board, created);
+        if (existing != null) {
+            return existing;
+        }
+        fetch(board, current).whenComplete((snapshot, error) -> {
+            Snapshot result = snapshot != null ? snapshot : failed(board, System.currentTimeMillis());
+            snapshots.put(board, result);
+            inFlight.remove(board, created);
+            created.complete(result);
+        });
+        return created;
+    }
+
+    /**
+     * The board's cached snapshot if it is still fresh, without fetching anything
+     */
+    Snapshot freshSnapshot(String board) {
+        Snapshot current = snapshots.get(board);
+        return current != null && current.isFresh(System.currentTimeMillis()) ? current : null;
+    }
+
+    /**
+     * Whether the board has a catalog with at least one image thread, waiting for a stale catalog
+     * no longer than the interaction deadline allows
+     */
+    boolean exists(String board) {
+        try {
+            long timeoutMs = MediaFetchExecutor.remainingTime(Duration.ofSeconds(LOOKUP_TIMEOUT_SECONDS)).toMillis();
+            return !getSnapshot(board).get(timeoutMs, TimeUnit.MILLISECONDS).threads().isEmpty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private CompletableFuture<Snapshot> fetch(String board, Snapshot previous) {
+        String lastModified = previous != null && !previous.failed() ? previous.lastModified() : null;
+        return httpClient.getIfModifiedSinceAsync(String.format(CATALOG_URL, board), lastModified)
+                .handle((response, error) -> {
+                    long now = System.currentTimeMillis();
+                    if (error != null) {
+                        logger.warn("Failed to fetch 4chan catalog for /{}/: {}", board, error.getMessage());
+                        // A transient failure should not take down a board that worked a moment ago
+                        return previous != null && !previous.failed()
+                                ? new Snapshot(board, previous.threads(), previous.lastModified(), now, false)
+                                : failed(board, now);
+                    }
+                    if (response.statusCode() == 304 && previous != null) {
+                        return new Snapshot(board, previous.threads(), previous.lastModified(), now, false);
+                    }
+                    try {
+                        List<CatalogThread> threads = parseCatalog(response.body());
+                        logger.debug("Loaded 4chan catalog for /{}/ with {} image threads", board, threads.size());
+                        return new Snapshot(board, threads, lastModifiedOf(response), now, false);
+                    } catch (JSONException e) {
+                        logger.warn("Invalid 4chan catalog for /{}/: {}", board, e.getMessage());
+                        return failed(board, now);
+                    }
+                });
+    }
+
+    private static Snapshot failed(String board, long now) {
+        return new Snapshot(board, List.of(), null, now, true);
+    }
+
+    private static String lastModifiedOf(HttpResponse<String> response) {
+        return response.headers().firstValue("Last-Modified").orElse(null);
+    }
+
+    static List<CatalogThread> parseCatalog(String json) {
+        JSONArray pages = new JSONArray(json);
+        List<CatalogThread> threads = new ArrayList<>();
+        for (int i = 0; i < pages.length(); i++) {
+            JSONArray pageThreads = pages.getJSONObject(i).getJSONArray("threads");
+            for (int j = 0; j < pageThreads.length(); j++) {
+                JSONObject thread = pageThreads.getJSONObject(j);
+                int images = thread.optInt("images", 0) + (thread.has("tim") ? 1 : 0);
+                if (images > 0) {
+                    threads.add(new CatalogThread(thread.getLong("no"), images));
+                }
+            }
+        }
+        return List.copyOf(threads);
+    }
+}
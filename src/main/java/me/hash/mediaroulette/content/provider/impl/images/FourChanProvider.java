@@ -4,6 +4,7 @@ import me.hash.mediaroulette.model.content.MediaResult;
 import me.hash.mediaroulette.model.content.MediaSource;
 import me.hash.mediaroulette.content.provider.MediaProvider;
 import me.hash.mediaroulette.content.http.HttpClientWrapper;
+import me.hash.mediaroulette.service.MediaFetchExecutor;
 import me.hash.mediaroulette.utils.ErrorReporter;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -11,9 +12,30 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Random images from 4chan boards.
+ * <p>
+ * Catalogs come from {@link FourChanCatalogCache}. Each board keeps a bounded concurrent queue
+ * of harvested images; a refill downloads {@link #THREADS_PER_HARVEST} random image threads in
+ * parallel, drops images already seen on that board (by {@code tim}) and shuffles the rest. Once
+ * a queue falls below {@link #LOW_WATER_MARK} a refill starts in the background, so requests
+ * normally only wait on the network when a board is used for the first time.
+ */
 public class FourChanProvider implements MediaProvider {
     private static final Logger logger = LoggerFactory.getLogger(FourChanProvider.class);
     private static final List<String> BOARDS = Arrays.asList("a", "c", "w", "m", "cgl", "cm", "n", "jp", "vp", "v", "vg",
@@ -21,15 +43,48 @@ public class FourChanProvider implements MediaProvider {
             "wg", "mu", "fa", "3", "gd", "diy", "wsg", "s", "hc", "hm", "h", "e", "u", "d", "y", "t", "hr", "gif",
             "trv", "fit", "x", "lit", "adv", "lgbt", "mlp", "b", "r", "r9k", "pol", "soc", "s4s");
 
-    // Cache to track board validation results
-    private static final Map<String, Boolean> BOARD_VALIDATION_CACHE = new ConcurrentHashMap<>();
-    
-    private final Map<String, Queue<MediaResult>> imageCache = new ConcurrentHashMap<>();
+    private static final String THREAD_URL = "https://a.4cdn.org/%s/thread/%d.json";
+    private static final int THREADS_PER_HARVEST = 4;
+    private static final int LOW_WATER_MARK = 10;
+    private static final int MAX_QUEUED_PER_BOARD = 300;
+    private static final int MAX_SEEN_PER_BOARD = 5_000;
+    // Threads are pruned quickly; older queued images are likely dead links
+    private static final long MAX_QUEUED_AGE_MS = TimeUnit.MINUTES.toMillis(15);
+    private static final long REFILL_TIMEOUT_SECONDS = 20;
+    private static final int MAX_REFILL_WAITS = 5;
+    private static final int MAX_BOARD_LOOKUPS = 10;
+
+    private record QueuedImage(MediaResult result, long harvestedAt) {}
+
+    /**
+     * Queue and refill state of one board
+     */
+    private static final class BoardQueue {
+        final BlockingQueue<QueuedImage> images = new LinkedBlockingQueue<>(MAX_QUEUED_PER_BOARD);
+        final AtomicReference<CompletableFuture<Integer>> refill = new AtomicReference<>();
+        // Recently harvested tims, oldest first
+        final Set<Long> seen = Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > MAX_SEEN_PER_BOARD;
+            }
+        });
+
+        // Thread number -> catalog image count when it was last harvested
+        final Map<Long, Integer> harvestedThreads = new ConcurrentHashMap<>();
+
+        synchronized boolean markSeen(long tim) {
+            return seen.add(tim);
+        }
+    }
+
+    private final Map<String, BoardQueue> boardQueues = new ConcurrentHashMap<>();
+    private final FourChanCatalogCache catalogs;
     private final HttpClientWrapper httpClient;
-    private final Random random = new Random();
 
     public FourChanProvider(HttpClientWrapper httpClient) {
         this.httpClient = httpClient;
+        this.catalogs = new FourChanCatalogCache(httpClient);
     }
 
     @Override
@@ -42,13 +97,20 @@ public class FourChanProvider implements MediaProvider {
             board = getValidRandomBoard(userId);
         }
 
-        Queue<MediaResult> cache = imageCache.computeIfAbsent(board, k -> new LinkedList<>());
+        BoardQueue queue = boardQueues.computeIfAbsent(board, k -> new BoardQueue());
+        MediaResult result = pollFresh(queue);
+        // Concurrent requests waiting on the same refill may drain it before this one polls
+        for (int attempt = 0; result == null && attempt < MAX_REFILL_WAITS; attempt++) {
+            if (!awaitRefill(board, queue, userId)) {
+                break;
+            }
+            result = pollFresh(queue);
+        }
 
-        if (cache.isEmpty()) {
-            populateCache(board, userId);
+        if (queue.images.size() < LOW_WATER_MARK) {
+            startRefill(board, queue);
         }
 
-        MediaResult result = cache.poll();
         if (result == null) {
             String errorMsg = "No images available for board: " + board;
             logger.warn(errorMsg);
@@ -57,132 +119,248 @@ public class FourChanProvider implements MediaProvider {
         }
         return result;
     }
+
+    private static MediaResult pollFresh(BoardQueue queue) {
+        long now = System.currentTimeMillis();
+        QueuedImage image;
+        while ((image = queue.images.poll()) != null) {
+            if (now - image.harvestedAt() < MAX_QUEUED_AGE_MS) {
+                return image.result();
+            }
+        }
+        return null;
+    }
     
     /**
-     * Get a valid random board with validation
+     * Pick a random board whose catalog is known to have image threads. Boards with a fresh
+     * snapshot are chosen without any request; the catalogs of up to {@link #MAX_BOARD_LOOKUPS}
+     * stale boards are refreshed concurrently in the background. Only when no board is fresh (a
+     * cold start) does this wait, for the first refreshed board with threads and no longer than
+     * the interaction deadline allows.
      */
-    private String getValidRandomBoard(String userId) throws IOException {
+    private String getValidRandomBoard(String userId) throws IOException, InterruptedException {
         List<String> shuffledBoards = new ArrayList<>(BOARDS);
         Collections.shuffle(shuffledBoards);
-        
-        // Try to find a valid board, with a maximum of 10 attempts
-        int attempts = 0;
-        int maxAttempts = Math.min(10, shuffledBoards.size());
-        
+
+        List<String> stale = new ArrayList<>();
         for (String board : shuffledBoards) {
-            if (attempts >= maxAttempts) {
-                break;
-            }
-            attempts++;
-            
-            try {
-                if (validateBoardExists(board)) {
-                    return board;
-                }
-            } catch (IOException e) {
-                logger.warn("Board validation failed for {}: {}", board, e.getMessage(), e);
+            FourChanCatalogCache.Snapshot snapshot = catalogs.freshSnapshot(board);
+            if (snapshot == null) {
+                stale.add(board);
+            } else if (!snapshot.threads().isEmpty()) {
+                refreshInBackground(stale);
+                return board;
             }
         }
-        
+
+        String board = awaitFirstValid(refreshInBackground(stale));
+        if (board != null) {
+            return board;
+        }
+
         // If no valid board found, report error and throw exception
+        int attempts = Math.min(stale.size(), MAX_BOARD_LOOKUPS);
         String errorMsg = "No valid 4chan boards found after " + attempts + " attempts";
         logger.error(errorMsg);
         ErrorReporter.reportProviderError("4chan", "board validation", errorMsg, userId);
         throw new IOException(errorMsg + ". Please use /support for help.");
     }
-    
+
     /**
-     * Validate if a board exists by checking its catalog
+     * Start refreshing the catalogs of the first {@link #MAX_BOARD_LOOKUPS} boards
+     * @return completes with the first of those boards that has image threads, or null if none has
      */
-    private boolean validateBoardExists(String board) throws IOException {
-        // Check cache first
-        if (BOARD_VALIDATION_CACHE.containsKey(board)) {
-            return BOARD_VALIDATION_CACHE.get(board);
+    private CompletableFuture<String> refreshInBackground(List<String> boards) {
+        List<String> lookups = boards.subList(0, Math.min(MAX_BOARD_LOOKUPS, boards.size()));
+        CompletableFuture<String> firstValid = new CompletableFuture<>();
+        if (lookups.isEmpty()) {
+            firstValid.complete(null);
+            return firstValid;
         }
-        
+        AtomicInteger pending = new AtomicInteger(lookups.size());
+        for (String board : lookups) {
+            catalogs.getSnapshot(board).whenComplete((snapshot, error) -> {
+                if (snapshot != null && !snapshot.threads().isEmpty()) {
+                    firstValid.complete(board);
+                } else if (pending.decrementAndGet() == 0) {
+                    firstValid.complete(null);
+                }
+            });
+        }
+        return firstValid;
+    }
+
+    private static String awaitFirstValid(CompletableFuture<String> firstValid) throws InterruptedException {
+        long timeoutMs = MediaFetchExecutor.remainingTime(Duration.ofSeconds(REFILL_TIMEOUT_SECONDS)).toMillis();
         try {
-            String url = String.format("https://a.4cdn.org/%s/catalog.json", board);
-            String response = httpClient.get(url, "4chan", null);
-            
-            // If we can parse the response as JSON array, the board exists
-            JSONArray data = new JSONArray(response);
-            boolean exists = data.length() > 0;
-            
-            // Cache the result
-            BOARD_VALIDATION_CACHE.put(board, exists);
-            
-            // Simple cache eviction policy
-            if (BOARD_VALIDATION_CACHE.size() > 100) {
-                BOARD_VALIDATION_CACHE.clear();
-            }
-            
-            return exists;
-        } catch (Exception e) {
-            // If any error occurs, consider the board invalid
-            BOARD_VALIDATION_CACHE.put(board, false);
-            return false;
+            return firstValid.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // The lookups keep running and make their boards fresh for the next request
+            return null;
         }
     }
 
-    private void populateCache(String board, String userId) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
+    /**
+     * Wait for the board's current (or a new) refill, bounded by the interaction deadline
+     * @return whether the refill queued any images
+     */
+    private boolean awaitRefill(String board, BoardQueue queue, String userId)
+            throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
+        long timeoutMs = MediaFetchExecutor.remainingTime(Duration.ofSeconds(REFILL_TIMEOUT_SECONDS)).toMillis();
         try {
-            List<Integer> threadNumbers = fetchThreadNumbers(board);
-            if (threadNumbers.isEmpty()) {
+            int added = startRefill(board, queue).get(timeoutMs, TimeUnit.MILLISECONDS);
+            if (added == 0) {
                 String errorMsg = "No threads found for board: " + board;
                 logger.warn(errorMsg);
                 ErrorReporter.reportFailed4ChanBoard(board, errorMsg, userId);
-                return;
             }
-
-            int selectedThread = threadNumbers.get(random.nextInt(threadNumbers.size()));
-            List<MediaResult> images = fetchImagesFromThread(board, selectedThread);
-
-            Queue<MediaResult> cache = imageCache.get(board);
-            cache.addAll(images);
-        } catch (IOException | HttpClientWrapper.RateLimitException | InterruptedException e) {
-            String errorMsg = "Failed to populate cache for board " + board + ": " + e.getMessage();
+            return added > 0;
+        } catch (TimeoutException e) {
+            // The refill keeps running and serves the next request
+            logger.warn("Timed out waiting for 4chan board {} after {}ms", board, timeoutMs);
+            return false;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            String errorMsg = "Failed to populate cache for board " + board + ": " + cause.getMessage();
             logger.error(errorMsg);
             ErrorReporter.reportFailed4ChanBoard(board, errorMsg, userId);
-            throw e;
+            if (cause instanceof HttpClientWrapper.RateLimitException rateLimit) {
+                throw rateLimit;
+            }
+            throw cause instanceof IOException io ? io : new IOException(cause);
         }
     }
 
-    private List<Integer> fetchThreadNumbers(String board) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
-        String url = String.format("https://a.4cdn.org/%s/catalog.json", board);
-        String response = httpClient.get(url, "4chan", null);
+    /**
+     * Start a refill of the board unless one is already running; completes with the number of images queued
+     */
+    private CompletableFuture<Integer> startRefill(String board, BoardQueue queue) {
+        CompletableFuture<Integer> running = queue.refill.get();
+        if (running != null && !running.isDone()) {
+            return running;
+        }
+        CompletableFuture<Integer> created = new CompletableFuture<>();
+        if (!queue.refill.compareAndSet(running, created)) {
+            // Another request started a refill in between
+            return queue.refill.get();
+        }
 
-        JSONArray data = new JSONArray(response);
-        List<Integer> threadNumbers = new ArrayList<>();
+        catalogs.getSnapshot(board)
+                .thenCompose(snapshot -> harvest(board, snapshot.threads()))
+                .whenComplete((images, error) -> {
+                    if (error != null) {
+                        created.completeExceptionally(error instanceof CompletionException
+                                && error.getCause() != null ? error.getCause() : error);
+                        return;
+                    }
+                    int added = 0;
+                    long now = System.currentTimeMillis();
+                    for (MediaResult image : images) {
+                        if (!queue.images.offer(new QueuedImage(image, now))) {
+                            break;
+                        }
+                        added++;
+                    }
+                    logger.debug("Refilled 4chan board {} with {} images", board, added);
+                    created.complete(added);
+                });
+        return created;
+    }
 
-        for (int i = 0; i < data.length(); i++) {
-            JSONObject page = data.getJSONObject(i);
-            JSONArray threads = page.getJSONArray("threads");
-            for (int j = 0; j < threads.length(); j++) {
-                JSONObject thread = threads.getJSONObject(j);
-                threadNumbers.add(thread.getInt("no"));
+    /**
+     * Download a few random image threads in parallel and return their unseen images in random order.
+     * When a slow board has nothing new, random threads are harvested again with repeats allowed,
+     * so a refill only comes back empty if the catalog has no threads or every fetch failed.
+     */
+    private CompletableFuture<List<MediaResult>> harvest(String board, List<FourChanCatalogCache.CatalogThread> threads) {
+        BoardQueue queue = boardQueues.computeIfAbsent(board, k -> new BoardQueue());
+        // Skip threads that gained no images since they were last harvested; forget pruned threads
+        Set<Long> live = new HashSet<>();
+        List<FourChanCatalogCache.CatalogThread> candidates = new ArrayList<>();
+        for (FourChanCatalogCache.CatalogThread thread : threads) {
+            live.add(thread.number());
+            if (thread.images() > queue.harvestedThreads.getOrDefault(thread.number(), 0)) {
+                candidates.add(thread);
             }
         }
-        return threadNumbers;
+        queue.harvestedThreads.keySet().retainAll(live);
+        if (threads.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        if (candidates.isEmpty()) {
+            queue.harvestedThreads.clear();
+            return fetchThreads(board, queue, pick(threads), true);
+        }
+        return fetchThreads(board, queue, pick(candidates), false).thenCompose(images -> images.isEmpty()
+                ? fetchThreads(board, queue, pick(threads), true)
+                : CompletableFuture.completedFuture(images));
+    }
+
+    private static List<FourChanCatalogCache.CatalogThread> pick(List<FourChanCatalogCache.CatalogThread> threads) {
+        List<FourChanCatalogCache.CatalogThread> shuffled = new ArrayList<>(threads);
+        Collections.shuffle(shuffled, ThreadLocalRandom.current());
+        return shuffled.subList(0, Math.min(THREADS_PER_HARVEST, shuffled.size()));
     }
 
-    private List<MediaResult> fetchImagesFromThread(String board, int threadId) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
-        String url = String.format("https://a.4cdn.org/%s/thread/%d.json", board, threadId);
-        String response = httpClient.get(url, "4chan", null);
+    /**
+     * Fetch the threads in parallel; a thread counts as harvested only once its fetch succeeded
+     * @param allowRepeats whether images already seen on the board are returned too
+     */
+    private CompletableFuture<List<MediaResult>> fetchThreads(String board, BoardQueue queue,
+                                                              List<FourChanCatalogCache.CatalogThread> picked,
+                                                              boolean allowRepeats) {
+        List<CompletableFuture<List<MediaResult>>> fetches = new ArrayList<>(picked.size());
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        for (FourChanCatalogCache.CatalogThread thread : picked) {
+            fetches.add(httpClient.getAsync(String.format(THREAD_URL, board, thread.number()))
+                    .thenApply(response -> {
+                        List<MediaResult> images = parseThread(board, thread.number(), response.body(), allowRepeats);
+                        queue.harvestedThreads.put(thread.number(), thread.images());
+                        return images;
+                    })
+                    .exceptionally(error -> {
+                        // Pruned (404) threads are expected, the other threads still count
+                        logger.debug("Skipping 4chan thread /{}/{}: {}", board, thread.number(), error.getMessage());
+                        errors.add(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                        return List.of();
+                    }));
+        }
+
+        return CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<MediaResult> images = new ArrayList<>();
+            for (CompletableFuture<List<MediaResult>> fetch : fetches) {
+                images.addAll(fetch.join());
+            }
+            if (images.isEmpty() && errors.size() == fetches.size()) {
+                // Every thread failed; surface a rate limit over a plain failure so callers can back off
+                Throwable error = errors.stream()
+                        .filter(HttpClientWrapper.RateLimitException.class::isInstance)
+                        .findFirst()
+                        .orElse(errors.peek());
+                throw new CompletionException(error);
+            }
+            Collections.shuffle(images, ThreadLocalRandom.current());
+            return images;
+        });
+    }
 
+    private List<MediaResult> parseThread(String board, long threadId, String response, boolean allowRepeats) {
+        BoardQueue queue = boardQueues.computeIfAbsent(board, k -> new BoardQueue());
         JSONObject postData = new JSONObject(response);
         JSONArray posts = postData.getJSONArray("posts");
         List<MediaResult> images = new ArrayList<>();
 
+        String description = String.format("Source: 4Chan\nBoard: %s\nThread: <%s>",
+                board,
+                String.format("https://boards.4chan.org/%s/thread/%d", board, threadId));
         for (int i = 0; i < posts.length(); i++) {
             JSONObject post = posts.getJSONObject(i);
             if (post.has("tim") && post.has("ext")) {
-                String imageUrl = String.format("https://i.4cdn.org/%s/%d%s",
-                        board, post.getLong("tim"), post.getString("ext"));
-
-                String description = String.format("Source: 4Chan\nBoard: %s\nThread: <%s>",
-                        board,
-                        String.format("https://boards.4chan.org/%s/thread/%d", board, threadId));
-
+                long tim = post.getLong("tim");
+                if (!queue.markSeen(tim) && !allowRepeats) {
+                    continue;
+                }
+                String imageUrl = String.format("https://i.4cdn.org/%s/%d%s", board, tim, post.getString("ext"));
                 images.add(new MediaResult(imageUrl, "Here is your random 4Chan image!", description, MediaSource.CHAN_4));
             }
         }
@@ -194,13 +372,8 @@ public class FourChanProvider implements MediaProvider {
             return false;
         }
         
-        // Also check if board actually exists (with caching)
-        try {
-            return validateBoardExists(board);
-        } catch (IOException e) {
-            logger.error("Failed to validate board {}: {}", board, e.getMessage());
-            return false;
-        }
+        // Also check if board actually exists (from its cached catalog)
+        return catalogs.exists(board);
     }
 
     @Override
@@ -5,17 +5,23 @@ import me.hash.mediaroulette.model.content.MediaResult;
 import me.hash.mediaroulette.model.content.MediaSource;
 import me.hash.mediaroulette.content.provider.MediaProvider;
 import me.hash.mediaroulette.content.http.HttpClientWrapper;
+import me.hash.mediaroulette.utils.cache.BoundedCache;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class GoogleProvider implements MediaProvider {
-    private final Map<String, Queue<MediaResult>> imageCache = new ConcurrentHashMap<>();
+    // One result queue per query; dictionary words make the key space open-ended, so only recent queries are kept
+    private static final int MAX_CACHED_QUERIES = 500;
+    private static final Duration QUERY_TTL = Duration.ofHours(1);
+
+    private final BoundedCache<Queue<MediaResult>> imageCache = new BoundedCache<>(MAX_CACHED_QUERIES, QUERY_TTL);
     private final HttpClientWrapper httpClient;
     private final Random random = new Random();
     private final String apiKey;
@@ -41,20 +47,21 @@ public class GoogleProvider implements MediaProvider {
             }
         }
 
-        Queue<MediaResult> cache = imageCache.computeIfAbsent(query, k -> new LinkedList<>());
-
-        if (cache.isEmpty()) {
-            populateCache(query);
-        }
+        Queue<MediaResult> cache = imageCache.get(query, k -> new ConcurrentLinkedQueue<>());
 
+        // Poll before refilling so a concurrent refill is not taken for an empty query
         MediaResult result = cache.poll();
+        if (result == null) {
+            populateCache(query, cache);
+            result = cache.poll();
+        }
         if (result == null) {
             throw new IOException("No images available for query: " + query);
         }
         return result;
     }
 
-    private void populateCache(String query) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
+    private void populateCache(String query, Queue<MediaResult> cache) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
         int start = random.nextInt(5) + 1;
         String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
         String url = String.format(
@@ -83,7 +90,6 @@ public class GoogleProvider implements MediaProvider {
             images.add(new MediaResult(imageUrl, title, description, MediaSource.GOOGLE));
         }
 
-        Queue<MediaResult> cache = imageCache.get(query);
         cache.addAll(images);
     }
 
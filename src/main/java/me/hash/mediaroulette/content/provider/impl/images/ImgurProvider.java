@@ -4,62 +4,206 @@ import me.hash.mediaroulette.content.http.HttpClientWrapper;
 import me.hash.mediaroulette.model.content.MediaResult;
 import me.hash.mediaroulette.model.content.MediaSource;
 import me.hash.mediaroulette.content.provider.MediaProvider;
+import me.hash.mediaroulette.service.MediaFetchExecutor;
+import me.hash.mediaroulette.utils.media.ImageProbe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.Random;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class ImgurProvider implements MediaProvider {
+/**
+ * Finds random Imgur images by guessing IDs.
+ * <p>
+ * Most random IDs miss, so candidates are probed concurrently ({@link #PARALLEL_PROBES} in flight,
+ * {@link #MAX_ATTEMPTS} per search) and the first valid hit wins. A small pool of already
+ * validated images is kept topped up in the background so most requests are served from memory.
+ * {@link #close()} stops the probe and prefetch threads when {@link
+ * me.hash.mediaroulette.content.factory.ProviderRegistry} shuts down.
+ */
+public class ImgurProvider implements MediaProvider, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ImgurProvider.class);
     private static final String[] IMAGE_FORMATS = {"jpg", "png", "gif"};
     private static final String IMGUR_ID_CHARACTERS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
     private static final int[] IMGUR_ID_LENGTH_RANGE = {5, 6};
     private static final int MAX_ATTEMPTS = 120;
+    private static final int PARALLEL_PROBES = 8;
+    private static final long SEARCH_TIMEOUT_SECONDS = 30;
+    // Enough to get past EXIF/ICC segments to a JPEG frame header; PNG/GIF need a few dozen bytes
+    private static final int MAX_PROBE_BYTES = 64 * 1024;
+    private static final String IMGUR_HOST = "i.imgur.com";
+
+    private static final int PREFETCH_CAPACITY = 5;
+    private static final long PREFETCH_MAX_AGE_MS = TimeUnit.MINUTES.toMillis(30);
+
+    // Prefetch state and probe threads are process-wide, like the single provider ProviderRegistry keeps
+    private static final BlockingQueue<PrefetchedImage> PREFETCHED = new ArrayBlockingQueue<>(PREFETCH_CAPACITY);
+    private static final AtomicBoolean REFILL_RUNNING = new AtomicBoolean(false);
+    private static final ExecutorService PROBE_EXECUTOR = Executors.newFixedThreadPool(PARALLEL_PROBES, r -> {
+        Thread t = new Thread(r, "Imgur-Probe");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Imgur-Prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private record PrefetchedImage(MediaResult result, long fetchedAt) {}
 
-    private final Random random = new Random();
     private final HttpClientWrapper httpClient;
 
     public ImgurProvider(HttpClientWrapper httpClient) {
         this.httpClient = httpClient;
+        // The image CDN tolerates far more than the default per-host pace, and most probes are 404s
+        httpClient.configureHostRateLimit(IMGUR_HOST, 40, PARALLEL_PROBES);
     }
 
     @Override
-    public MediaResult getRandomMedia(String query) throws IOException {
-        int attempts = 0;
+    public MediaResult getRandomMedia(String query) throws IOException, InterruptedException {
+        try {
+            MediaResult prefetched = pollPrefetched();
+            if (prefetched != null) {
+                return prefetched;
+            }
 
-        while (attempts < MAX_ATTEMPTS) {
-            String imgurId = generateRandomImgurId();
-            String imageUrl = "https://i.imgur.com/" + imgurId + "." +
-                    IMAGE_FORMATS[random.nextInt(IMAGE_FORMATS.length)];
+            CompletableFuture<MediaResult> search = findRandomImage();
+            try {
+                // Don't keep probing after the interaction that asked for the image has expired
+                long timeoutMs = MediaFetchExecutor.remainingTime(Duration.ofSeconds(SEARCH_TIMEOUT_SECONDS)).toMillis();
+                return search.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException io ? io : new IOException(cause);
+            } catch (TimeoutException e) {
+                throw new IOException("Timed out searching for a valid Imgur image", e);
+            } finally {
+                // Stops launching new probes; in-flight ones close their streams on arrival
+                search.cancel(false);
+            }
+        } finally {
+            scheduleRefill();
+        }
+    }
 
+    private MediaResult pollPrefetched() {
+        PrefetchedImage image;
+        while ((image = PREFETCHED.poll()) != null) {
+            if (System.currentTimeMillis() - image.fetchedAt() < PREFETCH_MAX_AGE_MS) {
+                return image.result();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Top up the prefetch pool in the background, one search at a time
+     */
+    private void scheduleRefill() {
+        if (PREFETCHED.remainingCapacity() == 0 || PREFETCH_EXECUTOR.isShutdown()
+                || !REFILL_RUNNING.compareAndSet(false, true)) {
+            return;
+        }
+        PREFETCH_EXECUTOR.execute(() -> {
             try {
-                byte[] imageBytes = httpClient.getBytes(imageUrl);
-                try (ByteArrayInputStream bis = new ByteArrayInputStream(imageBytes)) {
-                    BufferedImage image = ImageIO.read(bis);
-                    if (isValidImage(image)) {
-                        String description = String.format("🌐 Source: Imgur\n🔁 Failed Image Count: %s", attempts);
-                        return new MediaResult(imageUrl, "Here is your random Imgur picture!", description, MediaSource.IMGUR);
+                while (PREFETCHED.remainingCapacity() > 0) {
+                    CompletableFuture<MediaResult> search = findRandomImage();
+                    try {
+                        MediaResult result = search.get(SEARCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        if (!PREFETCHED.offer(new PrefetchedImage(result, System.currentTimeMillis()))) {
+                            break;
+                        }
+                    } finally {
+                        search.cancel(false);
                     }
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (Exception e) {
-                // Continue to next attempt on error (404, etc)
+                logger.debug("Imgur prefetch stopped: {}", e.getMessage());
+            } finally {
+                REFILL_RUNNING.set(false);
+            }
+        });
+    }
+
+    /**
+     * Probe random candidates concurrently until one is a valid image or the attempt budget runs out
+     */
+    private CompletableFuture<MediaResult> findRandomImage() {
+        ProbeSearch search = new ProbeSearch();
+        for (int i = 0; i < PARALLEL_PROBES; i++) {
+            search.launchNext();
+        }
+        return search.winner;
+    }
+
+    private class ProbeSearch {
+        private final CompletableFuture<MediaResult> winner = new CompletableFuture<>();
+        private final AtomicInteger launched = new AtomicInteger();
+        private final AtomicInteger finished = new AtomicInteger();
+
+        void launchNext() {
+            if (winner.isDone() || launched.incrementAndGet() > MAX_ATTEMPTS) {
+                return;
             }
-            attempts++;
+
+            String imageUrl = "https://" + IMGUR_HOST + "/" + generateRandomImgurId() + "." +
+                    IMAGE_FORMATS[ThreadLocalRandom.current().nextInt(IMAGE_FORMATS.length)];
+
+            httpClient.openStreamAsync(imageUrl).whenCompleteAsync((stream, error) -> {
+                // Only the header is read to validate the size; closing the stream aborts the download
+                try (InputStream body = stream) {
+                    if (error == null && !winner.isDone()) {
+                        ImageProbe.Dimensions image = ImageProbe.probe(body, MAX_PROBE_BYTES);
+                        if (isValidImage(image)) {
+                            String description = String.format("🌐 Source: Imgur\n🔁 Failed Image Count: %s", finished.get());
+                            winner.complete(new MediaResult(imageUrl, "Here is your random Imgur picture!", description, MediaSource.IMGUR));
+                        }
+                    }
+                } catch (Exception e) {
+                    // Continue with the next candidate on error (404, etc)
+                }
+                onProbeFinished();
+            }, PROBE_EXECUTOR);
         }
 
-        throw new IOException("Could not find valid Imgur image after " + MAX_ATTEMPTS + " attempts");
+        private void onProbeFinished() {
+            int done = finished.incrementAndGet();
+            if (winner.isDone()) {
+                return;
+            }
+            if (done >= MAX_ATTEMPTS) {
+                winner.completeExceptionally(new IOException("Could not find valid Imgur image after " + MAX_ATTEMPTS + " attempts"));
+                return;
+            }
+            launchNext();
+        }
     }
 
-    private boolean isValidImage(BufferedImage image) {
+    private boolean isValidImage(ImageProbe.Dimensions image) {
         return image != null &&
-                !(image.getWidth() == 198 && image.getHeight() == 160) &&
-                !(image.getWidth() == 161 && image.getHeight() == 81) &&
-                image.getWidth() >= 64 &&
-                image.getHeight() >= 64;
+                !(image.width() == 198 && image.height() == 160) &&
+                !(image.width() == 161 && image.height() == 81) &&
+                image.width() >= 64 &&
+                image.height() >= 64;
     }
 
     private String generateRandomImgurId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
         int length = random.nextInt(IMGUR_ID_LENGTH_RANGE[1] - IMGUR_ID_LENGTH_RANGE[0] + 1) + IMGUR_ID_LENGTH_RANGE[0];
         StringBuilder idBuilder = new StringBuilder();
         for (int i = 0; i < length; i++) {
@@ -74,8 +218,17 @@ public class ImgurProvider implements MediaProvider {
         return false;
     }
 
+    /**
+     * Stop the process-wide probe and prefetch threads; searches still running are interrupted
+     */
+    @Override
+    public void close() {
+        PREFETCH_EXECUTOR.shutdownNow();
+        PROBE_EXECUTOR.shutdownNow();
+    }
+
     @Override
     public String getProviderName() {
         return "Imgur";
     }
-}
\ No newline at end of file
+}
@@ -10,11 +10,13 @@ import org.json.JSONObject;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class TMDBMovieProvider implements MediaProvider {
     private static final String BASE_URL = "https://api.themoviedb.org/3";
     private static final String BASE_IMAGE_URL = "https://image.tmdb.org/t/p/w500";
 
+    // Shared by every thread using the registry instance; refills add to the queue the caller polls
     private final Map<Integer, Queue<MediaResult>> yearCache = new ConcurrentHashMap<>();
     private final HttpClientWrapper httpClient;
     private final Random random = new Random();
@@ -35,29 +37,29 @@ public class TMDBMovieProvider implements MediaProvider {
         // Try up to MAX_RETRIES times with different years
         for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
             int year = random.nextInt(currentYear - MIN_YEAR + 1) + MIN_YEAR;
-            Queue<MediaResult> cache = yearCache.computeIfAbsent(year, k -> new LinkedList<>());
+            Queue<MediaResult> cache = yearCache.computeIfAbsent(year, k -> new ConcurrentLinkedQueue<>());
 
-            if (cache.isEmpty()) {
+            MediaResult result = cache.poll();
+            if (result == null) {
                 try {
-                    populateCache(year);
+                    populateCache(year, cache);
                 } catch (IOException e) {
                     // Year might not have movies, try another year
                     continue;
                 }
+                result = cache.poll();
             }
-
-            MediaResult result = cache.poll();
             if (result != null) {
                 return result;
             }
             // Cache was empty after population, remove and try another year
-            yearCache.remove(year);
+            yearCache.remove(year, cache);
         }
         
         throw new IOException("No movies available after " + MAX_RETRIES + " attempts");
     }
 
-    private void populateCache(int year) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
+    private void populateCache(int year, Queue<MediaResult> cache) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
         Map<String, String> params = buildRandomDiscoverParams(year);
         // First request to get total pages for the chosen filter set
         String firstPageUrl = buildDiscoverUrl(params, 1);
@@ -80,7 +82,6 @@ public class TMDBMovieProvider implements MediaProvider {
 
         Collections.shuffle(movies, random);
 
-        Queue<MediaResult> cache = yearCache.get(year);
         cache.addAll(movies);
     }
 
@@ -10,6 +10,7 @@ import org.json.JSONObject;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class TMDBTvProvider implements MediaProvider {
     private static final String BASE_URL = "https://api.themoviedb.org/3";
@@ -29,20 +30,20 @@ public class TMDBTvProvider implements MediaProvider {
     public MediaResult getRandomMedia(String query) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
         int currentYear = Calendar.getInstance().get(Calendar.YEAR);
         int year = random.nextInt(currentYear - 1900 + 1) + 1900; // inclusive
-        Queue<MediaResult> cache = yearCache.computeIfAbsent(year, k -> new LinkedList<>());
-
-        if (cache.isEmpty()) {
-            populateCache(year);
-        }
+        Queue<MediaResult> cache = yearCache.computeIfAbsent(year, k -> new ConcurrentLinkedQueue<>());
 
         MediaResult result = cache.poll();
+        if (result == null) {
+            populateCache(year, cache);
+            result = cache.poll();
+        }
         if (result == null) {
             throw new IOException("No TV shows available for year: " + year);
         }
         return result;
     }
 
-    private void populateCache(int year) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
+    private void populateCache(int year, Queue<MediaResult> cache) throws IOException, HttpClientWrapper.RateLimitException, InterruptedException {
         Map<String, String> params = buildRandomDiscoverParams(year);
 
         // First request to get total pages for the chosen filter set
@@ -66,7 +67,6 @@ public class TMDBTvProvider implements MediaProvider {
 
         Collections.shuffle(tvShows, random);
 
-        Queue<MediaResult> cache = yearCache.get(year);
         cache.addAll(tvShows);
     }
 
@@ -35,6 +35,14 @@ public class InventoryItem {
         this.source = source;
     }
     
+    /**
+     * Copy of another item, e.g. for writing it while the original keeps changing
+     */
+    public InventoryItem(InventoryItem other) {
+        this(other.id, other.name, other.description, other.type, other.rarity, other.quantity, other.source);
+        this.acquiredAt = other.acquiredAt;
+    }
+    
     // Getters and Setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
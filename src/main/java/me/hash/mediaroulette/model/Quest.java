@@ -67,6 +67,26 @@ public class Quest {
         this.coinReward = calculateReward(difficulty);
     }
 
+    /**
+     * Copy of another quest, e.g. for writing it while the original keeps changing
+     */
+    public Quest(Quest other) {
+        this.questId = other.questId;
+        this.type = other.type;
+        this.difficulty = other.difficulty;
+        this.title = other.title;
+        this.description = other.description;
+        this.emoji = other.emoji;
+        this.targetValue = other.targetValue;
+        this.currentProgress = other.currentProgress;
+        this.coinReward = other.coinReward;
+        this.completed = other.completed;
+        this.claimed = other.claimed;
+        this.assignedDate = other.assignedDate;
+        this.completedAt = other.completedAt;
+        this.metadata = other.metadata;
+    }
+
     private String generateQuestId() {
         return "QUEST_" + System.currentTimeMillis() + "_" + (int)(Math.random() * 1000);
     }
@@ -48,7 +48,8 @@ public class Transaction {
     }
 
     private String generateTransactionId() {
-        return "TXN_" + System.currentTimeMillis() + "_" + (int)(Math.random() * 1000);
+        // Also the _id in the transaction log, so it has to be unique
+        return "TXN_" + System.currentTimeMillis() + "_" + Long.toHexString(java.util.concurrent.ThreadLocalRandom.current().nextLong());
     }
 
     // Getters and Setters
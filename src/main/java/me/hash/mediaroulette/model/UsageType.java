@@ -0,0 +1,10 @@
+package me.hash.mediaroulette.model;
+
+/**
+ * Kinds of per-user usage counters kept in the usage collection
+ */
+public enum UsageType {
+    SOURCE,
+    COMMAND,
+    SUBREDDIT
+}
@@ -6,10 +6,20 @@ import me.hash.mediaroulette.utils.user.ImageSelector;
 
 import java.util.*;
 import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * A user's settings, economy, quests and inventory.
+ * <p>
+ * Command threads mutate a cached user while the write-behind flusher writes it, so every method
+ * that changes or iterates its state holds the user's monitor, and writers encode a
+ * {@link #snapshot()} instead of the live instance.
+ */
 public class User {
     public static final int DEFAULT_FAVORITE_LIMIT = 25;
     public static final int MAX_CUSTOM_SUBREDDITS = 50;
+    public static final int MAX_TRANSACTION_HISTORY = 100;
 
     private String userId;
     private long imagesGenerated;
@@ -24,7 +34,7 @@ public class User {
     private long totalCoinsEarned; // Total coins earned lifetime
     private long totalCoinsSpent; // Total coins spent lifetime
     private List<Quest> dailyQuests; // Current daily quests
-    private List<Transaction> transactionHistory; // Transaction history for monitoring
+    private List<Transaction> transactionHistory; // Recent transactions since load, for monitoring
     private java.time.LocalDate lastQuestReset; // Last time quests were reset
     private long totalQuestsCompleted; // Total number of quests completed lifetime
     private long questsCompletedToday; // Number of quests completed today
@@ -32,10 +42,7 @@ public class User {
     private List<InventoryItem> inventory; // User's inventory items
     
     // Usage Statistics
-    private Map<String, Long> sourceUsageCount; // Track usage count per source (reddit, imgur, etc.)
-    private Map<String, Long> commandUsageCount; // Track usage count per command
     private List<String> customSubreddits; // User's custom subreddits for autocomplete
-    private Map<String, Integer> subredditUsageCount; // Track how often each subreddit is used
     private Map<String, List<String>> customQueries; // User's custom queries per service (google, tenor, 4chan)
     private long totalCommandsUsed; // Total commands used by user
     private java.time.LocalDateTime lastActiveDate; // Last time user was active
@@ -44,6 +51,10 @@ public class User {
     // Source-specific preferences (sort method, time range, etc.)
     private Map<String, SourcePreference> sourcePreferences;
 
+    // Transactions and usage counts live in their own collections; these hold what is not written yet
+    private final Queue<Transaction> unsavedTransactions = new ConcurrentLinkedQueue<>();
+    private final Map<UsageType, Map<String, Long>> unsavedUsage = new EnumMap<>(UsageType.class);
+
     public User(String userId) {
         this.userId = userId;
         this.imagesGenerated = 0;
@@ -64,10 +75,10 @@ public class User {
         this.lastQuestCompletionDate = null;
         
         // Initialize usage statistics
-        this.sourceUsageCount = new HashMap<>();
-        this.commandUsageCount = new HashMap<>();
+        for (UsageType type : UsageType.values()) {
+            this.unsavedUsage.put(type, new ConcurrentHashMap<>());
+        }
         this.customSubreddits = new ArrayList<>();
-        this.subredditUsageCount = new HashMap<>();
         this.customQueries = new HashMap<>();
         this.totalCommandsUsed = 0;
         this.lastActiveDate = java.time.LocalDateTime.now();
@@ -76,55 +87,101 @@ public class User {
         this.sourcePreferences = new HashMap<>();
     }
 
+    /**
+     * Detached copy of the fields stored in the user document, taken under the same lock as the
+     * mutators so it is consistent and can be read without racing them. Unsaved activity stays
+     * with this instance.
+     */
+    public synchronized User snapshot() {
+        User copy = new User(userId);
+        copy.imagesGenerated = imagesGenerated;
+        copy.nsfw = nsfw;
+        copy.premium = premium;
+        copy.admin = admin;
+        copy.locale = locale;
+        copy.theme = theme;
+        copy.coins = coins;
+        copy.totalCoinsEarned = totalCoinsEarned;
+        copy.totalCoinsSpent = totalCoinsSpent;
+        copy.lastQuestReset = lastQuestReset;
+        copy.totalQuestsCompleted = totalQuestsCompleted;
+        copy.questsCompletedToday = questsCompletedToday;
+        copy.lastQuestCompletionDate = lastQuestCompletionDate;
+        for (Favorite favorite : favorites) {
+            copy.favorites.add(new Favorite(favorite.getId(), favorite.getTitle(), favorite.getDescription(),
+                    favorite.getImage(), favorite.getType(), favorite.getAccentColor()));
+        }
+        for (Quest quest : dailyQuests) {
+            copy.dailyQuests.add(new Quest(quest));
+        }
+        imageOptions.forEach((type, option) ->
+                copy.imageOptions.put(type, new ImageOptions(option.getImageType(), option.isEnabled(), option.getChance())));
+        if (inventory != null) {
+            for (InventoryItem item : inventory) {
+                copy.inventory.add(new InventoryItem(item));
+            }
+        }
+        if (customSubreddits != null) {
+            copy.customSubreddits.addAll(customSubreddits);
+        }
+        if (customQueries != null) {
+            customQueries.forEach((service, queries) -> copy.customQueries.put(service, new ArrayList<>(queries)));
+        }
+        copy.totalCommandsUsed = totalCommandsUsed;
+        copy.lastActiveDate = lastActiveDate;
+        copy.accountCreatedDate = accountCreatedDate;
+        return copy;
+    }
+
     // --- Getters and Setters ---
     public String getUserId() { return userId; }
     public long getImagesGenerated() { return imagesGenerated; }
-    public void setImagesGenerated(long imagesGenerated) { this.imagesGenerated = imagesGenerated; }
+    public synchronized void setImagesGenerated(long imagesGenerated) { this.imagesGenerated = imagesGenerated; }
     public boolean isNsfw() { return nsfw; }
-    public void setNsfw(boolean nsfw) { this.nsfw = nsfw; }
+    public synchronized void setNsfw(boolean nsfw) { this.nsfw = nsfw; }
     public boolean isPremium() { return premium; }
-    public void setPremium(boolean premium) { this.premium = premium; }
+    public synchronized void setPremium(boolean premium) { this.premium = premium; }
     public boolean isAdmin() { return admin; }
-    public void setAdmin(boolean admin) { this.admin = admin; }
+    public synchronized void setAdmin(boolean admin) { this.admin = admin; }
     public List<Favorite> getFavorites() { return favorites; }
     public Map<String, ImageOptions> getImageOptionsMap() { return imageOptions; }
     public String getLocale() { return locale; }
-    public void setLocale(String locale) { this.locale = locale; }
+    public synchronized void setLocale(String locale) { this.locale = locale; }
     public String getTheme() { return theme; }
-    public void setTheme(String theme) { this.theme = theme; }
+    public synchronized void setTheme(String theme) { this.theme = theme; }
     public long getCoins() { return coins; }
-    public void setCoins(long coins) { this.coins = coins; }
+    public synchronized void setCoins(long coins) { this.coins = coins; }
     public long getTotalCoinsEarned() { return totalCoinsEarned; }
-    public void setTotalCoinsEarned(long totalCoinsEarned) { this.totalCoinsEarned = totalCoinsEarned; }
+    public synchronized void setTotalCoinsEarned(long totalCoinsEarned) { this.totalCoinsEarned = totalCoinsEarned; }
     public long getTotalCoinsSpent() { return totalCoinsSpent; }
-    public void setTotalCoinsSpent(long totalCoinsSpent) { this.totalCoinsSpent = totalCoinsSpent; }
+    public synchronized void setTotalCoinsSpent(long totalCoinsSpent) { this.totalCoinsSpent = totalCoinsSpent; }
     public List<Quest> getDailyQuests() { return dailyQuests; }
-    public void setDailyQuests(List<Quest> dailyQuests) { this.dailyQuests = dailyQuests; }
+    public synchronized void setDailyQuests(List<Quest> dailyQuests) { this.dailyQuests = dailyQuests; }
     public List<Transaction> getTransactionHistory() { return transactionHistory; }
-    public void setTransactionHistory(List<Transaction> transactionHistory) { this.transactionHistory = transactionHistory; }
+    public synchronized void setTransactionHistory(List<Transaction> transactionHistory) { this.transactionHistory = transactionHistory; }
     public java.time.LocalDate getLastQuestReset() { return lastQuestReset; }
-    public void setLastQuestReset(java.time.LocalDate lastQuestReset) { this.lastQuestReset = lastQuestReset; }
+    public synchronized void setLastQuestReset(java.time.LocalDate lastQuestReset) { this.lastQuestReset = lastQuestReset; }
     public long getTotalQuestsCompleted() { return totalQuestsCompleted; }
-    public void setTotalQuestsCompleted(long totalQuestsCompleted) { this.totalQuestsCompleted = totalQuestsCompleted; }
+    public synchronized void setTotalQuestsCompleted(long totalQuestsCompleted) { this.totalQuestsCompleted = totalQuestsCompleted; }
     public long getQuestsCompletedToday() { return questsCompletedToday; }
-    public void setQuestsCompletedToday(long questsCompletedToday) { this.questsCompletedToday = questsCompletedToday; }
+    public synchronized void setQuestsCompletedToday(long questsCompletedToday) { this.questsCompletedToday = questsCompletedToday; }
     public java.time.LocalDate getLastQuestCompletionDate() { return lastQuestCompletionDate; }
-    public void setLastQuestCompletionDate(java.time.LocalDate lastQuestCompletionDate) { this.lastQuestCompletionDate = lastQuestCompletionDate; }
+    public synchronized void setLastQuestCompletionDate(java.time.LocalDate lastQuestCompletionDate) { this.lastQuestCompletionDate = lastQuestCompletionDate; }
     public List<InventoryItem> getInventory() { return inventory; }
-    public void setInventory(List<InventoryItem> inventory) { this.inventory = inventory; }
+    public synchronized void setInventory(List<InventoryItem> inventory) { this.inventory = inventory; }
 
     // --- Business Logic Methods ---
-    public void incrementImagesGenerated() {
+    public synchronized void incrementImagesGenerated() {
         this.imagesGenerated++;
         // Note: Coins are now earned through quests, not automatic generation
     }
 
     // --- Currency Management Methods ---
-    public Transaction addCoins(long amount, Transaction.TransactionType type, String description) {
+    public synchronized Transaction addCoins(long amount, Transaction.TransactionType type, String description) {
         return addCoins(amount, type, description, null);
     }
 
-    public Transaction addCoins(long amount, Transaction.TransactionType type, String description, String adminId) {
+    public synchronized Transaction addCoins(long amount, Transaction.TransactionType type, String description, String adminId) {
         if (amount <= 0) return null;
         
         long balanceBefore = this.coins;
@@ -140,11 +197,11 @@ public class User {
         return transaction;
     }
 
-    public Transaction spendCoins(long amount, Transaction.TransactionType type, String description) {
+    public synchronized Transaction spendCoins(long amount, Transaction.TransactionType type, String description) {
         return spendCoins(amount, type, description, null);
     }
 
-    public Transaction spendCoins(long amount, Transaction.TransactionType type, String description, String adminId) {
+    public synchronized Transaction spendCoins(long amount, Transaction.TransactionType type, String description, String adminId) {
         if (amount <= 0 || this.coins < amount) return null;
         
         long balanceBefore = this.coins;
@@ -170,9 +227,10 @@ public class User {
 
     private void addTransaction(Transaction transaction) {
         this.transactionHistory.add(transaction);
+        this.unsavedTransactions.add(transaction);
         
-        // Keep only last 100 transactions to prevent memory issues
-        if (this.transactionHistory.size() > 100) {
+        // Keep only the latest transactions in memory; the full history is in the transaction log
+        if (this.transactionHistory.size() > MAX_TRANSACTION_HISTORY) {
             this.transactionHistory.remove(0);
         }
         
@@ -198,11 +256,11 @@ public class User {
     }
 
     // --- Quest Management Methods ---
-    public void addQuest(Quest quest) {
+    public synchronized void addQuest(Quest quest) {
         this.dailyQuests.add(quest);
     }
 
-    public void updateQuestProgress(Quest.QuestType questType, int amount) {
+    public synchronized void updateQuestProgress(Quest.QuestType questType, int amount) {
         for (Quest quest : dailyQuests) {
             if (quest.getType() == questType && !quest.isCompleted()) {
                 quest.addProgress(amount);
@@ -210,13 +268,13 @@ public class User {
         }
     }
 
-    public List<Quest> getCompletedQuests() {
+    public synchronized List<Quest> getCompletedQuests() {
         return dailyQuests.stream()
                 .filter(Quest::isCompleted)
                 .toList();
     }
 
-    public List<Quest> getClaimableQuests() {
+    public synchronized List<Quest> getClaimableQuests() {
         return dailyQuests.stream()
                 .filter(Quest::canClaim)
                 .toList();
@@ -227,7 +285,7 @@ public class User {
                !lastQuestReset.equals(java.time.LocalDate.now(java.time.ZoneOffset.UTC));
     }
 
-    public void resetDailyQuests() {
+    public synchronized void resetDailyQuests() {
         this.dailyQuests.clear();
         this.lastQuestReset = java.time.LocalDate.now(java.time.ZoneOffset.UTC);
     }
@@ -237,7 +295,7 @@ public class User {
         return isPremium() ? 3 : 2;
     }
 
-    public Transaction claimQuestReward(Quest quest) {
+    public synchronized Transaction claimQuestReward(Quest quest) {
         if (quest.canClaim()) {
             quest.claim();
             
@@ -264,12 +322,12 @@ public class User {
         return premium ? DEFAULT_FAVORITE_LIMIT * 2 : DEFAULT_FAVORITE_LIMIT;
     }
 
-    public void addFavorite(String description, String image, String type) {
+    public synchronized void addFavorite(String description, String image, String type) {
         // Backward-compatible path: default title
         addFavorite("Favorite", description, image, type, null);
     }
 
-    public void addFavorite(String title, String description, String image, String type, Integer accentColor) {
+    public synchronized void addFavorite(String title, String description, String image, String type, Integer accentColor) {
         if (favorites.size() >= getFavoriteLimit()) {
             // Log warning as needed – favorite limit reached.
             return;
@@ -278,7 +336,7 @@ public class User {
         favorites.add(new Favorite(id, title, description, image, type, accentColor));
     }
 
-    public void removeFavorite(int id) {
+    public synchronized void removeFavorite(int id) {
         if (id < 0 || id >= favorites.size()) return;
         favorites.remove(id);
         // Reassign IDs so they remain sequential.
@@ -290,10 +348,19 @@ public class User {
     /**
      * Update (or set) image options with new chances.
      */
-    public void setChances(ImageOptions... options) {
+    public synchronized void setChances(ImageOptions... options) {
         for (ImageOptions option : options) {
             imageOptions.put(option.getImageType(), option);
         }
+        ImageSelector.invalidate(userId);
+    }
+
+    /**
+     * Remove every image option, e.g. before restoring the defaults
+     */
+    public synchronized void clearImageOptions() {
+        imageOptions.clear();
+        ImageSelector.invalidate(userId);
     }
 
     public ImageOptions getImageOptions(String imageType) {
@@ -319,7 +386,7 @@ public class User {
      * @param item The item to add
      * @return true if added successfully, false if inventory is full
      */
-    public boolean addInventoryItem(InventoryItem item) {
+    public synchronized boolean addInventoryItem(InventoryItem item) {
         if (inventory.size() >= MAX_INVENTORY_SIZE) {
             return false; // Inventory full
         }
@@ -345,7 +412,7 @@ public class User {
      * @param quantity The quantity to remove (for stackable items)
      * @return true if removed successfully
      */
-    public boolean removeInventoryItem(String itemId, int quantity) {
+    public synchronized boolean removeInventoryItem(String itemId, int quantity) {
         for (int i = 0; i < inventory.size(); i++) {
             InventoryItem item = inventory.get(i);
             if (item.getId().equals(itemId)) {
@@ -367,7 +434,7 @@ public class User {
      * @param itemId The ID of the item
      * @return The item if found, null otherwise
      */
-    public InventoryItem getInventoryItem(String itemId) {
+    public synchronized InventoryItem getInventoryItem(String itemId) {
         return inventory.stream()
                 .filter(item -> item.getId().equals(itemId))
                 .findFirst()
@@ -390,7 +457,7 @@ public class User {
      * @param type The type of items to get
      * @return List of items of the specified type
      */
-    public List<InventoryItem> getInventoryItemsByType(String type) {
+    public synchronized List<InventoryItem> getInventoryItemsByType(String type) {
         return inventory.stream()
                 .filter(item -> type.equals(item.getType()))
                 .toList();
@@ -401,7 +468,7 @@ public class User {
      * @param rarity The rarity of items to get
      * @return List of items of the specified rarity
      */
-    public List<InventoryItem> getInventoryItemsByRarity(String rarity) {
+    public synchronized List<InventoryItem> getInventoryItemsByRarity(String rarity) {
         return inventory.stream()
                 .filter(item -> rarity.equals(item.getRarity()))
                 .toList();
@@ -411,7 +478,7 @@ public class User {
      * Get total number of items in inventory (counting quantities)
      * @return Total item count
      */
-    public int getTotalInventoryItems() {
+    public synchronized int getTotalInventoryItems() {
         return inventory.stream()
                 .mapToInt(InventoryItem::getQuantity)
                 .sum();
@@ -445,7 +512,7 @@ public class User {
      * Sort inventory by a specific criteria
      * @param sortBy "name", "type", "rarity", "quantity", "acquired"
      */
-    public void sortInventory(String sortBy) {
+    public synchronized void sortInventory(String sortBy) {
         switch (sortBy.toLowerCase()) {
             case "name" -> inventory.sort(Comparator.comparing(InventoryItem::getName));
             case "type" -> inventory.sort(Comparator.comparing(InventoryItem::getType));
@@ -459,37 +526,19 @@ public class User {
     /**
      * Clear all items from inventory
      */
-    public void clearInventory() {
+    public synchronized void clearInventory() {
         inventory.clear();
     }
     
     // ===== USAGE STATISTICS METHODS =====
     
-    public Map<String, Long> getSourceUsageCount() {
-        return sourceUsageCount != null ? sourceUsageCount : new HashMap<>();
-    }
-    
-    public void setSourceUsageCount(Map<String, Long> sourceUsageCount) {
-        this.sourceUsageCount = sourceUsageCount;
-    }
-    
     public void incrementSourceUsage(String source) {
-        if (sourceUsageCount == null) sourceUsageCount = new HashMap<>();
-        sourceUsageCount.put(source, sourceUsageCount.getOrDefault(source, 0L) + 1);
+        recordUsage(UsageType.SOURCE, source, 1);
         updateLastActive();
     }
     
-    public Map<String, Long> getCommandUsageCount() {
-        return commandUsageCount != null ? commandUsageCount : new HashMap<>();
-    }
-    
-    public void setCommandUsageCount(Map<String, Long> commandUsageCount) {
-        this.commandUsageCount = commandUsageCount;
-    }
-    
-    public void incrementCommandUsage(String command) {
-        if (commandUsageCount == null) commandUsageCount = new HashMap<>();
-        commandUsageCount.put(command, commandUsageCount.getOrDefault(command, 0L) + 1);
+    public synchronized void incrementCommandUsage(String command) {
+        recordUsage(UsageType.COMMAND, command, 1);
         totalCommandsUsed++;
         updateLastActive();
     }
@@ -498,11 +547,11 @@ public class User {
         return customSubreddits != null ? customSubreddits : new ArrayList<>();
     }
     
-    public void setCustomSubreddits(List<String> customSubreddits) {
+    public synchronized void setCustomSubreddits(List<String> customSubreddits) {
         this.customSubreddits = customSubreddits;
     }
     
-    public void addCustomSubreddit(String subreddit) {
+    public synchronized void addCustomSubreddit(String subreddit) {
         if (customSubreddits == null) customSubreddits = new ArrayList<>();
         
         // Remove if already exists to avoid duplicates
@@ -520,34 +569,59 @@ public class User {
         incrementSubredditUsage(subreddit);
     }
     
-    public Map<String, Integer> getSubredditUsageCount() {
-        return subredditUsageCount != null ? subredditUsageCount : new HashMap<>();
+    public void incrementSubredditUsage(String subreddit) {
+        recordUsage(UsageType.SUBREDDIT, subreddit, 1);
     }
     
-    public void setSubredditUsageCount(Map<String, Integer> subredditUsageCount) {
-        this.subredditUsageCount = subredditUsageCount;
+    private void recordUsage(UsageType type, String key, long count) {
+        unsavedUsage.get(type).merge(key, count, Long::sum);
     }
     
-    public void incrementSubredditUsage(String subreddit) {
-        if (subredditUsageCount == null) subredditUsageCount = new HashMap<>();
-        subredditUsageCount.put(subreddit, subredditUsageCount.getOrDefault(subreddit, 0) + 1);
+    /**
+     * Take the transactions not yet written to the transaction log, oldest first
+     */
+    public List<Transaction> drainUnsavedTransactions() {
+        List<Transaction> drained = new ArrayList<>();
+        Transaction transaction;
+        while ((transaction = unsavedTransactions.poll()) != null) {
+            drained.add(transaction);
+        }
+        return drained;
     }
     
-    public List<String> getTopSubreddits(int limit) {
-        if (subredditUsageCount == null) return new ArrayList<>();
-        
-        return subredditUsageCount.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(limit)
-                .map(Map.Entry::getKey)
-                .collect(java.util.stream.Collectors.toList());
+    /**
+     * Take the usage counts recorded since the last drain, per usage type
+     */
+    public Map<UsageType, Map<String, Long>> drainUnsavedUsage() {
+        Map<UsageType, Map<String, Long>> drained = new EnumMap<>(UsageType.class);
+        unsavedUsage.forEach((type, counts) -> {
+            Map<String, Long> taken = new HashMap<>();
+            for (String key : counts.keySet()) {
+                Long count = counts.remove(key);
+                if (count != null) {
+                    taken.put(key, count);
+                }
+            }
+            if (!taken.isEmpty()) {
+                drained.put(type, taken);
+            }
+        });
+        return drained;
+    }
+    
+    /**
+     * Put back drained transactions and usage counts whose write failed
+     */
+    public void restoreUnsaved(List<Transaction> transactions, Map<UsageType, Map<String, Long>> usage) {
+        unsavedTransactions.addAll(transactions);
+        usage.forEach((type, counts) -> counts.forEach((key, count) -> recordUsage(type, key, count)));
     }
     
     public long getTotalCommandsUsed() {
         return totalCommandsUsed;
     }
     
-    public void setTotalCommandsUsed(long totalCommandsUsed) {
+    public synchronized void setTotalCommandsUsed(long totalCommandsUsed) {
         this.totalCommandsUsed = totalCommandsUsed;
     }
     
@@ -555,11 +629,11 @@ public class User {
         return lastActiveDate;
     }
     
-    public void setLastActiveDate(java.time.LocalDateTime lastActiveDate) {
+    public synchronized void setLastActiveDate(java.time.LocalDateTime lastActiveDate) {
         this.lastActiveDate = lastActiveDate;
     }
     
-    public void updateLastActive() {
+    public synchronized void updateLastActive() {
         this.lastActiveDate = java.time.LocalDateTime.now();
     }
     
@@ -567,35 +641,17 @@ public class User {
         return accountCreatedDate;
     }
     
-    public void setAccountCreatedDate(java.time.LocalDateTime accountCreatedDate) {
+    public synchronized void setAccountCreatedDate(java.time.LocalDateTime accountCreatedDate) {
         this.accountCreatedDate = accountCreatedDate;
     }
     
-    public String getMostUsedSource() {
-        if (sourceUsageCount == null || sourceUsageCount.isEmpty()) return "None";
-        
-        return sourceUsageCount.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("None");
-    }
-    
-    public String getMostUsedCommand() {
-        if (commandUsageCount == null || commandUsageCount.isEmpty()) return "None";
-        
-        return commandUsageCount.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("None");
-    }
-    
     // ===== CUSTOM QUERIES METHODS =====
     
     public Map<String, List<String>> getCustomQueries() {
         return customQueries != null ? customQueries : new HashMap<>();
     }
     
-    public void setCustomQueries(Map<String, List<String>> customQueries) {
+    public synchronized void setCustomQueries(Map<String, List<String>> customQueries) {
         this.customQueries = customQueries;
     }
     
@@ -604,7 +660,7 @@ public class User {
         return customQueries.getOrDefault(service, new ArrayList<>());
     }
     
-    public void addCustomQuery(String service, String query) {
+    public synchronized void addCustomQuery(String service, String query) {
         if (customQueries == null) customQueries = new HashMap<>();
         
         List<String> serviceQueries = customQueries.computeIfAbsent(service, k -> new ArrayList<>());
@@ -636,7 +692,7 @@ public class User {
     /**
      * Set all source preferences (used for MongoDB deserialization).
      */
-    public void setSourcePreferences(Map<String, SourcePreference> sourcePreferences) {
+    public synchronized void setSourcePreferences(Map<String, SourcePreference> sourcePreferences) {
         this.sourcePreferences = sourcePreferences;
     }
     
@@ -645,7 +701,7 @@ public class User {
      * @param source The source name (e.g., "reddit")
      * @return The SourcePreference, or a new empty one if not set
      */
-    public SourcePreference getSourcePreference(String source) {
+    public synchronized SourcePreference getSourcePreference(String source) {
         if (sourcePreferences == null) sourcePreferences = new HashMap<>();
         return sourcePreferences.computeIfAbsent(source, SourcePreference::new);
     }
@@ -653,7 +709,7 @@ public class User {
     /**
      * Set preferences for a specific source.
      */
-    public void setSourcePreference(String source, SourcePreference preference) {
+    public synchronized void setSourcePreference(String source, SourcePreference preference) {
         if (sourcePreferences == null) sourcePreferences = new HashMap<>();
         sourcePreferences.put(source, preference);
     }
@@ -676,7 +732,7 @@ public class User {
      * @param key The setting key
      * @param value The value to set
      */
-    public void setSourceSetting(String source, String key, Object value) {
+    public synchronized void setSourceSetting(String source, String key, Object value) {
         getSourcePreference(source).setSetting(key, value);
     }
 }
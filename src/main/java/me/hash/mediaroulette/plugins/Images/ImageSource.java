@@ -8,6 +8,8 @@ import me.hash.mediaroulette.model.User;
 import me.hash.mediaroulette.model.ImageOptions;
 import me.hash.mediaroulette.locale.LocaleManager;
 import me.hash.mediaroulette.config.LocalConfig;
+import me.hash.mediaroulette.service.MediaFetchExecutor;
+import me.hash.mediaroulette.service.MediaPrefetchService;
 import net.dv8tion.jda.api.entities.channel.ChannelType;
 import net.dv8tion.jda.api.entities.channel.unions.ChannelUnion;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
@@ -62,7 +64,7 @@ public class ImageSource {
             }
             
             try {
-                MediaResult result = provider.getRandomImage(event, user, option);
+                MediaResult result = fetchFromProvider(provider, event, user, option, canUseNsfwSources(event, user));
                 return result != null ? result.toMap() : null;
             } catch (Exception e) {
                 throw new RuntimeException("Error getting image from provider " + sourceName + ": " + e.getMessage(), e);
@@ -260,7 +262,7 @@ public class ImageSource {
             currentWeight += weightedSource.weight;
             if (randomValue <= currentWeight) {
                 try {
-                    MediaResult result = weightedSource.provider.getRandomImage(interaction, user, null);
+                    MediaResult result = fetchFromProvider(weightedSource.provider, interaction, user, null, allowNsfw);
                     return result != null ? result.toMap() : null;
                 } catch (Exception e) {
                     // If this source fails, fall back to the old user.getImage() method
@@ -274,6 +276,21 @@ public class ImageSource {
         return user.getImage();
     }
     
+    /**
+     * Serve a query-less request from the prefetch queue when possible, otherwise ask the provider
+     * within its concurrency bulkhead
+     */
+    private static MediaResult fetchFromProvider(ImageSourceProvider provider, Interaction interaction, User user, String query, boolean allowNsfw) throws Exception {
+        if (query == null) {
+            MediaResult prefetched = MediaPrefetchService.getInstance().poll(provider.getName(), allowNsfw);
+            if (prefetched != null) {
+                return prefetched;
+            }
+        }
+        return MediaFetchExecutor.getInstance().withBulkhead(provider.getName(),
+                () -> provider.getRandomImage(interaction, user, query));
+    }
+    
     /**
      * Find a provider that matches the given image type
      */
@@ -38,19 +38,19 @@ public class ImageSourceRegistry {
      * Initialize built-in image source providers
      */
     private void initializeBuiltInProviders() {
-        me.hash.mediaroulette.content.factory.MediaServiceFactory factory = new me.hash.mediaroulette.content.factory.MediaServiceFactory();
+        me.hash.mediaroulette.content.factory.ProviderRegistry registry = me.hash.mediaroulette.content.factory.ProviderRegistry.getInstance();
         
-        registerBuiltIn(ImageSource.GOOGLE, factory.createGoogleProvider(), 85);
-        registerBuiltIn(ImageSource.IMGUR, factory.createImgurProvider(), 80);
-        registerBuiltIn(ImageSource.YOUTUBE, factory.createYouTubeProvider(), 75);
-        registerBuiltIn(ImageSource.TENOR, factory.createTenorProvider(), 70);
-        registerBuiltIn(ImageSource._4CHAN, factory.createFourChanProvider(), 65);
-        registerBuiltIn(ImageSource.PICSUM, factory.createPicsumProvider(), 60);
-        registerBuiltIn(ImageSource.BOORU, factory.createBooruProvider(), 54);
-        registerBuiltIn(ImageSource.MOVIE, factory.createTMDBMovieProvider(), 50);
-        registerBuiltIn(ImageSource.TVSHOW, factory.createTMDBTvProvider(), 50);
-        registerBuiltIn(ImageSource.URBAN, factory.createUrbanDictionaryProvider(), 45);
-        registerBuiltIn(ImageSource.SHORT, factory.createYouTubeShortsProvider(), 40);
+        registerBuiltIn(ImageSource.GOOGLE, registry.get(ImageSource.GOOGLE), 85);
+        registerBuiltIn(ImageSource.IMGUR, registry.get(ImageSource.IMGUR), 80);
+        registerBuiltIn(ImageSource.YOUTUBE, registry.get(ImageSource.YOUTUBE), 75);
+        registerBuiltIn(ImageSource.TENOR, registry.get(ImageSource.TENOR), 70);
+        registerBuiltIn(ImageSource._4CHAN, registry.get(ImageSource._4CHAN), 65);
+        registerBuiltIn(ImageSource.PICSUM, registry.get(ImageSource.PICSUM), 60);
+        registerBuiltIn(ImageSource.BOORU, registry.get(ImageSource.BOORU), 54);
+        registerBuiltIn(ImageSource.MOVIE, registry.get(ImageSource.MOVIE), 50);
+        registerBuiltIn(ImageSource.TVSHOW, registry.get(ImageSource.TVSHOW), 50);
+        registerBuiltIn(ImageSource.URBAN, registry.get(ImageSource.URBAN), 45);
+        registerBuiltIn(ImageSource.SHORT, registry.get(ImageSource.SHORT), 40);
         
         logger.info("Initialized {} built-in image source providers", builtInProviders.size());
     }
@@ -4,6 +4,7 @@ import me.hash.mediaroulette.model.Dictionary;
 import me.hash.mediaroulette.model.DictionaryAssignment;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface DictionaryRepository {
@@ -29,5 +30,16 @@ public interface DictionaryRepository {
     
     // Statistics and usage
     void incrementDictionaryUsage(String dictionaryId);
+
+    /**
+     * Add several usage counts at once, keyed by dictionary id
+     */
+    default void incrementDictionaryUsage(Map<String, Long> increments) {
+        increments.forEach((dictionaryId, count) -> {
+            for (long i = 0; i < count; i++) {
+                incrementDictionaryUsage(dictionaryId);
+            }
+        });
+    }
     List<Dictionary> findMostUsedDictionaries(int limit);
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package me.hash.mediaroulette.repository;
 
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import me.hash.mediaroulette.model.Dictionary;
 import me.hash.mediaroulette.model.DictionaryAssignment;
 import org.bson.Document;
@@ -11,6 +14,7 @@ import org.bson.Document;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
@@ -173,6 +177,19 @@ public class MongoDictionaryRepository implements DictionaryRepository {
             Updates.inc("usageCount", 1)
         );
     }
+
+    @Override
+    public void incrementDictionaryUsage(Map<String, Long> increments) {
+        List<WriteModel<Document>> updates = new ArrayList<>(increments.size());
+        for (Map.Entry<String, Long> increment : increments.entrySet()) {
+            // usageCount is read back with getInteger, so keep the stored type an int32
+            int count = (int) Math.min(Integer.MAX_VALUE, increment.getValue());
+            updates.add(new UpdateOneModel<>(Filters.eq("_id", increment.getKey()), Updates.inc("usageCount", count)));
+        }
+        if (!updates.isEmpty()) {
+            dictionaryCollection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+        }
+    }
     
     @Override
     public List<Dictionary> findMostUsedDictionaries(int limit) {
@@ -0,0 +1,234 @@
+package me.hash.mediaroulette.repository;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import me.hash.mediaroulette.model.Transaction;
+import me.hash.mediaroulette.model.UsageType;
+import me.hash.mediaroulette.model.User;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transaction log and usage counters in MongoDB.
+ * <p>
+ * Transactions are append-only documents keyed by transaction id, indexed by user and time. Each
+ * insert trims the users it touched to their newest {@link User#MAX_TRANSACTION_HISTORY} entries, so
+ * the log stays bounded per user and busy users never push out a quiet user's history.
+ * Usage counters are one small document per (user, type, key) updated with upserting {@code $inc}s.
+ */
+public class MongoUserActivityRepository implements UserActivityRepository {
+    private final MongoCollection<Document> transactionCollection;
+    private final MongoCollection<Document> usageCollection;
+    private final int maxTransactionsPerUser;
+
+    public MongoUserActivityRepository(MongoCollection<Document> transactionCollection,
+                                       MongoCollection<Document> usageCollection) {
+        this(transactionCollection, usageCollection, User.MAX_TRANSACTION_HISTORY);
+    }
+
+    MongoUserActivityRepository(MongoCollection<Document> transactionCollection,
+                                MongoCollection<Document> usageCollection, int maxTransactionsPerUser) {
+        this.transactionCollection = transactionCollection;
+        this.usageCollection = usageCollection;
+        this.maxTransactionsPerUser = maxTransactionsPerUser;
+
+        transactionCollection.createIndex(Indexes.compoundIndex(
+                Indexes.ascending("userId"), Indexes.descending("timestamp")));
+        usageCollection.createIndex(Indexes.ascending("userId", "type", "key"), new IndexOptions().unique(true));
+        usageCollection.createIndex(Indexes.compoundIndex(
+                Indexes.ascending("userId", "type"), Indexes.descending("count")));
+    }
+
+    @Override
+    public void insertTransactions(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        List<Document> docs = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            docs.add(mapTransactionToDocument(transaction));
+        }
+        try {
+            transactionCollection.insertMany(docs, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            List<Document> collided = new ArrayList<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+                collided.add(docs.get(error.getIndex()));
+            }
+            insertCollided(collided);
+        }
+        trimHistory(transactions);
+    }
+
+    /**
+     * Delete everything older than the newest {@code maxTransactionsPerUser} transactions of each
+     * user in the batch. Ties on the timestamp are broken by id, the same order the cutoff is read in.
+     */
+    private void trimHistory(List<Transaction> transactions) {
+        Set<String> userIds = new LinkedHashSet<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getUserId() != null) {
+                userIds.add(transaction.getUserId());
+            }
+        }
+        for (String userId : userIds) {
+            Document firstDropped = transactionCollection.find(Filters.eq("userId", userId))
+                    .sort(Sorts.descending("timestamp", "_id"))
+                    .skip(maxTransactionsPerUser)
+                    .projection(Projections.include("timestamp"))
+                    .first();
+            if (firstDropped == null) {
+                continue;
+            }
+            Object timestamp = firstDropped.get("timestamp");
+            transactionCollection.deleteMany(Filters.and(
+                    Filters.eq("userId", userId),
+                    Filters.or(
+                            Filters.lt("timestamp", timestamp),
+                            Filters.and(Filters.eq("timestamp", timestamp), Filters.lte("_id", firstDropped.get("_id"))))));
+        }
+    }
+
+    /**
+     * A duplicate id is either a retried batch writing the same transaction again, which is
+     * skipped, or a different transaction that got the same id. The latter is stored under an id
+     * derived from its content, so retrying this step is itself a true re-insert.
+     */
+    private void insertCollided(List<Document> collided) {
+        Map<Object, Document> existing = new HashMap<>();
+        for (Document doc : transactionCollection.find(Filters.in("_id", collided.stream().map(d -> d.get("_id")).toList()))) {
+            existing.put(doc.get("_id"), doc);
+        }
+        List<Document> renamed = new ArrayList<>();
+        for (Document doc : collided) {
+            if (!doc.equals(existing.get(doc.get("_id")))) {
+                Document copy = new Document(doc);
+                copy.put("_id", doc.get("_id") + "_" + Integer.toHexString(doc.toJson().hashCode()));
+                renamed.add(copy);
+            }
+        }
+        if (renamed.isEmpty()) {
+            return;
+        }
+        try {
+            transactionCollection.insertMany(renamed, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Transaction> findTransactions(String userId, int page, int pageSize) {
+        List<Transaction> transactions = new ArrayList<>(pageSize);
+        for (Document doc : transactionCollection.find(Filters.eq("userId", userId))
+                .sort(Sorts.descending("timestamp"))
+                .skip(Math.max(0, page) * pageSize)
+                .limit(pageSize)) {
+            transactions.add(mapDocumentToTransaction(doc));
+        }
+        return transactions;
+    }
+
+    @Override
+    public long countTransactions(String userId) {
+        return transactionCollection.countDocuments(Filters.eq("userId", userId));
+    }
+
+    @Override
+    public void incrementUsage(String userId, Map<UsageType, Map<String, Long>> increments) {
+        writeUsage(userId, increments, Updates::inc);
+    }
+
+    @Override
+    public void importUsage(String userId, Map<UsageType, Map<String, Long>> counts) {
+        writeUsage(userId, counts, Updates::max);
+    }
+
+    private interface CounterUpdate {
+        Bson apply(String field, Long value);
+    }
+
+    private void writeUsage(String userId, Map<UsageType, Map<String, Long>> counts, CounterUpdate update) {
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        UpdateOptions upsert = new UpdateOptions().upsert(true);
+        counts.forEach((type, keys) -> keys.forEach((key, count) -> writes.add(new UpdateOneModel<>(
+                Filters.and(Filters.eq("userId", userId), Filters.eq("type", type.name()), Filters.eq("key", key)),
+                update.apply("count", count),
+                upsert))));
+        if (!writes.isEmpty()) {
+            usageCollection.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        }
+    }
+
+    @Override
+    public Map<String, Long> findTopUsage(String userId, UsageType type, int limit) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (Document doc : usageCollection.find(Filters.and(Filters.eq("userId", userId), Filters.eq("type", type.name())))
+                .sort(Sorts.descending("count"))
+                .limit(limit)) {
+            Object count = doc.get("count");
+            top.put(doc.getString("key"), count instanceof Number number ? number.longValue() : 0L);
+        }
+        return top;
+    }
+
+    private Document mapTransactionToDocument(Transaction transaction) {
+        return new Document("_id", transaction.getTransactionId())
+                .append("userId", transaction.getUserId())
+                .append("type", transaction.getType().name())
+                .append("amount", transaction.getAmount())
+                .append("balanceBefore", transaction.getBalanceBefore())
+                .append("balanceAfter", transaction.getBalanceAfter())
+                .append("description", transaction.getDescription())
+                .append("metadata", transaction.getMetadata())
+                .append("adminId", transaction.getAdminId())
+                .append("flagged", transaction.isFlagged())
+                .append("timestamp", transaction.getTimestamp() != null ? Date.from(transaction.getTimestamp()) : null);
+    }
+
+    private Transaction mapDocumentToTransaction(Document doc) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(doc.getString("_id"));
+        transaction.setUserId(doc.getString("userId"));
+        transaction.setType(Transaction.TransactionType.valueOf(doc.getString("type")));
+        transaction.setAmount(doc.getLong("amount"));
+        transaction.setBalanceBefore(doc.getLong("balanceBefore"));
+        transaction.setBalanceAfter(doc.getLong("balanceAfter"));
+        transaction.setDescription(doc.getString("description"));
+        transaction.setMetadata(doc.getString("metadata"));
+        transaction.setAdminId(doc.getString("adminId"));
+        transaction.setFlagged(doc.getBoolean("flagged", false));
+        Date timestamp = doc.getDate("timestamp");
+        transaction.setTimestamp(timestamp != null ? timestamp.toInstant() : null);
+        return transaction;
+    }
+}
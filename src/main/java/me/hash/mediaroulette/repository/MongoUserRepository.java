@@ -3,34 +3,73 @@ package me.hash.mediaroulette.repository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import me.hash.mediaroulette.model.User;
 import me.hash.mediaroulette.model.Favorite;
 import me.hash.mediaroulette.model.ImageOptions;
 import me.hash.mediaroulette.model.InventoryItem;
+import me.hash.mediaroulette.model.Transaction;
+import me.hash.mediaroulette.model.UsageType;
 import org.bson.Document;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
 
+/**
+ * User documents in MongoDB.
+ * <p>
+ * Users read or written through this repository keep a {@link UserChangeSet.Baseline} of their
+ * stored document, so later saves send only targeted operators for the fields that changed instead
+ * of replacing the whole document. A user without a baseline (new, or after a failed or ambiguous
+ * write) is upserted with {@code $set} of every mapped field, which is always safe to repeat and
+ * never drops fields this version does not map, such as activity still waiting for migration.
+ * <p>
+ * Transactions and usage counters are kept in the {@link UserActivityRepository}, so the user
+ * document stays small and fixed in size. Documents written before that still embed them; those
+ * fields are moved to the activity collections the first time such a user is loaded.
+ */
 public class MongoUserRepository implements UserRepository {
     private static final Logger logger = LoggerFactory.getLogger(MongoUserRepository.class);
+    private static final List<String> LEGACY_ACTIVITY_FIELDS = List.of(
+            "transactionHistory", "sourceUsageCount", "commandUsageCount", "subredditUsageCount");
+
     private final MongoCollection<Document> userCollection;
+    private final UserActivityRepository activityRepository;
+    // Keyed by instance; User has identity equality and a dropped user takes its baseline with it
+    private final Map<User, UserChangeSet.Baseline> baselines = Collections.synchronizedMap(new WeakHashMap<>());
 
-    public MongoUserRepository(MongoCollection<Document> userCollection) {
+    public MongoUserRepository(MongoCollection<Document> userCollection, UserActivityRepository activityRepository) {
         this.userCollection = userCollection;
+        this.activityRepository = activityRepository;
     }
 
     @Override
     public Optional<User> findById(String userId) {
         Document doc = userCollection.find(new Document("_id", userId)).first();
         if (doc != null) {
+            migrateLegacyActivity(doc);
             User user = mapDocumentToUser(doc);
+            baselines.put(user, UserChangeSet.capture(mapUserToDocument(user), doc.keySet()));
             return Optional.of(user);
         }
         return Optional.empty();
@@ -38,12 +77,139 @@ public class MongoUserRepository implements UserRepository {
 
     @Override
     public User save(User user) {
-        Document doc = mapUserToDocument(user);
-        userCollection.replaceOne(new Document("_id", user.getUserId()), doc,
-                new com.mongodb.client.model.ReplaceOptions().upsert(true));
+        saveAll(List.of(user));
         return user;
     }
 
+    /**
+     * Write the changes of every user in one unordered bulk write. Each user is encoded from a
+     * {@link User#snapshot()}, so commands changing it meanwhile neither break nor tear the write.
+     * Each user's baseline is taken out of the map for the duration of the write, so a concurrent
+     * save of the same user falls back to setting every field instead of applying the same increments twice.
+     */
+    @Override
+    public void saveAll(Collection<User> users) {
+        List<WriteModel<Document>> writes = new ArrayList<>(users.size());
+        List<User> written = new ArrayList<>(users.size());
+        List<UserChangeSet.Baseline> captured = new ArrayList<>(users.size());
+
+        for (User user : users) {
+            Document doc = mapUserToDocument(user.snapshot());
+            UserChangeSet.Baseline baseline = baselines.remove(user);
+            UserChangeSet.Baseline next = UserChangeSet.capture(doc, doc.keySet());
+            if (baseline == null) {
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", user.getUserId()), UserChangeSet.setAll(doc),
+                        new UpdateOptions().upsert(true)));
+            } else {
+                UserChangeSet changes = UserChangeSet.between(baseline, doc);
+                if (changes.isEmpty()) {
+                    baselines.put(user, next);
+                    continue;
+                }
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", user.getUserId()), changes.toUpdate()));
+            }
+            written.add(user);
+            captured.add(next);
+        }
+        if (!writes.isEmpty()) {
+            writeUsers(writes, written, captured);
+        }
+        for (User user : users) {
+            saveActivity(user);
+        }
+    }
+
+    private void writeUsers(List<WriteModel<Document>> writes, List<User> written, List<UserChangeSet.Baseline> captured) {
+        try {
+            userCollection.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // Users whose write failed keep no baseline and have every field set next time
+            Set<Integer> failed = new HashSet<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                failed.add(error.getIndex());
+            }
+            for (int i = 0; i < written.size(); i++) {
+                if (!failed.contains(i)) {
+                    baselines.put(written.get(i), captured.get(i));
+                }
+            }
+            throw e;
+        }
+        for (int i = 0; i < written.size(); i++) {
+            baselines.put(written.get(i), captured.get(i));
+        }
+    }
+
+    /**
+     * Write the transactions and usage counts the user recorded since its last save
+     */
+    private void saveActivity(User user) {
+        List<Transaction> transactions = user.drainUnsavedTransactions();
+        Map<UsageType, Map<String, Long>> usage = user.drainUnsavedUsage();
+        if (transactions.isEmpty() && usage.isEmpty()) {
+            return;
+        }
+        try {
+            activityRepository.insertTransactions(transactions);
+            activityRepository.incrementUsage(user.getUserId(), usage);
+        } catch (RuntimeException e) {
+            // Inserting transactions again is harmless; only usage counts could be applied twice
+            user.restoreUnsaved(transactions, usage);
+            throw e;
+        }
+    }
+
+    /**
+     * Move transactions and usage counters embedded by older versions into the activity collections
+     */
+    private void migrateLegacyActivity(Document doc) {
+        if (LEGACY_ACTIVITY_FIELDS.stream().noneMatch(doc::containsKey)) {
+            return;
+        }
+        String userId = doc.getString("_id");
+        List<Transaction> transactions = new ArrayList<>();
+        List<Document> history = doc.getList("transactionHistory", Document.class, List.of());
+        for (int i = 0; i < history.size(); i++) {
+            Transaction transaction = mapDocumentToTransaction(history.get(i));
+            if (transaction.getUserId() == null) {
+                transaction.setUserId(userId);
+            }
+            // Legacy ids only had 1000 values per millisecond, and some entries have none at all;
+            // an id from the entry's position is unique and the same on every retry of the migration
+            transaction.setTransactionId("LEGACY_" + userId + "_" + i);
+            transactions.add(transaction);
+        }
+        Map<UsageType, Map<String, Long>> usage = new EnumMap<>(UsageType.class);
+        usage.put(UsageType.SOURCE, readCounters(doc.get("sourceUsageCount", Document.class)));
+        usage.put(UsageType.COMMAND, readCounters(doc.get("commandUsageCount", Document.class)));
+        usage.put(UsageType.SUBREDDIT, readCounters(doc.get("subredditUsageCount", Document.class)));
+
+        try {
+            activityRepository.insertTransactions(transactions);
+            activityRepository.importUsage(userId, usage);
+            userCollection.updateOne(Filters.eq("_id", userId), Updates.combine(
+                    LEGACY_ACTIVITY_FIELDS.stream().map(Updates::unset).toList()));
+            LEGACY_ACTIVITY_FIELDS.forEach(doc::remove);
+            logger.info("Moved {} transactions and usage counters of user {} out of the user document",
+                    transactions.size(), userId);
+        } catch (RuntimeException e) {
+            // Both imports are idempotent and the legacy fields stay stored, so the next load simply tries again
+            logger.warn("Failed to migrate activity of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private static Map<String, Long> readCounters(Document countersDoc) {
+        Map<String, Long> counters = new HashMap<>();
+        if (countersDoc != null) {
+            for (String key : countersDoc.keySet()) {
+                if (countersDoc.get(key) instanceof Number count) {
+                    counters.put(key, count.longValue());
+                }
+            }
+        }
+        return counters;
+    }
+
     @Override
     public boolean exists(String userId) {
         return userCollection.find(new Document("_id", userId)).first() != null;
@@ -101,13 +267,7 @@ public class MongoUserRepository implements UserRepository {
             me.hash.mediaroulette.model.Quest quest = mapDocumentToQuest(questDoc);
             user.getDailyQuests().add(quest);
         }
-        
-        // Map transaction history
-        List<Document> transactionDocs = (List<Document>) doc.get("transactionHistory", new ArrayList<Document>());
-        for (Document transactionDoc : transactionDocs) {
-            me.hash.mediaroulette.model.Transaction transaction = mapDocumentToTransaction(transactionDoc);
-            user.getTransactionHistory().add(transaction);
-        }
+
 
         // Map image options (assumes a sub-document "images")
         Document imagesDoc = (Document) doc.get("images");
@@ -175,14 +335,6 @@ public class MongoUserRepository implements UserRepository {
             questDocs.add(questDoc);
         }
         doc.append("dailyQuests", questDocs);
-        
-        // Map transaction history
-        List<Document> transactionDocs = new ArrayList<>();
-        for (me.hash.mediaroulette.model.Transaction transaction : user.getTransactionHistory()) {
-            Document transactionDoc = mapTransactionToDocument(transaction);
-            transactionDocs.add(transactionDoc);
-        }
-        doc.append("transactionHistory", transactionDocs);
 
         // Map image options
         Document imagesDoc = new Document();
@@ -254,10 +406,12 @@ public class MongoUserRepository implements UserRepository {
                 .append("metadata", quest.getMetadata());
     }
     
-    // Helper methods for Transaction mapping
+    // Transactions embedded by older versions, read only for migration
     private me.hash.mediaroulette.model.Transaction mapDocumentToTransaction(Document doc) {
         me.hash.mediaroulette.model.Transaction transaction = new me.hash.mediaroulette.model.Transaction();
-        transaction.setTransactionId(doc.getString("transactionId"));
+        if (doc.getString("transactionId") != null) {
+            transaction.setTransactionId(doc.getString("transactionId"));
+        }
         transaction.setUserId(doc.getString("userId"));
         transaction.setType(me.hash.mediaroulette.model.Transaction.TransactionType.valueOf(doc.getString("type")));
         transaction.setAmount(doc.getLong("amount"));
@@ -273,17 +427,6 @@ public class MongoUserRepository implements UserRepository {
         return transaction;
     }
     
-    private Document mapTransactionToDocument(me.hash.mediaroulette.model.Transaction transaction) {
-        return new Document("transactionId", transaction.getTransactionId())
-                .append("userId", transaction.getUserId())
-                .append("type", transaction.getType().name())
-                .append("amount", transaction.getAmount())
-                .append("balanceBefore", transaction.getBalanceBefore())
-                .append("balanceAfter", transaction.getBalanceAfter())
-                .append("description", transaction.getDescription())
-                .append("timestamp", transaction.getTimestamp() != null ? transaction.getTimestamp().toString() : null);
-    }
-
     private InventoryItem parseInventoryItem(Document doc) {
         if (doc == null) return null;
         
@@ -345,51 +488,12 @@ public class MongoUserRepository implements UserRepository {
     
     // Helper methods for usage statistics mapping
     private void mapUsageStatistics(Document doc, User user) {
-        // Map source usage count
-        Document sourceUsageDoc = doc.get("sourceUsageCount", Document.class);
-        if (sourceUsageDoc != null) {
-            Map<String, Long> sourceUsageCount = new java.util.HashMap<>();
-            for (String key : sourceUsageDoc.keySet()) {
-                Object value = sourceUsageDoc.get(key);
-                if (value instanceof Number) {
-                    sourceUsageCount.put(key, ((Number) value).longValue());
-                }
-            }
-            user.setSourceUsageCount(sourceUsageCount);
-        }
-        
-        // Map command usage count
-        Document commandUsageDoc = doc.get("commandUsageCount", Document.class);
-        if (commandUsageDoc != null) {
-            Map<String, Long> commandUsageCount = new java.util.HashMap<>();
-            for (String key : commandUsageDoc.keySet()) {
-                Object value = commandUsageDoc.get(key);
-                if (value instanceof Number) {
-                    commandUsageCount.put(key, ((Number) value).longValue());
-                }
-            }
-            user.setCommandUsageCount(commandUsageCount);
-        }
-        
         // Map custom subreddits
         List<String> customSubreddits = doc.getList("customSubreddits", String.class);
         if (customSubreddits != null) {
             user.setCustomSubreddits(new ArrayList<>(customSubreddits));
         }
         
-        // Map subreddit usage count
-        Document subredditUsageDoc = doc.get("subredditUsageCount", Document.class);
-        if (subredditUsageDoc != null) {
-            Map<String, Integer> subredditUsageCount = new java.util.HashMap<>();
-            for (String key : subredditUsageDoc.keySet()) {
-                Object value = subredditUsageDoc.get(key);
-                if (value instanceof Number) {
-                    subredditUsageCount.put(key, ((Number) value).intValue());
-                }
-            }
-            user.setSubredditUsageCount(subredditUsageCount);
-        }
-        
         // Map custom queries
         Document customQueriesDoc = doc.get("customQueries", Document.class);
         if (customQueriesDoc != null) {
@@ -428,58 +532,25 @@ public class MongoUserRepository implements UserRepository {
     }
     
     private void mapUsageStatisticsToDocument(Document doc, User user) {
-        // Map source usage count
-        if (user.getSourceUsageCount() != null && !user.getSourceUsageCount().isEmpty()) {
-            Document sourceUsageDoc = new Document();
-            for (Map.Entry<String, Long> entry : user.getSourceUsageCount().entrySet()) {
-                sourceUsageDoc.append(entry.getKey(), entry.getValue());
-            }
-            doc.append("sourceUsageCount", sourceUsageDoc);
-        }
-        
-        // Map command usage count
-        if (user.getCommandUsageCount() != null && !user.getCommandUsageCount().isEmpty()) {
-            Document commandUsageDoc = new Document();
-            for (Map.Entry<String, Long> entry : user.getCommandUsageCount().entrySet()) {
-                commandUsageDoc.append(entry.getKey(), entry.getValue());
-            }
-            doc.append("commandUsageCount", commandUsageDoc);
-        }
-        
         // Map custom subreddits
         if (user.getCustomSubreddits() != null) {
             doc.append("customSubreddits", user.getCustomSubreddits());
         }
         
-        // Map subreddit usage count
-        if (user.getSubredditUsageCount() != null && !user.getSubredditUsageCount().isEmpty()) {
-            Document subredditUsageDoc = new Document();
-            for (Map.Entry<String, Integer> entry : user.getSubredditUsageCount().entrySet()) {
-                subredditUsageDoc.append(entry.getKey(), entry.getValue());
-            }
-            doc.append("subredditUsageCount", subredditUsageDoc);
-        }
-        
-        // Map custom queries
-        if (user.getCustomQueries() != null && !user.getCustomQueries().isEmpty()) {
-            Document customQueriesDoc = new Document();
-            for (Map.Entry<String, List<String>> entry : user.getCustomQueries().entrySet()) {
-                customQueriesDoc.append(entry.getKey(), entry.getValue());
-            }
-            doc.append("customQueries", customQueriesDoc);
+        // Map custom queries; every field is always present so setting them all overwrites the user
+        Document customQueriesDoc = new Document();
+        for (Map.Entry<String, List<String>> entry : user.getCustomQueries().entrySet()) {
+            customQueriesDoc.append(entry.getKey(), entry.getValue());
         }
+        doc.append("customQueries", customQueriesDoc);
         
         // Map total commands used
         doc.append("totalCommandsUsed", user.getTotalCommandsUsed());
         
         // Map last active date
-        if (user.getLastActiveDate() != null) {
-            doc.append("lastActiveDate", user.getLastActiveDate().toString());
-        }
+        doc.append("lastActiveDate", user.getLastActiveDate() != null ? user.getLastActiveDate().toString() : null);
         
         // Map account created date
-        if (user.getAccountCreatedDate() != null) {
-            doc.append("accountCreatedDate", user.getAccountCreatedDate().toString());
-        }
+        doc.append("accountCreatedDate", user.getAccountCreatedDate() != null ? user.getAccountCreatedDate().toString() : null);
     }
 }
@@ -0,0 +1,41 @@
+package me.hash.mediaroulette.repository;
+
+import me.hash.mediaroulette.model.Transaction;
+import me.hash.mediaroulette.model.UsageType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user history that is kept out of the user document: the coin transaction log and usage counters
+ */
+public interface UserActivityRepository {
+    /**
+     * Append transactions to the log. Transactions already in the log are skipped.
+     */
+    void insertTransactions(List<Transaction> transactions);
+
+    /**
+     * Newest-first page of a user's transactions
+     * @param page zero-based page index
+     */
+    List<Transaction> findTransactions(String userId, int page, int pageSize);
+
+    long countTransactions(String userId);
+
+    /**
+     * Add to a user's usage counters, creating missing ones
+     */
+    void incrementUsage(String userId, Map<UsageType, Map<String, Long>> increments);
+
+    /**
+     * Raise a user's usage counters to at least the given values; used to import legacy counts
+     * without double-counting if the import is repeated
+     */
+    void importUsage(String userId, Map<UsageType, Map<String, Long>> counts);
+
+    /**
+     * A user's most used keys of one usage type, highest count first
+     */
+    Map<String, Long> findTopUsage(String userId, UsageType type, int limit);
+}
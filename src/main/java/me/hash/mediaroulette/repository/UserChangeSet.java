@@ -0,0 +1,293 @@
+package me.hash.mediaroulette.repository;
+
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Targeted update of one user document, computed by comparing its freshly encoded form with a
+ * {@link Baseline} of what was last read or written.
+ * <p>
+ * Every top-level field gets at most one operator, so operators never conflict:
+ * <ul>
+ *   <li>lifetime counters get {@code $inc} of the delta</li>
+ *   <li>arrays that only grew at the end get {@code $push}</li>
+ *   <li>arrays whose elements have an id and only lost elements get {@code $pull}</li>
+ *   <li>anything else that changed is {@code $set} (or {@code $unset} if it disappeared)</li>
+ * </ul>
+ * Baselines keep scalars as values but arrays and sub-documents only as 64-bit
+ * fingerprints, so tracking a user costs a few hundred bytes.
+ */
+final class UserChangeSet {
+    private static final Set<String> INCREMENTED_FIELDS = Set.of(
+            "imagesGenerated", "coins", "totalCoinsEarned", "totalCoinsSpent",
+            "totalQuestsCompleted", "totalCommandsUsed");
+    // Array fields whose elements can be pulled by an identifying key; null means by value
+    private static final Map<String, String> PULLABLE_ARRAYS = new HashMap<>();
+
+    static {
+        PULLABLE_ARRAYS.put("favorites", "id");
+        PULLABLE_ARRAYS.put("inventory", "id");
+        PULLABLE_ARRAYS.put("dailyQuests", "questId");
+        PULLABLE_ARRAYS.put("customSubreddits", null);
+    }
+
+    /**
+     * Stored state of a user document as far as change detection needs it
+     */
+    static final class Baseline {
+        private final Map<String, Object> fields;
+
+        private Baseline(Map<String, Object> fields) {
+            this.fields = fields;
+        }
+    }
+
+    private record ArrayState(long[] fingerprints, Object[] ids) {}
+
+    private record Fingerprint(long value) {}
+
+    private final List<Bson> updates = new ArrayList<>();
+
+    private UserChangeSet() {
+    }
+
+    /**
+     * Capture the baseline of an encoded user document
+     * @param storedFields fields that actually exist in the database; others are treated as
+     *                     unknown so their first change is written with {@code $set}
+     */
+    static Baseline capture(Document encoded, Set<String> storedFields) {
+        Map<String, Object> fields = new HashMap<>();
+        for (Map.Entry<String, Object> field : encoded.entrySet()) {
+            String name = field.getKey();
+            if (name.equals("_id") || !storedFields.contains(name)) {
+                continue;
+            }
+            Object value = field.getValue();
+            if (value instanceof List<?> list) {
+                fields.put(name, captureArray(name, list));
+            } else if (value instanceof Document document) {
+                fields.put(name, new Fingerprint(fingerprint(document)));
+            } else {
+                fields.put(name, value);
+            }
+        }
+        return new Baseline(fields);
+    }
+
+    private static ArrayState captureArray(String name, List<?> list) {
+        long[] fingerprints = new long[list.size()];
+        Object[] ids = PULLABLE_ARRAYS.containsKey(name) ? new Object[list.size()] : null;
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = fingerprint(list.get(i));
+            if (ids != null) {
+                ids[i] = idOf(PULLABLE_ARRAYS.get(name), list.get(i));
+            }
+        }
+        return new ArrayState(fingerprints, ids);
+    }
+
+    /**
+     * Changes that turn the stored document described by {@code before} into {@code after}
+     */
+    static UserChangeSet between(Baseline before, Document after) {
+        UserChangeSet changes = new UserChangeSet();
+        for (Map.Entry<String, Object> field : after.entrySet()) {
+            String name = field.getKey();
+            if (name.equals("_id")) {
+                continue;
+            }
+            if (!before.fields.containsKey(name)) {
+                changes.updates.add(Updates.set(name, field.getValue()));
+            } else {
+                changes.diffField(name, before.fields.get(name), field.getValue());
+            }
+        }
+        for (String name : before.fields.keySet()) {
+            if (!after.containsKey(name)) {
+                changes.updates.add(Updates.unset(name));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Update that sets every field of an encoded document, for users without a baseline. Unlike a
+     * replace it leaves fields the encoder does not know about untouched.
+     */
+    static Bson setAll(Document encoded) {
+        List<Bson> sets = new ArrayList<>();
+        for (Map.Entry<String, Object> field : encoded.entrySet()) {
+            if (!field.getKey().equals("_id")) {
+                sets.add(Updates.set(field.getKey(), field.getValue()));
+            }
+        }
+        return Updates.combine(sets);
+    }
+
+    private void diffField(String name, Object before, Object after) {
+        if (before instanceof ArrayState array && after instanceof List<?> list) {
+            diffArray(name, array, list);
+        } else if (before instanceof Fingerprint hash && after instanceof Document document) {
+            if (hash.value() != fingerprint(document)) {
+                updates.add(Updates.set(name, document));
+            }
+        } else if (INCREMENTED_FIELDS.contains(name) && isIntegral(before) && isIntegral(after)) {
+            long delta = ((Number) after).longValue() - ((Number) before).longValue();
+            if (delta != 0) {
+                updates.add(Updates.inc(name, delta));
+            }
+        } else if (!Objects.equals(before, after)) {
+            updates.add(Updates.set(name, after));
+        }
+    }
+
+    private void diffArray(String name, ArrayState before, List<?> after) {
+        long[] old = before.fingerprints();
+        long[] current = new long[after.size()];
+        for (int i = 0; i < current.length; i++) {
+            current[i] = fingerprint(after.get(i));
+        }
+        if (Arrays.equals(old, current)) {
+            return;
+        }
+
+        // Only appended
+        if (old.length < current.length && regionMatches(old, current, old.length)) {
+            updates.add(Updates.pushEach(name, after.subList(old.length, after.size())));
+            return;
+        }
+
+        // Only removals, by id
+        if (before.ids() != null && current.length < old.length) {
+            List<Object> removed = removedIds(before, current);
+            if (removed != null) {
+                String idKey = PULLABLE_ARRAYS.get(name);
+                updates.add(idKey == null
+                        ? Updates.pullAll(name, removed)
+                        : Updates.pullByFilter(new Document(name, new Document(idKey, new Document("$in", removed)))));
+                return;
+            }
+        }
+
+        updates.add(Updates.set(name, after));
+    }
+
+    /**
+     * Ids of the elements missing from {@code current}, or null if it is not simply {@code before}
+     * with some elements removed, or if a removed id is still used by a kept element
+     */
+    private static List<Object> removedIds(ArrayState before, long[] current) {
+        long[] old = before.fingerprints();
+        List<Object> removed = new ArrayList<>();
+        Set<Object> keptIds = new HashSet<>();
+        int next = 0;
+        for (int i = 0; i < old.length; i++) {
+            if (next < current.length && old[i] == current[next]) {
+                keptIds.add(before.ids()[i]);
+                next++;
+            } else {
+                removed.add(before.ids()[i]);
+            }
+        }
+        if (next != current.length) {
+            return null;
+        }
+        for (Object id : removed) {
+            if (id == null || keptIds.contains(id)) {
+                return null;
+            }
+        }
+        return removed;
+    }
+
+    private static boolean regionMatches(long[] old, long[] current, int length) {
+        for (int i = 0; i < length; i++) {
+            if (old[i] != current[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object idOf(String idKey, Object element) {
+        if (idKey == null) {
+            return element;
+        }
+        return element instanceof Document document ? document.get(idKey) : null;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer;
+    }
+
+    boolean isEmpty() {
+        return updates.isEmpty();
+    }
+
+    int size() {
+        return updates.size();
+    }
+
+    Bson toUpdate() {
+        return Updates.combine(updates);
+    }
+
+    /**
+     * Order-sensitive 64-bit structural hash of a BSON-compatible value
+     */
+    static long fingerprint(Object value) {
+        if (value == null) {
+            return 0x6A09E667F3BCC909L;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long hash = 0x3C6EF372FE94F82BL;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                hash = mix(hash ^ fingerprint(String.valueOf(entry.getKey())));
+                hash = mix(hash ^ fingerprint(entry.getValue()));
+            }
+            return hash;
+        }
+        if (value instanceof List<?> list) {
+            long hash = 0xA54FF53A5F1D36F1L;
+            for (Object element : list) {
+                hash = mix(hash ^ fingerprint(element));
+            }
+            return hash;
+        }
+        if (value instanceof String string) {
+            long hash = 0xCBF29CE484222325L;
+            for (int i = 0; i < string.length(); i++) {
+                hash = (hash ^ string.charAt(i)) * 0x100000001B3L;
+            }
+            return hash;
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return mix(((Number) value).longValue() ^ 0x510E527FADE682D1L);
+        }
+        if (value instanceof Number number) {
+            return mix(Double.doubleToLongBits(number.doubleValue()) ^ 0x9B05688C2B3E6C1FL);
+        }
+        if (value instanceof Boolean bool) {
+            return bool ? 0x1F83D9ABFB41BD6BL : 0x5BE0CD19137E2179L;
+        }
+        return fingerprint(value.toString());
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,11 +1,22 @@
 package me.hash.mediaroulette.repository;
 
 import me.hash.mediaroulette.model.User;
+
+import java.util.Collection;
 import java.util.Optional;
 
 public interface UserRepository {
     Optional<User> findById(String userId);
     User save(User user);
+
+    /**
+     * Persist several users in one batch. Implementations may write only what changed since each
+     * user was loaded or last saved; callers must not save the same user concurrently.
+     */
+    default void saveAll(Collection<User> users) {
+        users.forEach(this::save);
+    }
+
     boolean exists(String userId);
     long getTotalUsers();
     long getTotalImagesGenerated();
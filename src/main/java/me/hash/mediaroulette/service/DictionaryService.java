@@ -6,21 +6,67 @@ import org.slf4j.LoggerFactory;
 import me.hash.mediaroulette.model.Dictionary;
 import me.hash.mediaroulette.model.DictionaryAssignment;
 import me.hash.mediaroulette.repository.DictionaryRepository;
+import me.hash.mediaroulette.utils.cache.BoundedCache;
 
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Dictionary CRUD and random word lookup.
+ * <p>
+ * Assignments and dictionary word lists are cached read-through, so a random word for an assigned
+ * source needs no database round trip once warm. Every edit goes through this service and
+ * invalidates what it touches; entries also expire after {@link #CACHE_TTL} to pick up changes
+ * made outside the bot. Usage counts are buffered and written as one bulk {@code $inc} every
+ * {@link #USAGE_FLUSH_INTERVAL_SECONDS} seconds and on {@link #shutdown()}.
+ */
 public class DictionaryService {
     private static final Logger logger = LoggerFactory.getLogger(DictionaryService.class);
+    private static final Duration CACHE_TTL = Duration.ofMinutes(30);
+    private static final int MAX_CACHED_ASSIGNMENTS = 20_000;
+    private static final int MAX_CACHED_DICTIONARIES = 2_000;
+    private static final long MAX_CACHED_WORD_BYTES = 32L * 1024 * 1024;
+    private static final long USAGE_FLUSH_INTERVAL_SECONDS = 30;
+    private static final String DEFAULTS_KEY = "defaults";
+    private static final String[] NO_WORDS = new String[0];
+
     private final DictionaryRepository repository;
-    
+    // userId:source -> assigned dictionary id
+    private final BoundedCache<Optional<String>> assignmentCache =
+            new BoundedCache<>(MAX_CACHED_ASSIGNMENTS, CACHE_TTL);
+    // dictionary id (or DEFAULTS_KEY for the first default dictionary) -> words, empty if missing
+    private final BoundedCache<Optional<String[]>> wordCache =
+            new BoundedCache<>(MAX_CACHED_DICTIONARIES, MAX_CACHED_WORD_BYTES, DictionaryService::weigh, CACHE_TTL);
+    private final Map<String, Long> pendingUsage = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService usageFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Dictionary-Usage-Flush");
+        t.setDaemon(true);
+        return t;
+    });
+
     public DictionaryService(DictionaryRepository repository) {
+        this(repository, Duration.ofSeconds(USAGE_FLUSH_INTERVAL_SECONDS));
+    }
+
+    DictionaryService(DictionaryRepository repository, Duration usageFlushInterval) {
         this.repository = repository;
+        usageFlusher.scheduleWithFixedDelay(this::flushUsage,
+                usageFlushInterval.toMillis(), usageFlushInterval.toMillis(), TimeUnit.MILLISECONDS);
     }
     
     public Dictionary createDictionary(String name, String description, String userId) {
         Dictionary dictionary = new Dictionary(name, description, userId);
-        return repository.save(dictionary);
+        Dictionary saved = repository.save(dictionary);
+        invalidateDictionary(saved.getId());
+        return saved;
     }
     
     public Optional<Dictionary> getDictionary(String id) {
@@ -38,7 +84,11 @@ public class DictionaryService {
     public boolean deleteDictionary(String id, String userId) {
         Optional<Dictionary> dict = repository.findById(id);
         if (dict.isPresent() && dict.get().canBeEditedBy(userId)) {
-            return repository.delete(id);
+            boolean deleted = repository.delete(id);
+            invalidateDictionary(id);
+            // The repository also drops every assignment pointing at the dictionary
+            assignmentCache.invalidateAll();
+            return deleted;
         }
         return false;
     }
@@ -46,19 +96,24 @@ public class DictionaryService {
     public void assignDictionary(String userId, String source, String dictionaryId) {
         DictionaryAssignment assignment = new DictionaryAssignment(userId, source, dictionaryId);
         repository.saveAssignment(assignment);
+        assignmentCache.invalidate(assignmentKey(userId, source));
     }
     
     public boolean unassignDictionary(String userId, String source) {
-        return repository.deleteAssignment(userId, source);
+        boolean removed = repository.deleteAssignment(userId, source);
+        assignmentCache.invalidate(assignmentKey(userId, source));
+        return removed;
     }
     
     public Optional<String> getAssignedDictionary(String userId, String source) {
-        return repository.findAssignment(userId, source)
-                .map(DictionaryAssignment::getDictionaryId);
+        return assignmentCache.get(assignmentKey(userId, source), key -> repository.findAssignment(userId, source)
+                .map(DictionaryAssignment::getDictionaryId));
     }
     
     public Dictionary updateDictionary(Dictionary dictionary) {
-        return repository.save(dictionary);
+        Dictionary saved = repository.save(dictionary);
+        invalidateDictionary(saved.getId());
+        return saved;
     }
     
     public boolean updateDictionary(String id, String userId, Dictionary updatedDict) {
@@ -66,6 +121,7 @@ public class DictionaryService {
         if (existing.isPresent() && existing.get().canBeEditedBy(userId)) {
             updatedDict.setId(id);
             repository.save(updatedDict);
+            invalidateDictionary(id);
             return true;
         }
         return false;
@@ -76,12 +132,13 @@ public class DictionaryService {
         Optional<String> dictionaryId = getAssignedDictionary(userId, source);
         logger.debug("Found dictionary assignment: {}", dictionaryId.orElse("none"));
         if (dictionaryId.isPresent()) {
-            Optional<Dictionary> dict = repository.findById(dictionaryId.get());
-            logger.debug("Dictionary found: {}", dict.isPresent());
-            if (dict.isPresent()) {
-                String word = dict.get().getRandomWord();
+            Optional<String[]> words = wordCache.get(dictionaryId.get(),
+                    id -> repository.findById(id).map(DictionaryService::toWordArray));
+            logger.debug("Dictionary found: {}", words.isPresent());
+            if (words.isPresent()) {
+                String word = randomWord(words.get());
                 logger.debug("Random word from dictionary: {}", word);
-                repository.incrementDictionaryUsage(dictionaryId.get());
+                pendingUsage.merge(dictionaryId.get(), 1L, Long::sum);
                 return word;
             }
         }
@@ -91,10 +148,84 @@ public class DictionaryService {
     }
     
     private String getDefaultWord() {
-        List<Dictionary> defaults = repository.findDefaultDictionaries();
-        if (!defaults.isEmpty()) {
-            return defaults.get(0).getRandomWord();
+        Optional<String[]> defaults = wordCache.get(DEFAULTS_KEY, key -> {
+            List<Dictionary> dictionaries = repository.findDefaultDictionaries();
+            return dictionaries.isEmpty() ? Optional.empty() : Optional.of(toWordArray(dictionaries.get(0)));
+        });
+        return defaults.map(DictionaryService::randomWord).orElse("random");
+    }
+
+    /**
+     * Write buffered usage counts as one bulk update. Counts that fail to write are kept for the next flush.
+     */
+    public void flushUsage() {
+        if (pendingUsage.isEmpty()) {
+            return;
+        }
+        Map<String, Long> batch = new HashMap<>();
+        for (String id : pendingUsage.keySet()) {
+            Long count = pendingUsage.remove(id);
+            if (count != null) {
+                batch.put(id, count);
+            }
+        }
+        try {
+            repository.incrementDictionaryUsage(batch);
+            logger.debug("Flushed usage of {} dictionaries", batch.size());
+        } catch (Exception e) {
+            logger.warn("Failed to flush dictionary usage, retrying later: {}", e.getMessage());
+            batch.forEach((id, count) -> pendingUsage.merge(id, count, Long::sum));
+        }
+    }
+
+    public String getCacheStats() {
+        return String.format("assignments=%d (%s), dictionaries=%d (%s), pendingUsage=%d",
+                assignmentCache.size(), assignmentCache.getStats(),
+                wordCache.size(), wordCache.getStats(), pendingUsage.size());
+    }
+
+    /**
+     * Stop the flush schedule and write the remaining usage counts
+     */
+    public void shutdown() {
+        usageFlusher.shutdown();
+        try {
+            if (!usageFlusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                usageFlusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            usageFlusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flushUsage();
+    }
+
+    private void invalidateDictionary(String id) {
+        if (id != null) {
+            wordCache.invalidate(id);
+        }
+        // Any edit may add, remove or change a default dictionary
+        wordCache.invalidate(DEFAULTS_KEY);
+    }
+
+    private static String assignmentKey(String userId, String source) {
+        return userId + ":" + source;
+    }
+
+    private static String[] toWordArray(Dictionary dictionary) {
+        List<String> words = dictionary.getWords();
+        return words == null || words.isEmpty() ? NO_WORDS : words.toArray(new String[0]);
+    }
+
+    private static String randomWord(String[] words) {
+        return words.length == 0 ? null : words[ThreadLocalRandom.current().nextInt(words.length)];
+    }
+
+    private static long weigh(Optional<String[]> words) {
+        long bytes = 64;
+        for (String word : words.orElse(NO_WORDS)) {
+            bytes += 48 + word.length() * 2L;
         }
-        return "random";
+        return bytes;
     }
-}
\ No newline at end of file
+}
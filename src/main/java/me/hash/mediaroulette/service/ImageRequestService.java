@@ -23,14 +23,13 @@ public class ImageRequestService {
         return instance;
     }
 
+    /**
+     * Fetch an image on the media fetch executor; the fetch is abandoned once the interaction
+     * can no longer be answered
+     */
     public CompletableFuture<Map<String, String>> fetchImage(String subcommand, SlashCommandInteractionEvent event, String query) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return ImageSource.handle(subcommand.toUpperCase(), event, query);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+        return MediaFetchExecutor.getInstance().submit(MediaFetchExecutor.deadlineFor(event),
+                () -> ImageSource.handle(subcommand.toUpperCase(), event, query));
     }
 
     
@@ -0,0 +1,217 @@
+package me.hash.mediaroulette.service;
+
+import net.dv8tion.jda.api.interactions.Interaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution layer for media fetches.
+ * <p>
+ * Each fetch runs on its own virtual thread, so blocking provider I/O never occupies the common
+ * ForkJoinPool. A fetch carries a deadline derived from the Discord interaction that asked for it;
+ * code running inside the fetch can read the time left through {@link #remainingTime(Duration)},
+ * and the fetch is cancelled once the deadline passes. Calls to a single provider are limited by a
+ * bulkhead so one slow source can't tie up every in-flight request.
+ */
+public class MediaFetchExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(MediaFetchExecutor.class);
+
+    // Interaction tokens: 3s to acknowledge, 15m to edit the deferred reply
+    private static final Duration INITIAL_RESPONSE_WINDOW = Duration.ofSeconds(3);
+    private static final Duration DEFERRED_RESPONSE_WINDOW = Duration.ofMinutes(15);
+    // Time kept back to send the result or an error before the token expires
+    private static final Duration RESPONSE_MARGIN = Duration.ofSeconds(1);
+    private static final Duration MAX_FETCH_TIME = Duration.ofSeconds(60);
+
+    private static final int DEFAULT_PERMITS = 16;
+    private static final Map<String, Integer> PROVIDER_PERMITS = Map.of(
+            "GOOGLE", 4,   // Daily API quota
+            "IMGUR", 4     // Each search already runs several probes in parallel
+    );
+
+    private static final ThreadLocal<Instant> DEADLINE = new ThreadLocal<>();
+
+    private static MediaFetchExecutor instance;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("Media-Fetch-", 0).factory());
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder timedOut = new LongAdder();
+
+    private MediaFetchExecutor() {
+    }
+
+    public static synchronized MediaFetchExecutor getInstance() {
+        if (instance == null) {
+            instance = new MediaFetchExecutor();
+        }
+        return instance;
+    }
+
+    /**
+     * Latest time a fetch for this interaction may finish and still be able to answer it
+     */
+    public static Instant deadlineFor(Interaction interaction) {
+        Duration window = interaction.isAcknowledged() ? DEFERRED_RESPONSE_WINDOW : INITIAL_RESPONSE_WINDOW;
+        Instant tokenExpiry = interaction.getTimeCreated().toInstant().plus(window).minus(RESPONSE_MARGIN);
+        Instant cap = Instant.now().plus(MAX_FETCH_TIME);
+        return tokenExpiry.isBefore(cap) ? tokenExpiry : cap;
+    }
+
+    /**
+     * Time left until the deadline of the fetch running on this thread, capped at the given
+     * value. Outside of a fetch the cap itself is returned.
+     */
+    public static Duration remainingTime(Duration max) {
+        Instant deadline = DEADLINE.get();
+        if (deadline == null) {
+            return max;
+        }
+        Duration remaining = Duration.between(Instant.now(), deadline);
+        if (remaining.isNegative()) {
+            return Duration.ZERO;
+        }
+        return remaining.compareTo(max) < 0 ? remaining : max;
+    }
+
+    /**
+     * Run a fetch on a virtual thread. The returned future fails with a {@link TimeoutException}
+     * and the task is interrupted if it has not finished by the deadline.
+     */
+    public <T> CompletableFuture<T> submit(Instant deadline, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Duration remaining = Duration.between(Instant.now(), deadline);
+        if (remaining.isNegative() || remaining.isZero()) {
+            timedOut.increment();
+            result.completeExceptionally(new TimeoutException("Interaction expired before the fetch started"));
+            return result;
+        }
+
+        inFlight.incrementAndGet();
+        Future<?> running = executor.submit(() -> {
+            DEADLINE.set(deadline);
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                DEADLINE.remove();
+                inFlight.decrementAndGet();
+            }
+        });
+
+        result.orTimeout(remaining.toMillis(), TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+            if (error instanceof TimeoutException) {
+                timedOut.increment();
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Call a provider inside its bulkhead, waiting for a permit no longer than the current
+     * fetch's deadline allows
+     * @throws TimeoutException if no permit became available in time
+     */
+    public <T> T withBulkhead(String provider, Callable<T> call) throws Exception {
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(provider,
+                name -> new Bulkhead(name, PROVIDER_PERMITS.getOrDefault(name, DEFAULT_PERMITS)));
+
+        bulkhead.waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = bulkhead.permits.tryAcquire(remainingTime(MAX_FETCH_TIME).toNanos(), TimeUnit.NANOSECONDS);
+        } finally {
+            bulkhead.waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            bulkhead.rejected.increment();
+            throw new TimeoutException("Too many concurrent requests to " + provider);
+        }
+
+        bulkhead.active.incrementAndGet();
+        try {
+            T value = call.call();
+            bulkhead.completed.increment();
+            return value;
+        } catch (Exception e) {
+            bulkhead.failed.increment();
+            throw e;
+        } finally {
+            bulkhead.active.decrementAndGet();
+            bulkhead.permits.release();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    /**
+     * Per-provider bulkhead usage, busiest first
+     */
+    public List<BulkheadStats> getBulkheadStats() {
+        List<BulkheadStats> stats = new ArrayList<>();
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            stats.add(new BulkheadStats(bulkhead.provider, bulkhead.maxConcurrent, bulkhead.active.get(),
+                    bulkhead.waiting.get(), bulkhead.completed.sum(), bulkhead.failed.sum(), bulkhead.rejected.sum()));
+        }
+        stats.sort(Comparator.comparingInt(BulkheadStats::waiting).thenComparingInt(BulkheadStats::active).reversed());
+        return stats;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("{} media fetches still running at shutdown", inFlight.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public record BulkheadStats(String provider, int maxConcurrent, int active, int waiting,
+                                long completed, long failed, long rejected) {}
+
+    private static class Bulkhead {
+        private final String provider;
+        private final int maxConcurrent;
+        private final Semaphore permits;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        Bulkhead(String provider, int maxConcurrent) {
+            this.provider = provider;
+            this.maxConcurrent = maxConcurrent;
+            this.permits = new Semaphore(maxConcurrent, true);
+        }
+    }
+}
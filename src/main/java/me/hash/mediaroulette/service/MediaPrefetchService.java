@@ -0,0 +1,265 @@
+package me.hash.mediaroulette.service;
+
+import me.hash.mediaroulette.Main;
+import me.hash.mediaroulette.config.LocalConfig;
+import me.hash.mediaroulette.content.factory.ProviderRegistry;
+import me.hash.mediaroulette.content.provider.MediaProvider;
+import me.hash.mediaroulette.model.content.MediaResult;
+import me.hash.mediaroulette.plugins.images.ImageSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps small per-source queues of ready {@link MediaResult}s so most query-less requests are
+ * served without waiting on the provider.
+ * <p>
+ * Queue depth follows demand: source usage counted by {@link StatsTrackingService} is sampled
+ * every tick into a decaying per-minute rate, and each source is kept roughly
+ * {@link #DEMAND_HORIZON_MINUTES} minutes ahead of it. Idle sources are not prefetched at all.
+ * Refills call the shared providers from {@link ProviderRegistry}, so they go through the same
+ * per-host rate limits as live requests, and a degraded provider or a source disabled in
+ * {@link LocalConfig} is left alone. Only sources whose results do not depend on the requesting
+ * user are pooled.
+ * <p>
+ * Results are partitioned by the NSFW flag of the provider that produced them; a caller that
+ * may not see NSFW content never reads from an NSFW partition.
+ */
+public class MediaPrefetchService {
+    private static final Logger logger = LoggerFactory.getLogger(MediaPrefetchService.class);
+
+    // Tenor and Google pick their query from the requesting user's dictionary, so a pooled
+    // result could come from words the user never chose; they are always fetched live
+    private static final Set<String> PREFETCHED_SOURCES = Set.of(
+            ImageSource._4CHAN, ImageSource.PICSUM, ImageSource.BOORU,
+            ImageSource.MOVIE, ImageSource.TVSHOW, ImageSource.YOUTUBE, ImageSource.SHORT, ImageSource.URBAN);
+
+    private static final int MAX_QUEUE_PER_SOURCE = 20;
+    private static final double DEMAND_HORIZON_MINUTES = 2.0;
+    private static final long TICK_SECONDS = 5;
+    // Weight of the newest sample in the per-minute demand average
+    private static final double DEMAND_SMOOTHING = 0.2;
+    private static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+    // 4chan threads are pruned quickly, so their images go stale sooner
+    private static final Map<String, Long> SOURCE_TTL_MS = Map.of(
+            ImageSource._4CHAN, TimeUnit.MINUTES.toMillis(3));
+
+    private static MediaPrefetchService instance;
+
+    private record PoolKey(String source, boolean nsfw) {}
+
+    private record Prefetched(MediaResult result, long fetchedAt) {}
+
+    private final Map<PoolKey, BlockingQueue<Prefetched>> pools = new ConcurrentHashMap<>();
+    private final Map<String, Double> demandPerMinute = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastUsageCounts = new HashMap<>();
+    private final Set<String> refilling = ConcurrentHashMap.newKeySet();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Media-Prefetch-Scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService workers = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "Media-Prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private MediaPrefetchService() {
+    }
+
+    public static synchronized MediaPrefetchService getInstance() {
+        if (instance == null) {
+            instance = new MediaPrefetchService();
+        }
+        return instance;
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::tick, TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS);
+        logger.info("Media prefetch started for {} sources", PREFETCHED_SOURCES.size());
+    }
+
+    /**
+     * Take a ready result for a source, if one is queued and still fresh
+     * @param source the source name, e.g. {@link ImageSource#PICSUM}
+     * @param allowNsfw whether the requester may receive NSFW content
+     * @return a prefetched result, or null if the caller should fetch live
+     */
+    public MediaResult poll(String source, boolean allowNsfw) {
+        if (!PREFETCHED_SOURCES.contains(source)) {
+            return null;
+        }
+        MediaResult result = pollFresh(new PoolKey(source, false));
+        if (result == null && allowNsfw) {
+            result = pollFresh(new PoolKey(source, true));
+        }
+        (result != null ? hits : misses).incrementAndGet();
+        return result;
+    }
+
+    private MediaResult pollFresh(PoolKey key) {
+        BlockingQueue<Prefetched> pool = pools.get(key);
+        if (pool == null) {
+            return null;
+        }
+        long ttl = ttlFor(key.source());
+        Prefetched item;
+        while ((item = pool.poll()) != null) {
+            if (System.currentTimeMillis() - item.fetchedAt() < ttl) {
+                return item.result();
+            }
+        }
+        return null;
+    }
+
+    private void tick() {
+        try {
+            updateDemand();
+            for (String source : PREFETCHED_SOURCES) {
+                if (!isEnabled(source)) {
+                    drop(source);
+                    continue;
+                }
+                purgeStale(source);
+                int deficit = targetDepth(source) - queuedFor(source);
+                if (deficit > 0 && refilling.add(source)) {
+                    workers.execute(() -> refill(source, deficit));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Media prefetch tick failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fold the usage counted since the last tick into each source's per-minute demand
+     */
+    private void updateDemand() {
+        StatsTrackingService stats = Main.getStatsService();
+        Map<String, Long> counts = stats != null ? stats.getSourceUsageCounts() : Map.of();
+        double ticksPerMinute = 60.0 / TICK_SECONDS;
+
+        Map<String, Long> deltas = new HashMap<>();
+        counts.forEach((name, count) -> {
+            long previous = lastUsageCounts.getOrDefault(name, 0L);
+            // Stats counters restart every hour
+            deltas.put(name.toUpperCase(), count >= previous ? count - previous : count);
+            lastUsageCounts.put(name, count);
+        });
+        // A roll over all sources could land on any of them
+        long allDelta = deltas.getOrDefault(ImageSource.ALL, 0L);
+
+        for (String source : PREFETCHED_SOURCES) {
+            double sample = (deltas.getOrDefault(source, 0L) + (double) allDelta / PREFETCHED_SOURCES.size()) * ticksPerMinute;
+            demandPerMinute.merge(source, DEMAND_SMOOTHING * sample, (old, ignored) -> old + DEMAND_SMOOTHING * (sample - old));
+        }
+    }
+
+    private int targetDepth(String source) {
+        double demand = demandPerMinute.getOrDefault(source, 0.0);
+        if (demand < 0.01) {
+            return 0;
+        }
+        return (int) Math.min(MAX_QUEUE_PER_SOURCE, Math.ceil(demand * DEMAND_HORIZON_MINUTES));
+    }
+
+    private void refill(String source, int count) {
+        try {
+            ProviderRegistry registry = ProviderRegistry.getInstance();
+            if (!isEnabled(source) || !registry.getHealth().get(source).isHealthy()) {
+                return;
+            }
+            MediaProvider provider = registry.get(source);
+            BlockingQueue<Prefetched> pool = pools.computeIfAbsent(
+                    new PoolKey(source, provider.isNsfw()), k -> new ArrayBlockingQueue<>(MAX_QUEUE_PER_SOURCE));
+
+            for (int i = 0; i < count && isEnabled(source); i++) {
+                MediaResult result = provider.getRandomMedia(null);
+                if (result == null || !pool.offer(new Prefetched(result, System.currentTimeMillis()))) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Try again on a later tick; the provider's health tracks repeated failures
+            logger.debug("Prefetch for {} stopped: {}", source, e.getMessage());
+        } finally {
+            refilling.remove(source);
+        }
+    }
+
+    private static boolean isEnabled(String source) {
+        return LocalConfig.getInstance().isSourceEnabled(ImageSource.getConfigKey(source));
+    }
+
+    /**
+     * Discard everything queued for a source, e.g. after an admin disabled it
+     */
+    private void drop(String source) {
+        pools.remove(new PoolKey(source, false));
+        pools.remove(new PoolKey(source, true));
+    }
+
+    private void purgeStale(String source) {
+        long cutoff = System.currentTimeMillis() - ttlFor(source);
+        for (boolean nsfw : new boolean[]{false, true}) {
+            BlockingQueue<Prefetched> pool = pools.get(new PoolKey(source, nsfw));
+            if (pool != null) {
+                pool.removeIf(item -> item.fetchedAt() < cutoff);
+            }
+        }
+    }
+
+    private int queuedFor(String source) {
+        int queued = 0;
+        for (boolean nsfw : new boolean[]{false, true}) {
+            BlockingQueue<Prefetched> pool = pools.get(new PoolKey(source, nsfw));
+            if (pool != null) {
+                queued += pool.size();
+            }
+        }
+        return queued;
+    }
+
+    private static long ttlFor(String source) {
+        return SOURCE_TTL_MS.getOrDefault(source, DEFAULT_TTL_MS);
+    }
+
+    /**
+     * Queued results, demand and hit counters (for debugging/monitoring)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<String, Integer> queued = new HashMap<>();
+        for (String source : PREFETCHED_SOURCES) {
+            queued.put(source, queuedFor(source));
+        }
+        stats.put("queued", queued);
+        stats.put("demand_per_minute", new HashMap<>(demandPerMinute));
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+        pools.clear();
+    }
+}
@@ -464,6 +464,15 @@ public class StatsTrackingService {
         }
     }
     
+    /**
+     * Snapshot of this hour's per-source usage counters
+     */
+    public Map<String, Long> getSourceUsageCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        hourlySourceUsage.forEach((source, count) -> counts.put(source, count.get()));
+        return counts;
+    }
+    
     /**
      * Get current hourly stats (for debugging/monitoring)
      */
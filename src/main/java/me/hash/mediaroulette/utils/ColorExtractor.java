@@ -1,31 +1,41 @@
 package me.hash.mediaroulette.utils;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import me.hash.mediaroulette.config.LocalConfig;
+import me.hash.mediaroulette.utils.cache.CacheStats;
+import me.hash.mediaroulette.utils.cache.SegmentedLruPolicy;
+import me.hash.mediaroulette.utils.media.DominantColorKernel;
 import me.hash.mediaroulette.utils.media.ffmpeg.FFmpegService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Extracts dominant colors from images and videos with multi-strategy fallback.
  * Uses a layered approach:
- * 1. Simple LRU cache for repeated URLs
- * 2. Java ImageIO for standard images  
+ * 1. LRU cache of extracted colors, persisted across restarts
+ * 2. Java ImageIO for standard images, decoded on a small bounded pool
  * 3. FFmpeg for videos and complex formats (with adaptive download-first)
  * 4. Graceful fallback to default color
+ * Concurrent requests for the same URL share one extraction.
  */
 public class ColorExtractor {
     private static final Logger logger = LoggerFactory.getLogger(ColorExtractor.class);
@@ -37,27 +47,37 @@ public class ColorExtractor {
     
     private static final FFmpegService ffmpegService = new FFmpegService();
     
-    // Simple LRU-like cache for extracted colors
-    private static final int MAX_CACHE_SIZE = 500;
-    private static final Map<String, Color> colorCache = new ConcurrentHashMap<>();
+    // Colors are stored as packed RGB; failed extractions are kept briefly so they are retried later
+    private static final int MAX_CACHE_SIZE = 10_000;
+    static final Duration COLOR_TTL = Duration.ofDays(30);
+    static final Duration FALLBACK_TTL = Duration.ofMinutes(15);
+    // Loaded on first use, outside class initialization, so a failed load can be retried
+    private static volatile PersistentCache<Integer> colorCache;
+    private static volatile Path cacheDirectory = PersistentCache.DEFAULT_DIRECTORY;
+    private static volatile Duration fallbackTtl = FALLBACK_TTL;
+    private static final Map<String, CompletableFuture<Color>> inFlight = new ConcurrentHashMap<>();
     
-    // Extensions that Java ImageIO can handle natively
-    private static final Set<String> NATIVE_IMAGE_EXTENSIONS = Set.of(
-            "jpg", "jpeg", "png", "bmp", "tiff", "tif"
-    );
+    // Decoding is CPU-bound; a full queue rejects instead of piling work onto the common pool
+    static final int DECODE_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    static final int DECODE_QUEUE = 128;
+    private static final AtomicInteger decodeThreadCount = new AtomicInteger();
+    static final ThreadPoolExecutor decodeExecutor = new ThreadPoolExecutor(
+            DECODE_THREADS, DECODE_THREADS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(DECODE_QUEUE),
+            r -> {
+                Thread t = new Thread(r, "Color-Extractor-" + decodeThreadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
     
     // Extensions that need FFmpeg processing
     private static final Set<String> VIDEO_EXTENSIONS = Set.of(
             "mp4", "webm", "mov", "avi", "mkv", "flv", "wmv", "m4v", "3gp", "ogv", "ts"
     );
     
-    // Extensions that might need FFmpeg but can sometimes work with ImageIO
-    private static final Set<String> HYBRID_EXTENSIONS = Set.of(
-            "gif", "webp"
-    );
-    
     private static final String DEFAULT_UA = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 Chrome/120.0.0.0 Safari/537.36";
-    private static final Color DEFAULT_COLOR = Color.CYAN;
+    static final Color DEFAULT_COLOR = Color.CYAN;
     
     /**
      * Extracts the dominant color from an image or video URL.
@@ -70,61 +90,50 @@ public class ColorExtractor {
         }
         
         // Check cache first
-        Color cached = colorCache.get(imageUrl);
+        Integer cached = colorCache().get(imageUrl);
         if (cached != null) {
-            return CompletableFuture.completedFuture(cached);
+            return CompletableFuture.completedFuture(new Color(cached));
+        }
+        
+        CompletableFuture<Color> created = new CompletableFuture<>();
+        CompletableFuture<Color> existing = inFlight.putIfAbsent(imageUrl, created);
+        if (existing != null) {
+            // Callers get their own copy so one caller's orTimeout cannot fail the others
+            return existing.copy();
         }
         
-        return CompletableFuture.supplyAsync(() -> {
+        extract(imageUrl).whenComplete((color, error) -> {
             try {
-                String ext = getExtension(imageUrl);
-                Color result;
-                
-                // Strategy 1: For native image formats, try Java ImageIO first
-                if (ext != null && NATIVE_IMAGE_EXTENSIONS.contains(ext)) {
-                    result = extractFromImage(imageUrl);
-                    if (result != null && !result.equals(DEFAULT_COLOR)) {
-                        cacheColor(imageUrl, result);
-                        return result;
-                    }
+                if (error != null) {
+                    // Only rejections from the saturated decode pool get here; do not remember them
+                    logger.debug("Color extraction skipped for {}: {}", imageUrl, error.getMessage());
+                    created.complete(DEFAULT_COLOR);
+                } else {
+                    // Every strategy came up empty: show the default color and retry the URL soon
+                    boolean fallback = color == null;
+                    Color result = fallback ? DEFAULT_COLOR : color;
+                    cacheColor(imageUrl, result, fallback);
+                    created.complete(result);
                 }
-                
-                // Strategy 2: For videos, use FFmpeg
-                if (ext != null && VIDEO_EXTENSIONS.contains(ext)) {
-                    result = extractWithFFmpeg(imageUrl);
-                    cacheColor(imageUrl, result);
-                    return result;
-                }
-                
-                // Strategy 3: For hybrid formats (GIF, WebP), try ImageIO then FFmpeg
-                if (ext != null && HYBRID_EXTENSIONS.contains(ext)) {
-                    result = extractFromImage(imageUrl);
-                    if (result != null && !result.equals(DEFAULT_COLOR)) {
-                        cacheColor(imageUrl, result);
-                        return result;
-                    }
-                    // Fallback to FFmpeg for animated GIFs
-                    result = extractWithFFmpeg(imageUrl);
-                    cacheColor(imageUrl, result);
-                    return result;
-                }
-                
-                // Strategy 4: Unknown format - try ImageIO first, then FFmpeg
-                result = extractFromImage(imageUrl);
-                if (result != null && !result.equals(DEFAULT_COLOR)) {
-                    cacheColor(imageUrl, result);
-                    return result;
-                }
-                
-                result = extractWithFFmpeg(imageUrl);
-                cacheColor(imageUrl, result);
-                return result;
-                
-            } catch (Exception e) {
-                logger.debug("Color extraction failed for {}: {}", imageUrl, e.getMessage());
-                return DEFAULT_COLOR;
+            } finally {
+                inFlight.remove(imageUrl, created);
             }
         });
+        return created.copy();
+    }
+    
+    /**
+     * Videos go straight to FFmpeg; everything else tries ImageIO first and FFmpeg if that
+     * yields nothing. Completes with null if no strategy found a color.
+     */
+    private static CompletableFuture<Color> extract(String url) {
+        String ext = getExtension(url);
+        if (ext != null && VIDEO_EXTENSIONS.contains(ext)) {
+            return extractWithFFmpeg(url);
+        }
+        return extractFromImage(url).thenCompose(result -> result != null
+                ? CompletableFuture.completedFuture(result)
+                : extractWithFFmpeg(url));
     }
     
     private static String getExtension(String url) {
@@ -147,37 +156,48 @@ public class ColorExtractor {
         return null;
     }
     
-    private static Color extractWithFFmpeg(String url) {
+    private static CompletableFuture<Color> extractWithFFmpeg(String url) {
+        CompletableFuture<Color> extraction;
         try {
-            // FFmpegService now handles all the adaptive fallback internally
-            return ffmpegService.extractDominantColor(url)
-                    .exceptionally(e -> {
-                        logger.debug("FFmpeg color extraction fallback for {}: {}", url, e.getMessage());
-                        return DEFAULT_COLOR;
-                    })
-                    .get();
-        } catch (Exception e) {
-            logger.debug("FFmpeg color extraction failed for {}: {}", url, e.getMessage());
-            return DEFAULT_COLOR;
+            // FFmpegService handles all the adaptive fallback internally
+            extraction = ffmpegService.extractDominantColor(url);
+        } catch (RuntimeException e) {
+            extraction = CompletableFuture.failedFuture(e);
         }
+        return extraction.exceptionally(e -> {
+            logger.debug("FFmpeg color extraction fallback for {}: {}", url, e.getMessage());
+            return null;
+        });
     }
     
-    private static Color extractFromImage(String url) {
-        try {
-            byte[] bytes = fetchBytes(url);
+    /**
+     * Download and decode with ImageIO; completes with null if the image cannot be read, and
+     * fails only if the decode pool is saturated
+     */
+    private static CompletableFuture<Color> extractFromImage(String url) {
+        return fetchBytes(url).thenCompose(bytes -> {
             if (bytes == null || bytes.length == 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            try {
+                return CompletableFuture.supplyAsync(() -> decodeColor(url, bytes), decodeExecutor);
+            } catch (RejectedExecutionException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+    
+    private static Color decodeColor(String url, byte[] bytes) {
+        try {
+            // Decoded subsampled, so a huge source never occupies the heap at full resolution
+            BufferedImage img = DominantColorKernel.decode(bytes);
+            if (img == null) {
                 return null;
             }
-            
-            BufferedImage img = null;
-            try (InputStream is = new ByteArrayInputStream(bytes)) {
-                img = ImageIO.read(is);
-                if (img == null) {
-                    return null;
-                }
+            try {
                 return getDominantColor(img);
             } finally {
-                if (img != null) img.flush();
+                img.flush();
             }
         } catch (Exception e) {
             logger.debug("Image extraction failed for {}: {}", url, e.getMessage());
@@ -185,7 +205,10 @@ public class ColorExtractor {
         }
     }
     
-    private static byte[] fetchBytes(String url) {
+    /**
+     * @return the response body, or null on any failure
+     */
+    private static CompletableFuture<byte[]> fetchBytes(String url) {
         try {
             String referer = extractReferer(url);
             HttpRequest.Builder builder = HttpRequest.newBuilder()
@@ -199,17 +222,23 @@ public class ColorExtractor {
                 builder.header("Referer", referer);
             }
             
-            HttpResponse<byte[]> resp = HTTP_CLIENT.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
-            if (resp.statusCode() == 200) {
-                return resp.body();
-            }
-            
-            // Log non-200 responses at debug level
-            logger.debug("HTTP {} for {}", resp.statusCode(), url);
+            return HTTP_CLIENT.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray())
+                    .handle((resp, e) -> {
+                        if (e != null) {
+                            logger.debug("Failed to fetch {}: {}", url, e.getMessage());
+                            return null;
+                        }
+                        if (resp.statusCode() == 200) {
+                            return resp.body();
+                        }
+                        // Log non-200 responses at debug level
+                        logger.debug("HTTP {} for {}", resp.statusCode(), url);
+                        return null;
+                    });
         } catch (Exception e) {
             logger.debug("Failed to fetch {}: {}", url, e.getMessage());
+            return CompletableFuture.completedFuture(null);
         }
-        return null;
     }
     
     private static String extractReferer(String url) {
@@ -222,54 +251,8 @@ public class ColorExtractor {
     }
     
     private static Color getDominantColor(BufferedImage image) {
-        int srcW = image.getWidth();
-        int srcH = image.getHeight();
-        
-        // Scale down for faster processing
-        int w = Math.min(srcW, 64);
-        int h = Math.min(srcH, 64);
-        
-        BufferedImage scaled = null;
-        Graphics2D g = null;
-        try {
-            scaled = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-            g = scaled.createGraphics();
-            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
-            g.drawImage(image, 0, 0, w, h, null);
-            
-            long rSum = 0, gSum = 0, bSum = 0;
-            int count = 0;
-            
-            // Sample every 3rd pixel for speed
-            for (int x = 0; x < w; x += 3) {
-                for (int y = 0; y < h; y += 3) {
-                    int rgb = scaled.getRGB(x, y);
-                    int r = (rgb >> 16) & 0xFF;
-                    int gr = (rgb >> 8) & 0xFF;
-                    int b = rgb & 0xFF;
-                    
-                    // Skip very dark and very light pixels
-                    int brightness = (r + gr + b) / 3;
-                    if (brightness > 30 && brightness < 225) {
-                        rSum += r;
-                        gSum += gr;
-                        bSum += b;
-                        count++;
-                    }
-                }
-            }
-            
-            if (count == 0) return DEFAULT_COLOR;
-            
-            int avgR = (int) (rSum / count);
-            int avgG = (int) (gSum / count);
-            int avgB = (int) (bSum / count);
-            return enhanceSaturation(new Color(avgR, avgG, avgB));
-            
-        } finally {
-            if (g != null) g.dispose();
-            if (scaled != null) scaled.flush();
-        }
+        Color color = DominantColorKernel.dominantColor(image, configuredMode());
+        return color != null ? enhanceSaturation(color) : null;
     }
     
     private static Color enhanceSaturation(Color c) {
@@ -277,24 +260,57 @@ public class ColorExtractor {
         return Color.getHSBColor(hsb[0], Math.min(1f, hsb[1] * 1.3f), Math.min(1f, hsb[2] * 1.1f));
     }
     
-    private static void cacheColor(String url, Color color) {
-        // Simple cache management - remove oldest entries if too large
-        if (colorCache.size() >= MAX_CACHE_SIZE) {
-            // Remove first quarter of entries (rough LRU behavior)
-            int toRemove = MAX_CACHE_SIZE / 4;
-            colorCache.keySet().stream()
-                    .limit(toRemove)
-                    .toList()
-                    .forEach(colorCache::remove);
+    private static void cacheColor(String url, Color color, boolean fallback) {
+        colorCache().put(url, color.getRGB() & 0xFFFFFF, fallback ? fallbackTtl : COLOR_TTL);
+    }
+    
+    private static PersistentCache<Integer> colorCache() {
+        PersistentCache<Integer> cache = colorCache;
+        if (cache == null) {
+            synchronized (ColorExtractor.class) {
+                cache = colorCache;
+                if (cache == null) {
+                    cache = new PersistentCache<>(cacheDirectory, "dominant_colors.json",
+                            new TypeReference<Map<String, Integer>>() {}, new SegmentedLruPolicy(MAX_CACHE_SIZE, Long.MAX_VALUE));
+                    colorCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+    
+    /**
+     * Persist the color cache in another directory and keep failed extractions for another time.
+     * The current cache is saved and closed; the next lookup opens the one in {@code directory}.
+     */
+    static synchronized void configureCache(Path directory, Duration failureTtl) {
+        PersistentCache<Integer> previous = colorCache;
+        colorCache = null;
+        cacheDirectory = directory;
+        fallbackTtl = failureTtl;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+    
+    /**
+     * The {@code color_extraction_mode} bot setting, read per decode so config changes apply
+     * without a restart; unknown values fall back to the average
+     */
+    private static DominantColorKernel.Mode configuredMode() {
+        String configured = LocalConfig.getInstance().getColorExtractionMode();
+        try {
+            return DominantColorKernel.Mode.valueOf(configured.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return DominantColorKernel.Mode.AVERAGE;
         }
-        colorCache.put(url, color);
     }
     
     /**
      * Clears the color cache.
      */
     public static void clearCache() {
-        colorCache.clear();
+        colorCache().clear();
         logger.debug("Color cache cleared");
     }
     
@@ -302,6 +318,32 @@ public class ColorExtractor {
      * Gets the current cache size.
      */
     public static int getCacheSize() {
-        return colorCache.size();
+        return colorCache().size();
+    }
+    
+    public static CacheStats getCacheStats() {
+        return colorCache().getStats();
+    }
+    
+    /**
+     * Lets queued decodes finish, completes any extraction still pending with the default color
+     * and persists the color cache if it was loaded.
+     */
+    public static void shutdown() {
+        decodeExecutor.shutdown();
+        try {
+            if (!decodeExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                decodeExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            decodeExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // Dropped decodes and fetches still in progress would otherwise never complete
+        inFlight.values().forEach(pending -> pending.complete(DEFAULT_COLOR));
+        PersistentCache<Integer> cache = colorCache;
+        if (cache != null) {
+            cache.shutdown();
+        }
     }
-}
\ No newline at end of file
+}
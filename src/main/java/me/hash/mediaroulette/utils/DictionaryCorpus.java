@@ -0,0 +1,184 @@
+package me.hash.mediaroulette.utils;
+
+import me.hash.mediaroulette.utils.resources.ResourceManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Read-only line corpus of a dictionary file, shared process-wide.
+ * <p>
+ * Each file is loaded once into a packed UTF-8 {@code byte[]} of its non-blank lines (terminators
+ * stripped) and an {@code int[]} of line start offsets, so picking a random line is O(1) and only
+ * allocates the returned String. Corpora are looked up by file name through {@link #get(String)}
+ * and are re-read in place after a {@link ResourceManager#reload()}.
+ */
+public final class DictionaryCorpus {
+    private static final Logger logger = LoggerFactory.getLogger(DictionaryCorpus.class);
+
+    private static final Map<String, DictionaryCorpus> CORPORA = new ConcurrentHashMap<>();
+
+    static {
+        ResourceManager.getInstance().addReloadListener(DictionaryCorpus::reloadAll);
+    }
+
+    private final String name;
+    private final byte[] data;
+    // offsets[i] is the start of line i, offsets[size] the end of the last line
+    private final int[] offsets;
+
+    private DictionaryCorpus(String name, byte[] data, int[] offsets) {
+        this.name = name;
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Get the shared corpus of a data file, loading it on first use.
+     * Tries the external resources/data folder first, falls back to classpath.
+     * @throws IOException If the file cannot be found or read.
+     */
+    public static DictionaryCorpus get(String name) throws IOException {
+        DictionaryCorpus corpus = CORPORA.get(name);
+        if (corpus != null) {
+            return corpus;
+        }
+        try {
+            return CORPORA.computeIfAbsent(name, key -> {
+                try {
+                    return load(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Re-read every loaded corpus. A corpus that fails to load keeps its previous contents.
+     */
+    public static void reloadAll() {
+        for (String name : CORPORA.keySet()) {
+            try {
+                DictionaryCorpus corpus = load(name);
+                CORPORA.put(name, corpus);
+                logger.debug("Reloaded dictionary corpus {} ({} lines)", name, corpus.size());
+            } catch (IOException e) {
+                logger.warn("Failed to reload dictionary corpus {}, keeping previous contents: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private static DictionaryCorpus load(String name) throws IOException {
+        Path externalPath = ResourceManager.getInstance().getResourcePath(ResourceManager.ResourceType.DATA, name);
+        if (Files.exists(externalPath)) {
+            return parse(name, Files.readAllBytes(externalPath));
+        }
+
+        ClassLoader classLoader = DictionaryCorpus.class.getClassLoader();
+        InputStream is = classLoader.getResourceAsStream("data/" + name);
+        if (is == null) {
+            is = classLoader.getResourceAsStream(name);
+        }
+        if (is == null) {
+            throw new IOException("Resource not found: " + name);
+        }
+        try (InputStream in = is) {
+            return parse(name, in.readAllBytes());
+        }
+    }
+
+    /**
+     * Index raw UTF-8 file contents. Accepts \n, \r\n and \r line endings and a leading BOM;
+     * blank lines are dropped. Packs in place, so {@code raw} must not be reused by the caller.
+     */
+    static DictionaryCorpus parse(String name, byte[] raw) {
+        int length = raw.length;
+        int position = 0;
+        if (length >= 3 && (raw[0] & 0xFF) == 0xEF && (raw[1] & 0xFF) == 0xBB && (raw[2] & 0xFF) == 0xBF) {
+            position = 3;
+        }
+
+        int[] offsets = new int[64];
+        int lines = 0;
+        int write = 0;
+        while (position < length) {
+            int lineEnd = position;
+            while (lineEnd < length && raw[lineEnd] != '\n' && raw[lineEnd] != '\r') {
+                lineEnd++;
+            }
+
+            if (!isBlank(raw, position, lineEnd)) {
+                if (lines + 1 >= offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                // Packing only ever moves bytes towards the start, so this can reuse the input
+                offsets[lines++] = write;
+                System.arraycopy(raw, position, raw, write, lineEnd - position);
+                write += lineEnd - position;
+            }
+
+            position = lineEnd;
+            if (position < length && raw[position] == '\r') {
+                position++;
+            }
+            if (position < length && raw[position] == '\n') {
+                position++;
+            }
+        }
+        offsets[lines] = write;
+
+        return new DictionaryCorpus(name, Arrays.copyOf(raw, write), Arrays.copyOf(offsets, lines + 1));
+    }
+
+    private static boolean isBlank(byte[] raw, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (raw[i] != ' ' && raw[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public String getLine(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " + size());
+        }
+        return new String(data, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    public String getRandomLine() {
+        return getLine(ThreadLocalRandom.current().nextInt(size()));
+    }
+
+    /**
+     * Bytes held by the packed text and the offset index
+     */
+    public long getMemoryFootprintBytes() {
+        return data.length + (long) offsets.length * Integer.BYTES;
+    }
+}
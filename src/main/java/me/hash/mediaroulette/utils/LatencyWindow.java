@@ -0,0 +1,43 @@
+package me.hash.mediaroulette.utils;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of the most recent latency samples, for percentile reporting.
+ */
+public class LatencyWindow {
+    private final long[] samples;
+    private int position;
+    private int count;
+
+    public LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[position] = nanos;
+        position = (position + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * Latency percentile in milliseconds over the window, 0 if nothing was recorded
+     * @param percentile value between 0 and 100
+     */
+    public double getPercentileMs(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, count);
+        }
+        if (sorted.length == 0) {
+            return 0;
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+}
@@ -1,161 +1,648 @@
 package me.hash.mediaroulette.utils;
 
+import me.hash.mediaroulette.utils.cache.CacheStats;
+import me.hash.mediaroulette.utils.cache.EvictionPolicy;
+import me.hash.mediaroulette.utils.cache.SegmentedLruPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Persistent cache utility that saves data to JSON files with automatic cleanup
+ * Persistent cache backed by a log-structured store.
+ * <p>
+ * Mutations are appended as single JSON lines to a write-ahead log ({@code cache/<file>.log}),
+ * so a write costs O(entry) instead of rewriting the whole map. The log is fsynced in batches
+ * by a background flusher and periodically compacted into a compact snapshot
+ * ({@code cache/<file>}), which is also the format older versions wrote, so existing cache
+ * files are picked up as the initial snapshot.
+ * <p>
+ * Startup replays the snapshot, then any log left behind by an interrupted compaction,
+ * then the live log. A torn trailing record from a crash is ignored.
+ * <p>
+ * Size is bounded by an {@link EvictionPolicy} (segmented LRU by default) that weighs each
+ * entry by the UTF-8 bytes of its serialized key and value, taken from the log record a put writes. Entries may carry a TTL; expired entries are treated as
+ * misses and swept during maintenance. Hit, miss and eviction counters are exposed via
+ * {@link #getStats()}.
+ * <p>
+ * Every mutation changes the map, the expiry table and the policy and appends its log record
+ * under one lock, so the log always replays to the state readers saw.
  */
 public class PersistentCache<T> {
     private static final Logger logger = LoggerFactory.getLogger(PersistentCache.class);
     private static final ObjectMapper mapper = new ObjectMapper();
-    private static final int MAX_CACHE_SIZE = 10000; // Prevent unbounded growth
+    private static final ObjectWriter snapshotWriter = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private static final int MAX_CACHE_SIZE = 10000; // Default entry limit
+    private static final long FSYNC_INTERVAL_MS = 1000;
+    private static final int MIN_COMPACTION_RECORDS = 1000;
+    private static final byte NEWLINE = '\n';
+    private static final byte[] KEY_FIELD = "{\"k\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VALUE_FIELD = ",\"v\":".getBytes(StandardCharsets.UTF_8);
+    static final Path DEFAULT_DIRECTORY = Path.of("cache");
+
     private final String cacheFile;
+    private final Path snapshotPath;
+    private final Path logPath;
+    private final Path rolledLogPath;
     private final Map<String, T> cache;
-    private final TypeReference<Map<String, T>> typeRef;
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+    private final EvictionPolicy policy;
+    private final CacheStats stats = new CacheStats();
+    private final ObjectReader valueReader;
     private final ScheduledExecutorService cleanupScheduler;
+    private final Object logLock = new Object();
+    private final Object compactionLock = new Object();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
     private volatile boolean shouldSaveOnUpdate = true;
-    
-    static {
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
-    }
-    
+    // Startup appends delete records before the scheduler exists; they are compacted once at the end
+    private volatile boolean starting = true;
+
+    // Guarded by logLock
+    private FileOutputStream logFileStream;
+    private BufferedOutputStream logStream;
+    private boolean logDirty;
+    // Written under logLock, read without it to decide on compaction
+    private volatile long logRecords;
+
     public PersistentCache(String filename, TypeReference<Map<String, T>> typeReference) {
-        this.cacheFile = "cache/" + filename;
-        this.typeRef = typeReference;
+        this(filename, typeReference, new SegmentedLruPolicy(MAX_CACHE_SIZE, Long.MAX_VALUE));
+    }
+
+    public PersistentCache(String filename, TypeReference<Map<String, T>> typeReference, EvictionPolicy policy) {
+        this(DEFAULT_DIRECTORY, filename, typeReference, policy);
+    }
+
+    /**
+     * @param directory directory holding the snapshot and its logs
+     */
+    public PersistentCache(Path directory, String filename, TypeReference<Map<String, T>> typeReference,
+                           EvictionPolicy policy) {
+        this.policy = policy;
+        this.cacheFile = directory.resolve(filename).toString();
+        this.snapshotPath = Path.of(cacheFile);
+        this.logPath = Path.of(cacheFile + ".log");
+        this.rolledLogPath = Path.of(cacheFile + ".log.old");
         this.cache = new ConcurrentHashMap<>();
-        
+
+        JavaType mapType = mapper.getTypeFactory().constructType(typeReference);
+        this.valueReader = mapper.readerFor(mapType.getContentType());
+
         // Create cache directory if it doesn't exist
-        File cacheDir = new File("cache");
+        File cacheDir = directory.toFile();
         if (!cacheDir.exists()) {
             cacheDir.mkdirs();
         }
-        
+
         loadCache();
-        
-        // Schedule periodic cleanup and save (every 5 minutes)
+        openLog();
+        purgeExpired();
+        evictIfNeeded();
+        starting = false;
+        if (needsCompaction()) {
+            // Many entries expired or were evicted while the bot was down
+            compact();
+        }
+
+        // Batched fsync of the log plus periodic compaction (every 5 minutes)
         this.cleanupScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "PersistentCache-" + filename);
             t.setDaemon(true);
             return t;
         });
+        cleanupScheduler.scheduleWithFixedDelay(this::syncLogQuietly, FSYNC_INTERVAL_MS, FSYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
         cleanupScheduler.scheduleAtFixedRate(this::periodicMaintenance, 5, 5, TimeUnit.MINUTES);
     }
-    
+
     private void loadCache() {
-        File file = new File(cacheFile);
-        if (file.exists()) {
+        long start = System.currentTimeMillis();
+
+        if (Files.exists(snapshotPath)) {
+            try {
+                JsonNode root = mapper.readTree(snapshotPath.toFile());
+                if (root != null && root.isObject()) {
+                    var fields = root.fields();
+                    while (fields.hasNext()) {
+                        var field = fields.next();
+                        cache.put(field.getKey(), valueReader.readValue(field.getValue()));
+                        // Snapshot entries are written coldest first, so this restores recency order
+                        policy.recordWrite(field.getKey(), weigh(field.getKey(), field.getValue()));
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Failed to load cache snapshot from {}: {}", cacheFile, e.getMessage());
+            }
+        }
+
+        int replayed = replayLog(rolledLogPath) + replayLog(logPath);
+        logger.info("Loaded {} items from cache: {} ({} log records replayed in {}ms)",
+                cache.size(), cacheFile, replayed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Apply every complete record of a log file to the in-memory map.
+     * Unreadable records can only come from a torn write during a crash and are skipped.
+     */
+    private int replayLog(Path path) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        int records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    applyRecord(mapper.readTree(line));
+                    records++;
+                } catch (IOException e) {
+                    logger.warn("Skipping torn record in {} after {} records", path, records);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to replay cache log {}: {}", path, e.getMessage());
+        }
+        if (path.equals(logPath)) {
+            logRecords = records;
+        }
+        return records;
+    }
+
+    private void applyRecord(JsonNode record) throws IOException {
+        JsonNode keyNode = record.get("k");
+        if (keyNode == null) {
+            return;
+        }
+        String key = keyNode.asText();
+        JsonNode expiry = record.get("e");
+
+        if (record.has("d")) {
+            cache.remove(key);
+            expiries.remove(key);
+            policy.recordRemoval(key);
+        } else if (record.has("v")) {
+            JsonNode value = record.get("v");
+            cache.put(key, valueReader.readValue(value));
+            policy.recordWrite(key, weigh(key, value));
+            if (expiry != null) {
+                expiries.put(key, expiry.asLong());
+            } else {
+                expiries.remove(key);
+            }
+        } else if (expiry != null && cache.containsKey(key)) {
+            // Expiry-only record re-emitted by compaction, since the snapshot holds plain values
+            expiries.put(key, expiry.asLong());
+        }
+    }
+
+    private void openLog() {
+        synchronized (logLock) {
             try {
-                Map<String, T> loadedCache = mapper.readValue(file, typeRef);
-                cache.putAll(loadedCache);
-                logger.info("Loaded {} items from cache: {}", cache.size(), cacheFile);
+                boolean tornTail = endsWithoutNewline(logPath);
+                logFileStream = new FileOutputStream(logPath.toFile(), true);
+                logStream = new BufferedOutputStream(logFileStream, 64 * 1024);
+                if (tornTail) {
+                    // Terminate a record cut short by a crash so the next append starts on a fresh line
+                    logStream.write(NEWLINE);
+                }
             } catch (IOException e) {
-                logger.error("Failed to load cache from {}: {}", cacheFile, e.getMessage());
+                logger.error("Failed to open cache log {}: {}", logPath, e.getMessage());
+                logFileStream = null;
+                logStream = null;
+            }
+        }
+    }
+
+    private static boolean endsWithoutNewline(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            return false;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            file.seek(file.length() - 1);
+            return file.read() != NEWLINE;
+        }
+    }
+
+    /**
+     * Weight of an entry as the policy sees it: the UTF-8 bytes of its serialized key and value,
+     * the same whether it was put, replayed or loaded
+     */
+    private static long weigh(byte[] encodedKey, byte[] encodedValue) {
+        return encodedKey.length + encodedValue.length;
+    }
+
+    /**
+     * Weight of an entry read back from the snapshot or log, which has to be serialized again
+     */
+    private static long weigh(String key, JsonNode value) throws IOException {
+        return weigh(mapper.writeValueAsBytes(key), mapper.writeValueAsBytes(value));
+    }
+
+    /**
+     * Log record of a put, assembled from the already serialized key and value
+     */
+    private static byte[] encodePut(byte[] encodedKey, byte[] encodedValue, Long expiresAt) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(encodedKey.length + encodedValue.length + 32);
+        record.writeBytes(KEY_FIELD);
+        record.writeBytes(encodedKey);
+        record.writeBytes(VALUE_FIELD);
+        record.writeBytes(encodedValue);
+        if (expiresAt != null) {
+            record.writeBytes((",\"e\":" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        }
+        record.write('}');
+        return record.toByteArray();
+    }
+
+    /**
+     * Hand a compaction to the scheduler once enough records have piled up in the log.
+     * Called after logLock is released, since compaction takes it too.
+     */
+    private void compactIfNeeded() {
+        if (!starting && shouldSaveOnUpdate && needsCompaction() && compactionScheduled.compareAndSet(false, true)) {
+            try {
+                cleanupScheduler.execute(() -> {
+                    try {
+                        compact();
+                    } finally {
+                        compactionScheduled.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down; shutdown() compacts one last time
+                compactionScheduled.set(false);
+            }
+        }
+    }
+
+    private void writeRecordLocked(ObjectNode record) {
+        try {
+            writeEncodedLocked(mapper.writeValueAsBytes(record));
+        } catch (IOException e) {
+            logger.error("Failed to encode cache log record for {}: {}", logPath, e.getMessage());
+        }
+    }
+
+    private void writeEncodedLocked(byte[] encoded) {
+        try {
+            if (logStream != null) {
+                logStream.write(encoded);
+                logStream.write(NEWLINE);
+                logRecords++;
+                logDirty = true;
             }
+        } catch (IOException e) {
+            logger.error("Failed to append to cache log {}: {}", logPath, e.getMessage());
         }
     }
-    
+
+    private void writeDeleteLocked(String key) {
+        ObjectNode record = mapper.createObjectNode();
+        record.put("k", key);
+        record.put("d", true);
+        writeRecordLocked(record);
+    }
+
+    private boolean needsCompaction() {
+        return logRecords > Math.max(MIN_COMPACTION_RECORDS, cache.size() * 2L);
+    }
+
+    /**
+     * Flush buffered log records and fsync them to disk
+     */
     public void saveCache() {
+        synchronized (logLock) {
+            if (logStream == null || !logDirty) {
+                return;
+            }
+            try {
+                logStream.flush();
+                logFileStream.getChannel().force(false);
+                logDirty = false;
+            } catch (IOException e) {
+                logger.error("Failed to sync cache log {}: {}", logPath, e.getMessage());
+            }
+        }
+    }
+
+    private void syncLogQuietly() {
+        if (!shouldSaveOnUpdate) {
+            return;
+        }
+        try {
+            saveCache();
+        } catch (Exception e) {
+            logger.error("Error syncing cache log {}: {}", logPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrite the snapshot from the in-memory map and discard the log.
+     * The live log is rolled aside first so writers are only blocked for the rename;
+     * the rolled log is deleted once the new snapshot has been atomically moved in place.
+     * Compactions are serialized, since clear, shutdown and the scheduler can all start one.
+     */
+    void compact() {
+        synchronized (compactionLock) {
+            compactLocked();
+        }
+    }
+
+    private void compactLocked() {
+        Map<String, T> snapshot;
+        synchronized (logLock) {
+            try {
+                closeLog();
+                rollLog();
+            } catch (IOException e) {
+                logger.error("Failed to roll cache log {}: {}", logPath, e.getMessage());
+                openLog();
+                return;
+            }
+            logRecords = 0;
+            openLog();
+
+            // Coldest first, so the next load rebuilds the same eviction order
+            snapshot = new LinkedHashMap<>();
+            for (String key : policy.keysInEvictionOrder()) {
+                T value = cache.get(key);
+                if (value != null) {
+                    snapshot.put(key, value);
+                }
+            }
+            cache.forEach(snapshot::putIfAbsent);
+
+            expiries.forEach((key, expiresAt) -> {
+                ObjectNode record = mapper.createObjectNode();
+                record.put("k", key);
+                record.put("e", expiresAt);
+                writeRecordLocked(record);
+            });
+        }
+
+        Path tempPath = Path.of(cacheFile + ".tmp");
         try {
-            mapper.writeValue(new File(cacheFile), cache);
+            try (FileOutputStream out = new FileOutputStream(tempPath.toFile())) {
+                BufferedOutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+                snapshotWriter.writeValue(buffered, snapshot);
+                buffered.flush();
+                out.getChannel().force(true);
+            }
+            Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(rolledLogPath);
+            logger.debug("Compacted cache {} to {} entries", cacheFile, snapshot.size());
         } catch (IOException e) {
-            logger.error("Failed to save cache to {}: {}", cacheFile, e.getMessage());
+            // The rolled log is kept and replayed on next startup, so nothing is lost
+            logger.error("Failed to compact cache {}: {}", cacheFile, e.getMessage());
         }
     }
-    
+
+    /**
+     * Move the live log aside. A rolled log left by a compaction that failed to write its
+     * snapshot has not been folded into one yet, so the live log is appended to it instead
+     * of replacing it.
+     */
+    private void rollLog() throws IOException {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+        if (!Files.exists(rolledLogPath)) {
+            Files.move(logPath, rolledLogPath);
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(rolledLogPath.toFile(), true)) {
+            if (endsWithoutNewline(rolledLogPath)) {
+                out.write(NEWLINE);
+            }
+            Files.copy(logPath, out);
+            out.getChannel().force(false);
+        }
+        Files.delete(logPath);
+    }
+
+    private void closeLog() throws IOException {
+        if (logStream != null) {
+            logStream.flush();
+            logFileStream.getChannel().force(false);
+            logStream.close();
+            logStream = null;
+            logFileStream = null;
+            logDirty = false;
+        }
+    }
+
     public T get(String key) {
-        return cache.get(key);
+        T value = cache.get(key);
+        if (value == null) {
+            stats.recordMiss();
+            return null;
+        }
+        if (isExpired(key)) {
+            expire(key);
+            stats.recordMiss();
+            return null;
+        }
+        policy.recordAccess(key);
+        stats.recordHit();
+        return value;
     }
-    
+
     public void put(String key, T value) {
-        // Check cache size limit
-        if (cache.size() >= MAX_CACHE_SIZE && !cache.containsKey(key)) {
-            logger.warn("Cache {} has reached maximum size ({}), clearing oldest entries", cacheFile, MAX_CACHE_SIZE);
-            clearOldestEntries();
+        put(key, value, null);
+    }
+
+    /**
+     * Store a value that expires after the given time to live
+     * @param ttl time to live, or null to keep the entry until it is evicted
+     */
+    public void put(String key, T value, Duration ttl) {
+        // Serialized once, outside the lock; the log record and the weight both come from these bytes
+        byte[] encodedKey;
+        byte[] encodedValue;
+        try {
+            encodedKey = mapper.writeValueAsBytes(key);
+            encodedValue = mapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize cache value for " + key, e);
         }
-        
-        cache.put(key, value);
-        if (shouldSaveOnUpdate) {
-            saveCache(); // Auto-save on every update
+        Long expiresAt = ttl != null ? System.currentTimeMillis() + ttl.toMillis() : null;
+        byte[] record = encodePut(encodedKey, encodedValue, expiresAt);
+
+        synchronized (logLock) {
+            cache.put(key, value);
+            if (expiresAt != null) {
+                expiries.put(key, expiresAt);
+            } else {
+                expiries.remove(key);
+            }
+            policy.recordWrite(key, weigh(encodedKey, encodedValue));
+            writeEncodedLocked(record);
+            evictLocked();
         }
+        compactIfNeeded();
     }
-    
+
     public boolean containsKey(String key) {
-        return cache.containsKey(key);
+        return cache.containsKey(key) && !isExpired(key);
     }
-    
+
     public void remove(String key) {
-        cache.remove(key);
-        if (shouldSaveOnUpdate) {
-            saveCache();
+        synchronized (logLock) {
+            expiries.remove(key);
+            policy.recordRemoval(key);
+            if (cache.remove(key) != null) {
+                writeDeleteLocked(key);
+            }
         }
+        compactIfNeeded();
     }
-    
+
     public void clear() {
-        cache.clear();
-        saveCache();
+        synchronized (logLock) {
+            cache.clear();
+            expiries.clear();
+            policy.clear();
+        }
+        compact();
     }
-    
+
     public int size() {
         return cache.size();
     }
-    
+
     public Map<String, T> getAll() {
-        return new HashMap<>(cache);
+        Map<String, T> all = new HashMap<>(cache);
+        all.keySet().removeIf(this::isExpired);
+        return all;
     }
-    
+
     // Manual save method for batch operations
     public void forceSave() {
         saveCache();
     }
-    
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Total weight (serialized UTF-8 bytes) of the entries currently held
+     */
+    public long getWeightedSize() {
+        return policy.getWeightedSize();
+    }
+
     /**
-     * Clear oldest 20% of entries when cache is full
+     * Evict entries chosen by the policy until the cache is back within its limits
      */
-    private void clearOldestEntries() {
-        int entriesToRemove = MAX_CACHE_SIZE / 5;
-        cache.keySet().stream()
-                .limit(entriesToRemove)
-                .forEach(cache::remove);
-        logger.info("Removed {} old entries from cache {}", entriesToRemove, cacheFile);
-    }
-    
+    private void evictIfNeeded() {
+        synchronized (logLock) {
+            evictLocked();
+        }
+        compactIfNeeded();
+    }
+
+    private void evictLocked() {
+        String victim;
+        while ((victim = policy.pollVictim()) != null) {
+            expiries.remove(victim);
+            if (cache.remove(victim) != null) {
+                writeDeleteLocked(victim);
+                stats.recordEviction();
+            }
+        }
+    }
+
+    private boolean isExpired(String key) {
+        Long expiresAt = expiries.get(key);
+        return expiresAt != null && expiresAt <= System.currentTimeMillis();
+    }
+
+    private void expire(String key) {
+        synchronized (logLock) {
+            // A put may have renewed the entry since the caller saw it expired
+            if (!isExpired(key)) {
+                return;
+            }
+            expiries.remove(key);
+            policy.recordRemoval(key);
+            if (cache.remove(key) != null) {
+                writeDeleteLocked(key);
+                stats.recordExpiration();
+            }
+        }
+        compactIfNeeded();
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        expiries.forEach((key, expiresAt) -> {
+            if (expiresAt <= now) {
+                expire(key);
+            }
+        });
+    }
+
     /**
-     * Periodic maintenance: save cache and check size
+     * Periodic maintenance: drop expired entries, compact the log and report stats
      */
     private void periodicMaintenance() {
         try {
-            saveCache();
-            if (cache.size() > MAX_CACHE_SIZE * 0.9) {
-                logger.warn("Cache {} is at {}% capacity", cacheFile, (cache.size() * 100 / MAX_CACHE_SIZE));
+            purgeExpired();
+            if (logRecords > 0) {
+                compact();
             }
+            logger.debug("Cache {}: {} entries, {} bytes, {}", cacheFile, cache.size(), policy.getWeightedSize(), stats);
         } catch (Exception e) {
             logger.error("Error during periodic maintenance for cache {}: {}", cacheFile, e.getMessage());
         }
     }
-    
+
     /**
-     * Disable auto-save for batch operations
+     * Defer log syncing and compaction for batch operations.
+     * Records are still appended; call {@link #forceSave()} or leave batch mode to persist them.
      */
     public void setBatchMode(boolean batchMode) {
         this.shouldSaveOnUpdate = !batchMode;
+        if (!batchMode) {
+            saveCache();
+        }
     }
-    
+
     /**
-     * Shutdown the cleanup scheduler
+     * Shutdown the cleanup scheduler, compact and close the log
      */
     public void shutdown() {
         logger.info("Shutting down cache scheduler for {}", cacheFile);
@@ -168,6 +655,13 @@ public class PersistentCache<T> {
             cleanupScheduler.shutdownNow();
             Thread.currentThread().interrupt();
         }
-        forceSave();
+        compact();
+        synchronized (logLock) {
+            try {
+                closeLog();
+            } catch (IOException e) {
+                logger.error("Failed to close cache log {}: {}", logPath, e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
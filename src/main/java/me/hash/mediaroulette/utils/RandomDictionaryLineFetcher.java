@@ -4,77 +4,42 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RandomDictionaryLineFetcher {
     private static final int CHUNK_SIZE = 4096;
-    private static final Path DATA_DIR = Path.of("resources", "data");
+    private static final Map<String, RandomDictionaryLineFetcher> LOCAL_FETCHERS = new ConcurrentHashMap<>();
     private final OkHttpClient client;
     private final String source;
     private final boolean isLocal;
     private final Random random;
-    private List<String> localLines;
 
     /**
      * Constructs a RandomDictionaryLineFetcher with a specified source.
+     * Local sources are read through the shared {@link DictionaryCorpus}, so constructing
+     * another fetcher for the same file is cheap.
      * @param source The URL (for online) or resource path (for local) to fetch from.
      * @param isLocal True if the source is a local resource, false if it's an online URL.
      */
     public RandomDictionaryLineFetcher(String source, boolean isLocal) {
-        this.client = new OkHttpClient();
+        this.client = isLocal ? null : new OkHttpClient();
         this.source = source;
         this.isLocal = isLocal;
         this.random = new Random();
         if (isLocal) {
             try {
-                loadLocalDictionary();
+                DictionaryCorpus.get(source);
             } catch (IOException e) {
                 throw new RuntimeException("Failed to load local dictionary: " + source, e);
             }
         }
     }
 
-    /**
-     * Loads the local dictionary from the resource file into memory.
-     * Tries external resources/data folder first, falls back to classpath.
-     * @throws IOException If the resource cannot be found or read.
-     */
-    private void loadLocalDictionary() throws IOException {
-        InputStream is = null;
-        
-        // Try external resources/data folder first
-        Path externalPath = DATA_DIR.resolve(source);
-        if (Files.exists(externalPath)) {
-            is = Files.newInputStream(externalPath);
-        } else {
-            // Fallback to classpath (check both root and data folder)
-            ClassLoader classLoader = getClass().getClassLoader();
-            is = classLoader.getResourceAsStream("data/" + source);
-            if (is == null) {
-                is = classLoader.getResourceAsStream(source);
-            }
-        }
-        
-        if (is == null) {
-            throw new IOException("Resource not found: " + source);
-        }
-        
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            localLines = reader.lines().collect(Collectors.toList());
-        } finally {
-            is.close();
-        }
-    }
-
     /**
      * Fetches a random line from the configured source.
      * @return A random line (query or word) from the source.
@@ -82,10 +47,12 @@ public class RandomDictionaryLineFetcher {
      */
     public String getRandomLine() throws IOException {
         if (isLocal) {
-            if (localLines == null || localLines.isEmpty()) {
+            // Looked up per call so a corpus reloaded by ResourceManager is picked up
+            DictionaryCorpus corpus = DictionaryCorpus.get(source);
+            if (corpus.isEmpty()) {
                 throw new IOException("Local dictionary is empty or not loaded.");
             }
-            return localLines.get(random.nextInt(localLines.size()));
+            return corpus.getRandomLine();
         } else {
             Request headRequest = new Request.Builder().url(source).head().build();
             try (Response headResponse = client.newCall(headRequest).execute()) {
@@ -144,13 +111,18 @@ public class RandomDictionaryLineFetcher {
      * @return A RandomDictionaryLineFetcher instance for the basic dictionary.
      */
     public static RandomDictionaryLineFetcher getBasicDictionaryFetcher() {
-        String resourcePath = "basic_dictionary.txt";
-        return new RandomDictionaryLineFetcher(resourcePath, true);
+        return getLocalFetcher("basic_dictionary.txt");
     }
 
     public static RandomDictionaryLineFetcher getRedditDictionaryFetcher() {
-        String resourcePath = "subreddits.txt";
-        return new RandomDictionaryLineFetcher(resourcePath, true);
+        return getLocalFetcher("subreddits.txt");
+    }
+
+    /**
+     * Shared fetcher for a local resource; local fetchers hold no per-instance state
+     */
+    private static RandomDictionaryLineFetcher getLocalFetcher(String resourcePath) {
+        return LOCAL_FETCHERS.computeIfAbsent(resourcePath, path -> new RandomDictionaryLineFetcher(path, true));
     }
 
     /**
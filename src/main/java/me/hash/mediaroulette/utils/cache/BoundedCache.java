@@ -0,0 +1,140 @@
+package me.hash.mediaroulette.utils.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe in-memory read-through cache with String keys, bounded by a {@link SegmentedLruPolicy}
+ * and optionally expiring entries a fixed time after they were written.
+ * <p>
+ * A load that races with {@link #invalidate(String)} or {@link #invalidateAll()} is returned to its
+ * caller but not cached, so an invalidation after a write is never undone by a stale read.
+ * Writes, evictions and invalidations update the map and the policy together under one lock;
+ * reads do not take it.
+ *
+ * @param <V> value type; use {@link java.util.Optional} to cache negative lookups
+ */
+public class BoundedCache<V> {
+    private record Entry<V>(V value, long expiresAtNanos) {}
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final EvictionPolicy policy;
+    private final ToLongFunction<V> weigher;
+    private final long ttlNanos;
+    private final CacheStats stats = new CacheStats();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Object writeLock = new Object();
+
+    /**
+     * @param maxEntries maximum number of entries
+     * @param maxWeight  maximum total weight, or {@link Long#MAX_VALUE} for no weight limit
+     * @param weigher    weight of a value, e.g. its approximate size in bytes
+     * @param ttl        time after a write at which an entry expires, or null to keep entries until evicted
+     */
+    public BoundedCache(int maxEntries, long maxWeight, ToLongFunction<V> weigher, Duration ttl) {
+        this.policy = new SegmentedLruPolicy(maxEntries, maxWeight);
+        this.weigher = weigher;
+        this.ttlNanos = ttl != null ? ttl.toNanos() : Long.MAX_VALUE;
+    }
+
+    public BoundedCache(int maxEntries, Duration ttl) {
+        this(maxEntries, Long.MAX_VALUE, value -> 1, ttl);
+    }
+
+    /**
+     * Cached value for a key, or null if absent or expired
+     */
+    public V getIfPresent(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            stats.recordMiss();
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() >= 0) {
+            synchronized (writeLock) {
+                if (entries.remove(key, entry)) {
+                    policy.recordRemoval(key);
+                    stats.recordExpiration();
+                }
+            }
+            stats.recordMiss();
+            return null;
+        }
+        stats.recordHit();
+        policy.recordAccess(key);
+        return entry.value();
+    }
+
+    /**
+     * Cached value for a key, loading and caching it on a miss. The loader must not return null.
+     * Concurrent misses for the same key may each run the loader.
+     */
+    public V get(String key, Function<String, V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long generation = invalidations.get();
+        value = loader.apply(key);
+        synchronized (writeLock) {
+            if (invalidations.get() == generation) {
+                putLocked(key, value);
+            }
+        }
+        return value;
+    }
+
+    public void put(String key, V value) {
+        synchronized (writeLock) {
+            putLocked(key, value);
+        }
+    }
+
+    private void putLocked(String key, V value) {
+        long now = System.nanoTime();
+        long expiresAt = ttlNanos == Long.MAX_VALUE ? now + Long.MAX_VALUE / 2 : now + ttlNanos;
+        long weight = Math.max(1, weigher.applyAsLong(value));
+        entries.put(key, new Entry<>(value, expiresAt));
+        policy.recordWrite(key, weight);
+
+        String victim;
+        while ((victim = policy.pollVictim()) != null) {
+            if (entries.remove(victim) != null) {
+                stats.recordEviction();
+            }
+        }
+    }
+
+    public void invalidate(String key) {
+        synchronized (writeLock) {
+            invalidations.incrementAndGet();
+            if (entries.remove(key) != null) {
+                policy.recordRemoval(key);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (writeLock) {
+            invalidations.incrementAndGet();
+            entries.clear();
+            policy.clear();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getWeightedSize() {
+        return policy.getWeightedSize();
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,35 @@
+package me.hash.mediaroulette.utils.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction counters for a cache
+ */
+public class CacheStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public void recordHit() { hits.increment(); }
+    public void recordMiss() { misses.increment(); }
+    public void recordEviction() { evictions.increment(); }
+    public void recordExpiration() { expirations.increment(); }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getExpirations() { return expirations.sum(); }
+
+    public double getHitRate() {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, expirations=%d",
+                getHits(), getMisses(), getHitRate() * 100, getEvictions(), getExpirations());
+    }
+}
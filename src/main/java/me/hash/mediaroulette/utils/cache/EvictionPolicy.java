@@ -0,0 +1,43 @@
+package me.hash.mediaroulette.utils.cache;
+
+import java.util.List;
+
+/**
+ * Decides which entries a bounded cache drops when it grows past its limits.
+ * Implementations track recency/frequency and per-entry weight; the cache reports
+ * every write, hit and removal and then polls victims until the policy is satisfied.
+ * Implementations must be thread-safe.
+ */
+public interface EvictionPolicy {
+
+    /**
+     * Record an insert or overwrite of a key with the given weight (usually its serialized size)
+     */
+    void recordWrite(String key, long weight);
+
+    /**
+     * Record a cache hit for a key
+     */
+    void recordAccess(String key);
+
+    /**
+     * Record that a key was removed from the cache for any reason other than eviction by this policy
+     */
+    void recordRemoval(String key);
+
+    /**
+     * Remove and return the next key to evict, or null if the cache is within its limits
+     */
+    String pollVictim();
+
+    /**
+     * Keys ordered from the next eviction candidate to the most valuable entry
+     */
+    List<String> keysInEvictionOrder();
+
+    int size();
+
+    long getWeightedSize();
+
+    void clear();
+}
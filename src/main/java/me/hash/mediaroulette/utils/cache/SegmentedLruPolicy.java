@@ -0,0 +1,158 @@
+package me.hash.mediaroulette.utils.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Segmented LRU eviction policy with weight-aware limits.
+ * <p>
+ * New entries land in a probation segment; a second access promotes them to a protected
+ * segment that holds up to 80% of the capacity. Entries pushed out of the protected
+ * segment fall back to probation, and victims are always taken from the cold end of
+ * probation first, so one-hit wonders cannot flush frequently used entries.
+ */
+public class SegmentedLruPolicy implements EvictionPolicy {
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final int maxProtectedEntries;
+    private final long maxProtectedWeight;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Long> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private long probationWeight;
+    private long protectedWeight;
+
+    /**
+     * @param maxEntries maximum number of entries
+     * @param maxWeight  maximum total weight, or {@link Long#MAX_VALUE} for no weight limit
+     */
+    public SegmentedLruPolicy(int maxEntries, long maxWeight) {
+        if (maxEntries <= 0 || maxWeight <= 0) {
+            throw new IllegalArgumentException("Cache limits must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.maxProtectedEntries = Math.max(1, (int) (maxEntries * PROTECTED_SHARE));
+        this.maxProtectedWeight = maxWeight == Long.MAX_VALUE ? Long.MAX_VALUE : (long) (maxWeight * PROTECTED_SHARE);
+    }
+
+    @Override
+    public synchronized void recordWrite(String key, long weight) {
+        Long previous = protectedSegment.get(key);
+        if (previous != null) {
+            protectedSegment.put(key, weight);
+            protectedWeight += weight - previous;
+            demoteOverflow();
+            return;
+        }
+
+        previous = probation.remove(key);
+        if (previous != null) {
+            // Overwriting a live entry counts as a second use
+            probationWeight -= previous;
+            promote(key, weight);
+            return;
+        }
+
+        probation.put(key, weight);
+        probationWeight += weight;
+    }
+
+    @Override
+    public synchronized void recordAccess(String key) {
+        if (protectedSegment.get(key) != null) {
+            return;
+        }
+        Long weight = probation.remove(key);
+        if (weight != null) {
+            probationWeight -= weight;
+            promote(key, weight);
+        }
+    }
+
+    @Override
+    public synchronized void recordRemoval(String key) {
+        Long weight = probation.remove(key);
+        if (weight != null) {
+            probationWeight -= weight;
+            return;
+        }
+        weight = protectedSegment.remove(key);
+        if (weight != null) {
+            protectedWeight -= weight;
+        }
+    }
+
+    @Override
+    public synchronized String pollVictim() {
+        if (size() <= maxEntries && getWeightedSize() <= maxWeight) {
+            return null;
+        }
+
+        if (!probation.isEmpty()) {
+            Map.Entry<String, Long> eldest = probation.entrySet().iterator().next();
+            probation.remove(eldest.getKey());
+            probationWeight -= eldest.getValue();
+            return eldest.getKey();
+        }
+        if (!protectedSegment.isEmpty()) {
+            Map.Entry<String, Long> eldest = protectedSegment.entrySet().iterator().next();
+            protectedSegment.remove(eldest.getKey());
+            protectedWeight -= eldest.getValue();
+            return eldest.getKey();
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized List<String> keysInEvictionOrder() {
+        List<String> keys = new ArrayList<>(size());
+        keys.addAll(probation.keySet());
+        keys.addAll(protectedSegment.keySet());
+        return keys;
+    }
+
+    @Override
+    public synchronized int size() {
+        return probation.size() + protectedSegment.size();
+    }
+
+    @Override
+    public synchronized long getWeightedSize() {
+        return probationWeight + protectedWeight;
+    }
+
+    @Override
+    public synchronized void clear() {
+        probation.clear();
+        protectedSegment.clear();
+        probationWeight = 0;
+        protectedWeight = 0;
+    }
+
+    private void promote(String key, long weight) {
+        protectedSegment.put(key, weight);
+        protectedWeight += weight;
+        demoteOverflow();
+    }
+
+    /**
+     * Move the least recently used protected entries back to probation until the protected segment fits
+     */
+    private void demoteOverflow() {
+        Iterator<Map.Entry<String, Long>> it = protectedSegment.entrySet().iterator();
+        while ((protectedSegment.size() > maxProtectedEntries || protectedWeight > maxProtectedWeight) && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            protectedWeight -= eldest.getValue();
+            probation.put(eldest.getKey(), eldest.getValue());
+            probationWeight += eldest.getValue();
+        }
+    }
+}
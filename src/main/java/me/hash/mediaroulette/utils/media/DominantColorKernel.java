@@ -0,0 +1,350 @@
+package me.hash.mediaroulette.utils.media;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Finds the dominant color of an image by sampling its pixel arrays directly.
+ * <p>
+ * Images are decoded with source subsampling so only about {@link #SAMPLE_GRID} pixels per
+ * side are ever materialised, however large the source. Samples are then read straight from
+ * the {@link DataBufferInt} or {@link DataBufferByte} of the common ImageIO layouts instead of
+ * going through the color model per pixel; other layouts fall back to {@link BufferedImage#getRGB}.
+ * Very dark, very light and transparent pixels are ignored.
+ */
+public final class DominantColorKernel {
+
+    public enum Mode {
+        /** Mean of all usable samples */
+        AVERAGE,
+        /** Mean of the most populated median-cut box */
+        PALETTE
+    }
+
+    /** A palette entry and the number of samples it stands for */
+    public record Swatch(Color color, int population) {}
+
+    /** Samples taken per side */
+    static final int SAMPLE_GRID = 64;
+    private static final int MIN_BRIGHTNESS = 30;
+    private static final int MAX_BRIGHTNESS = 225;
+    private static final int PALETTE_COLORS = 8;
+
+    private DominantColorKernel() {}
+
+    /**
+     * Decode the first image in {@code bytes}, skipping source pixels so the shorter side ends
+     * up at roughly {@code targetSize}
+     * @return the decoded image, or null if no ImageIO reader understands the data
+     */
+    public static BufferedImage decode(byte[] bytes, int targetSize) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // Only the header is read here
+                int step = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / Math.max(1, targetSize));
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decode with the subsampling used for color extraction
+     */
+    public static BufferedImage decode(byte[] bytes) throws IOException {
+        return decode(bytes, SAMPLE_GRID);
+    }
+
+    /**
+     * @return the dominant color, or null if the image has no usable pixels
+     */
+    public static Color dominantColor(BufferedImage image, Mode mode) {
+        int[] samples = usableSamples(image);
+        if (samples.length == 0) {
+            return null;
+        }
+        if (mode == Mode.PALETTE) {
+            return medianCut(samples, PALETTE_COLORS).get(0).color();
+        }
+        return average(samples, 0, samples.length);
+    }
+
+    /**
+     * Median-cut palette of at most {@code maxColors} entries, most populated first
+     */
+    public static List<Swatch> palette(BufferedImage image, int maxColors) {
+        int[] samples = usableSamples(image);
+        return samples.length == 0 ? List.of() : medianCut(samples, Math.max(1, maxColors));
+    }
+
+    /**
+     * Packed RGB of the sample grid, without the pixels that would skew the result
+     */
+    static int[] usableSamples(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] xs = gridPositions(width);
+        int[] ys = gridPositions(height);
+        int[] samples = new int[xs.length * ys.length];
+
+        int count = sampleDirect(image, xs, ys, samples);
+        if (count < 0) {
+            count = 0;
+            for (int y : ys) {
+                for (int x : xs) {
+                    count = keep(image.getRGB(x, y), samples, count);
+                }
+            }
+        }
+        return count == samples.length ? samples : Arrays.copyOf(samples, count);
+    }
+
+    private static int[] gridPositions(int size) {
+        int n = Math.min(size, SAMPLE_GRID);
+        int[] positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            positions[i] = (int) ((long) i * size / n);
+        }
+        return positions;
+    }
+
+    /**
+     * Read samples from the raster's backing array
+     * @return the number of samples kept, or -1 if the layout is not one handled here
+     */
+    private static int sampleDirect(BufferedImage image, int[] xs, int[] ys, int[] out) {
+        Raster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        ColorModel colorModel = image.getColorModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        if (buffer.getNumBanks() != 1 || colorModel.isAlphaPremultiplied()) {
+            return -1;
+        }
+        int dx = raster.getSampleModelTranslateX();
+        int dy = raster.getSampleModelTranslateY();
+
+        // TYPE_INT_RGB and TYPE_INT_ARGB
+        if (buffer instanceof DataBufferInt ints
+                && sampleModel instanceof SinglePixelPackedSampleModel packed
+                && colorModel instanceof DirectColorModel direct
+                && direct.getRedMask() == 0xFF0000 && direct.getGreenMask() == 0xFF00 && direct.getBlueMask() == 0xFF) {
+            int[] data = ints.getData();
+            int base = ints.getOffset();
+            boolean alpha = direct.hasAlpha();
+            int count = 0;
+            for (int y : ys) {
+                for (int x : xs) {
+                    int pixel = data[base + packed.getOffset(x - dx, y - dy)];
+                    count = keep(alpha ? pixel : pixel | 0xFF000000, out, count);
+                }
+            }
+            return count;
+        }
+
+        if (!(buffer instanceof DataBufferByte bytes) || !(sampleModel instanceof ComponentSampleModel component)) {
+            return -1;
+        }
+        byte[] data = bytes.getData();
+        int base = bytes.getOffset();
+        int[] bands = component.getBandOffsets();
+        int pixelStride = component.getPixelStride();
+        int scanlineStride = component.getScanlineStride();
+
+        // 8-bit indexed images, e.g. GIF and palette PNG
+        if (colorModel instanceof IndexColorModel indexed && bands.length == 1) {
+            int[] lut = new int[256];
+            indexed.getRGBs(lut);
+            int count = 0;
+            for (int y : ys) {
+                for (int x : xs) {
+                    int index = data[base + (y - dy) * scanlineStride + (x - dx) * pixelStride + bands[0]] & 0xFF;
+                    count = keep(lut[index], out, count);
+                }
+            }
+            return count;
+        }
+
+        // TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR, grayscale and interleaved RGB(A) from PNG and JPEG
+        boolean gray = colorModel.getNumColorComponents() == 1;
+        if (!(colorModel instanceof ComponentColorModel) || !(gray || colorModel.getColorSpace().isCS_sRGB())) {
+            return -1;
+        }
+        int r = bands[0];
+        int g = gray ? r : bands[1];
+        int b = gray ? r : bands[2];
+        int a = colorModel.hasAlpha() ? bands[bands.length - 1] : -1;
+        int count = 0;
+        for (int y : ys) {
+            for (int x : xs) {
+                int offset = base + (y - dy) * scanlineStride + (x - dx) * pixelStride;
+                int alpha = a < 0 ? 0xFF : data[offset + a] & 0xFF;
+                int pixel = alpha << 24 | (data[offset + r] & 0xFF) << 16 | (data[offset + g] & 0xFF) << 8 | data[offset + b] & 0xFF;
+                count = keep(pixel, out, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Store {@code argb} as packed RGB if it is opaque enough and neither too dark nor too light
+     */
+    private static int keep(int argb, int[] out, int count) {
+        if ((argb >>> 24) < 0x80) {
+            return count;
+        }
+        int brightness = (((argb >> 16) & 0xFF) + ((argb >> 8) & 0xFF) + (argb & 0xFF)) / 3;
+        if (brightness <= MIN_BRIGHTNESS || brightness >= MAX_BRIGHTNESS) {
+            return count;
+        }
+        out[count] = argb & 0xFFFFFF;
+        return count + 1;
+    }
+
+    private static Color average(int[] samples, int from, int to) {
+        long r = 0, g = 0, b = 0;
+        for (int i = from; i < to; i++) {
+            r += (samples[i] >> 16) & 0xFF;
+            g += (samples[i] >> 8) & 0xFF;
+            b += samples[i] & 0xFF;
+        }
+        int n = to - from;
+        return new Color((int) (r / n), (int) (g / n), (int) (b / n));
+    }
+
+    /**
+     * Repeatedly split the most populated box at the median of its widest channel.
+     * Sorts {@code samples} in place.
+     */
+    private static List<Swatch> medianCut(int[] samples, int maxColors) {
+        List<int[]> boxes = new ArrayList<>(); // {from, to}
+        boxes.add(new int[]{0, samples.length});
+        while (boxes.size() < maxColors) {
+            int[] widest = null;
+            int widestShift = 0;
+            for (int[] box : boxes) {
+                if (widest != null && box[1] - box[0] <= widest[1] - widest[0]) {
+                    continue;
+                }
+                int shift = widestChannel(samples, box[0], box[1]);
+                if (shift >= 0) {
+                    widest = box;
+                    widestShift = shift;
+                }
+            }
+            if (widest == null) {
+                break;
+            }
+            sortByChannel(samples, widest[0], widest[1], widestShift);
+            int middle = splitPoint(samples, widest[0], widest[1], widestShift);
+            boxes.add(new int[]{middle, widest[1]});
+            widest[1] = middle;
+        }
+
+        List<Swatch> swatches = new ArrayList<>(boxes.size());
+        for (int[] box : boxes) {
+            swatches.add(new Swatch(average(samples, box[0], box[1]), box[1] - box[0]));
+        }
+        swatches.sort(Comparator.comparingInt(Swatch::population).reversed());
+        return swatches;
+    }
+
+    /**
+     * @return the bit shift of the channel with the largest range, or -1 if the box cannot be split
+     */
+    private static int widestChannel(int[] samples, int from, int to) {
+        if (to - from < 2) {
+            return -1;
+        }
+        int bestShift = -1;
+        int bestRange = 0;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int min = 255, max = 0;
+            for (int i = from; i < to; i++) {
+                int value = (samples[i] >> shift) & 0xFF;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > bestRange) {
+                bestRange = max - min;
+                bestShift = shift;
+            }
+        }
+        return bestShift;
+    }
+
+    /**
+     * Index nearest to the median of a sorted range that does not separate equal channel values,
+     * so a flat area of the image stays in one box
+     */
+    private static int splitPoint(int[] samples, int from, int to, int shift) {
+        int middle = (from + to) >>> 1;
+        int value = (samples[middle] >> shift) & 0xFF;
+        int low = middle;
+        while (low > from && ((samples[low - 1] >> shift) & 0xFF) == value) {
+            low--;
+        }
+        int high = middle;
+        while (high < to && ((samples[high] >> shift) & 0xFF) == value) {
+            high++;
+        }
+        // The channel has a range, so at least one side of the run is inside the box
+        if (low == from) {
+            return high;
+        }
+        return high == to || middle - low <= high - middle ? low : high;
+    }
+
+    /**
+     * Counting sort of one range by an 8-bit channel
+     */
+    private static void sortByChannel(int[] samples, int from, int to, int shift) {
+        int[] starts = new int[257];
+        for (int i = from; i < to; i++) {
+            starts[((samples[i] >> shift) & 0xFF) + 1]++;
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+        int[] sorted = new int[to - from];
+        for (int i = from; i < to; i++) {
+            sorted[starts[(samples[i] >> shift) & 0xFF]++] = samples[i];
+        }
+        System.arraycopy(sorted, 0, samples, from, sorted.length);
+    }
+}
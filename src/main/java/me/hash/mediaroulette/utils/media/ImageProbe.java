@@ -0,0 +1,157 @@
+package me.hash.mediaroulette.utils.media;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads image dimensions from the header bytes of PNG, JPEG and GIF streams
+ * without decoding pixel data. Reading stops as soon as the dimensions are known,
+ * so the rest of the stream can be abandoned.
+ */
+public final class ImageProbe {
+
+    public record Dimensions(String format, int width, int height) {}
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private ImageProbe() {}
+
+    /**
+     * Probe an image stream for its format and size
+     * @param in       the image bytes; not closed by this method
+     * @param maxBytes maximum number of bytes to read before giving up (JPEG headers can sit after large EXIF blocks)
+     * @return the dimensions, or null if the data is not a recognised image or the header was not found within maxBytes
+     */
+    public static Dimensions probe(InputStream in, int maxBytes) throws IOException {
+        HeaderReader reader = new HeaderReader(in, maxBytes);
+        try {
+            int b0 = reader.read();
+            int b1 = reader.read();
+
+            if (b0 == 0x89 && b1 == 'P') {
+                return probePng(reader);
+            }
+            if (b0 == 0xFF && b1 == 0xD8) {
+                return probeJpeg(reader);
+            }
+            if (b0 == 'G' && b1 == 'I') {
+                return probeGif(reader);
+            }
+            return null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static Dimensions probePng(HeaderReader reader) throws IOException {
+        for (int i = 2; i < PNG_SIGNATURE.length; i++) {
+            if (reader.read() != (PNG_SIGNATURE[i] & 0xFF)) {
+                return null;
+            }
+        }
+        reader.skip(4); // IHDR chunk length
+        if (reader.read() != 'I' || reader.read() != 'H' || reader.read() != 'D' || reader.read() != 'R') {
+            return null;
+        }
+        int width = reader.readIntBigEndian();
+        int height = reader.readIntBigEndian();
+        return new Dimensions("png", width, height);
+    }
+
+    private static Dimensions probeGif(HeaderReader reader) throws IOException {
+        // "GIF87a" / "GIF89a"
+        if (reader.read() != 'F' || reader.read() != '8') {
+            return null;
+        }
+        reader.skip(2);
+        int width = reader.read() | (reader.read() << 8);
+        int height = reader.read() | (reader.read() << 8);
+        return new Dimensions("gif", width, height);
+    }
+
+    private static Dimensions probeJpeg(HeaderReader reader) throws IOException {
+        while (true) {
+            int marker = reader.read();
+            if (marker != 0xFF) {
+                return null;
+            }
+            // Markers may be preceded by any number of 0xFF fill bytes
+            do {
+                marker = reader.read();
+            } while (marker == 0xFF);
+
+            if (marker == 0xD8 || marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue; // Standalone markers without a length
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                return null; // End of image or start of scan before any frame header
+            }
+
+            int length = reader.readShortBigEndian();
+            if (isStartOfFrame(marker)) {
+                reader.skip(1); // Sample precision
+                int height = reader.readShortBigEndian();
+                int width = reader.readShortBigEndian();
+                return new Dimensions("jpeg", width, height);
+            }
+            reader.skip(length - 2);
+        }
+    }
+
+    private static boolean isStartOfFrame(int marker) {
+        // SOF0-SOF15, excluding DHT (C4), JPG (C8) and DAC (CC)
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    /**
+     * Byte reader that refuses to go past a fixed budget
+     */
+    private static class HeaderReader {
+        private final InputStream in;
+        private final int maxBytes;
+        private int consumed;
+
+        HeaderReader(InputStream in, int maxBytes) {
+            this.in = in;
+            this.maxBytes = maxBytes;
+        }
+
+        int read() throws IOException {
+            if (consumed >= maxBytes) {
+                throw new EOFException("Image header not found within " + maxBytes + " bytes");
+            }
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            consumed++;
+            return b;
+        }
+
+        int readShortBigEndian() throws IOException {
+            return (read() << 8) | read();
+        }
+
+        int readIntBigEndian() throws IOException {
+            return (read() << 24) | (read() << 16) | (read() << 8) | read();
+        }
+
+        void skip(int count) throws IOException {
+            if (count < 0 || consumed + (long) count > maxBytes) {
+                throw new EOFException("Image header not found within " + maxBytes + " bytes");
+            }
+            int remaining = count;
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    read();
+                    skipped = 1;
+                } else {
+                    consumed += (int) skipped;
+                }
+                remaining -= (int) skipped;
+            }
+        }
+    }
+}
@@ -7,10 +7,19 @@ import me.hash.mediaroulette.utils.media.ffmpeg.processors.GifProcessor;
 import me.hash.mediaroulette.utils.media.ffmpeg.resolvers.UrlResolverFactory;
 import me.hash.mediaroulette.utils.media.ffmpeg.models.VideoInfo;
 import me.hash.mediaroulette.utils.media.ffmpeg.utils.AdaptiveDomainTracker;
+import me.hash.mediaroulette.utils.media.ffmpeg.utils.ArtifactCache;
+import me.hash.mediaroulette.utils.media.ffmpeg.utils.FFmpegJobScheduler;
 import me.hash.mediaroulette.utils.media.FFmpegDownloader;
+import me.hash.mediaroulette.utils.cache.CacheStats;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import javax.imageio.ImageIO;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -21,6 +30,57 @@ import java.util.concurrent.CompletableFuture;
  * color analysis, and GIF creation.
  */
 public class FFmpegService {
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    
+    private static final ArtifactCache.Codec<VideoInfo> VIDEO_INFO_CODEC = new ArtifactCache.Codec<>() {
+        @Override
+        public void write(VideoInfo info, Path target) throws IOException {
+            mapper.writeValue(target.toFile(), info);
+        }
+        
+        @Override
+        public VideoInfo read(Path file) throws IOException {
+            return mapper.readValue(file.toFile(), VideoInfo.class);
+        }
+        
+        @Override
+        public boolean isCacheable(VideoInfo info) {
+            return info != null && !info.isEstimated();
+        }
+    };
+    
+    private static final ArtifactCache.Codec<BufferedImage> THUMBNAIL_CODEC = new ArtifactCache.Codec<>() {
+        @Override
+        public void write(BufferedImage image, Path target) throws IOException {
+            if (!ImageIO.write(image, "png", target.toFile())) {
+                throw new IOException("No PNG writer for thumbnail");
+            }
+        }
+        
+        @Override
+        public BufferedImage read(Path file) throws IOException {
+            BufferedImage image = ImageIO.read(file.toFile());
+            if (image == null) {
+                throw new IOException("Unreadable thumbnail " + file);
+            }
+            return image;
+        }
+    };
+    
+    // GIFs are read while the cache still holds them, since a later store may evict the file
+    private static final ArtifactCache.Codec<byte[]> GIF_CODEC = new ArtifactCache.Codec<>() {
+        @Override
+        public void write(byte[] gif, Path target) throws IOException {
+            Files.write(target, gif);
+        }
+        
+        @Override
+        public byte[] read(Path file) throws IOException {
+            return Files.readAllBytes(file);
+        }
+    };
+    
     private final FFmpegConfig config;
     private final VideoProcessor videoProcessor;
     private final ThumbnailProcessor thumbnailProcessor;
@@ -67,7 +127,9 @@ public class FFmpegService {
      * Gets detailed video information for a URL.
      */
     public CompletableFuture<VideoInfo> getVideoInfo(String videoUrl) {
-        return resolveVideoUrl(videoUrl).thenCompose(videoProcessor::getVideoInfo);
+        return resolveVideoUrl(videoUrl).thenCompose(url -> ArtifactCache.getInstance().get(
+                ArtifactCache.key("probe", url), "json", VIDEO_INFO_CODEC,
+                () -> videoProcessor.getVideoInfo(url)));
     }
     
     // === Thumbnail Extraction ===
@@ -76,8 +138,9 @@ public class FFmpegService {
      * Extracts a single thumbnail at the specified timestamp.
      */
     public CompletableFuture<BufferedImage> extractThumbnail(String videoUrl, double timestampSeconds) {
-        return resolveVideoUrl(videoUrl)
-                .thenCompose(url -> thumbnailProcessor.extractThumbnail(url, timestampSeconds));
+        return resolveVideoUrl(videoUrl).thenCompose(url -> ArtifactCache.getInstance().get(
+                ArtifactCache.key("thumbnail", url, timestampSeconds), "png", THUMBNAIL_CODEC,
+                () -> thumbnailProcessor.extractThumbnail(url, timestampSeconds)));
     }
     
     /**
@@ -92,7 +155,7 @@ public class FFmpegService {
     
     /**
      * Extracts the dominant color from a video/media URL.
-     * Uses multi-strategy approach with automatic fallback.
+     * Uses multi-strategy approach with automatic fallback; completes with null if no color was found.
      */
     public CompletableFuture<Color> extractDominantColor(String videoUrl) {
         return resolveVideoUrl(videoUrl)
@@ -120,13 +183,32 @@ public class FFmpegService {
     }
     
     /**
-     * Creates a Discord-optimized GIF (respects file size limits).
+     * Creates a Discord-optimized GIF (respects file size limits). Repeat requests for the same
+     * video are served from the artifact cache.
      */
     public CompletableFuture<net.dv8tion.jda.api.utils.FileUpload> createGifUpload(String videoUrl) {
         return resolveVideoUrl(videoUrl)
-                .thenCompose(url -> getVideoInfo(url)
-                        .thenCompose(info -> gifProcessor.createDiscordOptimizedGif(url, info))
-                        .thenApply(gifProcessor::createFileUpload));
+                .thenCompose(url -> ArtifactCache.getInstance().get(
+                        ArtifactCache.key("gif-discord", url, config.getDefaultGifFps(), config.getMaxDiscordFileSize()),
+                        "gif", GIF_CODEC,
+                        () -> getVideoInfo(url)
+                                .thenCompose(info -> gifProcessor.createDiscordOptimizedGif(url, info))
+                                .thenApply(this::takeGif)))
+                .thenApply(gif -> net.dv8tion.jda.api.utils.FileUpload.fromData(gif,
+                        "video_preview_" + System.currentTimeMillis() + ".gif"));
+    }
+    
+    /**
+     * Read a freshly created GIF and delete its temp file
+     */
+    private byte[] takeGif(Path gifPath) {
+        try {
+            return Files.readAllBytes(gifPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read GIF " + gifPath, e);
+        } finally {
+            config.getFileManager().deleteIfExists(gifPath);
+        }
     }
     
     /**
@@ -175,6 +257,20 @@ public class FFmpegService {
         AdaptiveDomainTracker.getInstance().clear();
     }
     
+    /**
+     * Gets hit/miss statistics of the FFmpeg artifact cache.
+     */
+    public CacheStats getArtifactCacheStats() {
+        return ArtifactCache.getInstance().getStats();
+    }
+    
+    /**
+     * Gets queue and run time statistics of the FFmpeg job scheduler, one entry per priority lane.
+     */
+    public List<FFmpegJobScheduler.LaneStats> getJobStats() {
+        return FFmpegJobScheduler.shared(config).getStats();
+    }
+    
     /**
      * Gets statistics for a domain's access pattern.
      */
@@ -225,6 +321,11 @@ public class FFmpegService {
             return this;
         }
         
+        public Builder maxConcurrentJobs(int jobs) {
+            configBuilder.maxConcurrentJobs(jobs);
+            return this;
+        }
+        
         public Builder tempDirectory(String dir) {
             configBuilder.tempDirectory(dir);
             return this;
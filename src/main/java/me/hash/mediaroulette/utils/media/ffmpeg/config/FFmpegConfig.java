@@ -41,6 +41,10 @@ public class FFmpegConfig {
     private final long retryDelayMs;
     private final boolean enableAdaptiveDownload;
     
+    // Job scheduling
+    private final int maxConcurrentJobs;
+    private final int maxQueuedJobs;
+    
     private FFmpegConfig(Builder builder) {
         this.defaultTimeoutSeconds = builder.defaultTimeoutSeconds;
         this.gifCreationTimeoutSeconds = builder.gifCreationTimeoutSeconds;
@@ -65,6 +69,9 @@ public class FFmpegConfig {
         this.maxRetries = builder.maxRetries;
         this.retryDelayMs = builder.retryDelayMs;
         this.enableAdaptiveDownload = builder.enableAdaptiveDownload;
+        
+        this.maxConcurrentJobs = builder.maxConcurrentJobs;
+        this.maxQueuedJobs = builder.maxQueuedJobs;
     }
     
     private OkHttpClient createHttpClient() {
@@ -116,6 +123,9 @@ public class FFmpegConfig {
     public long getRetryDelayMs() { return retryDelayMs; }
     public boolean isAdaptiveDownloadEnabled() { return enableAdaptiveDownload; }
     
+    public int getMaxConcurrentJobs() { return maxConcurrentJobs; }
+    public int getMaxQueuedJobs() { return maxQueuedJobs; }
+    
     /**
      * Builder for FFmpegConfig
      */
@@ -141,6 +151,10 @@ public class FFmpegConfig {
         private long retryDelayMs = 500;
         private boolean enableAdaptiveDownload = true;
         
+        // Each transcode keeps a couple of cores busy
+        private int maxConcurrentJobs = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        private int maxQueuedJobs = 64;
+        
         public Builder defaultTimeoutSeconds(int seconds) {
             this.defaultTimeoutSeconds = seconds;
             return this;
@@ -221,6 +235,16 @@ public class FFmpegConfig {
             return this;
         }
         
+        public Builder maxConcurrentJobs(int jobs) {
+            this.maxConcurrentJobs = jobs;
+            return this;
+        }
+        
+        public Builder maxQueuedJobs(int jobs) {
+            this.maxQueuedJobs = jobs;
+            return this;
+        }
+        
         public FFmpegConfig build() {
             return new FFmpegConfig(this);
         }
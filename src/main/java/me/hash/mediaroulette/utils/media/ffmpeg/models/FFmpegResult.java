@@ -13,22 +13,26 @@ public class FFmpegResult<T> {
     private final ErrorType errorType;
     private final long executionTimeMs;
     private final String url;
+    private final long bytesSaved;
+    private final long timeSavedMs;
     
     private FFmpegResult(boolean success, T data, String errorMessage, ErrorType errorType, 
-                         long executionTimeMs, String url) {
+                         long executionTimeMs, String url, long bytesSaved, long timeSavedMs) {
         this.success = success;
         this.data = data;
         this.errorMessage = errorMessage;
         this.errorType = errorType;
         this.executionTimeMs = executionTimeMs;
         this.url = url;
+        this.bytesSaved = bytesSaved;
+        this.timeSavedMs = timeSavedMs;
     }
     
     /**
      * Creates a successful result
      */
     public static <T> FFmpegResult<T> success(T data, long executionTimeMs, String url) {
-        return new FFmpegResult<>(true, data, null, null, executionTimeMs, url);
+        return new FFmpegResult<>(true, data, null, null, executionTimeMs, url, 0, 0);
     }
     
     /**
@@ -36,7 +40,15 @@ public class FFmpegResult<T> {
      */
     public static <T> FFmpegResult<T> failure(String errorMessage, ErrorType errorType, 
                                                long executionTimeMs, String url) {
-        return new FFmpegResult<>(false, null, errorMessage, errorType, executionTimeMs, url);
+        return new FFmpegResult<>(false, null, errorMessage, errorType, executionTimeMs, url, 0, 0);
+    }
+    
+    /**
+     * Copy of this result reporting the source bytes and time the operation avoided compared to
+     * the pipeline it replaced (e.g. a second fetch and decode of the source)
+     */
+    public FFmpegResult<T> withSavings(long bytesSaved, long timeSavedMs) {
+        return new FFmpegResult<>(success, data, errorMessage, errorType, executionTimeMs, url, bytesSaved, timeSavedMs);
     }
     
     /**
@@ -74,6 +86,8 @@ public class FFmpegResult<T> {
     public ErrorType getErrorType() { return errorType; }
     public long getExecutionTimeMs() { return executionTimeMs; }
     public String getUrl() { return url; }
+    public long getBytesSaved() { return bytesSaved; }
+    public long getTimeSavedMs() { return timeSavedMs; }
     
     /**
      * Returns whether this failure suggests trying a download-first approach
@@ -97,8 +111,8 @@ public class FFmpegResult<T> {
     @Override
     public String toString() {
         if (success) {
-            return String.format("FFmpegResult[success=true, data=%s, time=%dms]", 
-                    data, executionTimeMs);
+            return String.format("FFmpegResult[success=true, data=%s, time=%dms, saved=%d bytes/%dms]", 
+                    data, executionTimeMs, bytesSaved, timeSavedMs);
         } else {
             return String.format("FFmpegResult[success=false, error=%s, type=%s, time=%dms, url=%s]",
                     errorMessage, errorType, executionTimeMs, url);
@@ -10,6 +10,8 @@ public class VideoInfo {
     private String codec;
     private String format;
     private long bitrate;
+    // Guessed from the URL because probing failed
+    private boolean estimated;
 
     public VideoInfo() {}
 
@@ -39,6 +41,9 @@ public class VideoInfo {
     public long getBitrate() { return bitrate; }
     public void setBitrate(long bitrate) { this.bitrate = bitrate; }
 
+    public boolean isEstimated() { return estimated; }
+    public void setEstimated(boolean estimated) { this.estimated = estimated; }
+
     // Utility methods
     public String getResolution() {
         return width + "x" + height;
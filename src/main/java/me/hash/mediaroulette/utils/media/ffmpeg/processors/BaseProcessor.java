@@ -2,6 +2,7 @@ package me.hash.mediaroulette.utils.media.ffmpeg.processors;
 
 import me.hash.mediaroulette.utils.media.ffmpeg.config.FFmpegConfig;
 import me.hash.mediaroulette.utils.media.ffmpeg.utils.AdaptiveDomainTracker;
+import me.hash.mediaroulette.utils.media.ffmpeg.utils.FFmpegJobScheduler;
 import me.hash.mediaroulette.utils.media.ffmpeg.utils.MediaDownloader;
 import me.hash.mediaroulette.utils.media.ffmpeg.utils.ProcessExecutor;
 import org.slf4j.Logger;
@@ -31,6 +32,13 @@ public abstract class BaseProcessor {
         this.domainTracker = AdaptiveDomainTracker.getInstance();
     }
     
+    /**
+     * Scheduler lane for this processor's FFmpeg jobs; FFprobe jobs always run as probes
+     */
+    protected FFmpegJobScheduler.Priority jobPriority() {
+        return FFmpegJobScheduler.Priority.THUMBNAIL;
+    }
+    
     /**
      * Executes an FFmpeg command with automatic fallback to download-first on failure.
      * 
@@ -69,6 +77,15 @@ public abstract class BaseProcessor {
                 });
     }
     
+    /**
+     * Executes an FFmpeg command against a local file; {@code INPUT_FILE} in the command is
+     * replaced by its path.
+     */
+    protected CompletableFuture<ProcessResult> executeFFmpegOnFile(List<String> command, Path localFile, int timeoutSeconds) {
+        return processExecutor.executeFFmpegOnFile(command, localFile, timeoutSeconds, jobPriority())
+                .thenApply(this::convertToProcessResult);
+    }
+    
     /**
      * Executes an FFprobe command with automatic fallback.
      */
@@ -139,7 +156,7 @@ public abstract class BaseProcessor {
     private CompletableFuture<ProcessResult> executeDirectFFmpeg(List<String> command, int timeoutSeconds) {
         String url = extractUrlFromCommand(command);
         
-        return processExecutor.executeFFmpeg(command, url != null ? url : "", timeoutSeconds)
+        return processExecutor.executeFFmpeg(command, url != null ? url : "", timeoutSeconds, jobPriority())
                 .thenApply(this::convertToProcessResult);
     }
     
@@ -161,7 +178,7 @@ public abstract class BaseProcessor {
                     // Replace URL in command with local file path
                     List<String> localCommand = replaceUrlInCommand(command, url, localFile.toString());
                     
-                    return processExecutor.executeFFmpegOnFile(localCommand, localFile, timeoutSeconds)
+                    return processExecutor.executeFFmpegOnFile(localCommand, localFile, timeoutSeconds, jobPriority())
                             .thenApply(result -> {
                                 // Clean up downloaded file
                                 downloadResult.cleanup();
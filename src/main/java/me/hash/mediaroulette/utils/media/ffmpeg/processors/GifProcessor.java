@@ -1,11 +1,15 @@
 package me.hash.mediaroulette.utils.media.ffmpeg.processors;
 
 import me.hash.mediaroulette.utils.media.ffmpeg.config.FFmpegConfig;
+import me.hash.mediaroulette.utils.media.ffmpeg.models.FFmpegResult;
 import me.hash.mediaroulette.utils.media.ffmpeg.models.VideoInfo;
+import me.hash.mediaroulette.utils.media.ffmpeg.utils.FFmpegJobScheduler;
+import me.hash.mediaroulette.utils.media.ffmpeg.utils.MediaDownloader;
 import net.dv8tion.jda.api.utils.FileUpload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -17,11 +21,20 @@ import java.util.concurrent.CompletableFuture;
  */
 public class GifProcessor extends BaseProcessor {
     private static final Logger logger = LoggerFactory.getLogger(GifProcessor.class);
+    private static final long UNLIMITED = Long.MAX_VALUE;
+    private static final String LOCAL_INPUT = "INPUT_FILE";
+    // -fs stops muxing once the limit is passed, so leave room for the frame being written
+    private static final double FS_LIMIT_FRACTION = 0.95;
 
     public GifProcessor(FFmpegConfig config) {
         super(config);
     }
 
+    @Override
+    protected FFmpegJobScheduler.Priority jobPriority() {
+        return FFmpegJobScheduler.Priority.GIF;
+    }
+
     /**
      * Creates an optimized GIF from a video with smart parameters
      */
@@ -62,90 +75,163 @@ public class GifProcessor extends BaseProcessor {
     }
 
     /**
-     * Creates an optimized GIF using a two-pass approach for better quality and smaller file size
+     * Creates a GIF, failing the future if FFmpeg could not produce one
      */
     private CompletableFuture<Path> createOptimizedGif(String videoUrl, double startTime, double duration, int width, int height) {
-        Path gifPath = config.getFileManager().generateTempFilePath("video", "gif");
-        Path palettePath = config.getFileManager().generateTempFilePath("palette", "png");
-
-        // First pass: Generate palette
-        return generatePalette(videoUrl, startTime, duration, width, height, palettePath)
-                .thenCompose(paletteResult -> {
-                    if (!paletteResult.isSuccessful()) {
-                        config.getFileManager().deleteIfExists(palettePath);
-                        throw new RuntimeException("Failed to generate palette: " + paletteResult.getError());
-                    }
-
-                    // Second pass: Create GIF using the palette
-                    return createGifWithPalette(videoUrl, startTime, duration, width, height, palettePath, gifPath);
-                })
-                .thenApply(gifResult -> {
-                    try {
-                        config.getFileManager().deleteIfExists(palettePath);
-
-                        if (!gifResult.isSuccessful()) {
-                            throw new RuntimeException("Failed to create GIF: " + gifResult.getError());
-                        }
-
-                        if (!config.getFileManager().pathExists(gifPath)) {
-                            throw new RuntimeException("GIF file was not created");
-                        }
-
-                        return gifPath;
-
-                    } catch (Exception e) {
-                        config.getFileManager().deleteIfExists(gifPath);
-                        throw new RuntimeException("Failed to create GIF: " + e.getMessage(), e);
-                    }
-                });
+        return convertToGif(videoUrl, startTime, duration, width, height, UNLIMITED).thenApply(GifProcessor::unwrap);
     }
 
     /**
-     * First pass: Generate an optimized color palette
+     * Converts a clip of a video to a GIF in a single FFmpeg pass.
+     * <p>
+     * The source is fetched once: it is downloaded to a temp file when possible and streamed
+     * straight into FFmpeg otherwise. One {@code split}/{@code palettegen}/{@code paletteuse} filter
+     * graph builds the palette and encodes the frames from the same decode. When {@code maxBytes}
+     * is limited, frame rate, then size, then duration are lowered up front to fit an estimate of
+     * the output size, and {@code -fs} caps the output so it never needs a second transcode.
+     *
+     * @return the GIF path or the failure with its classified error type; a GIF made from a
+     *         downloaded source reports the bytes and time of the second fetch it avoided as savings
      */
-    private CompletableFuture<ProcessResult> generatePalette(String videoUrl, double startTime, double duration, 
-                                                           int width, int height, Path palettePath) {
-        List<String> command = new ArrayList<>();
-        command.add("ffmpeg"); // Will be replaced with actual path
-        command.add("-i");
-        command.add(videoUrl);
-        command.add("-ss");
-        command.add(String.valueOf(startTime));
-        command.add("-t");
-        command.add(String.valueOf(duration));
-        command.add("-vf");
-        command.add(String.format("scale=%d:%d:flags=lanczos,fps=%d,palettegen=stats_mode=diff", 
-                                 width, height, config.getDefaultGifFps()));
-        command.add("-y");
-        command.add(palettePath.toString());
+    public CompletableFuture<FFmpegResult<Path>> convertToGif(String videoUrl, double startTime, double duration,
+                                                              int width, int height, long maxBytes) {
+        long started = System.currentTimeMillis();
+        GifPlan plan = GifPlan.fit(width, height, config.getDefaultGifFps(), duration, maxBytes);
+        Path gifPath = config.getFileManager().generateTempFilePath("video", "gif");
+
+        return fetchSource(videoUrl).thenCompose(download -> {
+            boolean local = download.isSuccess();
+            List<String> command = buildGifCommand(local ? LOCAL_INPUT : videoUrl, startTime, plan, maxBytes, gifPath);
+            CompletableFuture<ProcessResult> run = local
+                    ? executeFFmpegOnFile(command, download.getFilePath(), config.getGifCreationTimeoutSeconds())
+                    : executeFFmpegCommand(command, config.getGifCreationTimeoutSeconds());
 
-        return executeFFmpegCommand(command, config.getGifCreationTimeoutSeconds());
+            return run.handle((result, error) -> {
+                download.cleanup();
+                long elapsed = System.currentTimeMillis() - started;
+                FFmpegResult<Path> outcome = toResult(result, error, gifPath, maxBytes, elapsed, videoUrl);
+                if (!outcome.isSuccess()) {
+                    config.getFileManager().deleteIfExists(gifPath);
+                    return outcome;
+                }
+                if (!local) {
+                    return outcome;
+                }
+
+                // The two-pass pipeline read and decoded the source once more for the palette
+                FFmpegResult<Path> saved = outcome.withSavings(download.getFileSize(), download.getDownloadTimeMs());
+                logger.debug("Created {}x{}@{}fps GIF in {}ms, saved {} source bytes and ~{}ms",
+                        plan.width(), plan.height(), plan.fps(), elapsed, saved.getBytesSaved(), saved.getTimeSavedMs());
+                return saved;
+            });
+        });
     }
 
     /**
-     * Second pass: Create GIF using the generated palette
+     * Downloads remote sources once; local paths and failed downloads are used as-is
      */
-    private CompletableFuture<ProcessResult> createGifWithPalette(String videoUrl, double startTime, double duration,
-                                                                int width, int height, Path palettePath, Path gifPath) {
+    private CompletableFuture<MediaDownloader.DownloadResult> fetchSource(String videoUrl) {
+        if (!videoUrl.startsWith("http://") && !videoUrl.startsWith("https://")) {
+            return CompletableFuture.completedFuture(MediaDownloader.DownloadResult.skipped());
+        }
+        return mediaDownloader.download(videoUrl);
+    }
+
+    private List<String> buildGifCommand(String input, double startTime, GifPlan plan, long maxBytes, Path gifPath) {
         List<String> command = new ArrayList<>();
         command.add("ffmpeg"); // Will be replaced with actual path
-        command.add("-i");
-        command.add(videoUrl);
-        command.add("-i");
-        command.add(palettePath.toString());
+        // Input options so FFmpeg seeks before decoding instead of decoding and dropping frames
         command.add("-ss");
         command.add(String.valueOf(startTime));
         command.add("-t");
-        command.add(String.valueOf(duration));
-        command.add("-lavfi");
-        command.add(String.format("scale=%d:%d:flags=lanczos,fps=%d [x]; [x][1:v] paletteuse=dither=bayer:bayer_scale=5:diff_mode=rectangle", 
-                                 width, height, config.getDefaultGifFps()));
+        command.add(String.valueOf(plan.duration()));
+        command.add("-i");
+        command.add(input);
+        command.add("-filter_complex");
+        command.add(String.format("[0:v]fps=%d,scale=%d:%d:flags=lanczos,split[a][b];"
+                        + "[a]palettegen=stats_mode=diff[p];"
+                        + "[b][p]paletteuse=dither=bayer:bayer_scale=5:diff_mode=rectangle",
+                plan.fps(), plan.width(), plan.height()));
+        command.add("-an");
         command.add("-loop");
         command.add("0");
+        if (maxBytes != UNLIMITED) {
+            command.add("-fs");
+            command.add(String.valueOf((long) (maxBytes * FS_LIMIT_FRACTION)));
+        }
         command.add("-y");
         command.add(gifPath.toString());
+        return command;
+    }
+
+    private FFmpegResult<Path> toResult(ProcessResult result, Throwable error, Path gifPath, long maxBytes,
+                                        long elapsed, String videoUrl) {
+        if (error != null) {
+            return FFmpegResult.failure(error.getMessage(), FFmpegResult.ErrorType.UNKNOWN, elapsed, videoUrl);
+        }
+        if (!result.isSuccessful()) {
+            return FFmpegResult.failure(result.getError(), FFmpegResult.ErrorType.PROCESS_ERROR, elapsed, videoUrl);
+        }
+        try {
+            if (!Files.exists(gifPath) || Files.size(gifPath) == 0) {
+                return FFmpegResult.failure("GIF file was not created", FFmpegResult.ErrorType.OUTPUT_MISSING, elapsed, videoUrl);
+            }
+            if (Files.size(gifPath) > maxBytes) {
+                return FFmpegResult.failure("GIF exceeds " + maxBytes + " bytes", FFmpegResult.ErrorType.PROCESS_ERROR, elapsed, videoUrl);
+            }
+        } catch (IOException e) {
+            return FFmpegResult.fromException(e, elapsed, videoUrl);
+        }
+        return FFmpegResult.success(gifPath, elapsed, videoUrl);
+    }
 
-        return executeFFmpegCommand(command, config.getGifCreationTimeoutSeconds());
+    private static Path unwrap(FFmpegResult<Path> result) {
+        if (!result.isSuccess()) {
+            throw new RuntimeException("Failed to create GIF: " + result.getErrorMessage());
+        }
+        return result.getData();
+    }
+
+    /**
+     * Output parameters chosen before encoding
+     */
+    record GifPlan(int width, int height, int fps, double duration) {
+        // Typical size of a paletted, rectangle-diffed GIF frame; errs high so plans undershoot
+        private static final double BYTES_PER_PIXEL_FRAME = 0.3;
+        private static final double SIZE_HEADROOM = 0.85;
+        private static final int MIN_FPS = 6;
+        private static final int MIN_WIDTH = 240;
+        private static final double MIN_DURATION = 3.0;
+
+        static GifPlan fit(int width, int height, int fps, double duration, long maxBytes) {
+            GifPlan plan = new GifPlan(even(width), even(height), fps, duration);
+            if (maxBytes == UNLIMITED) {
+                return plan;
+            }
+            double budget = maxBytes * SIZE_HEADROOM;
+
+            if (plan.estimatedBytes() > budget && fps > MIN_FPS) {
+                int lowered = (int) Math.max(MIN_FPS, Math.floor(fps * budget / plan.estimatedBytes()));
+                plan = new GifPlan(plan.width(), plan.height(), lowered, duration);
+            }
+            if (plan.estimatedBytes() > budget && plan.width() > MIN_WIDTH) {
+                double scale = Math.max(Math.sqrt(budget / plan.estimatedBytes()), (double) MIN_WIDTH / plan.width());
+                plan = new GifPlan(even((int) (plan.width() * scale)), even((int) (plan.height() * scale)), plan.fps(), duration);
+            }
+            if (plan.estimatedBytes() > budget) {
+                double trimmed = Math.max(Math.min(MIN_DURATION, duration), duration * budget / plan.estimatedBytes());
+                plan = new GifPlan(plan.width(), plan.height(), plan.fps(), trimmed);
+            }
+            return plan;
+        }
+
+        double estimatedBytes() {
+            return BYTES_PER_PIXEL_FRAME * width * height * fps * duration;
+        }
+
+        private static int even(int dimension) {
+            return Math.max(2, (dimension / 2) * 2);
+        }
     }
 
     /**
@@ -177,76 +263,15 @@ public class GifProcessor extends BaseProcessor {
     }
     
     /**
-     * Creates an optimized GIF with aggressive size constraints for Discord (max 25MB)
+     * Creates an optimized GIF of up to 30 seconds sized to fit Discord's upload limit
      */
     public CompletableFuture<Path> createDiscordOptimizedGif(String videoUrl, VideoInfo videoInfo) {
         // Start with conservative parameters to avoid large files
         double maxDuration = Math.min(30.0, videoInfo.getDuration()); // Max 30 seconds
         int maxWidth = Math.min(480, videoInfo.getWidth());
         int maxHeight = Math.min(270, videoInfo.getHeight());
-        
-        return createOptimizedGifWithSizeLimit(videoUrl, 0.0, maxDuration, maxWidth, maxHeight, 0);
-    }
-    
-    /**
-     * Creates GIF with progressive size reduction if needed
-     */
-    private CompletableFuture<Path> createOptimizedGifWithSizeLimit(String videoUrl, double startTime, 
-                                                                   double duration, int width, int height, int attempt) {
-        return createOptimizedGif(videoUrl, startTime, duration, width, height)
-            .thenCompose(gifPath -> {
-                try {
-                    long fileSize = Files.size(gifPath);
-                    long maxSize = config.getMaxDiscordFileSize(); // 25MB
-
-                    if (fileSize <= maxSize) {
-                        return CompletableFuture.completedFuture(gifPath);
-                    }
-                    
-                    // File too large, try smaller parameters
-                    if (attempt >= 4) {
-                        // Give up after 5 attempts
-                        config.getFileManager().deleteIfExists(gifPath);
-                        throw new RuntimeException("Unable to create GIF under 25MB after 5 attempts");
-                    }
-
-                    logger.warn("GIF too large ({} bytes), reducing size (attempt {})...", fileSize, attempt + 2);
-                    config.getFileManager().deleteIfExists(gifPath);
-                    
-                    // Progressive reduction strategy
-                    double newDuration = duration;
-                    int newWidth = width;
-                    int newHeight = height;
-                    
-                    switch (attempt) {
-                        case 0: // First retry: reduce duration to 20 seconds
-                            newDuration = Math.min(20.0, duration);
-                            break;
-                        case 1: // Second retry: reduce duration to 15 seconds
-                            newDuration = Math.min(15.0, duration);
-                            break;
-                        case 2: // Third retry: reduce resolution and duration to 10 seconds
-                            newDuration = Math.min(10.0, duration);
-                            newWidth = Math.min(360, width);
-                            newHeight = Math.min(200, height);
-                            break;
-                        case 3: // Fourth retry: very small resolution and 5 seconds
-                            newDuration = Math.min(5.0, duration);
-                            newWidth = Math.min(240, width);
-                            newHeight = Math.min(135, height);
-                            break;
-                    }
-                    
-                    // Ensure dimensions are even
-                    newWidth = (newWidth / 2) * 2;
-                    newHeight = (newHeight / 2) * 2;
-                    
-                    return createOptimizedGifWithSizeLimit(videoUrl, startTime, newDuration, newWidth, newHeight, attempt + 1);
-                    
-                } catch (Exception e) {
-                    config.getFileManager().deleteIfExists(gifPath);
-                    throw new RuntimeException("Failed to check GIF size: " + e.getMessage(), e);
-                }
-            });
+
+        return convertToGif(videoUrl, 0.0, maxDuration, maxWidth, maxHeight, config.getMaxDiscordFileSize())
+                .thenApply(GifProcessor::unwrap);
     }
-}
\ No newline at end of file
+}
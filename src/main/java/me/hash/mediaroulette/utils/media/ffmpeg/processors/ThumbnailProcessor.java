@@ -78,6 +78,7 @@ public class ThumbnailProcessor extends BaseProcessor {
     
     /**
      * Extracts dominant color from a video using multiple thumbnail samples.
+     * Completes with null if neither the thumbnails nor the URL itself yield a color.
      */
     public CompletableFuture<Color> extractDominantColor(String url, VideoInfo info) {
         double duration = info.getDuration();
@@ -223,7 +224,7 @@ public class ThumbnailProcessor extends BaseProcessor {
         } catch (Exception e) {
             logger.debug("Direct color extraction failed for {}: {}", url, e.getMessage());
         }
-        return Color.CYAN;
+        return null;
     }
     
     private BufferedImage scaleImage(BufferedImage original, int width, int height) {
@@ -80,6 +80,7 @@ public class VideoProcessor extends BaseProcessor {
         // Default dimensions
         info.setWidth(480);
         info.setHeight(360);
+        info.setEstimated(true);
         
         logger.debug("Created default VideoInfo for {}: {}", url, info);
         return info;
@@ -0,0 +1,303 @@
+package me.hash.mediaroulette.utils.media.ffmpeg.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import me.hash.mediaroulette.utils.PersistentCache;
+import me.hash.mediaroulette.utils.cache.CacheStats;
+import me.hash.mediaroulette.utils.cache.EvictionPolicy;
+import me.hash.mediaroulette.utils.cache.SegmentedLruPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Disk-backed cache of FFmpeg outputs such as GIFs, thumbnails and probe results.
+ * <p>
+ * Artifacts are addressed by a SHA-256 of their kind, resolved source URL and processing
+ * parameters, and stored as one file each under {@code cache/ffmpeg}. A {@link PersistentCache}
+ * index maps keys to files so the cache survives restarts. A {@link SegmentedLruPolicy} weighted
+ * by file size keeps the directory within {@link #MAX_BYTES}, and entries older than
+ * {@link #MAX_AGE_MS} count as misses. Concurrent requests for the same key share one
+ * computation.
+ * <p>
+ * Any store may evict and delete other artifacts, so values are only valid while they are read
+ * through a {@link Codec}; a file that disappears under a read is treated as a miss.
+ */
+public class ArtifactCache {
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactCache.class);
+    private static final Path INDEX_DIRECTORY = Path.of("cache");
+    private static final Path DIRECTORY = INDEX_DIRECTORY.resolve("ffmpeg");
+    private static final String INDEX_FILE = "ffmpeg_artifacts.json";
+    private static final long MAX_BYTES = 1024L * 1024 * 1024; // 1 GB
+    private static final int MAX_ENTRIES = 20_000;
+    private static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(7);
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    // Created on first use rather than in a holder class, so a failed index load can be retried
+    private static volatile ArtifactCache instance;
+
+    public static ArtifactCache getInstance() {
+        ArtifactCache cache = instance;
+        if (cache == null) {
+            synchronized (ArtifactCache.class) {
+                cache = instance;
+                if (cache == null) {
+                    cache = new ArtifactCache(DIRECTORY, INDEX_DIRECTORY, MAX_BYTES, MAX_ENTRIES, MAX_AGE_MS);
+                    instance = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Persist the index if the cache was ever created
+     */
+    public static void shutdownInstance() {
+        ArtifactCache cache = instance;
+        if (cache != null) {
+            cache.shutdown();
+        }
+    }
+
+    /**
+     * Stores and loads one kind of artifact
+     */
+    public interface Codec<T> {
+        void write(T value, Path target) throws IOException;
+
+        T read(Path file) throws IOException;
+
+        /**
+         * Whether a computed value is worth keeping; fallbacks and failures should not be cached
+         */
+        default boolean isCacheable(T value) {
+            return value != null;
+        }
+    }
+
+    /**
+     * Index record of a stored artifact
+     */
+    public record Entry(String file, long size, long createdAt) {}
+
+    private final Path directory;
+    private final long maxAgeMs;
+    private final PersistentCache<Entry> index;
+    private final EvictionPolicy policy;
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final CacheStats stats = new CacheStats();
+
+    /**
+     * @param directory      directory holding the artifact files; anything else in it is swept
+     * @param indexDirectory directory holding the persisted index, outside {@code directory}
+     */
+    ArtifactCache(Path directory, Path indexDirectory, long maxBytes, int maxEntries, long maxAgeMs) {
+        this.directory = directory;
+        this.maxAgeMs = maxAgeMs;
+        this.policy = new SegmentedLruPolicy(maxEntries, maxBytes);
+        // The index never evicts on its own; the byte budget is enforced by this class's policy
+        this.index = new PersistentCache<>(indexDirectory, INDEX_FILE, new TypeReference<Map<String, Entry>>() {},
+                new SegmentedLruPolicy(maxEntries * 2, Long.MAX_VALUE));
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            logger.error("Failed to create artifact cache directory {}: {}", directory, e.getMessage());
+        }
+        restore();
+    }
+
+    /**
+     * Key of an artifact derived from a source URL with the given processing parameters
+     */
+    public static String key(String kind, String url, Object... parameters) {
+        StringBuilder material = new StringBuilder(kind).append('\0').append(url);
+        for (Object parameter : parameters) {
+            material.append('\0').append(parameter);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(material.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Cached artifact for a key, computing and storing it on a miss. Concurrent misses for the
+     * same key share one computation. Storage failures are logged and the computed value is
+     * still returned.
+     *
+     * @param extension file extension of the stored artifact
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> get(String key, String extension, Codec<T> codec,
+                                        Supplier<CompletableFuture<T>> compute) {
+        T cached = read(key, codec);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<?> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return (CompletableFuture<T>) existing;
+        }
+
+        CompletableFuture<T> computation;
+        try {
+            computation = compute.get();
+        } catch (RuntimeException e) {
+            computation = CompletableFuture.failedFuture(e);
+        }
+        computation.whenComplete((value, error) -> {
+            try {
+                if (error != null) {
+                    created.completeExceptionally(error);
+                } else {
+                    created.complete(codec.isCacheable(value) ? store(key, extension, codec, value) : value);
+                }
+            } finally {
+                inFlight.remove(key, created);
+            }
+        });
+        return created;
+    }
+
+    private <T> T read(String key, Codec<T> codec) {
+        Entry entry = index.get(key);
+        if (entry == null) {
+            stats.recordMiss();
+            return null;
+        }
+        Path file = directory.resolve(entry.file());
+        if (System.currentTimeMillis() - entry.createdAt() > maxAgeMs) {
+            remove(key, entry);
+            stats.recordExpiration();
+            stats.recordMiss();
+            return null;
+        }
+        try {
+            T value = codec.read(file);
+            policy.recordAccess(key);
+            stats.recordHit();
+            return value;
+        } catch (IOException e) {
+            // Also reached when a concurrent store evicted the file after the index lookup
+            logger.debug("Dropping unreadable artifact {}: {}", file, e.getMessage());
+            remove(key, entry);
+            stats.recordMiss();
+            return null;
+        }
+    }
+
+    private <T> T store(String key, String extension, Codec<T> codec, T value) {
+        String fileName = key + "." + extension;
+        Path target = directory.resolve(fileName);
+        Path partial = directory.resolve(fileName + PARTIAL_SUFFIX);
+        try {
+            codec.write(value, partial);
+            move(partial, target);
+            long size = Files.size(target);
+
+            index.put(key, new Entry(fileName, size, System.currentTimeMillis()));
+            policy.recordWrite(key, Math.max(1, size));
+            evictIfNeeded();
+            return value;
+        } catch (IOException e) {
+            logger.warn("Failed to store artifact {}: {}", fileName, e.getMessage());
+            deleteQuietly(partial);
+            return value;
+        }
+    }
+
+    private void evictIfNeeded() {
+        String victim;
+        while ((victim = policy.pollVictim()) != null) {
+            Entry entry = index.get(victim);
+            index.remove(victim);
+            if (entry != null) {
+                deleteQuietly(directory.resolve(entry.file()));
+            }
+            stats.recordEviction();
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        index.remove(key);
+        policy.recordRemoval(key);
+        deleteQuietly(directory.resolve(entry.file()));
+    }
+
+    /**
+     * Rebuild the policy from the persisted index, oldest first, dropping entries whose file is
+     * gone and files no entry refers to
+     */
+    private void restore() {
+        List<Map.Entry<String, Entry>> entries = new ArrayList<>(index.getAll().entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().createdAt()));
+        for (Map.Entry<String, Entry> entry : entries) {
+            if (Files.exists(directory.resolve(entry.getValue().file()))) {
+                policy.recordWrite(entry.getKey(), Math.max(1, entry.getValue().size()));
+            } else {
+                index.remove(entry.getKey());
+            }
+        }
+        evictIfNeeded();
+
+        Set<String> referenced = index.getAll().values().stream().map(Entry::file).collect(Collectors.toSet());
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> !referenced.contains(file.getFileName().toString())).forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            logger.warn("Failed to sweep artifact cache directory: {}", e.getMessage());
+        }
+        logger.info("Artifact cache ready with {} entries ({} bytes)", policy.size(), policy.getWeightedSize());
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Failed to delete artifact {}: {}", file, e.getMessage());
+        }
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    public long getWeightedSize() {
+        return policy.getWeightedSize();
+    }
+
+    public void shutdown() {
+        index.shutdown();
+    }
+}
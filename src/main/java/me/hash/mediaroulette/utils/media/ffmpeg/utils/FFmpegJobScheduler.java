@@ -0,0 +1,269 @@
+package me.hash.mediaroulette.utils.media.ffmpeg.utils;
+
+import me.hash.mediaroulette.utils.media.ffmpeg.config.FFmpegConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs FFmpeg and FFprobe processes on a fixed number of workers, so a burst of video rolls
+ * queues up instead of forking a process per request.
+ * <p>
+ * Jobs wait in one lane per {@link Priority}; a free worker always takes the oldest job of the
+ * most urgent non-empty lane. When {@code maxQueued} jobs are waiting, a new job displaces the
+ * newest job of a less urgent lane, or is rejected with a {@link RejectedExecutionException}
+ * if there is none. Queue and run times are tracked per lane.
+ * <p>
+ * One scheduler is shared by every processor because the limit protects the machine's CPU;
+ * it is sized by the first {@link FFmpegConfig} that asks for it.
+ */
+public class FFmpegJobScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(FFmpegJobScheduler.class);
+
+    /**
+     * Job lanes from most to least urgent
+     */
+    public enum Priority {
+        /** FFprobe calls that an interaction is waiting on */
+        PROBE,
+        /** Single-frame extractions */
+        THUMBNAIL,
+        /** Full transcodes */
+        GIF
+    }
+
+    /**
+     * Counters of one lane
+     */
+    public record LaneStats(Priority priority, long submitted, long completed, long rejected, int queued,
+                            double averageQueueMs, long maxQueueMs, double averageRunMs) {}
+
+    private record Job<T>(Priority priority, Supplier<T> task, CompletableFuture<T> future, long enqueuedNanos) {
+        void run(Lane lane) {
+            long started = System.nanoTime();
+            lane.recordStart(started - enqueuedNanos);
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                lane.recordFinish(System.nanoTime() - started);
+            }
+        }
+
+        void reject(String reason) {
+            future.completeExceptionally(new RejectedExecutionException(reason));
+        }
+    }
+
+    private static final class Lane {
+        final ArrayDeque<Job<?>> queue = new ArrayDeque<>();
+        final LongAdder submitted = new LongAdder();
+        final LongAdder completed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder started = new LongAdder();
+        final LongAdder queueNanos = new LongAdder();
+        final LongAdder runNanos = new LongAdder();
+        final AtomicLong maxQueueNanos = new AtomicLong();
+
+        void recordStart(long waitedNanos) {
+            started.increment();
+            queueNanos.add(waitedNanos);
+            maxQueueNanos.accumulateAndGet(waitedNanos, Math::max);
+        }
+
+        void recordFinish(long ranNanos) {
+            completed.increment();
+            runNanos.add(ranNanos);
+        }
+    }
+
+    private static volatile FFmpegJobScheduler shared;
+
+    private final int maxQueued;
+    private final Lane[] lanes = new Lane[Priority.values().length];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition jobAvailable = lock.newCondition();
+    // Guarded by lock
+    private int queued;
+    private boolean shutdown;
+
+    /**
+     * Scheduler shared by all FFmpeg processors, created on first use
+     */
+    public static FFmpegJobScheduler shared(FFmpegConfig config) {
+        FFmpegJobScheduler scheduler = shared;
+        if (scheduler == null) {
+            synchronized (FFmpegJobScheduler.class) {
+                scheduler = shared;
+                if (scheduler == null) {
+                    scheduler = new FFmpegJobScheduler(config.getMaxConcurrentJobs(), config.getMaxQueuedJobs());
+                    shared = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * Stop the shared scheduler if it was ever started
+     */
+    public static void shutdownShared() {
+        FFmpegJobScheduler scheduler = shared;
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    public FFmpegJobScheduler(int maxConcurrent, int maxQueued) {
+        if (maxConcurrent <= 0 || maxQueued <= 0) {
+            throw new IllegalArgumentException("Scheduler limits must be positive");
+        }
+        this.maxQueued = maxQueued;
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+        for (int i = 0; i < maxConcurrent; i++) {
+            Thread worker = new Thread(this::workLoop, "FFmpeg-Worker-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+        }
+        logger.info("FFmpeg job scheduler started with {} workers and a queue of {}", maxConcurrent, maxQueued);
+    }
+
+    /**
+     * Queue a job; the returned future fails with a {@link RejectedExecutionException} if the job
+     * is shed or the scheduler is shut down
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Supplier<T> task) {
+        Job<T> job = new Job<>(priority, task, new CompletableFuture<>(), System.nanoTime());
+        Lane lane = lanes[priority.ordinal()];
+        lane.submitted.increment();
+
+        Job<?> displaced = null;
+        String rejection = null;
+        lock.lock();
+        try {
+            if (shutdown) {
+                rejection = "FFmpeg job scheduler is shut down";
+            } else if (queued >= maxQueued && (displaced = pollNewestBelow(priority)) == null) {
+                rejection = "FFmpeg queue is full (" + maxQueued + " jobs)";
+            } else {
+                lane.queue.addLast(job);
+                queued++;
+                jobAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Completing futures runs their callbacks, so never do it under the lock
+        if (rejection != null) {
+            lane.rejected.increment();
+            job.reject(rejection);
+            return job.future();
+        }
+        if (displaced != null) {
+            logger.debug("FFmpeg queue full, shedding a {} job for a {} job", displaced.priority(), priority);
+            lanes[displaced.priority().ordinal()].rejected.increment();
+            displaced.reject("Shed from the full FFmpeg queue by a " + priority + " job");
+        }
+        return job.future();
+    }
+
+    /**
+     * Remove the newest job of the least urgent lane that is less urgent than {@code priority}
+     */
+    private Job<?> pollNewestBelow(Priority priority) {
+        for (int i = lanes.length - 1; i > priority.ordinal(); i--) {
+            Job<?> job = lanes[i].queue.pollLast();
+            if (job != null) {
+                queued--;
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private void workLoop() {
+        while (true) {
+            Job<?> job;
+            lock.lock();
+            try {
+                while (queued == 0 && !shutdown) {
+                    jobAvailable.awaitUninterruptibly();
+                }
+                if (shutdown) {
+                    return;
+                }
+                job = pollMostUrgent();
+            } finally {
+                lock.unlock();
+            }
+            job.run(lanes[job.priority().ordinal()]);
+        }
+    }
+
+    private Job<?> pollMostUrgent() {
+        for (Lane lane : lanes) {
+            Job<?> job = lane.queue.pollFirst();
+            if (job != null) {
+                queued--;
+                return job;
+            }
+        }
+        throw new IllegalStateException("Queued job count out of sync");
+    }
+
+    public List<LaneStats> getStats() {
+        List<LaneStats> stats = new ArrayList<>();
+        for (Priority priority : Priority.values()) {
+            Lane lane = lanes[priority.ordinal()];
+            int waiting;
+            lock.lock();
+            try {
+                waiting = lane.queue.size();
+            } finally {
+                lock.unlock();
+            }
+            long started = lane.started.sum();
+            long completed = lane.completed.sum();
+            stats.add(new LaneStats(priority, lane.submitted.sum(), completed, lane.rejected.sum(), waiting,
+                    started == 0 ? 0 : lane.queueNanos.sum() / 1e6 / started,
+                    TimeUnit.NANOSECONDS.toMillis(lane.maxQueueNanos.get()),
+                    completed == 0 ? 0 : lane.runNanos.sum() / 1e6 / completed));
+        }
+        return stats;
+    }
+
+    /**
+     * Reject all waiting jobs and stop the workers once their current job ends
+     */
+    public void shutdown() {
+        List<Job<?>> pending = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            for (Lane lane : lanes) {
+                pending.addAll(lane.queue);
+                lane.queue.clear();
+            }
+            queued = 0;
+            jobAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        pending.forEach(job -> job.reject("FFmpeg job scheduler is shut down"));
+    }
+}
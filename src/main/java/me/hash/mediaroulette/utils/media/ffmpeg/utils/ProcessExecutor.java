@@ -6,25 +6,33 @@ import me.hash.mediaroulette.utils.media.FFmpegDownloader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Centralized executor for FFmpeg and FFprobe processes with proper error handling,
- * HTTP headers support, and resource cleanup.
+ * HTTP headers support, and resource cleanup. Processes run on the shared
+ * {@link FFmpegJobScheduler} and their output is drained by the {@link ProcessOutputPump}.
  */
 public class ProcessExecutor {
     private static final Logger logger = LoggerFactory.getLogger(ProcessExecutor.class);
     
+    // FFprobe JSON is read whole; FFmpeg's stderr only matters for its first and last lines
+    private static final int MAX_STDOUT_BYTES = 1024 * 1024;
+    private static final int MAX_STDERR_BYTES = 64 * 1024;
+    private static final long OUTPUT_DRAIN_TIMEOUT_MS = 500;
+    
     private final FFmpegConfig config;
+    private final FFmpegJobScheduler scheduler;
     
     public ProcessExecutor(FFmpegConfig config) {
         this.config = config;
+        this.scheduler = FFmpegJobScheduler.shared(config);
     }
     
     /**
@@ -33,11 +41,13 @@ public class ProcessExecutor {
      * @param baseCommand Command list (first element should be "ffmpeg" placeholder)
      * @param inputUrl URL to process (headers will be added automatically)
      * @param timeoutSeconds Timeout in seconds
+     * @param priority Scheduler lane of the job
      * @return CompletableFuture with the process result
      */
-    public CompletableFuture<ProcessResult> executeFFmpeg(List<String> baseCommand, String inputUrl, int timeoutSeconds) {
+    public CompletableFuture<ProcessResult> executeFFmpeg(List<String> baseCommand, String inputUrl, int timeoutSeconds,
+                                                          FFmpegJobScheduler.Priority priority) {
         return FFmpegDownloader.getFFmpegPath().thenCompose(ffmpegPath ->
-            CompletableFuture.supplyAsync(() -> {
+            schedule(priority, () -> {
                 long startTime = System.currentTimeMillis();
                 try {
                     config.getFileManager().ensureTempDirectoryExists();
@@ -60,7 +70,7 @@ public class ProcessExecutor {
      */
     public CompletableFuture<ProcessResult> executeFFprobe(List<String> baseCommand, String inputUrl, int timeoutSeconds) {
         return FFmpegDownloader.getFFprobePath().thenCompose(ffprobePath ->
-            CompletableFuture.supplyAsync(() -> {
+            schedule(FFmpegJobScheduler.Priority.PROBE, () -> {
                 long startTime = System.currentTimeMillis();
                 try {
                     // Build command with headers for FFprobe
@@ -79,9 +89,10 @@ public class ProcessExecutor {
     /**
      * Executes an FFmpeg command on a local file (no headers needed).
      */
-    public CompletableFuture<ProcessResult> executeFFmpegOnFile(List<String> command, Path localFile, int timeoutSeconds) {
+    public CompletableFuture<ProcessResult> executeFFmpegOnFile(List<String> command, Path localFile, int timeoutSeconds,
+                                                                FFmpegJobScheduler.Priority priority) {
         return FFmpegDownloader.getFFmpegPath().thenCompose(ffmpegPath ->
-            CompletableFuture.supplyAsync(() -> {
+            schedule(priority, () -> {
                 long startTime = System.currentTimeMillis();
                 try {
                     config.getFileManager().ensureTempDirectoryExists();
@@ -105,6 +116,18 @@ public class ProcessExecutor {
             }));
     }
     
+    /**
+     * Runs a process job on the shared scheduler; a shed job becomes a failed result like any
+     * other process failure
+     */
+    private CompletableFuture<ProcessResult> schedule(FFmpegJobScheduler.Priority priority, Supplier<ProcessResult> job) {
+        return scheduler.submit(priority, job)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    return new ProcessResult(-1, "", cause.getMessage(), 0, false);
+                });
+    }
+    
     private List<String> buildCommandWithHeaders(Path ffmpegPath, List<String> baseCommand, String inputUrl) {
         List<String> command = new ArrayList<>();
         command.add(ffmpegPath.toString());
@@ -178,54 +201,26 @@ public class ProcessExecutor {
             pb.redirectErrorStream(false);
             process = pb.start();
             
-            StringBuilder stdout = new StringBuilder();
-            StringBuilder stderr = new StringBuilder();
-            
-            // Create final references for lambda capture
-            final Process proc = process;
-            
-            // Read stdout
-            Thread stdoutReader = new Thread(() -> {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        stdout.append(line).append("\n");
-                    }
-                } catch (Exception ignored) {}
-            });
-            
-            // Read stderr
-            Thread stderrReader = new Thread(() -> {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getErrorStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        stderr.append(line).append("\n");
-                    }
-                } catch (Exception ignored) {}
-            });
-            
-            stdoutReader.start();
-            stderrReader.start();
+            ProcessOutputPump.Capture output = ProcessOutputPump.getInstance()
+                    .register(process, MAX_STDOUT_BYTES, MAX_STDERR_BYTES);
             
             boolean completed = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
             
             if (!completed) {
                 process.destroyForcibly();
-                stdoutReader.interrupt();
-                stderrReader.interrupt();
+                output.awaitDrained(OUTPUT_DRAIN_TIMEOUT_MS);
                 long elapsed = System.currentTimeMillis() - startTime;
-                return new ProcessResult(-1, stdout.toString(), 
+                return new ProcessResult(-1, output.stdout(), 
                         "Process timed out after " + timeoutSeconds + " seconds", elapsed, true);
             }
             
-            stdoutReader.join(500);
-            stderrReader.join(500);
+            output.awaitDrained(OUTPUT_DRAIN_TIMEOUT_MS);
             
             long elapsed = System.currentTimeMillis() - startTime;
             return new ProcessResult(
                     process.exitValue(), 
-                    stdout.toString(), 
-                    stderr.toString(), 
+                    output.stdout(), 
+                    output.stderr(), 
                     elapsed, 
                     false
             );
@@ -0,0 +1,201 @@
+package me.hash.mediaroulette.utils.media.ffmpeg.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drains stdout and stderr of every running FFmpeg/FFprobe process on one shared thread.
+ * <p>
+ * Each pass only reads what {@link InputStream#available()} reports, so a quiet process never
+ * blocks the others; once a process has exited its pipes are read to the end. The thread parks
+ * briefly when no stream had data and sleeps when no process is registered.
+ */
+class ProcessOutputPump {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessOutputPump.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int READ_CHUNK = 8192;
+
+    private static final class Holder {
+        private static final ProcessOutputPump INSTANCE = new ProcessOutputPump();
+    }
+
+    static ProcessOutputPump getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Output of one stream, keeping at most {@code limit} bytes; FFmpeg's stderr can be long and
+     * only its start and the error at its end matter
+     */
+    private static final class StreamCapture {
+        private final InputStream in;
+        private final int limit;
+        private final ByteArrayOutputStream head = new ByteArrayOutputStream();
+        private final byte[] tail;
+        private long tailWritten;
+        private boolean finished;
+
+        StreamCapture(InputStream in, int limit) {
+            this.in = in;
+            this.limit = limit;
+            this.tail = new byte[limit / 2];
+        }
+
+        /**
+         * Read what is available, or everything left once the process is gone
+         * @return whether any bytes were read
+         */
+        boolean pump(byte[] buffer, boolean processExited) {
+            if (finished) {
+                return false;
+            }
+            boolean read = false;
+            try {
+                while (true) {
+                    int available = in.available();
+                    if (available <= 0 && !processExited) {
+                        return read;
+                    }
+                    int n = in.read(buffer, 0, available > 0 ? Math.min(available, buffer.length) : buffer.length);
+                    if (n < 0) {
+                        finish();
+                        return read;
+                    }
+                    append(buffer, n);
+                    read = true;
+                }
+            } catch (IOException e) {
+                // The pipe was closed under us, e.g. after destroyForcibly()
+                finish();
+                return read;
+            }
+        }
+
+        private void append(byte[] buffer, int n) {
+            int toHead = Math.max(0, Math.min(n, limit / 2 - head.size()));
+            head.write(buffer, 0, toHead);
+            for (int i = toHead; i < n; i++) {
+                tail[(int) (tailWritten++ % tail.length)] = buffer[i];
+            }
+        }
+
+        private void finish() {
+            finished = true;
+            try {
+                in.close();
+            } catch (IOException ignored) {}
+        }
+
+        String text() {
+            StringBuilder text = new StringBuilder(head.toString(StandardCharsets.UTF_8));
+            if (tailWritten > tail.length) {
+                text.append("\n[... ").append(tailWritten - tail.length).append(" bytes omitted ...]\n");
+            }
+            int length = (int) Math.min(tailWritten, tail.length);
+            byte[] ordered = new byte[length];
+            for (int i = 0; i < length; i++) {
+                ordered[i] = tail[(int) ((tailWritten - length + i) % tail.length)];
+            }
+            return text.append(new String(ordered, StandardCharsets.UTF_8)).toString();
+        }
+    }
+
+    /**
+     * Captured output of one process; complete once both streams reached end of file
+     */
+    static final class Capture {
+        private final Process process;
+        private final StreamCapture stdout;
+        private final StreamCapture stderr;
+        private final CompletableFuture<Void> drained = new CompletableFuture<>();
+
+        private Capture(Process process, int stdoutLimit, int stderrLimit) {
+            this.process = process;
+            this.stdout = new StreamCapture(process.getInputStream(), stdoutLimit);
+            this.stderr = new StreamCapture(process.getErrorStream(), stderrLimit);
+        }
+
+        /**
+         * Wait up to {@code timeoutMs} for the streams to be drained; output read so far is kept either way
+         */
+        void awaitDrained(long timeoutMs) {
+            try {
+                drained.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ignored) {}
+        }
+
+        synchronized String stdout() {
+            return stdout.text();
+        }
+
+        synchronized String stderr() {
+            return stderr.text();
+        }
+
+        /**
+         * @return whether any bytes were read
+         */
+        private synchronized boolean pump(byte[] buffer) {
+            boolean exited = !process.isAlive();
+            boolean read = stdout.pump(buffer, exited) | stderr.pump(buffer, exited);
+            if (stdout.finished && stderr.finished) {
+                drained.complete(null);
+            }
+            return read;
+        }
+    }
+
+    private final List<Capture> captures = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+
+    private ProcessOutputPump() {
+        thread = new Thread(this::run, "FFmpeg-Output-Pump");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Start draining a freshly started process
+     */
+    Capture register(Process process, int stdoutLimit, int stderrLimit) {
+        Capture capture = new Capture(process, stdoutLimit, stderrLimit);
+        captures.add(capture);
+        LockSupport.unpark(thread);
+        return capture;
+    }
+
+    private void run() {
+        byte[] buffer = new byte[READ_CHUNK];
+        while (true) {
+            boolean read = false;
+            for (Capture capture : captures) {
+                try {
+                    read |= capture.pump(buffer);
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to read process output: {}", e.getMessage());
+                    capture.drained.complete(null);
+                }
+                if (capture.drained.isDone()) {
+                    captures.remove(capture);
+                }
+            }
+            if (captures.isEmpty()) {
+                LockSupport.park(this);
+            } else if (!read) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+}
@@ -1,40 +1,96 @@
 package me.hash.mediaroulette.utils.media.image_generation;
 
-import me.hash.mediaroulette.utils.media.image_generation.components.TextComponent;
-import me.hash.mediaroulette.utils.media.image_generation.components.TextParser;
-import me.hash.mediaroulette.utils.media.image_generation.ImageRenderer;
-import me.hash.mediaroulette.utils.media.image_generation.Theme;
-import me.hash.mediaroulette.utils.media.image_generation.ThemeManager;
+import me.hash.mediaroulette.utils.media.image_generation.components.TextLayoutCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Renders text cards and encodes them.
+ * <p>
+ * Cards are drawn on pooled surfaces from {@link RenderSurfacePool} and written with
+ * {@link PngEncoder} (or JPEG for lossy output) into buffers pre-sized from the previous card of
+ * the same size. Text layout is memoized in {@link TextLayoutCache}. Render and encode cost is
+ * recorded in {@link #getMetrics()}.
+ */
 public class ImageGenerator {
     private static final Logger logger = LoggerFactory.getLogger(ImageGenerator.class);
 
-    private static final int DEFAULT_WIDTH = 500;
-    private static final int DEFAULT_HEIGHT = 300;
-    private static final double DEFAULT_SCALE_FACTOR = 2.5;
+    static final int DEFAULT_WIDTH = 500;
+    static final int DEFAULT_HEIGHT = 300;
+    static final double DEFAULT_SCALE_FACTOR = 2.5;
+    // Fast deflate level; UP suits the mostly smooth gradients/photos behind the text box
+    private static final int DEFAULT_PNG_COMPRESSION = 4;
+    private static final PngEncoder.Filter DEFAULT_PNG_FILTER = PngEncoder.Filter.UP;
+    private static final float DEFAULT_JPEG_QUALITY = 0.85f;
+
+    private static final RenderMetrics METRICS = new RenderMetrics();
+    private static final Map<String, Integer> LAST_ENCODED_SIZE = new ConcurrentHashMap<>();
+    private static final ExecutorService BATCH_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())), r -> {
+                Thread t = new Thread(r, "Card-Render");
+                t.setDaemon(true);
+                return t;
+            });
+
+    public enum OutputFormat {
+        PNG("png"), JPEG("jpg");
+
+        private final String extension;
+
+        OutputFormat(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
 
     private final ThemeManager themeManager;
     private final int baseWidth;
     private final int baseHeight;
     private final double scaleFactor;
+    private final OutputFormat format;
+    private final PngEncoder pngEncoder;
+    private final float jpegQuality;
 
     public ImageGenerator() {
         this(DEFAULT_WIDTH, DEFAULT_HEIGHT, DEFAULT_SCALE_FACTOR);
     }
 
     public ImageGenerator(int baseWidth, int baseHeight, double scaleFactor) {
+        this(new Builder().size(baseWidth, baseHeight).scaleFactor(scaleFactor));
+    }
+
+    private ImageGenerator(Builder builder) {
         this.themeManager = ThemeManager.getInstance();
-        this.baseWidth = baseWidth;
-        this.baseHeight = baseHeight;
-        this.scaleFactor = scaleFactor;
+        this.baseWidth = builder.baseWidth;
+        this.baseHeight = builder.baseHeight;
+        this.scaleFactor = builder.scaleFactor;
+        this.format = builder.format;
+        this.pngEncoder = new PngEncoder(builder.pngCompressionLevel, builder.pngFilter);
+        this.jpegQuality = builder.jpegQuality;
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
@@ -48,18 +104,43 @@ public class ImageGenerator {
      * Generates an image with the given text using the specified theme.
      */
     public byte[] generateImage(String text, String themeName) {
+        RenderSurfacePool pool = RenderSurfacePool.getInstance();
+        BufferedImage surface = null;
         try {
             Theme theme = themeManager.getTheme(themeName);
-            List<TextComponent> components = TextParser.parseText(text);
 
             ImageRenderer renderer = new ImageRenderer(theme, baseWidth, baseHeight, scaleFactor);
-            BufferedImage image = renderer.render(components);
+            long start = System.nanoTime();
+            surface = pool.acquire(renderer.getWidth(), renderer.getHeight());
+            renderer.render(text, surface);
+            long rendered = System.nanoTime();
 
-            return convertToByteArray(image);
+            byte[] encoded = encode(surface);
+            METRICS.record(rendered - start, System.nanoTime() - rendered, encoded.length);
+            return encoded;
         } catch (Exception e) {
+            METRICS.recordFailure();
             logger.error("Image generation failed: {}", e.getMessage());
             return new byte[0];
+        } finally {
+            pool.release(surface);
+        }
+    }
+
+    /**
+     * Generates one image per text in parallel on the shared render pool, in input order.
+     * Failed cards are returned as empty arrays, like {@link #generateImage(String, String)}.
+     */
+    public List<byte[]> generateImages(List<String> texts, String themeName) {
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            futures.add(CompletableFuture.supplyAsync(() -> generateImage(text, themeName), BATCH_EXECUTOR));
         }
+        List<byte[]> images = new ArrayList<>(texts.size());
+        for (CompletableFuture<byte[]> future : futures) {
+            images.add(future.join());
+        }
+        return images;
     }
 
     /**
@@ -76,16 +157,101 @@ public class ImageGenerator {
         return themeManager.getTheme(themeName);
     }
 
-    private byte[] convertToByteArray(BufferedImage image) throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "png", baos);
-            baos.flush();
-            return baos.toByteArray();
+    public OutputFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Latency, size and allocation numbers of all cards generated in this process
+     */
+    public static RenderMetrics getMetrics() {
+        return METRICS;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        String sizeKey = format + ":" + image.getWidth() + "x" + image.getHeight();
+        // Last size plus some headroom, so the buffer rarely has to grow
+        int sizeHint = LAST_ENCODED_SIZE.getOrDefault(sizeKey, image.getWidth() * image.getHeight() / 4);
+        sizeHint += sizeHint / 8;
+
+        byte[] encoded = format == OutputFormat.JPEG ? encodeJpeg(image, sizeHint) : pngEncoder.encode(image, sizeHint);
+        LAST_ENCODED_SIZE.put(sizeKey, encoded.length);
+        return encoded;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image, int sizeHint) throws IOException {
+        // JPEG has no alpha channel
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = rgb.createGraphics();
+        try {
+            g2d.drawImage(image, 0, 0, null);
+        } finally {
+            g2d.dispose();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(sizeHint);
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(baos)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(rgb, null, null), param);
         } finally {
-            // Help GC by disposing image resources
-            if (image != null) {
-                image.flush();
-            }
+            writer.dispose();
+            rgb.flush();
+        }
+        return baos.toByteArray();
+    }
+
+    public static class Builder {
+        private int baseWidth = DEFAULT_WIDTH;
+        private int baseHeight = DEFAULT_HEIGHT;
+        private double scaleFactor = DEFAULT_SCALE_FACTOR;
+        private OutputFormat format = OutputFormat.PNG;
+        private int pngCompressionLevel = DEFAULT_PNG_COMPRESSION;
+        private PngEncoder.Filter pngFilter = DEFAULT_PNG_FILTER;
+        private float jpegQuality = DEFAULT_JPEG_QUALITY;
+
+        public Builder size(int baseWidth, int baseHeight) {
+            this.baseWidth = baseWidth;
+            this.baseHeight = baseHeight;
+            return this;
+        }
+
+        public Builder scaleFactor(double scaleFactor) {
+            this.scaleFactor = scaleFactor;
+            return this;
+        }
+
+        public Builder format(OutputFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        /**
+         * Deflate level for PNG output, 0 (fastest) to 9 (smallest)
+         */
+        public Builder pngCompressionLevel(int pngCompressionLevel) {
+            this.pngCompressionLevel = pngCompressionLevel;
+            return this;
+        }
+
+        public Builder pngFilter(PngEncoder.Filter pngFilter) {
+            this.pngFilter = pngFilter;
+            return this;
+        }
+
+        /**
+         * Quality for JPEG output, 0.0 to 1.0
+         */
+        public Builder jpegQuality(float jpegQuality) {
+            this.jpegQuality = jpegQuality;
+            return this;
+        }
+
+        public ImageGenerator build() {
+            return new ImageGenerator(this);
         }
     }
-}
\ No newline at end of file
+}
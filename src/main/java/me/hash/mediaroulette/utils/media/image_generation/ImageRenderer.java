@@ -1,22 +1,15 @@
 package me.hash.mediaroulette.utils.media.image_generation;
 
 import me.hash.mediaroulette.utils.media.image_generation.components.TextComponent;
+import me.hash.mediaroulette.utils.media.image_generation.components.TextLayoutCache;
+import me.hash.mediaroulette.utils.media.image_generation.components.TextParser;
 import me.hash.mediaroulette.utils.media.image_generation.components.TextWrapper;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 public class ImageRenderer {
     private static final Logger logger = LoggerFactory.getLogger(ImageRenderer.class);
@@ -35,28 +28,51 @@ public class ImageRenderer {
 
     public BufferedImage render(List<TextComponent> components) {
         BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = null;
+        try {
+            return render(components, image);
+        } catch (Exception e) {
+            // Clean up on error
+            image.flush();
+            throw e;
+        }
+    }
 
+    /**
+     * Render onto an existing transparent surface of the renderer's size (e.g. from {@link RenderSurfacePool})
+     */
+    public BufferedImage render(List<TextComponent> components, BufferedImage target) {
+        return render(TextParser.toPlainText(components), target);
+    }
+
+    /**
+     * Render raw card text onto an existing transparent surface of the renderer's size. The text is
+     * parsed and wrapped through {@link TextLayoutCache}, so repeated texts skip both.
+     */
+    public BufferedImage render(String text, BufferedImage target) {
+        if (target.getWidth() != width || target.getHeight() != height) {
+            throw new IllegalArgumentException("Target is " + target.getWidth() + "x" + target.getHeight()
+                    + ", expected " + width + "x" + height);
+        }
+        Graphics2D g2d = target.createGraphics();
         try {
-            g2d = image.createGraphics();
             setupRenderingHints(g2d);
             renderBackground(g2d);
             renderOverlay(g2d);
-            renderTextBox(g2d, components);
-            return image;
-        } catch (Exception e) {
-            // Clean up on error
-            if (image != null) {
-                image.flush();
-            }
-            throw e;
+            renderTextBox(g2d, text);
+            return target;
         } finally {
-            if (g2d != null) {
-                g2d.dispose();
-            }
+            g2d.dispose();
         }
     }
 
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
     private void setupRenderingHints(Graphics2D g2d) {
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
@@ -67,55 +83,17 @@ public class ImageRenderer {
 
     private void renderBackground(Graphics2D g2d) {
         String bgPath = theme.getBackgroundImage();
-        boolean backgroundLoaded = false;
-        BufferedImage background = null;
-        BufferedImage scaledBg = null;
-        Graphics2D bgG2d = null;
-
-        // Try to load background image if path is provided and not empty
-        if (bgPath != null && !bgPath.trim().isEmpty()) {
-            InputStream inputStream = null;
-            try {
-                // Try external resources folder first
-                Path externalPath = Path.of("resources", bgPath);
-                if (Files.exists(externalPath)) {
-                    inputStream = Files.newInputStream(externalPath);
-                } else {
-                    // Fallback to classpath
-                    inputStream = getClass().getClassLoader().getResourceAsStream(bgPath);
-                }
-                
-                if (inputStream != null) {
-                    background = ImageIO.read(inputStream);
-                    if (background != null) {
-                        scaledBg = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-                        bgG2d = scaledBg.createGraphics();
-                        bgG2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-                        bgG2d.drawImage(background, 0, 0, width, height, null);
-                        bgG2d.dispose();
-
-                        g2d.drawImage(scaledBg, 0, 0, null);
-                        backgroundLoaded = true;
-                    }
-                } else {
-                    logger.warn("Background image not found: {}, using gradient fallback", bgPath);
-                }
-            } catch (IOException e) {
-                logger.error("Error loading background image '{}': {}", bgPath, e.getMessage());
-            } finally {
-                if (inputStream != null) {
-                    try { inputStream.close(); } catch (IOException ignored) {}
-                }
-                if (background != null) { background.flush(); }
-                if (scaledBg != null) { scaledBg.flush(); }
-                if (bgG2d != null) { bgG2d.dispose(); }
-            }
-        } else {
+        if (bgPath == null || bgPath.trim().isEmpty()) {
             logger.warn("No background image specified, using gradient background");
+            renderGradientBackground(g2d);
+            return;
         }
 
-        // Always render gradient background if image loading failed or no image specified
-        if (!backgroundLoaded) {
+        // Already decoded and scaled to this size; shared with other renders, so never flushed here
+        BufferedImage background = ThemeAssetCache.getInstance().getBackground(bgPath, width, height);
+        if (background != null) {
+            g2d.drawImage(background, 0, 0, null);
+        } else {
             renderGradientBackground(g2d);
         }
     }
@@ -152,14 +130,9 @@ public class ImageRenderer {
         }
     }
 
-    private void renderTextBox(Graphics2D g2d, List<TextComponent> components) {
+    private void renderTextBox(Graphics2D g2d, String text) {
         Font originalFont = loadFont();
-        g2d.setFont(originalFont);
-        FontMetrics originalFm = g2d.getFontMetrics();
 
-        // Convert components to plain text for wrapping analysis
-        String plainText = componentsToPlainText(components);
-        
         // Calculate available space for text box
         Theme.BoxStyle boxStyle = theme.getBoxStyle();
         int paddingX = (int) (boxStyle.getPaddingX() * scaleFactor);
@@ -170,38 +143,21 @@ public class ImageRenderer {
         int maxTextWidth = maxBoxWidth - (paddingX * 2);
         int maxTextHeight = maxBoxHeight - (paddingY * 2);
 
-        // Wrap and scale text to fit
-        TextWrapper.WrappedText wrappedText = TextWrapper.wrapAndScaleText(
-                plainText, originalFm, maxTextWidth, maxTextHeight, width, height);
+        // Parsed, wrapped and scaled to fit, or the memoized layout of an earlier render
+        TextLayoutCache.Layout layout = TextLayoutCache.getInstance().getLayout(
+                text, originalFont, g2d, maxTextWidth, maxTextHeight, width, height);
 
-        // Create scaled font
-        Font scaledFont = originalFont.deriveFont((float) (originalFont.getSize() * wrappedText.getFontScale()));
-        g2d.setFont(scaledFont);
+        g2d.setFont(layout.font());
         FontMetrics scaledFm = g2d.getFontMetrics();
 
         // Calculate box dimensions with wrapped text
-        BoxDimensions boxDims = calculateBoxDimensionsForWrappedText(wrappedText, scaledFm, paddingX, paddingY);
+        BoxDimensions boxDims = calculateBoxDimensionsForWrappedText(layout.wrapped(), scaledFm, paddingX, paddingY);
 
         // Render components in order: shadow, box, border, content
         renderShadow(g2d, boxDims);
         renderBox(g2d, boxDims);
         renderBorder(g2d, boxDims);
-        renderWrappedContent(g2d, wrappedText, boxDims, scaledFm);
-    }
-
-    /**
-     * Converts text components to plain text for wrapping analysis
-     */
-    private String componentsToPlainText(List<TextComponent> components) {
-        StringBuilder sb = new StringBuilder();
-        for (TextComponent component : components) {
-            if (component.isEmoji()) {
-                sb.append("E"); // Use a placeholder character for emoji width calculation
-            } else {
-                sb.append(component.getContent());
-            }
-        }
-        return sb.toString();
+        renderWrappedContent(g2d, layout, boxDims, scaledFm);
     }
 
     /**
@@ -223,12 +179,12 @@ public class ImageRenderer {
     /**
      * Renders wrapped text content with proper line breaks and scaling
      */
-    private void renderWrappedContent(Graphics2D g2d, TextWrapper.WrappedText wrappedText,
+    private void renderWrappedContent(Graphics2D g2d, TextLayoutCache.Layout layout,
             BoxDimensions boxDims, FontMetrics fm) {
         
         g2d.setColor(theme.getColorPalette().getTextColor());
         
-        List<String> lines = wrappedText.getLines();
+        List<String> lines = layout.wrapped().getLines();
         int lineHeight = fm.getHeight();
         int startY = boxDims.y + boxDims.paddingY + fm.getAscent();
 
@@ -239,7 +195,7 @@ public class ImageRenderer {
             }
             
             // Calculate x position for center alignment
-            int lineWidth = fm.stringWidth(line);
+            int lineWidth = layout.lineWidths()[i];
             int startX = boxDims.x + (boxDims.width - lineWidth) / 2;
             
             // Calculate y position for current line
@@ -253,62 +209,8 @@ public class ImageRenderer {
     private Font loadFont() {
         Theme.TextStyle textStyle = theme.getTextStyle();
         int fontSize = (int) (textStyle.getFontSize() * scaleFactor);
-        String fontWeight = textStyle.getFontWeight();
-        String fontFamily = textStyle.getFontFamily();
-
-        // Try to load custom font from external resources first
-        try {
-            Path externalFontPath = Path.of("resources", "fonts", fontFamily + ".ttf");
-            InputStream fontStream = null;
-            
-            if (Files.exists(externalFontPath)) {
-                fontStream = Files.newInputStream(externalFontPath);
-            } else {
-                // Fallback to classpath
-                fontStream = getClass().getClassLoader()
-                        .getResourceAsStream("fonts/" + fontFamily + ".ttf");
-            }
-            
-            if (fontStream != null) {
-                try {
-                    Font baseFont = Font.createFont(Font.TRUETYPE_FONT, fontStream);
-                    int style = getFontStyle(fontWeight);
-                    return baseFont.deriveFont(style, (float) fontSize);
-                } finally {
-                    fontStream.close();
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Failed to load custom font, using system font: {}", e.getMessage());
-        }
-
-        // Fallback to system fonts
-        String[] fallbackFonts = {"SansSerif", "Arial", "Helvetica"};
-        int style = getFontStyle(fontWeight);
-
-        for (String fontName : fallbackFonts) {
-            Font font = new Font(fontName, style, fontSize);
-            if (font.getFamily().equals(fontName)) {
-                return font;
-            }
-        }
-
-        return new Font(Font.SANS_SERIF, style, fontSize);
-    }
-
-    private int getFontStyle(String fontWeight) {
-        if (fontWeight == null) return Font.PLAIN;
-
-        switch (fontWeight.toUpperCase()) {
-            case "BOLD":
-                return Font.BOLD;
-            case "ITALIC":
-                return Font.ITALIC;
-            case "BOLD_ITALIC":
-                return Font.BOLD | Font.ITALIC;
-            default:
-                return Font.PLAIN;
-        }
+        int style = ThemeAssetCache.fontStyle(textStyle.getFontWeight());
+        return ThemeAssetCache.getInstance().getFont(textStyle.getFontFamily(), style, (float) fontSize);
     }
 
     private void renderShadow(Graphics2D g2d, BoxDimensions boxDims) {
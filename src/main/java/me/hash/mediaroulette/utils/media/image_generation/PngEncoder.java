@@ -0,0 +1,306 @@
+package me.hash.mediaroulette.utils.media.image_generation;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal PNG writer for rendered cards with a configurable deflate level and row filter.
+ * <p>
+ * Pixels are read straight from the int raster of {@code TYPE_INT_RGB}/{@code TYPE_INT_ARGB}
+ * images (other types go through {@link BufferedImage#getRGB}), and fully opaque images are
+ * written as RGB to save a quarter of the data. Instances are immutable and thread-safe.
+ */
+public final class PngEncoder {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    public enum Filter {
+        NONE(0), SUB(1), UP(2), AVERAGE(3), PAETH(4),
+        /** Pick the filter with the smallest sum of absolute differences per row (libpng heuristic) */
+        ADAPTIVE(-1);
+
+        private final int type;
+
+        Filter(int type) {
+            this.type = type;
+        }
+    }
+
+    private final int compressionLevel;
+    private final Filter filter;
+
+    /**
+     * @param compressionLevel deflate level from 0 (store) to 9 (smallest, slowest)
+     * @param filter row filter applied before compression
+     */
+    public PngEncoder(int compressionLevel, Filter filter) {
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Encode to a byte array
+     * @param sizeHint expected output size, used to pre-size the buffer
+     */
+    public byte[] encode(BufferedImage image, int sizeHint) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(1024, sizeHint));
+        encode(image, out);
+        return out.toByteArray();
+    }
+
+    public void encode(BufferedImage image, OutputStream out) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = pixelsOf(image);
+        boolean alpha = image.getColorModel().hasAlpha() && hasTranslucentPixel(pixels, width, height, image);
+        int bpp = alpha ? 4 : 3;
+
+        out.write(SIGNATURE);
+
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = 8;                      // bit depth
+        header[9] = (byte) (alpha ? 6 : 2); // colour type: RGBA or RGB
+        writeChunk(out, "IHDR", header, header.length);
+
+        ChunkOutputStream idat = new ChunkOutputStream(out, "IDAT", 64 * 1024);
+        Deflater deflater = new Deflater(compressionLevel);
+        try (DeflaterOutputStream compressed = new DeflaterOutputStream(idat, deflater, 64 * 1024)) {
+            int rowBytes = width * bpp;
+            byte[] previous = new byte[rowBytes];
+            byte[] current = new byte[rowBytes];
+            byte[][] candidates = filter == Filter.ADAPTIVE ? new byte[5][rowBytes] : null;
+            byte[] filtered = new byte[rowBytes];
+            int[] row = pixels == null ? new int[width] : null;
+
+            for (int y = 0; y < height; y++) {
+                if (pixels != null) {
+                    unpackRow(pixels, y * width, width, current, alpha);
+                } else {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    unpackRow(row, 0, width, current, alpha);
+                }
+
+                int type;
+                byte[] data;
+                if (candidates != null) {
+                    type = 0;
+                    long best = Long.MAX_VALUE;
+                    for (int t = 0; t < 5; t++) {
+                        applyFilter(t, current, previous, bpp, candidates[t]);
+                        long score = score(candidates[t]);
+                        if (score < best) {
+                            best = score;
+                            type = t;
+                        }
+                    }
+                    data = candidates[type];
+                } else {
+                    type = filter.type;
+                    applyFilter(type, current, previous, bpp, filtered);
+                    data = filtered;
+                }
+
+                compressed.write(type);
+                compressed.write(data, 0, rowBytes);
+
+                byte[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+        } finally {
+            deflater.end();
+        }
+
+        writeChunk(out, "IEND", new byte[0], 0);
+    }
+
+    private static int[] pixelsOf(BufferedImage image) {
+        int type = image.getType();
+        if ((type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB)
+                && image.getRaster().getDataBuffer() instanceof DataBufferInt buffer
+                && image.getRaster().getParent() == null
+                && buffer.getNumBanks() == 1) {
+            return buffer.getData();
+        }
+        return null;
+    }
+
+    private static boolean hasTranslucentPixel(int[] pixels, int width, int height, BufferedImage image) {
+        if (pixels != null) {
+            for (int i = 0, n = width * height; i < n; i++) {
+                if ((pixels[i] >>> 24) != 0xFF) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int argb : row) {
+                if ((argb >>> 24) != 0xFF) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void unpackRow(int[] pixels, int offset, int width, byte[] out, boolean alpha) {
+        int o = 0;
+        for (int x = 0; x < width; x++) {
+            int argb = pixels[offset + x];
+            out[o++] = (byte) (argb >> 16);
+            out[o++] = (byte) (argb >> 8);
+            out[o++] = (byte) argb;
+            if (alpha) {
+                out[o++] = (byte) (argb >>> 24);
+            }
+        }
+    }
+
+    private static void applyFilter(int type, byte[] row, byte[] prior, int bpp, byte[] out) {
+        int n = row.length;
+        switch (type) {
+            case 0 -> System.arraycopy(row, 0, out, 0, n);
+            case 1 -> {
+                for (int i = 0; i < n; i++) {
+                    int left = i >= bpp ? row[i - bpp] & 0xFF : 0;
+                    out[i] = (byte) ((row[i] & 0xFF) - left);
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = (byte) ((row[i] & 0xFF) - (prior[i] & 0xFF));
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < n; i++) {
+                    int left = i >= bpp ? row[i - bpp] & 0xFF : 0;
+                    out[i] = (byte) ((row[i] & 0xFF) - ((left + (prior[i] & 0xFF)) >> 1));
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < n; i++) {
+                    int left = i >= bpp ? row[i - bpp] & 0xFF : 0;
+                    int up = prior[i] & 0xFF;
+                    int upLeft = i >= bpp ? prior[i - bpp] & 0xFF : 0;
+                    out[i] = (byte) ((row[i] & 0xFF) - paeth(left, up, upLeft));
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown filter type " + type);
+        }
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private static long score(byte[] filtered) {
+        long sum = 0;
+        for (byte b : filtered) {
+            sum += Math.abs((int) b);
+        }
+        return sum;
+    }
+
+    private static void writeChunk(OutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] lengthBytes = new byte[4];
+        writeInt(lengthBytes, 0, length);
+        out.write(lengthBytes);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        byte[] crcBytes = new byte[4];
+        writeInt(crcBytes, 0, (int) crc.getValue());
+        out.write(crcBytes);
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Buffers compressed data and emits it as consecutive chunks of the given type
+     */
+    private static final class ChunkOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final String type;
+        private final byte[] buffer;
+        private int count;
+
+        ChunkOutputStream(OutputStream out, String type, int chunkSize) {
+            this.out = out;
+            this.type = type;
+            this.buffer = new byte[chunkSize];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Emit the tail but leave the underlying stream open for IEND
+            if (count > 0) {
+                flushChunk();
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            writeChunk(out, type, buffer, count);
+            count = 0;
+        }
+    }
+}
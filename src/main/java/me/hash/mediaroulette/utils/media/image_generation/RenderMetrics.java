@@ -0,0 +1,68 @@
+package me.hash.mediaroulette.utils.media.image_generation;
+
+import me.hash.mediaroulette.utils.LatencyWindow;
+import me.hash.mediaroulette.utils.media.image_generation.components.TextLayoutCache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cost of card generation: render and encode latency over a sliding window of recent cards,
+ * plus output size and surface allocation totals.
+ */
+public class RenderMetrics {
+    private static final int WINDOW_SIZE = 512;
+
+    private final LongAdder cards = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder outputBytes = new LongAdder();
+    private final LatencyWindow renderWindow = new LatencyWindow(WINDOW_SIZE);
+    private final LatencyWindow encodeWindow = new LatencyWindow(WINDOW_SIZE);
+
+    void record(long renderNanos, long encodeNanos, int encodedBytes) {
+        cards.increment();
+        outputBytes.add(encodedBytes);
+        renderWindow.record(renderNanos);
+        encodeWindow.record(encodeNanos);
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    public long getCards() { return cards.sum(); }
+    public long getFailures() { return failures.sum(); }
+    public long getOutputBytes() { return outputBytes.sum(); }
+
+    public long getAverageOutputBytes() {
+        long count = getCards();
+        return count == 0 ? 0 : getOutputBytes() / count;
+    }
+
+    /**
+     * Render (draw) latency percentile in milliseconds over the recent window
+     * @param percentile value between 0 and 100
+     */
+    public double getRenderPercentileMs(double percentile) {
+        return renderWindow.getPercentileMs(percentile);
+    }
+
+    /**
+     * Encode latency percentile in milliseconds over the recent window
+     * @param percentile value between 0 and 100
+     */
+    public double getEncodePercentileMs(double percentile) {
+        return encodeWindow.getPercentileMs(percentile);
+    }
+
+    @Override
+    public String toString() {
+        RenderSurfacePool pool = RenderSurfacePool.getInstance();
+        TextLayoutCache layouts = TextLayoutCache.getInstance();
+        return String.format("cards=%d, failures=%d, avgSize=%dKB, render p50=%.1fms p99=%.1fms, encode p50=%.1fms p99=%.1fms, " +
+                        "surfaces allocated=%d (%dMB) reused=%d idle=%d, text layouts=%d (%s)",
+                getCards(), getFailures(), getAverageOutputBytes() / 1024,
+                getRenderPercentileMs(50), getRenderPercentileMs(99), getEncodePercentileMs(50), getEncodePercentileMs(99),
+                pool.getAllocated(), pool.getAllocatedBytes() / (1024 * 1024), pool.getReused(), pool.getIdle(),
+                layouts.size(), layouts.getStats());
+    }
+}
@@ -0,0 +1,86 @@
+package me.hash.mediaroulette.utils.media.image_generation;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of reusable ARGB render surfaces, one queue per (width, height).
+ * <p>
+ * A 1250x750 card surface is ~3.7 MB; reusing it avoids a large allocation per card. At most
+ * {@link #MAX_IDLE_PER_SIZE} idle surfaces are kept per size, surfaces released beyond that are
+ * dropped for the GC.
+ */
+public class RenderSurfacePool {
+    private static final int MAX_IDLE_PER_SIZE = 4;
+
+    private record SurfaceSize(int width, int height) {}
+
+    private final Map<SurfaceSize, BlockingQueue<BufferedImage>> idle = new ConcurrentHashMap<>();
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    private static final class InstanceHolder {
+        private static final RenderSurfacePool instance = new RenderSurfacePool();
+    }
+
+    public static RenderSurfacePool getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Take a cleared (fully transparent) surface of the given size
+     */
+    public BufferedImage acquire(int width, int height) {
+        BlockingQueue<BufferedImage> queue = idle.get(new SurfaceSize(width, height));
+        BufferedImage surface = queue != null ? queue.poll() : null;
+        if (surface == null) {
+            allocated.incrementAndGet();
+            allocatedBytes.addAndGet((long) width * height * 4);
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        reused.incrementAndGet();
+        Graphics2D g2d = surface.createGraphics();
+        try {
+            g2d.setComposite(AlphaComposite.Clear);
+            g2d.fillRect(0, 0, width, height);
+        } finally {
+            g2d.dispose();
+        }
+        return surface;
+    }
+
+    /**
+     * Return a surface once nothing reads from it anymore
+     */
+    public void release(BufferedImage surface) {
+        if (surface == null || surface.getType() != BufferedImage.TYPE_INT_ARGB) {
+            return;
+        }
+        idle.computeIfAbsent(new SurfaceSize(surface.getWidth(), surface.getHeight()),
+                k -> new ArrayBlockingQueue<>(MAX_IDLE_PER_SIZE)).offer(surface);
+    }
+
+    public long getAllocated() {
+        return allocated.get();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    public long getReused() {
+        return reused.get();
+    }
+
+    public int getIdle() {
+        return idle.values().stream().mapToInt(BlockingQueue::size).sum();
+    }
+}
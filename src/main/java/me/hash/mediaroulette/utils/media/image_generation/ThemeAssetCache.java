@@ -0,0 +1,252 @@
+package me.hash.mediaroulette.utils.media.image_generation;
+
+import me.hash.mediaroulette.utils.media.image_generation.components.TextLayoutCache;
+import me.hash.mediaroulette.utils.resources.ResourceManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared cache of the fonts and backgrounds used by {@link ImageRenderer}.
+ * <p>
+ * TTF files are parsed once per family and sizes are derived from the parsed font. Backgrounds
+ * are decoded once and kept already scaled to each requested output size, so a render only
+ * has to draw them. Cached images are shared between renders and must be treated as read-only.
+ * The cache is warmed when themes load. A resource reload clears it together with
+ * {@link TextLayoutCache}, whose layouts are keyed by font name and would otherwise outlive a
+ * changed font file.
+ */
+public class ThemeAssetCache {
+    private static final Logger logger = LoggerFactory.getLogger(ThemeAssetCache.class);
+
+    // Bounds the number of (background, size) combinations kept; further sizes are scaled per render
+    private static final int MAX_BACKGROUNDS = 64;
+
+    private record FontKey(String family, int style, float size) {}
+
+    private record BackgroundKey(String path, int width, int height) {}
+
+    private record LoadedFont(Font font, long fileBytes) {}
+
+    private final Map<String, Optional<LoadedFont>> baseFonts = new ConcurrentHashMap<>();
+    private final Map<FontKey, Font> derivedFonts = new ConcurrentHashMap<>();
+    private final Map<BackgroundKey, Optional<BufferedImage>> backgrounds = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private ThemeAssetCache() {
+        ResourceManager.getInstance().addReloadListener(this::onResourcesReloaded);
+    }
+
+    private static final class InstanceHolder {
+        private static final ThemeAssetCache instance = new ThemeAssetCache();
+    }
+
+    public static ThemeAssetCache getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Get a font of the given family, style and size. Falls back to a system sans-serif font
+     * when the family has no TTF in resources/fonts or on the classpath.
+     */
+    public Font getFont(String family, int style, float size) {
+        FontKey key = new FontKey(family, style, size);
+        Font cached = derivedFonts.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        return derivedFonts.computeIfAbsent(key, k -> {
+            Optional<LoadedFont> base = family == null ? Optional.empty() : baseFonts.computeIfAbsent(family, this::loadBaseFont);
+            return base.map(loaded -> loaded.font().deriveFont(style, size))
+                    .orElseGet(() -> systemFont(style, Math.round(size)));
+        });
+    }
+
+    /**
+     * Get a background image scaled to the given size, or null if the path is empty or the image
+     * cannot be loaded
+     */
+    public BufferedImage getBackground(String path, int width, int height) {
+        if (path == null || path.trim().isEmpty()) {
+            return null;
+        }
+        BackgroundKey key = new BackgroundKey(path, width, height);
+        Optional<BufferedImage> cached = backgrounds.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.orElse(null);
+        }
+        misses.incrementAndGet();
+        if (backgrounds.size() >= MAX_BACKGROUNDS) {
+            return loadScaledBackground(key).orElse(null);
+        }
+        return backgrounds.computeIfAbsent(key, this::loadScaledBackground).orElse(null);
+    }
+
+    /**
+     * Load fonts and backgrounds of the given themes at one output size ahead of the first render
+     */
+    public void warm(Collection<Theme> themes, int width, int height, double scaleFactor) {
+        long start = System.currentTimeMillis();
+        for (Theme theme : themes) {
+            try {
+                Theme.TextStyle textStyle = theme.getTextStyle();
+                if (textStyle != null) {
+                    getFont(textStyle.getFontFamily(), fontStyle(textStyle.getFontWeight()),
+                            (float) (int) (textStyle.getFontSize() * scaleFactor));
+                }
+                getBackground(theme.getBackgroundImage(), width, height);
+            } catch (Exception e) {
+                logger.warn("Failed to warm assets for theme '{}': {}", theme.getName(), e.getMessage());
+            }
+        }
+        logger.info("Warmed theme assets for {} themes in {}ms ({} KB)",
+                themes.size(), System.currentTimeMillis() - start, getMemoryFootprintBytes() / 1024);
+    }
+
+    /**
+     * Drop every cached asset so the next render picks up changed files
+     */
+    public void invalidate() {
+        baseFonts.clear();
+        derivedFonts.clear();
+        backgrounds.clear();
+        logger.info("Theme asset cache invalidated");
+    }
+
+    /**
+     * Drop everything derived from resource files: fonts and backgrounds here, and the text
+     * layouts measured with those fonts
+     */
+    void onResourcesReloaded() {
+        invalidate();
+        TextLayoutCache.getInstance().clear();
+    }
+
+    /**
+     * Approximate heap held by the cache: raster bytes of the scaled backgrounds plus the size
+     * of the parsed font files
+     */
+    public long getMemoryFootprintBytes() {
+        long bytes = 0;
+        for (Optional<BufferedImage> background : backgrounds.values()) {
+            if (background.isPresent()) {
+                BufferedImage image = background.get();
+                bytes += (long) image.getWidth() * image.getHeight()
+                        * image.getColorModel().getPixelSize() / 8;
+            }
+        }
+        for (Optional<LoadedFont> font : baseFonts.values()) {
+            if (font.isPresent()) {
+                bytes += font.get().fileBytes();
+            }
+        }
+        return bytes;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    public String getStats() {
+        return String.format("ThemeAssetCache[fonts=%d, derivedFonts=%d, backgrounds=%d, hits=%d, misses=%d, memory=%dKB]",
+                baseFonts.size(), derivedFonts.size(), backgrounds.size(), hits.get(), misses.get(),
+                getMemoryFootprintBytes() / 1024);
+    }
+
+    static int fontStyle(String fontWeight) {
+        if (fontWeight == null) return Font.PLAIN;
+
+        return switch (fontWeight.toUpperCase()) {
+            case "BOLD" -> Font.BOLD;
+            case "ITALIC" -> Font.ITALIC;
+            case "BOLD_ITALIC" -> Font.BOLD | Font.ITALIC;
+            default -> Font.PLAIN;
+        };
+    }
+
+    private Optional<LoadedFont> loadBaseFont(String family) {
+        // Try external resources folder first, then the classpath
+        try (InputStream fontStream = openResource(Path.of("resources", "fonts", family + ".ttf"), "fonts/" + family + ".ttf")) {
+            if (fontStream == null) {
+                logger.warn("Font '{}' not found, using system font", family);
+                return Optional.empty();
+            }
+            byte[] data = fontStream.readAllBytes();
+            Font font = Font.createFont(Font.TRUETYPE_FONT, new ByteArrayInputStream(data));
+            return Optional.of(new LoadedFont(font, data.length));
+        } catch (Exception e) {
+            logger.error("Failed to load custom font, using system font: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Optional<BufferedImage> loadScaledBackground(BackgroundKey key) {
+        BufferedImage background = null;
+        try (InputStream inputStream = openResource(Path.of("resources", key.path()), key.path())) {
+            if (inputStream == null) {
+                logger.warn("Background image not found: {}, using gradient fallback", key.path());
+                return Optional.empty();
+            }
+            background = ImageIO.read(inputStream);
+            if (background == null) {
+                return Optional.empty();
+            }
+
+            BufferedImage scaled = new BufferedImage(key.width(), key.height(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = scaled.createGraphics();
+            try {
+                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g2d.drawImage(background, 0, 0, key.width(), key.height(), null);
+            } finally {
+                g2d.dispose();
+            }
+            return Optional.of(scaled);
+        } catch (IOException e) {
+            logger.error("Error loading background image '{}': {}", key.path(), e.getMessage());
+            return Optional.empty();
+        } finally {
+            if (background != null) {
+                background.flush();
+            }
+        }
+    }
+
+    private InputStream openResource(Path externalPath, String classpathName) throws IOException {
+        if (Files.exists(externalPath)) {
+            return Files.newInputStream(externalPath);
+        }
+        return getClass().getClassLoader().getResourceAsStream(classpathName);
+    }
+
+    private static Font systemFont(int style, int size) {
+        String[] fallbackFonts = {"SansSerif", "Arial", "Helvetica"};
+        for (String fontName : fallbackFonts) {
+            Font font = new Font(fontName, style, size);
+            if (font.getFamily().equals(fontName)) {
+                return font;
+            }
+        }
+        return new Font(Font.SANS_SERIF, style, size);
+    }
+}
@@ -2,6 +2,7 @@ package me.hash.mediaroulette.utils.media.image_generation;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import me.hash.mediaroulette.utils.media.image_generation.components.TextLayoutCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,6 +26,7 @@ public class ThemeManager {
         this.objectMapper = new ObjectMapper();
         this.themes = new HashMap<>();
         loadThemes();
+        warmAssets();
     }
 
     private static final class InstanceHolder {
@@ -143,5 +145,21 @@ public class ThemeManager {
     public void reloadThemes() {
         logger.info("Reloading themes from config file");
         loadThemes();
+        ThemeAssetCache.getInstance().invalidate();
+        TextLayoutCache.getInstance().clear();
+        warmAssets();
+    }
+
+    /**
+     * Load fonts and backgrounds at the default card size off the calling thread
+     */
+    private void warmAssets() {
+        List<Theme> snapshot = List.copyOf(themes.values());
+        Thread warmer = new Thread(() -> ThemeAssetCache.getInstance().warm(snapshot,
+                (int) (ImageGenerator.DEFAULT_WIDTH * ImageGenerator.DEFAULT_SCALE_FACTOR),
+                (int) (ImageGenerator.DEFAULT_HEIGHT * ImageGenerator.DEFAULT_SCALE_FACTOR),
+                ImageGenerator.DEFAULT_SCALE_FACTOR), "Theme-Asset-Warmup");
+        warmer.setDaemon(true);
+        warmer.start();
     }
 }
\ No newline at end of file
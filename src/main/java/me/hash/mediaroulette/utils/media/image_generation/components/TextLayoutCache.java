@@ -0,0 +1,95 @@
+package me.hash.mediaroulette.utils.media.image_generation.components;
+
+import me.hash.mediaroulette.utils.cache.BoundedCache;
+import me.hash.mediaroulette.utils.cache.CacheStats;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.util.List;
+
+/**
+ * Memoized text layout: parsing, wrapping/scaling and line advances for a card's text.
+ * <p>
+ * Entries are keyed by everything that affects the layout: the base font (family, style, size),
+ * the text box limits and the image size, plus the text itself. Themes that share a font and box
+ * share layouts. Layouts live in a {@link BoundedCache} bounded by entry count and by an estimate
+ * of the retained characters.
+ */
+public class TextLayoutCache {
+    private static final int MAX_ENTRIES = 5_000;
+    private static final long MAX_WEIGHT = 8L * 1024 * 1024;
+
+    /**
+     * A computed layout. {@code lineWidths} are the advances of each wrapped line in {@code font}.
+     */
+    public record Layout(String text, TextWrapper.WrappedText wrapped, Font font, int[] lineWidths) {}
+
+    private final BoundedCache<Layout> layouts;
+
+    TextLayoutCache(int maxEntries, long maxWeight) {
+        this.layouts = new BoundedCache<>(maxEntries, maxWeight, TextLayoutCache::weigh, null);
+    }
+
+    private static final class InstanceHolder {
+        private static final TextLayoutCache instance = new TextLayoutCache(MAX_ENTRIES, MAX_WEIGHT);
+    }
+
+    public static TextLayoutCache getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Get the layout of a card's raw text, parsing and wrapping it only on a miss
+     * @param g2d graphics the card is drawn with; only used to measure fonts on a miss
+     */
+    public Layout getLayout(String text, Font baseFont, Graphics2D g2d,
+                            int maxTextWidth, int maxTextHeight, int imageWidth, int imageHeight) {
+        String key = baseFont.getFontName() + '|' + baseFont.getStyle() + '|' + baseFont.getSize2D() + '|'
+                + maxTextWidth + 'x' + maxTextHeight + '|' + imageWidth + 'x' + imageHeight + '|'
+                + text;
+        return layouts.get(key, k -> compute(text, baseFont, g2d, maxTextWidth, maxTextHeight, imageWidth, imageHeight));
+    }
+
+    private static Layout compute(String text, Font baseFont, Graphics2D g2d,
+                                  int maxTextWidth, int maxTextHeight, int imageWidth, int imageHeight) {
+        String plainText = TextParser.toPlainText(TextParser.parseText(text));
+        FontMetrics baseMetrics = g2d.getFontMetrics(baseFont);
+        TextWrapper.WrappedText wrapped = TextWrapper.wrapAndScaleText(
+                plainText, baseMetrics, maxTextWidth, maxTextHeight, imageWidth, imageHeight);
+
+        Font font = baseFont.deriveFont((float) (baseFont.getSize() * wrapped.getFontScale()));
+        FontMetrics metrics = g2d.getFontMetrics(font);
+        List<String> lines = wrapped.getLines();
+        int[] lineWidths = new int[lines.size()];
+        for (int i = 0; i < lineWidths.length; i++) {
+            lineWidths[i] = metrics.stringWidth(lines.get(i));
+        }
+        return new Layout(text, wrapped, font, lineWidths);
+    }
+
+    private static long weigh(Layout layout) {
+        long chars = layout.text().length();
+        for (String line : layout.wrapped().getLines()) {
+            chars += line.length();
+        }
+        // UTF-16 chars plus rough per-object overhead for the key, strings and arrays
+        return chars * 2 * 2 + layout.lineWidths().length * 24L + 256;
+    }
+
+    public CacheStats getStats() {
+        return layouts.getStats();
+    }
+
+    public int size() {
+        return layouts.size();
+    }
+
+    public long getWeightedSize() {
+        return layouts.getWeightedSize();
+    }
+
+    public void clear() {
+        layouts.invalidateAll();
+    }
+}
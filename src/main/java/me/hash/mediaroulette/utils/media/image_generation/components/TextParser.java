@@ -25,6 +25,22 @@ public class TextParser {
         return components;
     }
 
+    /**
+     * Converts text components to plain text for wrapping analysis, with a placeholder
+     * character standing in for each emoji's width
+     */
+    public static String toPlainText(List<TextComponent> components) {
+        StringBuilder sb = new StringBuilder();
+        for (TextComponent component : components) {
+            if (component.isEmoji()) {
+                sb.append("E");
+            } else {
+                sb.append(component.getContent());
+            }
+        }
+        return sb.toString();
+    }
+
     private static boolean isEmoji(String text) {
         if (text == null || text.isEmpty()) return false;
         int codePoint = text.codePointAt(0);
@@ -17,6 +17,7 @@ import java.security.MessageDigest;
 import java.util.HexFormat;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static me.hash.mediaroulette.utils.terminal.TerminalColors.*;
 
@@ -36,6 +37,7 @@ public class ResourceManager {
     private final ObjectMapper objectMapper;
     private ResourceManifest manifest;
     private boolean initialized = false;
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
     
     public enum ResourceType {
         IMAGE("images"),
@@ -101,7 +103,24 @@ public class ResourceManager {
     public CompletableFuture<Void> reload() {
         initialized = false;
         manifest = null;
-        return initialize();
+        return initialize().thenRun(this::notifyReloadListeners);
+    }
+
+    /**
+     * Register a callback run after every {@link #reload()}, e.g. to drop caches built from resource files
+     */
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    private void notifyReloadListeners() {
+        for (Runnable listener : reloadListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                logger.warn("Resource reload listener failed: {}", e.getMessage());
+            }
+        }
     }
     
     private void ensureDirectories() throws IOException {
@@ -1,10 +1,13 @@
 package me.hash.mediaroulette.utils.terminal.commands;
 
+import me.hash.mediaroulette.content.factory.MediaServiceFactory;
+import me.hash.mediaroulette.content.http.HostStats;
 import me.hash.mediaroulette.utils.browser.RateLimiter;
 import me.hash.mediaroulette.utils.terminal.Command;
 import me.hash.mediaroulette.utils.terminal.CommandResult;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -14,7 +17,7 @@ import static me.hash.mediaroulette.utils.terminal.TerminalColors.*;
 public class RateLimitCommand extends Command {
 
     public RateLimitCommand() {
-        super("ratelimit", "Manage rate limits for API sources", "ratelimit <status|reset|trigger> [source] [duration]", List.of("rl"));
+        super("ratelimit", "Manage rate limits for API sources", "ratelimit <status|hosts|reset|trigger> [source] [duration]", List.of("rl"));
     }
 
     @Override
@@ -27,6 +30,7 @@ public class RateLimitCommand extends Command {
 
         return switch (action) {
             case "status", "s" -> showRateLimitStatus();
+            case "hosts", "h" -> showHostStats();
             case "reset", "r" -> {
                 if (args.length < 2) yield CommandResult.error("Usage: ratelimit reset <source>");
                 yield resetRateLimit(args[1]);
@@ -41,7 +45,7 @@ public class RateLimitCommand extends Command {
                 }
             }
             default -> CommandResult.error("Unknown action: " + action + 
-                    "\nAvailable actions: status, reset, trigger");
+                    "\nAvailable actions: status, hosts, reset, trigger");
         };
     }
 
@@ -51,7 +55,7 @@ public class RateLimitCommand extends Command {
 
         if (args.length == 1) {
             String partial = args[0].toLowerCase();
-            List<String> actions = List.of("status", "reset", "trigger");
+            List<String> actions = List.of("status", "hosts", "reset", "trigger");
             for (String action : actions) {
                 if (action.startsWith(partial)) {
                     completions.add(action);
@@ -126,6 +130,41 @@ public class RateLimitCommand extends Command {
         }
     }
 
+    private CommandResult showHostStats() {
+        try {
+            List<HostStats> stats = MediaServiceFactory.getSharedHttpClient().getHostStats().values().stream()
+                    .sorted(Comparator.comparingDouble((HostStats s) -> s.getLatencyPercentileMs(99)).reversed())
+                    .collect(Collectors.toList());
+
+            StringBuilder result = new StringBuilder();
+            result.append(header("HTTP Host Statistics")).append("\n");
+            result.append(dim("─".repeat(50))).append("\n\n");
+
+            if (stats.isEmpty()) {
+                result.append(dim("  No provider requests made yet."));
+                return CommandResult.success(result.toString());
+            }
+
+            for (HostStats host : stats) {
+                String indicator = host.getFailures() > 0 ? yellow("●") : green("●");
+                result.append("  ").append(indicator).append(" ");
+                result.append(bold(host.getHost())).append("\n");
+                result.append(dim(String.format("      %d requests, %d failed, %d in flight (peak %d), %d over HTTP/2",
+                        host.getRequests(), host.getFailures(), host.getInFlight(), host.getPeakInFlight(), host.getHttp2Responses())));
+                result.append("\n");
+                result.append(String.format("      p50 %s  p95 %s  p99 %s",
+                        cyan(String.format("%.0fms", host.getLatencyPercentileMs(50))),
+                        cyan(String.format("%.0fms", host.getLatencyPercentileMs(95))),
+                        cyan(String.format("%.0fms", host.getLatencyPercentileMs(99)))));
+                result.append("\n");
+            }
+
+            return CommandResult.success(result.toString());
+        } catch (Exception e) {
+            return CommandResult.error("Failed to get host statistics: " + e.getMessage());
+        }
+    }
+
     private CommandResult resetRateLimit(String source) {
         try {
             RateLimiter.resetRateLimit(source);
@@ -154,6 +193,7 @@ public class RateLimitCommand extends Command {
         
         help.append(header("Subcommands:")).append("\n");
         help.append("  ").append(cyan("status")).append("                    - Show all rate limit statuses\n");
+        help.append("  ").append(cyan("hosts")).append("                     - Show per-host HTTP latency (slowest p99 first)\n");
         help.append("  ").append(cyan("reset <source>")).append("            - Clear rate limit for a source\n");
         help.append("  ").append(cyan("trigger <source> <secs>")).append("   - Manually trigger rate limit\n\n");
         
@@ -1,6 +1,9 @@
 package me.hash.mediaroulette.utils.terminal.commands;
 
 import me.hash.mediaroulette.Main;
+import me.hash.mediaroulette.utils.media.image_generation.ImageGenerator;
+import me.hash.mediaroulette.utils.media.image_generation.RenderMetrics;
+import me.hash.mediaroulette.utils.media.image_generation.RenderSurfacePool;
 import me.hash.mediaroulette.utils.terminal.Command;
 import me.hash.mediaroulette.utils.terminal.CommandResult;
 
@@ -27,6 +30,19 @@ public class StatusCommand extends Command {
         status.append("  ").append(bold("Bot:")).append("         ").append(botRunning ? green("Running") : red("Not Running")).append("\n");
         status.append("  ").append(bold("Database:")).append("    ").append(dbConnected ? green("Connected") : red("Disconnected")).append("\n");
 
+        RenderMetrics cards = ImageGenerator.getMetrics();
+        RenderSurfacePool pool = RenderSurfacePool.getInstance();
+        status.append("\n").append(header("Card Generation")).append("\n");
+        status.append("  ").append(bold("Cards:")).append("       ").append(cyan(String.format("%,d", cards.getCards())))
+                .append(dim(String.format(" (%,d failed, avg %d KB)", cards.getFailures(), cards.getAverageOutputBytes() / 1024))).append("\n");
+        status.append("  ").append(bold("Render:")).append("      ")
+                .append(cyan(String.format("p50 %.1fms, p99 %.1fms", cards.getRenderPercentileMs(50), cards.getRenderPercentileMs(99)))).append("\n");
+        status.append("  ").append(bold("Encode:")).append("      ")
+                .append(cyan(String.format("p50 %.1fms, p99 %.1fms", cards.getEncodePercentileMs(50), cards.getEncodePercentileMs(99)))).append("\n");
+        status.append("  ").append(bold("Surfaces:")).append("    ")
+                .append(cyan(String.format("%,d reused, %,d allocated (%d MB), %d idle",
+                        pool.getReused(), pool.getAllocated(), pool.getAllocatedBytes() / (1024 * 1024), pool.getIdle()))).append("\n");
+
         return CommandResult.success(status.toString());
     }
 
@@ -52,7 +68,8 @@ public class StatusCommand extends Command {
         help.append(header("Information Shown:")).append("\n");
         help.append("  • ").append(bold("Uptime")).append(" - How long the application has been running\n");
         help.append("  • ").append(bold("Bot")).append(" - Discord bot connection status\n");
-        help.append("  • ").append(bold("Database")).append(" - MongoDB connection status\n\n");
+        help.append("  • ").append(bold("Database")).append(" - MongoDB connection status\n");
+        help.append("  • ").append(bold("Card Generation")).append(" - Render/encode latency and surface reuse of text cards\n\n");
         
         help.append(header("Usage:")).append("\n");
         help.append("  ").append(cyan("status")).append("\n\n");
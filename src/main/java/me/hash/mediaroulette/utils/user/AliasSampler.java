@@ -0,0 +1,84 @@
+package me.hash.mediaroulette.utils.user;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Immutable weighted sampler using Vose's alias method.
+ * <p>
+ * Building the table is O(n); every {@link #sample()} afterwards is O(1) with one random
+ * index and one random double, independent of how many items there are.
+ */
+public final class AliasSampler<T> {
+    private final List<T> items;
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * @param items   the items to sample from
+     * @param weights non-negative relative weights, one per item
+     * @throws IllegalArgumentException if the sizes differ, a weight is negative or all weights are zero
+     */
+    public AliasSampler(List<T> items, double[] weights) {
+        int n = items.size();
+        if (n == 0 || weights.length != n) {
+            throw new IllegalArgumentException("Expected one weight per item, got " + weights.length + " for " + n);
+        }
+
+        double total = 0;
+        for (double weight : weights) {
+            if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+
+        this.items = List.copyOf(items);
+        this.probability = new double[n];
+        this.alias = new int[n];
+
+        // Scale so the average bucket holds exactly 1.0
+        double[] scaled = new double[n];
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            (scaled[i] < 1.0 ? small : large).push(i);
+        }
+
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            (scaled[more] < 1.0 ? small : large).push(more);
+        }
+        // Whatever is left is 1.0 up to rounding error
+        while (!large.isEmpty()) {
+            probability[large.pop()] = 1.0;
+        }
+        while (!small.isEmpty()) {
+            probability[small.pop()] = 1.0;
+        }
+    }
+
+    public T sample() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? items.get(column) : items.get(alias[column]);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+}
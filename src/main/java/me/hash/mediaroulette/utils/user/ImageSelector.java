@@ -1,35 +1,88 @@
 package me.hash.mediaroulette.utils.user;
 
-import me.hash.mediaroulette.content.factory.MediaServiceFactory;
+import me.hash.mediaroulette.content.factory.ProviderRegistry;
 import me.hash.mediaroulette.content.http.HttpClientWrapper;
+import me.hash.mediaroulette.content.provider.MediaProvider;
 import me.hash.mediaroulette.model.ImageOptions;
 import me.hash.mediaroulette.exceptions.InvalidChancesException;
 import me.hash.mediaroulette.exceptions.NoEnabledOptionsException;
 import me.hash.mediaroulette.config.LocalConfig;
+import me.hash.mediaroulette.plugins.images.ImageSource;
+import me.hash.mediaroulette.utils.cache.BoundedCache;
 
 import java.io.IOException;
-import java.util.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
+/**
+ * Picks a random source for a user according to their chances.
+ * <p>
+ * The effective weights (admin-enabled sources, user overrides over defaults, normalised to
+ * 100) are compiled once per user into an {@link AliasSampler} and reused until the user's
+ * chances or the admin config change, so a roll is O(1) and never touches the option objects.
+ * Only the samplers of recently active users are kept.
+ */
 public class ImageSelector {
+    // Samplers of recently active users; the TTL also covers edits that bypass invalidate()
+    private static final int MAX_COMPILED = 10_000;
+    private static final BoundedCache<CompiledSelection> COMPILED = new BoundedCache<>(MAX_COMPILED, Duration.ofHours(1));
+
+    private record CompiledSelection(AliasSampler<String> sampler, long configVersion) {}
+
     private final Map<String, ImageOptions> userImageOptions;
-    private final Random random = new Random();
 
     public ImageSelector(Map<String, ImageOptions> userImageOptions) {
         this.userImageOptions = userImageOptions;
     }
 
+    /**
+     * Drop the compiled sampler of a user, e.g. after their chances were edited
+     */
+    public static void invalidate(String userId) {
+        if (userId != null) {
+            COMPILED.invalidate(userId);
+        }
+    }
+
     public Map<String, String> selectImage() throws NoEnabledOptionsException, InvalidChancesException {
         return selectImage(null);
     }
     
     public Map<String, String> selectImage(String userId) throws NoEnabledOptionsException, InvalidChancesException {
-        List<ImageOptions> defaultImageOptions = ImageOptions.getDefaultOptions();
-        PriorityQueue<ImageOptions> queue = new PriorityQueue<>(Comparator.comparingDouble(ImageOptions::getChance));
+        String imageType = getSampler(userId).sample();
+        try {
+            return getImageByType(imageType, userId);
+        } catch (IOException e) {
+            throw new InvalidChancesException("Failed to fetch image from source: " + imageType);
+        } catch (ExecutionException | InterruptedException | HttpClientWrapper.RateLimitException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private AliasSampler<String> getSampler(String userId) throws NoEnabledOptionsException {
+        long configVersion = LocalConfig.getInstance().getVersion();
+        if (userId == null) {
+            return compile(configVersion).sampler();
+        }
+
+        CompiledSelection compiled = COMPILED.getIfPresent(userId);
+        if (compiled == null || compiled.configVersion() != configVersion) {
+            compiled = compile(configVersion);
+            COMPILED.put(userId, compiled);
+        }
+        return compiled.sampler();
+    }
+
+    private CompiledSelection compile(long configVersion) throws NoEnabledOptionsException {
         LocalConfig config = LocalConfig.getInstance();
+        List<String> types = new ArrayList<>();
+        List<Double> chances = new ArrayList<>();
 
         double totalChance = 0;
-        for (ImageOptions defaultOption : defaultImageOptions) {
+        for (ImageOptions defaultOption : ImageOptions.getDefaultOptions()) {
             String imageType = defaultOption.getImageType();
             
             // Check if source is enabled in admin config first
@@ -38,91 +91,45 @@ public class ImageSelector {
             }
             
             ImageOptions userOption = userImageOptions.get(imageType);
-            
-            if (userOption != null) {
-                // User has explicitly set this option, respect their choice
-                if (userOption.isEnabled()) {
-                    totalChance += userOption.getChance();
-                    queue.add(userOption);
-                }
-                // If user disabled it, don't add it at all (no fallback to default)
-            } else if (defaultOption.isEnabled()) {
-                // User hasn't set this option, use default if enabled
-                totalChance += defaultOption.getChance();
-                queue.add(defaultOption);
+            // A user's explicit choice wins, including disabling a source (no fallback to default)
+            ImageOptions effective = userOption != null ? userOption : defaultOption;
+            if (effective.isEnabled()) {
+                types.add(imageType);
+                chances.add(effective.getChance());
+                totalChance += effective.getChance();
             }
         }
 
-        if (queue.isEmpty()) {
+        if (types.isEmpty()) {
             throw new NoEnabledOptionsException("All image options are disabled");
         }
 
-        normalizeProbabilities(queue, totalChance);
-
-        return getRandomImageFromQueue(queue, userId);
-    }
-
-    private void normalizeProbabilities(PriorityQueue<ImageOptions> queue, double totalChance) {
-        if (totalChance != 100) {
-            double difference = 100 - totalChance;
-            double additionalChance = difference / queue.size();
-            for (ImageOptions option : queue) {
-                option.setChance(option.getChance() + additionalChance);
-            }
-        }
-    }
-
-    private Map<String, String> getRandomImageFromQueue(PriorityQueue<ImageOptions> queue) throws InvalidChancesException {
-        return getRandomImageFromQueue(queue, null);
-    }
-    
-    private Map<String, String> getRandomImageFromQueue(PriorityQueue<ImageOptions> queue, String userId) throws InvalidChancesException {
-        double rand = random.nextDouble() * 100;
-        double cumulativeProbability = 0;
-        while (!queue.isEmpty()) {
-            ImageOptions selectedOption = queue.poll();
-            cumulativeProbability += selectedOption.getChance();
-            if (rand <= cumulativeProbability) {
-                try {
-                    return getImageByType(selectedOption.getImageType(), userId);
-                } catch (IOException e) {
-                    throw new InvalidChancesException("Failed to fetch image from source: " + selectedOption.getImageType());
-                } catch (ExecutionException | InterruptedException | HttpClientWrapper.RateLimitException e) {
-                    throw new RuntimeException(e);
-                }
-            }
+        // Spread the gap to 100 evenly over the enabled sources, as the chances UI presents them
+        double additionalChance = (100 - totalChance) / types.size();
+        double[] weights = new double[types.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = Math.max(0, chances.get(i) + additionalChance);
         }
-        throw new InvalidChancesException("Failed to select an image.");
+        return new CompiledSelection(new AliasSampler<>(types, weights), configVersion);
     }
 
     private Map<String, String> getImageByType(String imageType, String userId) throws IOException, ExecutionException, InterruptedException, HttpClientWrapper.RateLimitException {
-        return switch (imageType) {
-            case "4chan" -> new MediaServiceFactory().createFourChanProvider().getRandomMedia(null).toMap();
-            case "picsum" -> new MediaServiceFactory().createPicsumProvider().getRandomMedia(null).toMap();
-            case "imgur" -> new MediaServiceFactory().createImgurProvider().getRandomMedia(null).toMap();
-            case "tenor" -> {
-                var provider = new MediaServiceFactory().createTenorProvider();
-                if (provider instanceof me.hash.mediaroulette.content.provider.impl.gifs.TenorProvider tenorProvider && userId != null) {
-                    yield tenorProvider.getRandomMedia(null, userId).toMap();
-                } else {
-                    yield provider.getRandomMedia(null).toMap();
-                }
-            }
-            case "google" -> {
-                var provider = new MediaServiceFactory().createGoogleProvider();
-                if (provider instanceof me.hash.mediaroulette.content.provider.impl.images.GoogleProvider googleProvider && userId != null) {
-                    yield googleProvider.getRandomMedia(null, userId).toMap();
-                } else {
-                    yield provider.getRandomMedia(null).toMap();
-                }
-            }
-            case "movies" -> new MediaServiceFactory().createTMDBMovieProvider().getRandomMedia(null).toMap();
-            case "tvshow" -> new MediaServiceFactory().createTMDBTvProvider().getRandomMedia(null).toMap();
-            case "youtube" -> new MediaServiceFactory().createYouTubeProvider().getRandomMedia(null).toMap();
-            case "short" -> new MediaServiceFactory().createYouTubeShortsProvider().getRandomMedia(null).toMap();
-            case "urban" -> new MediaServiceFactory().createUrbanDictionaryProvider().getRandomMedia(null).toMap();
+        String source = switch (imageType) {
+            case "4chan" -> ImageSource._4CHAN;
+            case "picsum" -> ImageSource.PICSUM;
+            case "imgur" -> ImageSource.IMGUR;
+            case "tenor" -> ImageSource.TENOR;
+            case "google" -> ImageSource.GOOGLE;
+            case "movies" -> ImageSource.MOVIE;
+            case "tvshow" -> ImageSource.TVSHOW;
+            case "youtube" -> ImageSource.YOUTUBE;
+            case "short" -> ImageSource.SHORT;
+            case "urban" -> ImageSource.URBAN;
             default -> throw new IllegalArgumentException("Unknown image type: " + imageType);
         };
+        // Shared provider instances keep their caches warm across requests
+        MediaProvider provider = ProviderRegistry.getInstance().get(source);
+        return (userId != null ? provider.getRandomMedia(null, userId) : provider.getRandomMedia(null)).toMap();
     }
     
     /**
@@ -1,36 +1,164 @@
 package me.hash.mediaroulette.utils.user;
 
 import me.hash.mediaroulette.model.ImageOptions;
+import me.hash.mediaroulette.model.Transaction;
+import me.hash.mediaroulette.model.UsageType;
 import me.hash.mediaroulette.model.User;
+import me.hash.mediaroulette.repository.UserActivityRepository;
 import me.hash.mediaroulette.repository.UserRepository;
+import me.hash.mediaroulette.utils.cache.CacheStats;
+import me.hash.mediaroulette.utils.cache.EvictionPolicy;
+import me.hash.mediaroulette.utils.cache.SegmentedLruPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * User lookups and mutations backed by a bounded write-behind cache.
+ * <p>
+ * Users stay cached until they have been idle for {@link #IDLE_TIMEOUT} or are pushed out by the
+ * {@link #MAX_CACHED_USERS} limit. {@link #updateUser(User)} only marks a user dirty; a background
+ * flusher writes each dirty user once every {@link #FLUSH_INTERVAL_SECONDS} seconds, so a burst of
+ * mutations costs one write, and the users of a flush are written in batches through
+ * {@link UserRepository#saveAll}. Dirty users are also written before they are evicted and on
+ * {@link #shutdown()}.
+ * <p>
+ * Repository calls never run inside the cache map's locks. Concurrent misses for one user wait for
+ * a single load, each user has at most one write in flight, and a user is only removed from the
+ * cache once it is clean, so a lookup never reloads a user whose latest state is still unwritten.
+ * Evictions for the size limit run on the flusher thread, so a command never pays for writing
+ * other users. Commands keep mutating cached users during a flush; the repository writes a
+ * {@link User#snapshot()} taken under the user's own lock.
+ */
 public class UserService {
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+    private static final int MAX_CACHED_USERS = 50_000;
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final long FLUSH_INTERVAL_SECONDS = 10;
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    /**
+     * A cached user and its write-behind state
+     */
+    private static final class CachedUser {
+        final User user;
+        final AtomicBoolean dirty = new AtomicBoolean();
+        // Held while a write of this user is in flight; such users are not evicted
+        final AtomicBoolean writing = new AtomicBoolean();
+        volatile long lastAccessNanos = System.nanoTime();
+
+        CachedUser(User user) {
+            this.user = user;
+        }
+
+        void touch() {
+            lastAccessNanos = System.nanoTime();
+        }
+    }
+
     private final UserRepository userRepository;
-    // Simple in-memory cache; replace with a more robust solution if needed.
-    private final ConcurrentHashMap<String, User> cache = new ConcurrentHashMap<>();
+    private final UserActivityRepository activityRepository;
+    private final ConcurrentHashMap<String, CachedUser> cache = new ConcurrentHashMap<>();
+    // Loads in progress, so concurrent misses for one user wait for the same repository call
+    private final ConcurrentHashMap<String, CompletableFuture<CachedUser>> loading = new ConcurrentHashMap<>();
+    private final int maxCachedUsers;
+    private final EvictionPolicy evictionPolicy;
+    private final CacheStats stats = new CacheStats();
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "User-Write-Behind");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public UserService(UserRepository userRepository, UserActivityRepository activityRepository) {
+        this(userRepository, activityRepository, MAX_CACHED_USERS);
+    }
 
-    public UserService(UserRepository userRepository) {
+    UserService(UserRepository userRepository, UserActivityRepository activityRepository, int maxCachedUsers) {
         this.userRepository = userRepository;
+        this.activityRepository = activityRepository;
+        this.maxCachedUsers = maxCachedUsers;
+        this.evictionPolicy = new SegmentedLruPolicy(maxCachedUsers, Long.MAX_VALUE);
+        flusher.scheduleWithFixedDelay(this::flushAndExpire,
+                FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
     /**
      * Fetches an existing user or creates a new one if not found.
      */
     public User getOrCreateUser(String userId) {
-        return cache.computeIfAbsent(userId, id -> userRepository.findById(id)
+        CachedUser cached = cache.get(userId);
+        if (cached != null) {
+            stats.recordHit();
+            evictionPolicy.recordAccess(userId);
+        } else {
+            stats.recordMiss();
+            cached = load(userId);
+        }
+        cached.touch();
+        return cached.user;
+    }
+
+    private CachedUser load(String userId) {
+        CompletableFuture<CachedUser> mine = new CompletableFuture<>();
+        CompletableFuture<CachedUser> pending = loading.putIfAbsent(userId, mine);
+        if (pending != null) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            // Another load may have finished between the cache miss and claiming this one
+            CachedUser cached = cache.get(userId);
+            if (cached == null) {
+                CachedUser loaded = new CachedUser(loadOrCreate(userId));
+                // updateUser() may have cached an instance held across an eviction meanwhile
+                cached = cache.putIfAbsent(userId, loaded);
+                if (cached == null) {
+                    cached = loaded;
+                    evictionPolicy.recordWrite(userId, 1);
+                    scheduleEviction();
+                }
+            }
+            mine.complete(cached);
+            return cached;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(userId, mine);
+        }
+    }
+
+    private User loadOrCreate(String userId) {
+        return userRepository.findById(userId)
                 .orElseGet(() -> {
-                    User newUser = new User(id);
+                    User newUser = new User(userId);
                     User savedUser = userRepository.save(newUser);
-                    
+
                     // Track new user registration in stats service
                     if (me.hash.mediaroulette.Main.getStatsService() != null) {
                         me.hash.mediaroulette.Main.getStatsService().trackNewUser(userId);
                     }
-                    
+
                     return savedUser;
-                }));
+                });
     }
 
     /**
@@ -50,11 +178,195 @@ public class UserService {
     }
 
     /**
-     * Generic update method for a user.
+     * Generic update method for a user. Marks the user dirty; the write happens on the next flush.
      */
     public void updateUser(User user) {
-        userRepository.save(user);
-        cache.put(user.getUserId(), user);
+        String userId = user.getUserId();
+        boolean[] added = new boolean[1];
+        CachedUser cached = cache.compute(userId, (id, existing) -> {
+            // A different instance (e.g. one held across an eviction) replaces the cached one,
+            // just as its full-document write would have
+            CachedUser entry = existing != null && existing.user == user ? existing : new CachedUser(user);
+            added[0] = entry != existing;
+            entry.dirty.set(true);
+            return entry;
+        });
+        cached.touch();
+        if (added[0]) {
+            evictionPolicy.recordWrite(userId, 1);
+            scheduleEviction();
+        }
+    }
+
+    /**
+     * Write every dirty user now
+     */
+    public void flush() {
+        List<CachedUser> batch = new ArrayList<>();
+        int written = 0;
+        for (CachedUser cached : cache.values()) {
+            if (!cached.writing.compareAndSet(false, true)) {
+                continue;
+            }
+            if (cached.dirty.getAndSet(false)) {
+                batch.add(cached);
+            } else {
+                cached.writing.set(false);
+            }
+            if (batch.size() >= FLUSH_BATCH_SIZE) {
+                written += writeBatch(batch);
+                batch.clear();
+            }
+        }
+        written += writeBatch(batch);
+        if (written > 0) {
+            logger.debug("Flushed {} dirty users", written);
+        }
+    }
+
+    /**
+     * @return number of users written; on failure every user of the batch is marked dirty again
+     */
+    private int writeBatch(List<CachedUser> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<User> users = new ArrayList<>(batch.size());
+        for (CachedUser cached : batch) {
+            users.add(cached.user);
+        }
+        try {
+            userRepository.saveAll(users);
+            return users.size();
+        } catch (RuntimeException e) {
+            batch.forEach(cached -> cached.dirty.set(true));
+            logger.warn("Failed to write {} users, retrying on next flush: {}", users.size(), e.getMessage());
+            return 0;
+        } finally {
+            batch.forEach(cached -> cached.writing.set(false));
+        }
+    }
+
+    /**
+     * Write one user now if it is dirty, so reads of its activity include its latest changes
+     */
+    private void flushUser(String userId) {
+        CachedUser cached = cache.get(userId);
+        if (cached != null) {
+            writeIfDirty(cached);
+        }
+    }
+
+    private void flushAndExpire() {
+        try {
+            flush();
+            long idleCutoff = System.nanoTime() - IDLE_TIMEOUT.toNanos();
+            cache.forEach((userId, cached) -> {
+                if (cached.lastAccessNanos - idleCutoff < 0) {
+                    evict(userId, cached);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("User write-behind flush failed", e);
+        }
+    }
+
+    /**
+     * Hand evictions for the size limit to the flusher once the cache has grown past it
+     */
+    private void scheduleEviction() {
+        if (cache.size() > maxCachedUsers && evictionScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::evictOverflow);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the final flush writes everything that is left
+                evictionScheduled.set(false);
+            }
+        }
+    }
+
+    private void evictOverflow() {
+        evictionScheduled.set(false);
+        try {
+            String victim;
+            while ((victim = evictionPolicy.pollVictim()) != null) {
+                CachedUser cached = cache.get(victim);
+                if (cached != null) {
+                    evict(victim, cached);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("User cache eviction failed", e);
+        }
+    }
+
+    /**
+     * Remove a user from the cache after writing it if dirty. A user whose write fails or is still
+     * in flight stays cached until a later idle check, even if that overshoots the size limit.
+     */
+    private void evict(String userId, CachedUser expected) {
+        writeIfDirty(expected);
+        boolean[] evicted = new boolean[1];
+        // Only the clean, idle instance is removed; a change made since the write keeps it cached
+        cache.computeIfPresent(userId, (id, cached) -> {
+            if (cached != expected || cached.writing.get() || cached.dirty.get()) {
+                return cached;
+            }
+            evicted[0] = true;
+            return null;
+        });
+        if (evicted[0]) {
+            evictionPolicy.recordRemoval(userId);
+            stats.recordEviction();
+        }
+    }
+
+    /**
+     * Write one user if it is dirty and no other write of it is in flight
+     * @return whether the user was written; a failed write leaves it dirty for the next flush
+     */
+    private boolean writeIfDirty(CachedUser cached) {
+        if (!cached.writing.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            if (!cached.dirty.getAndSet(false)) {
+                return false;
+            }
+            userRepository.save(cached.user);
+            return true;
+        } catch (RuntimeException e) {
+            cached.dirty.set(true);
+            logger.warn("Failed to write user {}, retrying on next flush: {}", cached.user.getUserId(), e.getMessage());
+            return false;
+        } finally {
+            cached.writing.set(false);
+        }
+    }
+
+    int cachedUserCount() {
+        return cache.size();
+    }
+
+    public String getCacheStats() {
+        long dirty = cache.values().stream().filter(cached -> cached.dirty.get()).count();
+        return String.format("users=%d, dirty=%d (%s)", cache.size(), dirty, stats);
+    }
+
+    /**
+     * Stop the flush schedule and write every remaining dirty user
+     */
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
     }
 
     // --- Convenience Methods for Updating User Properties ---
@@ -110,6 +422,7 @@ public class UserService {
      * Get total number of users in the database
      */
     public long getTotalUsers() {
+        flush();
         return userRepository.getTotalUsers();
     }
 
@@ -117,11 +430,34 @@ public class UserService {
      * Get total images generated by all users
      */
     public long getTotalImagesGenerated() {
+        flush();
         return userRepository.getTotalImagesGenerated();
     }
 
     // --- Usage Statistics Tracking Methods ---
 
+    /**
+     * Newest-first page of a user's coin transactions
+     * @param page zero-based page index
+     */
+    public List<Transaction> getTransactions(String userId, int page, int pageSize) {
+        flushUser(userId);
+        return activityRepository.findTransactions(userId, page, pageSize);
+    }
+
+    public long countTransactions(String userId) {
+        flushUser(userId);
+        return activityRepository.countTransactions(userId);
+    }
+
+    /**
+     * A user's most used sources, commands or subreddits, highest count first
+     */
+    public Map<String, Long> getTopUsage(String userId, UsageType type, int limit) {
+        flushUser(userId);
+        return activityRepository.findTopUsage(userId, type, limit);
+    }
+
     /**
      * Track source usage for a user
      */
@@ -0,0 +1,101 @@
+package me.hash.mediaroulette.bot.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CooldownTable
+ */
+@DisplayName("CooldownTable Tests")
+class CooldownTableTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final CooldownTable table = new CooldownTable(1000, clock::get, false);
+
+    private void advance(long millis) {
+        clock.addAndGet(millis);
+        table.expire();
+    }
+
+    @Test
+    @DisplayName("Should block a command until its cooldown ends")
+    void shouldBlockUntilCooldownEnds() {
+        assertEquals(0, table.tryAcquire(42L, 0, 5000));
+        assertEquals(5000, table.tryAcquire(42L, 0, 5000));
+
+        advance(3000);
+        assertEquals(2000, table.tryAcquire(42L, 0, 5000));
+
+        advance(2000);
+        assertEquals(0, table.tryAcquire(42L, 0, 5000));
+    }
+
+    @Test
+    @DisplayName("Should track commands and users independently")
+    void shouldTrackCommandsIndependently() {
+        assertEquals(0, table.tryAcquire(1L, 0, 5000));
+        assertEquals(0, table.tryAcquire(1L, 3, 5000));
+        assertEquals(0, table.tryAcquire(2L, 0, 5000));
+
+        assertEquals(5000, table.remaining(1L, 3));
+        assertEquals(0, table.remaining(2L, 3));
+    }
+
+    @Test
+    @DisplayName("Should drop users once all their cooldowns expire")
+    void shouldExpireUsers() {
+        for (long user = 1; user <= 500; user++) {
+            table.tryAcquire(user, 0, 2000);
+        }
+        table.tryAcquire(7L, 1, 10_000);
+        assertEquals(500, table.activeUsers());
+
+        advance(2500);
+        assertEquals(1, table.activeUsers());
+
+        advance(8000);
+        assertEquals(0, table.activeUsers());
+    }
+
+    @Test
+    @DisplayName("Should expire cooldowns longer than one turn of the wheel")
+    void shouldExpireAfterSeveralRounds() {
+        table.tryAcquire(9L, 0, 200_000);
+
+        for (int i = 0; i < 199; i++) {
+            advance(1000);
+        }
+        assertEquals(1, table.activeUsers());
+
+        advance(1000);
+        assertEquals(0, table.activeUsers());
+    }
+
+    @Test
+    @DisplayName("Should expire users scheduled in ticks skipped by a late expiry run")
+    void shouldCatchUpAfterLongPause() {
+        table.tryAcquire(5L, 0, 3000);
+
+        advance(500_000);
+        assertEquals(0, table.activeUsers());
+    }
+
+    @Test
+    @DisplayName("Should clear single commands and whole users")
+    void shouldClearCooldowns() {
+        table.tryAcquire(3L, 0, 5000);
+        table.tryAcquire(3L, 1, 5000);
+
+        table.clear(3L, 0);
+        assertEquals(0, table.tryAcquire(3L, 0, 5000));
+        assertTrue(table.remaining(3L, 1) > 0);
+
+        table.clearUser(3L);
+        assertEquals(0, table.activeUsers());
+        assertEquals(0, table.tryAcquire(3L, 1, 5000));
+    }
+}
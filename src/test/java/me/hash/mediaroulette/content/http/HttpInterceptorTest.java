@@ -0,0 +1,383 @@
+package me.hash.mediaroulette.content.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HttpInterceptor Pipeline Tests")
+class HttpInterceptorTest {
+
+    private static final URI URL = URI.create("https://example.com/image.png");
+
+    private record StubResponse<T>(HttpRequest request, int statusCode, HttpHeaders headers, T body)
+            implements HttpResponse<T> {
+        @Override public Optional<HttpResponse<T>> previousResponse() { return Optional.empty(); }
+        @Override public Optional<SSLSession> sslSession() { return Optional.empty(); }
+        @Override public URI uri() { return request.uri(); }
+        @Override public HttpClient.Version version() { return HttpClient.Version.HTTP_2; }
+    }
+
+    private static HttpExchange<String> exchange(String method, boolean documentHeaders, boolean waitForSlot) {
+        HttpRequest request = HttpRequest.newBuilder(URL)
+            .method(method, HttpRequest.BodyPublishers.noBody())
+            .build();
+        return new HttpExchange<>(request, HttpResponse.BodyHandlers.ofString(), HttpClient.Redirect.NORMAL,
+                documentHeaders, waitForSlot, true);
+    }
+
+    private static HttpExchange<String> get() {
+        return exchange("GET", false, true);
+    }
+
+    private static HttpResponse<String> ok(HttpRequest request) {
+        return new StubResponse<>(request, 200, HttpHeaders.of(Map.of(), (name, value) -> true), "ok");
+    }
+
+    private static HttpResponse<String> withRetryAfter(String value) {
+        return new StubResponse<>(HttpRequest.newBuilder(URL).build(), 429,
+                HttpHeaders.of(Map.of("Retry-After", List.of(value)), (name, v) -> true), "");
+    }
+
+    /**
+     * Final stage that fails with the given errors in turn, then answers 200
+     */
+    private static final class ScriptedSend implements HttpInterceptor.Chain<String> {
+        final List<Throwable> failures;
+        final List<HttpRequest> requests = new CopyOnWriteArrayList<>();
+        final AtomicInteger calls = new AtomicInteger();
+
+        ScriptedSend(Throwable... failures) {
+            this.failures = List.of(failures);
+        }
+
+        @Override
+        public CompletableFuture<HttpResponse<String>> proceed(HttpExchange<String> exchange) {
+            requests.add(exchange.getRequest());
+            int call = calls.getAndIncrement();
+            if (call < failures.size()) {
+                return CompletableFuture.failedFuture(failures.get(call));
+            }
+            return CompletableFuture.completedFuture(ok(exchange.getRequest()));
+        }
+    }
+
+    private static Throwable failureOf(CompletableFuture<?> future) throws Exception {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+
+    private static HttpClientWrapper.HttpStatusException status(int code) {
+        return new HttpClientWrapper.HttpStatusException(code, URL);
+    }
+
+    @Nested
+    @DisplayName("RetryInterceptor tests")
+    class RetryTests {
+
+        @Test
+        @DisplayName("Should retry gateway errors up to the limit and then fail with the last error")
+        void shouldStopAfterMaxRetries() throws Exception {
+            ScriptedSend send = new ScriptedSend(status(503), status(502), status(504), status(503));
+
+            Throwable error = failureOf(new RetryInterceptor(2, 1).intercept(get(), send));
+
+            assertInstanceOf(HttpClientWrapper.HttpStatusException.class, error);
+            assertEquals(504, ((HttpClientWrapper.HttpStatusException) error).getStatusCode());
+            assertEquals(3, send.calls.get());
+        }
+
+        @Test
+        @DisplayName("Should succeed when a transient failure clears within the limit")
+        void shouldRecoverFromTransientFailure() throws Exception {
+            ScriptedSend send = new ScriptedSend(new IOException("connection reset"), status(503));
+
+            HttpResponse<String> response = new RetryInterceptor(2, 1).intercept(get(), send).get(5, TimeUnit.SECONDS);
+
+            assertEquals(200, response.statusCode());
+            assertEquals(3, send.calls.get());
+        }
+
+        @Test
+        @DisplayName("Should back off linearly between attempts")
+        void shouldBackOffLinearly() throws Exception {
+            ScriptedSend send = new ScriptedSend(status(503), status(503));
+
+            long start = System.nanoTime();
+            new RetryInterceptor(2, 60).intercept(get(), send).get(5, TimeUnit.SECONDS);
+
+            // 60 ms before the first retry, 120 ms before the second
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(180));
+        }
+
+        @Test
+        @DisplayName("Should not retry client errors, timeouts, oversized bodies or rate limits")
+        void shouldNotRetryPermanentFailures() throws Exception {
+            List<Throwable> permanent = List.of(
+                status(404),
+                new HttpTimeoutException("timed out"),
+                new HttpClientWrapper.BodyTooLargeException(10),
+                new HttpClientWrapper.RateLimitException("slow down"));
+
+            for (Throwable failure : permanent) {
+                ScriptedSend send = new ScriptedSend(failure);
+                assertSame(failure, failureOf(new RetryInterceptor(2, 1).intercept(get(), send)));
+                assertEquals(1, send.calls.get(), failure.getClass().getSimpleName());
+            }
+        }
+
+        @Test
+        @DisplayName("Should not retry non-idempotent requests")
+        void shouldNotRetryPost() throws Exception {
+            ScriptedSend send = new ScriptedSend(status(503));
+
+            failureOf(new RetryInterceptor(2, 1).intercept(exchange("POST", false, true), send));
+
+            assertEquals(1, send.calls.get());
+        }
+    }
+
+    @Nested
+    @DisplayName("RateLimitInterceptor tests")
+    class RateLimitTests {
+
+        @Test
+        @DisplayName("Should fail fast without calling the next stage when no slot is free")
+        void shouldFailFastWithoutSlot() throws Exception {
+            RequestScheduler scheduler = new RequestScheduler(0.001, 1);
+            RateLimitInterceptor interceptor = new RateLimitInterceptor(scheduler);
+            ScriptedSend send = new ScriptedSend();
+
+            interceptor.intercept(exchange("GET", false, false), send).get(5, TimeUnit.SECONDS);
+            Throwable error = failureOf(interceptor.intercept(exchange("GET", false, false), send));
+
+            assertInstanceOf(HttpClientWrapper.RateLimitException.class, error);
+            assertEquals(1, send.calls.get());
+        }
+
+        @Test
+        @DisplayName("Should pause the host for the server's Retry-After on a 429")
+        void shouldPauseForRetryAfter() throws Exception {
+            RequestScheduler scheduler = new RequestScheduler(100, 5);
+            ScriptedSend send = new ScriptedSend(
+                new HttpClientWrapper.RateLimitException("slow down", Duration.ofMillis(300)));
+
+            failureOf(new RateLimitInterceptor(scheduler).intercept(get(), send));
+
+            assertFalse(scheduler.tryAcquire("example.com"));
+            long start = System.nanoTime();
+            scheduler.acquire("example.com").get(5, TimeUnit.SECONDS);
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        }
+
+        @Test
+        @DisplayName("Should pause the host for a default delay when a 429 has no Retry-After")
+        void shouldPauseWithoutRetryAfter() throws Exception {
+            RequestScheduler scheduler = new RequestScheduler(100, 5);
+            ScriptedSend send = new ScriptedSend(new HttpClientWrapper.RateLimitException("slow down"));
+
+            failureOf(new RateLimitInterceptor(scheduler).intercept(get(), send));
+
+            assertFalse(scheduler.tryAcquire("example.com"));
+            assertTrue(scheduler.tryAcquire("other.example"));
+        }
+
+        @Test
+        @DisplayName("Should not pause the host on other failures")
+        void shouldNotPauseOnOtherFailures() throws Exception {
+            RequestScheduler scheduler = new RequestScheduler(100, 5);
+
+            failureOf(new RateLimitInterceptor(scheduler).intercept(get(), new ScriptedSend(status(500))));
+
+            assertTrue(scheduler.tryAcquire("example.com"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Retry-After parsing tests")
+    class RetryAfterTests {
+
+        @Test
+        @DisplayName("Should parse delta seconds")
+        void shouldParseSeconds() {
+            assertEquals(Duration.ofSeconds(120), HttpClientWrapper.parseRetryAfter(withRetryAfter(" 120 ")));
+            assertEquals(Duration.ZERO, HttpClientWrapper.parseRetryAfter(withRetryAfter("-5")));
+        }
+
+        @Test
+        @DisplayName("Should parse an HTTP date relative to now")
+        void shouldParseHttpDate() {
+            String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusSeconds(60));
+
+            Duration delay = HttpClientWrapper.parseRetryAfter(withRetryAfter(date));
+
+            assertNotNull(delay);
+            assertTrue(delay.compareTo(Duration.ofSeconds(55)) >= 0 && delay.compareTo(Duration.ofSeconds(61)) <= 0);
+        }
+
+        @Test
+        @DisplayName("Should clamp a date in the past to zero")
+        void shouldClampPastDate() {
+            String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().minusMinutes(5));
+
+            assertEquals(Duration.ZERO, HttpClientWrapper.parseRetryAfter(withRetryAfter(date)));
+        }
+
+        @Test
+        @DisplayName("Should ignore missing or malformed values")
+        void shouldIgnoreMalformedValues() {
+            assertNull(HttpClientWrapper.parseRetryAfter(withRetryAfter("soon")));
+            assertNull(HttpClientWrapper.parseRetryAfter(withRetryAfter(" ")));
+            assertNull(HttpClientWrapper.parseRetryAfter(ok(HttpRequest.newBuilder(URL).build())));
+        }
+    }
+
+    @Nested
+    @DisplayName("HeaderInterceptor tests")
+    class HeaderTests {
+
+        @Test
+        @DisplayName("Should add a User-Agent and only add Accept headers for documents")
+        void shouldAddHeaders() throws Exception {
+            ScriptedSend send = new ScriptedSend();
+            HeaderInterceptor interceptor = new HeaderInterceptor();
+
+            interceptor.intercept(exchange("GET", false, true), send).get(5, TimeUnit.SECONDS);
+            interceptor.intercept(exchange("GET", true, true), send).get(5, TimeUnit.SECONDS);
+
+            HttpRequest media = send.requests.get(0);
+            HttpRequest document = send.requests.get(1);
+            assertEquals(Optional.of(HeaderInterceptor.USER_AGENT), media.headers().firstValue("User-Agent"));
+            assertTrue(media.headers().firstValue("Accept").isEmpty());
+            assertTrue(document.headers().firstValue("Accept").isPresent());
+            assertTrue(document.headers().firstValue("Accept-Language").isPresent());
+        }
+
+        @Test
+        @DisplayName("Should keep the caller's method, headers and User-Agent")
+        void shouldKeepCallerHeaders() throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URL)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .header("User-Agent", "custom")
+                .header("X-Token", "secret")
+                .build();
+            ScriptedSend send = new ScriptedSend();
+
+            new HeaderInterceptor().intercept(get().withRequest(request), send).get(5, TimeUnit.SECONDS);
+
+            HttpRequest sent = send.requests.get(0);
+            assertEquals("HEAD", sent.method());
+            assertEquals(List.of("custom"), sent.headers().allValues("User-Agent"));
+            assertEquals(Optional.of("secret"), sent.headers().firstValue("X-Token"));
+        }
+    }
+
+    @Nested
+    @DisplayName("MetricsInterceptor tests")
+    class MetricsTests {
+
+        @Test
+        @DisplayName("Should record successes and failures per host and settle in-flight")
+        void shouldRecordAttempts() throws Exception {
+            ConcurrentHashMap<String, HostStats> stats = new ConcurrentHashMap<>();
+            MetricsInterceptor interceptor = new MetricsInterceptor(stats);
+            ScriptedSend send = new ScriptedSend(status(500));
+
+            failureOf(interceptor.intercept(get(), send));
+            interceptor.intercept(get(), send).get(5, TimeUnit.SECONDS);
+
+            HostStats host = stats.get("example.com");
+            assertEquals(2, host.getRequests());
+            assertEquals(1, host.getFailures());
+            assertEquals(1, host.getHttp2Responses());
+            assertEquals(0, host.getInFlight());
+            assertEquals(1, host.getPeakInFlight());
+        }
+    }
+
+    @Nested
+    @DisplayName("Pipeline ordering tests")
+    class PipelineTests {
+
+        @Test
+        @DisplayName("Should run stages outermost first and unwind in reverse")
+        void shouldRunStagesInOrder() throws Exception {
+            List<String> events = new CopyOnWriteArrayList<>();
+            List<HttpInterceptor> stages = List.of(recording("outer", events), recording("inner", events));
+
+            HttpClientWrapper.proceed(stages, get(), 0, exchange -> {
+                events.add("send");
+                return CompletableFuture.completedFuture(ok(exchange.getRequest()));
+            }).get(5, TimeUnit.SECONDS);
+
+            assertEquals(List.of("outer>", "inner>", "send", "<inner", "<outer"), events);
+        }
+
+        @Test
+        @DisplayName("Should send headers, take a slot and record metrics on every retry attempt")
+        void shouldApplyInnerStagesPerAttempt() throws Exception {
+            RequestScheduler scheduler = new RequestScheduler(100, 10);
+            ConcurrentHashMap<String, HostStats> stats = new ConcurrentHashMap<>();
+            ScriptedSend send = new ScriptedSend(status(503), status(503));
+
+            HttpResponse<String> response = HttpClientWrapper.proceed(
+                HttpClientWrapper.defaultInterceptors(scheduler, stats), get(), 0, send).get(5, TimeUnit.SECONDS);
+
+            assertEquals(200, response.statusCode());
+            assertEquals(3, send.calls.get());
+            for (HttpRequest attempt : send.requests) {
+                assertEquals(Optional.of(HeaderInterceptor.USER_AGENT), attempt.headers().firstValue("User-Agent"));
+            }
+            assertEquals(3, stats.get("example.com").getRequests());
+            assertEquals(2, stats.get("example.com").getFailures());
+        }
+
+        @Test
+        @DisplayName("Should not retry a 429 and leave the host paused")
+        void shouldNotRetryRateLimit() throws Exception {
+            RequestScheduler scheduler = new RequestScheduler(100, 10);
+            ConcurrentHashMap<String, HostStats> stats = new ConcurrentHashMap<>();
+            ScriptedSend send = new ScriptedSend(
+                new HttpClientWrapper.RateLimitException("slow down", Duration.ofSeconds(5)));
+
+            Throwable error = failureOf(HttpClientWrapper.proceed(
+                HttpClientWrapper.defaultInterceptors(scheduler, stats), get(), 0, send));
+
+            assertInstanceOf(HttpClientWrapper.RateLimitException.class, error);
+            assertEquals(1, send.calls.get());
+            assertFalse(scheduler.tryAcquire("example.com"));
+        }
+
+        private HttpInterceptor recording(String name, List<String> events) {
+            return new HttpInterceptor() {
+                @Override
+                public <T> CompletableFuture<HttpResponse<T>> intercept(HttpExchange<T> exchange, Chain<T> chain) {
+                    events.add(name + ">");
+                    return chain.proceed(exchange).whenComplete((response, error) -> events.add("<" + name));
+                }
+            };
+        }
+    }
+}
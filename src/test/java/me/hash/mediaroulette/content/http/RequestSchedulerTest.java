@@ -0,0 +1,105 @@
+package me.hash.mediaroulette.content.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RequestScheduler Tests")
+class RequestSchedulerTest {
+
+    @Test
+    @DisplayName("Should grant the burst immediately and pace the rest")
+    void shouldGrantBurstThenPace() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(20, 2);
+
+        assertTrue(scheduler.acquire("example.com").isDone());
+        assertTrue(scheduler.acquire("example.com").isDone());
+
+        CompletableFuture<Void> third = scheduler.acquire("example.com");
+        assertFalse(third.isDone());
+        third.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Should serve waiters for a host in FIFO order")
+    void shouldServeWaitersInOrder() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(50, 1);
+        List<Integer> order = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            futures.add(scheduler.acquire("example.com").thenRun(() -> {
+                synchronized (order) {
+                    order.add(n);
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(2, TimeUnit.SECONDS);
+
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    @DisplayName("Should keep hosts independent")
+    void shouldKeepHostsIndependent() {
+        RequestScheduler scheduler = new RequestScheduler(1, 1);
+
+        assertTrue(scheduler.tryAcquire("a.example"));
+        assertFalse(scheduler.tryAcquire("a.example"));
+        assertTrue(scheduler.tryAcquire("b.example"));
+    }
+
+    @Test
+    @DisplayName("Should hold requests while a host is paused")
+    void shouldRespectPause() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(100, 5);
+        scheduler.pause("example.com", Duration.ofMillis(200));
+
+        assertFalse(scheduler.tryAcquire("example.com"));
+        long start = System.nanoTime();
+        scheduler.acquire("example.com").get(2, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    @Test
+    @DisplayName("Should reject requests once the host queue is full")
+    void shouldRejectWhenQueueFull() {
+        RequestScheduler scheduler = new RequestScheduler(0.001, 1);
+        scheduler.acquire("example.com");
+
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 300; i++) {
+            last = scheduler.acquire("example.com");
+        }
+
+        ExecutionException e = assertThrows(ExecutionException.class, last::get);
+        assertInstanceOf(HttpClientWrapper.RateLimitException.class, e.getCause());
+    }
+
+    @Test
+    @DisplayName("Should drop buckets that sat idle at full tokens on a later acquire")
+    void shouldExpireIdleBuckets() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(20, 2, Duration.ofMillis(50));
+        scheduler.acquire("a.example").get(1, TimeUnit.SECONDS);
+        scheduler.pause("paused.example", Duration.ofSeconds(30));
+        assertEquals(2, scheduler.trackedHosts());
+
+        Thread.sleep(120);
+        scheduler.acquire("b.example").get(1, TimeUnit.SECONDS);
+
+        assertEquals(2, scheduler.trackedHosts(), "Only the paused host is kept next to the new one");
+        assertFalse(scheduler.tryAcquire("paused.example"));
+        assertTrue(scheduler.tryAcquire("a.example"));
+        assertTrue(scheduler.tryAcquire("a.example"));
+        assertFalse(scheduler.tryAcquire("a.example"), "A recreated bucket keeps the configured burst");
+    }
+}
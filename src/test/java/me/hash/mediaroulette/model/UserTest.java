@@ -0,0 +1,81 @@
+package me.hash.mediaroulette.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the snapshots that User's writers encode
+ */
+@DisplayName("User Tests")
+class UserTest {
+
+    @Test
+    @DisplayName("Should copy the stored fields into a detached snapshot")
+    void shouldSnapshotStoredFields() {
+        User user = new User("42");
+        user.addCoins(50, Transaction.TransactionType.DAILY_BONUS, "Daily bonus");
+        user.addFavorite("Cat", "A cat", "https://example.com/cat.png", "image", 0xFF0000);
+        user.addQuest(new Quest(Quest.QuestType.GENERATE_IMAGES, Quest.QuestDifficulty.EASY, "Roll", "Roll images", "🎲", 5));
+        user.addInventoryItem(new InventoryItem("gem", "Gem", "Shiny", "collectible", "rare"));
+        user.setChances(new ImageOptions("reddit", true, 40.0));
+        user.addCustomQuery("google", "cats");
+
+        User snapshot = user.snapshot();
+
+        assertEquals(150, snapshot.getCoins());
+        assertEquals("Cat", snapshot.getFavorites().get(0).getTitle());
+        assertEquals(0xFF0000, snapshot.getFavorites().get(0).getAccentColor());
+        assertEquals(user.getDailyQuests().get(0).getQuestId(), snapshot.getDailyQuests().get(0).getQuestId());
+        assertEquals("gem", snapshot.getInventory().get(0).getId());
+        assertEquals(40.0, snapshot.getImageOptions("reddit").getChance());
+        assertEquals(List.of("cats"), snapshot.getCustomQueries("google"));
+        assertTrue(snapshot.drainUnsavedTransactions().isEmpty(), "Unsaved activity stays with the original");
+
+        user.updateQuestProgress(Quest.QuestType.GENERATE_IMAGES, 3);
+        user.getInventory().get(0).addQuantity(4);
+        user.removeFavorite(0);
+        user.addCustomQuery("google", "dogs");
+
+        assertEquals(0, snapshot.getDailyQuests().get(0).getCurrentProgress());
+        assertEquals(1, snapshot.getInventory().get(0).getQuantity());
+        assertEquals(1, snapshot.getFavorites().size());
+        assertEquals(List.of("cats"), snapshot.getCustomQueries("google"));
+    }
+
+    @Test
+    @DisplayName("Should take snapshots while another thread keeps mutating the user")
+    void shouldSnapshotDuringMutation() throws Exception {
+        User user = new User("42");
+        ExecutorService mutator = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> mutations = mutator.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    user.addCustomSubreddit("sub" + (i % 80));
+                    user.addInventoryItem(new InventoryItem("item" + (i % 150), "Item", "", "material", "common"));
+                    user.addFavorite("Fav", "", "img", "image", null);
+                    user.removeFavorite(0);
+                    if (i % 100 == 0) {
+                        user.clearInventory();
+                    }
+                }
+            });
+            while (!mutations.isDone()) {
+                User snapshot = user.snapshot();
+                assertTrue(snapshot.getCustomSubreddits().size() <= User.MAX_CUSTOM_SUBREDDITS);
+                assertTrue(snapshot.getInventory().size() <= User.MAX_INVENTORY_SIZE);
+            }
+            mutations.get();
+        } finally {
+            mutator.shutdownNow();
+            assertTrue(mutator.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package me.hash.mediaroulette.repository;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Sorts;
+import me.hash.mediaroulette.model.Transaction;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the paginated transaction reads and per-user trimming of MongoUserActivityRepository
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("MongoUserActivityRepository Tests")
+class MongoUserActivityRepositoryTest {
+
+    @Mock
+    private MongoCollection<Document> transactionCollection;
+
+    @Mock
+    private MongoCollection<Document> usageCollection;
+
+    @Mock
+    private FindIterable<Document> found;
+
+    @Mock
+    private MongoCursor<Document> cursor;
+
+    @Captor
+    private ArgumentCaptor<Bson> bsonCaptor;
+
+    @Captor
+    private ArgumentCaptor<List<Document>> documentsCaptor;
+
+    private MongoUserActivityRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionCollection.find(any(Bson.class))).thenReturn(found);
+        when(found.sort(any())).thenReturn(found);
+        when(found.skip(anyInt())).thenReturn(found);
+        when(found.limit(anyInt())).thenReturn(found);
+        when(found.projection(any())).thenReturn(found);
+        when(found.iterator()).thenReturn(cursor);
+        returnDocuments(List.of());
+        repository = new MongoUserActivityRepository(transactionCollection, usageCollection);
+    }
+
+    private void returnDocuments(List<Document> documents) {
+        Iterator<Document> iterator = documents.iterator();
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+    }
+
+    private List<Document> storedDocuments(List<Transaction> transactions) {
+        repository.insertTransactions(transactions);
+        verify(transactionCollection).insertMany(documentsCaptor.capture(), any(InsertManyOptions.class));
+        return documentsCaptor.getValue();
+    }
+
+    @Test
+    @DisplayName("Should read one newest-first page of the user's transactions")
+    void shouldReadRequestedPage() {
+        repository.findTransactions("42", 2, 10);
+
+        verify(transactionCollection).find(bsonCaptor.capture());
+        assertEquals(Filters.eq("userId", "42").toBsonDocument(), bsonCaptor.getValue().toBsonDocument());
+        verify(found).sort(bsonCaptor.capture());
+        assertEquals(Sorts.descending("timestamp").toBsonDocument(), bsonCaptor.getValue().toBsonDocument());
+        verify(found).skip(20);
+        verify(found).limit(10);
+    }
+
+    @Test
+    @DisplayName("Should treat a negative page as the first page")
+    void shouldClampNegativePage() {
+        repository.findTransactions("42", -3, 10);
+
+        verify(found).skip(0);
+        verify(found).limit(10);
+    }
+
+    @Test
+    @DisplayName("Should return an empty page past the end of the retained log")
+    void shouldReturnEmptyPage() {
+        assertTrue(repository.findTransactions("42", 5, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should map stored documents back to transactions in cursor order")
+    void shouldMapDocumentsBack() {
+        Transaction newer = new Transaction("42", Transaction.TransactionType.SHOP_PURCHASE, -50, 200, "Bought a theme");
+        newer.setAdminId("7");
+        newer.setFlagged(true);
+        Transaction older = new Transaction("42", Transaction.TransactionType.DAILY_BONUS, 100, 100, "Daily bonus");
+        returnDocuments(storedDocuments(List.of(newer, older)));
+
+        List<Transaction> page = repository.findTransactions("42", 0, 10);
+
+        assertEquals(2, page.size());
+        Transaction first = page.get(0);
+        assertEquals(newer.getTransactionId(), first.getTransactionId());
+        assertEquals("42", first.getUserId());
+        assertEquals(Transaction.TransactionType.SHOP_PURCHASE, first.getType());
+        assertEquals(-50, first.getAmount());
+        assertEquals(200, first.getBalanceBefore());
+        assertEquals(150, first.getBalanceAfter());
+        assertEquals("Bought a theme", first.getDescription());
+        assertEquals("7", first.getAdminId());
+        assertTrue(first.isFlagged());
+        assertEquals(newer.getTimestamp().toEpochMilli(), first.getTimestamp().toEpochMilli());
+        assertEquals(older.getTransactionId(), page.get(1).getTransactionId());
+        assertFalse(page.get(1).isFlagged());
+    }
+
+    @Test
+    @DisplayName("Should trim each user in a batch to their newest transactions")
+    void shouldTrimEachUser() {
+        repository = new MongoUserActivityRepository(transactionCollection, usageCollection, 2);
+        Date cutoff = new Date(1_000_000);
+        when(found.first()).thenReturn(new Document("_id", "TXN_old").append("timestamp", cutoff));
+
+        repository.insertTransactions(List.of(
+                new Transaction("1", Transaction.TransactionType.DAILY_BONUS, 10, 0, "a"),
+                new Transaction("1", Transaction.TransactionType.DAILY_BONUS, 10, 10, "b"),
+                new Transaction("2", Transaction.TransactionType.DAILY_BONUS, 10, 0, "c")));
+
+        verify(found, times(2)).skip(2);
+        verify(found, times(2)).sort(bsonCaptor.capture());
+        assertEquals(Sorts.descending("timestamp", "_id").toBsonDocument(), bsonCaptor.getValue().toBsonDocument());
+        verify(transactionCollection, times(2)).deleteMany(bsonCaptor.capture());
+        Bson expected = Filters.and(
+                Filters.eq("userId", "1"),
+                Filters.or(
+                        Filters.lt("timestamp", cutoff),
+                        Filters.and(Filters.eq("timestamp", cutoff), Filters.lte("_id", "TXN_old"))));
+        assertEquals(expected.toBsonDocument(), bsonCaptor.getAllValues().get(2).toBsonDocument());
+    }
+
+    @Test
+    @DisplayName("Should delete nothing while a user is within the limit")
+    void shouldNotTrimWithinLimit() {
+        repository.insertTransactions(List.of(
+                new Transaction("1", Transaction.TransactionType.DAILY_BONUS, 10, 0, "a")));
+
+        verify(found).skip(100);
+        verify(transactionCollection, never()).deleteMany(any(Bson.class));
+    }
+
+    @Test
+    @DisplayName("Should count only the user's retained transactions")
+    void shouldCountUserTransactions() {
+        when(transactionCollection.countDocuments(any(Bson.class))).thenReturn(37L);
+
+        assertEquals(37, repository.countTransactions("42"));
+
+        verify(transactionCollection).countDocuments(bsonCaptor.capture());
+        assertEquals(Filters.eq("userId", "42").toBsonDocument(), bsonCaptor.getValue().toBsonDocument());
+    }
+}
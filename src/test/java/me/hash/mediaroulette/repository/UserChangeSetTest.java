@@ -0,0 +1,109 @@
+package me.hash.mediaroulette.repository;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UserChangeSet
+ */
+@DisplayName("UserChangeSet Tests")
+class UserChangeSetTest {
+
+    private static Document favorite(int id) {
+        return new Document("id", id).append("title", "Favorite " + id);
+    }
+
+    private static Document user() {
+        return new Document("_id", "123")
+                .append("imagesGenerated", 5L)
+                .append("locale", "en_US")
+                .append("favorites", new ArrayList<>(List.of(favorite(1), favorite(2), favorite(3))))
+                .append("customSubreddits", new ArrayList<>(List.of("pics", "aww")))
+                .append("images", new Document("reddit", new Document("enabled", true)));
+    }
+
+    private static UserChangeSet.Baseline baseline() {
+        Document stored = user();
+        return UserChangeSet.capture(stored, stored.keySet());
+    }
+
+    private static void assertUpdate(String expectedJson, Document after) {
+        UserChangeSet changes = UserChangeSet.between(baseline(), after);
+        assertFalse(changes.isEmpty());
+        assertEquals(BsonDocument.parse(expectedJson), changes.toUpdate().toBsonDocument());
+    }
+
+    @Test
+    @DisplayName("Should produce no update for an unchanged user")
+    void shouldProduceNothingWhenUnchanged() {
+        assertTrue(UserChangeSet.between(baseline(), user()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should increment counters by their delta")
+    void shouldIncrementCounters() {
+        Document after = user();
+        after.put("imagesGenerated", 7L);
+
+        assertUpdate("{$inc: {imagesGenerated: {$numberLong: '2'}}}", after);
+    }
+
+    @Test
+    @DisplayName("Should push appended elements and pull removed ones by id")
+    void shouldPushAndPull() {
+        Document appended = user();
+        appended.getList("favorites", Document.class).add(favorite(4));
+        assertUpdate("{$push: {favorites: {$each: [{id: 4, title: 'Favorite 4'}]}}}", appended);
+
+        Document removed = user();
+        removed.getList("favorites", Document.class).remove(1);
+        assertUpdate("{$pull: {favorites: {id: {$in: [2]}}}}", removed);
+    }
+
+    @Test
+    @DisplayName("Should pull removed strings by value and set changed sub-documents")
+    void shouldPullValuesAndSetSubDocuments() {
+        Document removed = user();
+        removed.getList("customSubreddits", String.class).remove("pics");
+        assertUpdate("{$pullAll: {customSubreddits: ['pics']}}", removed);
+
+        Document changed = user();
+        changed.get("images", Document.class).get("reddit", Document.class).put("enabled", false);
+        assertUpdate("{$set: {images: {reddit: {enabled: false}}}}", changed);
+    }
+
+    @Test
+    @DisplayName("Should set changed and unknown fields and unset removed ones")
+    void shouldSetAndUnset() {
+        Document after = user();
+        after.put("locale", "de_DE");
+        after.remove("images");
+        after.getList("favorites", Document.class).set(0, favorite(9));
+
+        assertUpdate("{$set: {locale: 'de_DE', favorites: [{id: 9, title: 'Favorite 9'}, {id: 2, title: 'Favorite 2'},"
+                + " {id: 3, title: 'Favorite 3'}]}, $unset: {images: ''}}", after);
+
+        Document stored = user();
+        UserChangeSet partial = UserChangeSet.between(UserChangeSet.capture(stored, Set.of("_id", "locale")), user());
+        assertEquals(4, partial.size());
+    }
+
+    @Test
+    @DisplayName("Should set every field but the id for a user without a baseline")
+    void shouldSetAllFields() {
+        Document encoded = new Document("_id", "123")
+                .append("locale", "en_US")
+                .append("customSubreddits", List.of("pics"));
+
+        assertEquals(BsonDocument.parse("{$set: {locale: 'en_US', customSubreddits: ['pics']}}"),
+                UserChangeSet.setAll(encoded).toBsonDocument());
+    }
+}
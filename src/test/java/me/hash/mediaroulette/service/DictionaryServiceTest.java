@@ -0,0 +1,121 @@
+package me.hash.mediaroulette.service;
+
+import me.hash.mediaroulette.model.Dictionary;
+import me.hash.mediaroulette.model.DictionaryAssignment;
+import me.hash.mediaroulette.repository.DictionaryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DictionaryService's word cache and buffered usage counts
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("DictionaryService Tests")
+class DictionaryServiceTest {
+
+    @Mock
+    private DictionaryRepository repository;
+
+    private DictionaryService service;
+    private Dictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        dictionary = new Dictionary("Animals", "", "owner");
+        dictionary.setWords(List.of("cat"));
+        when(repository.findAssignment("user", "reddit"))
+                .thenReturn(Optional.of(new DictionaryAssignment("user", "reddit", dictionary.getId())));
+        when(repository.findById(dictionary.getId())).thenReturn(Optional.of(dictionary));
+        when(repository.save(any(Dictionary.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should serve repeated lookups from the cache until the dictionary is edited")
+    void shouldCacheWordsUntilEdited() {
+        service = new DictionaryService(repository, Duration.ofHours(1));
+        assertEquals("cat", service.getRandomWordForSource("user", "reddit"));
+        assertEquals("cat", service.getRandomWordForSource("user", "reddit"));
+        verify(repository, times(1)).findById(dictionary.getId());
+        verify(repository, times(1)).findAssignment("user", "reddit");
+
+        dictionary.setWords(List.of("dog"));
+        service.updateDictionary(dictionary);
+        assertEquals("dog", service.getRandomWordForSource("user", "reddit"));
+        verify(repository, times(2)).findById(dictionary.getId());
+    }
+
+    @Test
+    @DisplayName("Should write buffered usage as one bulk increment")
+    void shouldBatchUsage() {
+        service = new DictionaryService(repository, Duration.ofHours(1));
+        for (int i = 0; i < 3; i++) {
+            service.getRandomWordForSource("user", "reddit");
+        }
+        verify(repository, never()).incrementDictionaryUsage(anyMap());
+
+        service.flushUsage();
+        verify(repository).incrementDictionaryUsage(Map.of(dictionary.getId(), 3L));
+        verify(repository, never()).incrementDictionaryUsage(anyString());
+
+        service.flushUsage();
+        verify(repository, times(1)).incrementDictionaryUsage(anyMap());
+    }
+
+    @Test
+    @DisplayName("Should flush usage on its schedule")
+    void shouldFlushOnSchedule() {
+        service = new DictionaryService(repository, Duration.ofMillis(50));
+        service.getRandomWordForSource("user", "reddit");
+
+        verify(repository, timeout(2000)).incrementDictionaryUsage(Map.of(dictionary.getId(), 1L));
+    }
+
+    @Test
+    @DisplayName("Should keep counts that failed to write for the next flush")
+    void shouldRetryFailedUsageFlush() {
+        service = new DictionaryService(repository, Duration.ofHours(1));
+        doThrow(new IllegalStateException("database unavailable"))
+                .doNothing()
+                .when(repository).incrementDictionaryUsage(anyMap());
+
+        service.getRandomWordForSource("user", "reddit");
+        service.flushUsage();
+        service.getRandomWordForSource("user", "reddit");
+        service.flushUsage();
+
+        verify(repository).incrementDictionaryUsage(Map.of(dictionary.getId(), 2L));
+    }
+
+    @Test
+    @DisplayName("Should write remaining usage on shutdown")
+    void shouldFlushUsageOnShutdown() {
+        DictionaryService stopping = new DictionaryService(repository, Duration.ofHours(1));
+        stopping.getRandomWordForSource("user", "reddit");
+
+        stopping.shutdown();
+        verify(repository).incrementDictionaryUsage(Map.of(dictionary.getId(), 1L));
+    }
+}
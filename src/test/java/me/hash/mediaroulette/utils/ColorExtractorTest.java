@@ -1,17 +1,37 @@
 package me.hash.mediaroulette.utils;
 
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import javax.imageio.ImageIO;
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,6 +41,19 @@ import static org.junit.jupiter.api.Assertions.*;
 @DisplayName("ColorExtractor Tests")
 class ColorExtractorTest {
 
+    @TempDir
+    Path cacheDir;
+
+    @BeforeEach
+    void useTempCache() {
+        ColorExtractor.configureCache(cacheDir, ColorExtractor.FALLBACK_TTL);
+    }
+
+    @AfterEach
+    void restoreCache() {
+        ColorExtractor.configureCache(PersistentCache.DEFAULT_DIRECTORY, ColorExtractor.FALLBACK_TTL);
+    }
+
     @Nested
     @DisplayName("extractDominantColor tests")
     class ExtractDominantColorTests {
@@ -335,4 +368,173 @@ class ColorExtractorTest {
             assertEquals(Color.CYAN, result, "Should return CYAN for non-existent URLs");
         }
     }
+
+    @Nested
+    @DisplayName("Single-flight and caching tests")
+    class SingleFlightTests {
+
+        private HttpServer server;
+        private ExecutorService handlers;
+        private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+        private volatile CountDownLatch release = new CountDownLatch(0);
+        private volatile boolean broken;
+
+        @BeforeEach
+        void startServer() throws Exception {
+            byte[] png = solidPng(new Color(200, 40, 40));
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", exchange -> {
+                hits.computeIfAbsent(exchange.getRequestURI().getPath(), k -> new AtomicInteger()).incrementAndGet();
+                if (broken) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(200, png.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(png);
+                }
+            });
+            handlers = Executors.newCachedThreadPool();
+            server.setExecutor(handlers);
+            server.start();
+        }
+
+        @AfterEach
+        void stopServer() {
+            release.countDown();
+            server.stop(0);
+            handlers.shutdownNow();
+        }
+
+        private String url(String path) {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+        }
+
+        private static byte[] solidPng(Color color) throws Exception {
+            BufferedImage image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < 32; y++) {
+                for (int x = 0; x < 32; x++) {
+                    image.setRGB(x, y, color.getRGB());
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+
+        @Test
+        @DisplayName("Should extract each repeated image once")
+        void shouldCoalesceRepeatedImages() throws Exception {
+            release = new CountDownLatch(1);
+            // A favorites page showing three images five times each
+            List<CompletableFuture<Color>> futures = new ArrayList<>();
+            for (int round = 0; round < 5; round++) {
+                for (int image = 0; image < 3; image++) {
+                    futures.add(ColorExtractor.extractDominantColor(url("/fav" + image + ".png")));
+                }
+            }
+            release.countDown();
+
+            for (CompletableFuture<Color> future : futures) {
+                Color color = future.get(10, TimeUnit.SECONDS);
+                assertNotEquals(ColorExtractor.DEFAULT_COLOR, color);
+            }
+            assertEquals(3, hits.size());
+            hits.values().forEach(count -> assertEquals(1, count.get()));
+
+            // Served from the cache afterwards
+            ColorExtractor.extractDominantColor(url("/fav0.png")).get(5, TimeUnit.SECONDS);
+            assertEquals(1, hits.get("/fav0.png").get());
+        }
+
+        @Test
+        @DisplayName("Should serve a failed URL's fallback from the cache and retry it once that expires")
+        void shouldRetryFailedUrlAfterExpiry() throws Exception {
+            ColorExtractor.configureCache(cacheDir, Duration.ofMillis(500));
+            broken = true;
+            Color failed = ColorExtractor.extractDominantColor(url("/flaky.png")).get(30, TimeUnit.SECONDS);
+            assertEquals(ColorExtractor.DEFAULT_COLOR, failed);
+
+            broken = false;
+            int attempts = hits.get("/flaky.png").get();
+            Color cached = ColorExtractor.extractDominantColor(url("/flaky.png")).get(5, TimeUnit.SECONDS);
+            assertEquals(ColorExtractor.DEFAULT_COLOR, cached);
+            assertEquals(attempts, hits.get("/flaky.png").get());
+
+            Thread.sleep(600);
+            Color retried = ColorExtractor.extractDominantColor(url("/flaky.png")).get(10, TimeUnit.SECONDS);
+            assertNotEquals(ColorExtractor.DEFAULT_COLOR, retried);
+            assertEquals(attempts + 1, hits.get("/flaky.png").get());
+        }
+
+        @Test
+        @DisplayName("Should keep extracted colors after the fallback TTL has passed")
+        void shouldKeepExtractedColors() throws Exception {
+            ColorExtractor.configureCache(cacheDir, Duration.ofMillis(50));
+            ColorExtractor.extractDominantColor(url("/kept.png")).get(10, TimeUnit.SECONDS);
+
+            Thread.sleep(150);
+            ColorExtractor.extractDominantColor(url("/kept.png")).get(5, TimeUnit.SECONDS);
+            assertEquals(1, hits.get("/kept.png").get());
+        }
+
+        @Test
+        @DisplayName("Should persist colors in the configured directory and reload them")
+        void shouldPersistToConfiguredDirectory() throws Exception {
+            Color extracted = ColorExtractor.extractDominantColor(url("/saved.png")).get(10, TimeUnit.SECONDS);
+
+            // Closes the cache and reopens it from disk on the next lookup
+            ColorExtractor.configureCache(cacheDir, ColorExtractor.FALLBACK_TTL);
+            assertTrue(Files.exists(cacheDir.resolve("dominant_colors.json")));
+
+            assertEquals(extracted, ColorExtractor.extractDominantColor(url("/saved.png")).get(5, TimeUnit.SECONDS));
+            assertEquals(1, hits.get("/saved.png").get());
+        }
+
+        @Test
+        @DisplayName("Should return the default color without caching it when the decode pool is full")
+        void shouldNotCacheRejectedDecodes() throws Exception {
+            CountDownLatch blocker = new CountDownLatch(1);
+            CountDownLatch running = new CountDownLatch(ColorExtractor.DECODE_THREADS);
+            try {
+                for (int i = 0; i < ColorExtractor.DECODE_THREADS; i++) {
+                    ColorExtractor.decodeExecutor.execute(() -> {
+                        running.countDown();
+                        awaitQuietly(blocker);
+                    });
+                }
+                assertTrue(running.await(5, TimeUnit.SECONDS));
+                for (int i = 0; i < ColorExtractor.DECODE_QUEUE; i++) {
+                    ColorExtractor.decodeExecutor.execute(() -> awaitQuietly(blocker));
+                }
+
+                Color rejected = ColorExtractor.extractDominantColor(url("/busy.png")).get(10, TimeUnit.SECONDS);
+                assertEquals(ColorExtractor.DEFAULT_COLOR, rejected);
+            } finally {
+                blocker.countDown();
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!ColorExtractor.decodeExecutor.getQueue().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            Color retried = ColorExtractor.extractDominantColor(url("/busy.png")).get(10, TimeUnit.SECONDS);
+            assertNotEquals(ColorExtractor.DEFAULT_COLOR, retried);
+            assertEquals(2, hits.get("/busy.png").get());
+        }
+
+        private static void awaitQuietly(CountDownLatch latch) {
+            try {
+                latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package me.hash.mediaroulette.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DictionaryCorpus
+ */
+@DisplayName("DictionaryCorpus Tests")
+class DictionaryCorpusTest {
+
+    private static DictionaryCorpus parse(String text) {
+        return DictionaryCorpus.parse("test", text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should index lines with mixed line endings")
+    void shouldIndexMixedLineEndings() {
+        DictionaryCorpus corpus = parse("cats\ndogs\r\nbirds\rfish");
+
+        assertEquals(4, corpus.size());
+        assertEquals("cats", corpus.getLine(0));
+        assertEquals("dogs", corpus.getLine(1));
+        assertEquals("birds", corpus.getLine(2));
+        assertEquals("fish", corpus.getLine(3));
+    }
+
+    @Test
+    @DisplayName("Should drop blank lines and a leading BOM")
+    void shouldDropBlankLinesAndBom() {
+        DictionaryCorpus corpus = parse("﻿first\n\n   \nsecond\n\n");
+
+        assertEquals(2, corpus.size());
+        assertEquals("first", corpus.getLine(0));
+        assertEquals("second", corpus.getLine(1));
+    }
+
+    @Test
+    @DisplayName("Should keep multi-byte characters intact")
+    void shouldKeepMultiByteCharacters() {
+        DictionaryCorpus corpus = parse("café\nnaïve 😀\n");
+
+        assertEquals("café", corpus.getLine(0));
+        assertEquals("naïve 😀", corpus.getLine(1));
+    }
+
+    @Test
+    @DisplayName("Should index more lines than the initial offset capacity")
+    void shouldIndexLargeFiles() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("line").append(i).append('\n');
+        }
+
+        DictionaryCorpus corpus = parse(text.toString());
+
+        assertEquals(1000, corpus.size());
+        assertEquals("line0", corpus.getLine(0));
+        assertEquals("line999", corpus.getLine(999));
+        assertThrows(IndexOutOfBoundsException.class, () -> corpus.getLine(1000));
+    }
+
+    @Test
+    @DisplayName("Should only return lines from the corpus")
+    void shouldReturnRandomLinesFromCorpus() {
+        DictionaryCorpus corpus = parse("a\nb\nc\n");
+        Set<String> seen = new HashSet<>();
+
+        for (int i = 0; i < 200; i++) {
+            seen.add(corpus.getRandomLine());
+        }
+
+        assertEquals(Set.of("a", "b", "c"), seen);
+    }
+
+    @Test
+    @DisplayName("Should report an empty corpus")
+    void shouldHandleEmptyInput() {
+        assertTrue(parse("").isEmpty());
+        assertTrue(parse("\n\r\n").isEmpty());
+    }
+}
@@ -0,0 +1,49 @@
+package me.hash.mediaroulette.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyWindow
+ */
+@DisplayName("LatencyWindow Tests")
+class LatencyWindowTest {
+
+    @Test
+    @DisplayName("Should report zero when empty")
+    void shouldReportZeroWhenEmpty() {
+        LatencyWindow window = new LatencyWindow(8);
+
+        assertEquals(0, window.size());
+        assertEquals(0.0, window.getPercentileMs(50));
+    }
+
+    @Test
+    @DisplayName("Should compute nearest-rank percentiles in milliseconds")
+    void shouldComputePercentiles() {
+        LatencyWindow window = new LatencyWindow(100);
+        for (int ms = 100; ms >= 1; ms--) {
+            window.record(ms * 1_000_000L);
+        }
+
+        assertEquals(50.0, window.getPercentileMs(50));
+        assertEquals(99.0, window.getPercentileMs(99));
+        assertEquals(100.0, window.getPercentileMs(100));
+        assertEquals(1.0, window.getPercentileMs(0));
+    }
+
+    @Test
+    @DisplayName("Should only keep the most recent samples")
+    void shouldDropOldestSamples() {
+        LatencyWindow window = new LatencyWindow(4);
+        for (int ms = 1; ms <= 10; ms++) {
+            window.record(ms * 1_000_000L);
+        }
+
+        assertEquals(4, window.size());
+        assertEquals(7.0, window.getPercentileMs(0));
+        assertEquals(10.0, window.getPercentileMs(100));
+    }
+}
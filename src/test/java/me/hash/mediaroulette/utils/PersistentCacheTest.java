@@ -0,0 +1,332 @@
+package me.hash.mediaroulette.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import me.hash.mediaroulette.utils.cache.EvictionPolicy;
+import me.hash.mediaroulette.utils.cache.SegmentedLruPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PersistentCache
+ */
+@DisplayName("PersistentCache Tests")
+class PersistentCacheTest {
+
+    private static final TypeReference<Map<String, String>> TYPE = new TypeReference<>() {};
+    private static final String FILENAME = "test.json";
+
+    @TempDir
+    Path dir;
+
+    private final List<PersistentCache<String>> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(PersistentCache::shutdown);
+    }
+
+    private PersistentCache<String> open() {
+        return open(new SegmentedLruPolicy(10000, Long.MAX_VALUE));
+    }
+
+    private PersistentCache<String> open(EvictionPolicy policy) {
+        PersistentCache<String> cache = new PersistentCache<>(dir, FILENAME, TYPE, policy);
+        opened.add(cache);
+        return cache;
+    }
+
+    @Test
+    @DisplayName("Should replay logged writes after restart without compaction")
+    void shouldReplayLogAfterRestart() {
+        PersistentCache<String> cache = open();
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("a", "3");
+        cache.remove("b");
+        cache.forceSave();
+
+        PersistentCache<String> reloaded = open();
+        assertEquals(1, reloaded.size());
+        assertEquals("3", reloaded.get("a"));
+        assertFalse(reloaded.containsKey("b"));
+    }
+
+    @Test
+    @DisplayName("Should compact the log into the snapshot on shutdown")
+    void shouldCompactOnShutdown() throws Exception {
+        PersistentCache<String> cache = open();
+        for (int i = 0; i < 50; i++) {
+            cache.put("key", "value" + i);
+        }
+        cache.shutdown();
+
+        assertEquals(0, Files.size(dir.resolve(FILENAME + ".log")));
+        assertTrue(Files.readString(dir.resolve(FILENAME)).contains("value49"));
+
+        PersistentCache<String> reloaded = open();
+        assertEquals("value49", reloaded.get("key"));
+    }
+
+    @Test
+    @DisplayName("Should skip a torn trailing record and keep appending")
+    void shouldSkipTornRecord() throws Exception {
+        PersistentCache<String> cache = open();
+        cache.put("a", "1");
+        cache.forceSave();
+
+        Files.writeString(dir.resolve(FILENAME + ".log"), "{\"k\":\"b\",\"v\":\"tor",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        PersistentCache<String> recovered = open();
+        assertEquals("1", recovered.get("a"));
+        assertFalse(recovered.containsKey("b"));
+
+        recovered.put("c", "2");
+        recovered.forceSave();
+
+        PersistentCache<String> reloaded = open();
+        assertEquals("2", reloaded.get("c"));
+    }
+
+    @Test
+    @DisplayName("Should load legacy full-map JSON files as the initial snapshot")
+    void shouldLoadLegacySnapshot() throws Exception {
+        Files.writeString(dir.resolve(FILENAME), "{\n  \"x\" : \"legacy\"\n}");
+
+        PersistentCache<String> cache = open();
+        assertEquals("legacy", cache.get("x"));
+    }
+
+    @Test
+    @DisplayName("Should keep frequently read entries when evicting")
+    void shouldEvictColdEntriesFirst() {
+        PersistentCache<String> cache = open(new SegmentedLruPolicy(5, Long.MAX_VALUE));
+        for (int i = 0; i < 5; i++) {
+            cache.put("k" + i, "v");
+        }
+        cache.get("k0");
+        cache.get("k1");
+        for (int i = 5; i < 10; i++) {
+            cache.put("k" + i, "v");
+        }
+
+        assertEquals(5, cache.size());
+        assertTrue(cache.containsKey("k0"));
+        assertTrue(cache.containsKey("k1"));
+        assertFalse(cache.containsKey("k2"));
+        assertEquals(5, cache.getStats().getEvictions());
+        assertEquals(2, cache.getStats().getHits());
+    }
+
+    @Test
+    @DisplayName("Should bound the cache by serialized weight")
+    void shouldEvictByWeight() {
+        PersistentCache<String> cache = open(new SegmentedLruPolicy(1000, 200));
+        for (int i = 0; i < 20; i++) {
+            cache.put("k" + i, "x".repeat(40));
+        }
+
+        assertTrue(cache.getWeightedSize() <= 200);
+        assertTrue(cache.size() < 20);
+        assertTrue(cache.containsKey("k19"));
+    }
+
+    @Test
+    @DisplayName("Should expire entries and keep TTLs across compaction")
+    void shouldExpireEntries() throws Exception {
+        PersistentCache<String> cache = open();
+        cache.put("short", "1", Duration.ofMillis(20));
+        cache.put("long", "2", Duration.ofHours(1));
+        Thread.sleep(50);
+
+        assertNull(cache.get("short"));
+        assertEquals(1, cache.getStats().getExpirations());
+        cache.shutdown();
+
+        PersistentCache<String> reloaded = open();
+        assertEquals("2", reloaded.get("long"));
+        assertTrue(Files.readString(dir.resolve(FILENAME + ".log")).contains("\"e\""));
+    }
+
+    @Test
+    @DisplayName("Should keep every write when compactions race with concurrent puts")
+    void shouldSurviveConcurrentCompaction() throws Exception {
+        PersistentCache<String> cache = open();
+        int writers = 4;
+        int keysPerWriter = 50;
+        int rounds = 40;
+        ExecutorService pool = Executors.newFixedThreadPool(writers + 2);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            tasks.add(pool.submit(() -> {
+                for (int round = 0; round < rounds; round++) {
+                    for (int k = 0; k < keysPerWriter; k++) {
+                        cache.put("w" + writer + "-" + k, "r" + round);
+                    }
+                }
+            }));
+        }
+        List<Future<?>> compactors = new ArrayList<>();
+        for (int c = 0; c < 2; c++) {
+            compactors.add(pool.submit(() -> {
+                while (writing.get()) {
+                    cache.compact();
+                }
+            }));
+        }
+
+        for (Future<?> task : tasks) {
+            task.get(30, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<?> compactor : compactors) {
+            compactor.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        // Reload from what is on disk now, without the compaction done by shutdown()
+        cache.forceSave();
+
+        PersistentCache<String> reloaded = open();
+        assertEquals(writers * keysPerWriter, reloaded.size());
+        for (int w = 0; w < writers; w++) {
+            for (int k = 0; k < keysPerWriter; k++) {
+                assertEquals("r" + (rounds - 1), reloaded.get("w" + w + "-" + k));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should not overwrite a rolled log whose snapshot was never written")
+    void shouldKeepRolledLogAfterFailedCompaction() throws Exception {
+        PersistentCache<String> cache = open();
+        // A directory in place of the temp file makes every snapshot write fail
+        Path temp = Files.createDirectory(dir.resolve(FILENAME + ".tmp"));
+        try {
+            cache.put("a", "1");
+            cache.compact();
+            cache.put("b", "2");
+            cache.compact();
+            cache.forceSave();
+
+            PersistentCache<String> reloaded = open();
+            assertEquals("1", reloaded.get("a"));
+            assertEquals("2", reloaded.get("b"));
+        } finally {
+            Files.delete(temp);
+        }
+    }
+
+    @Test
+    @DisplayName("Should restart cleanly after more than a thousand entries expired while down")
+    void shouldCompactExpiredEntriesOnStartup() throws Exception {
+        PersistentCache<String> cache = open();
+        for (int i = 0; i < 1500; i++) {
+            cache.put("gone" + i, "x", Duration.ofMillis(50));
+        }
+        cache.put("kept", "1", Duration.ofHours(1));
+        cache.shutdown();
+        Thread.sleep(100);
+
+        PersistentCache<String> reloaded = open();
+        assertEquals(1, reloaded.size());
+        assertEquals("1", reloaded.get("kept"));
+        // The purge's delete records were folded into the snapshot instead of piling up in the log
+        assertTrue(Files.readAllLines(dir.resolve(FILENAME + ".log")).size() < 10);
+
+        reloaded.put("new", "2");
+        reloaded.shutdown();
+        PersistentCache<String> again = open();
+        assertEquals("2", again.get("new"));
+        assertEquals(2, again.size());
+    }
+
+    @Test
+    @DisplayName("Should replay to the in-memory state when puts and removes of one key race")
+    void shouldReplayConcurrentPutAndRemove() throws Exception {
+        PersistentCache<String> cache = open();
+        int threads = 4;
+        int keys = 20;
+        int rounds = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            boolean putter = t % 2 == 0;
+            tasks.add(pool.submit(() -> {
+                start.await();
+                for (int round = 0; round < rounds; round++) {
+                    for (int k = 0; k < keys; k++) {
+                        if (putter) {
+                            cache.put("k" + k, "r" + round);
+                        } else {
+                            cache.remove("k" + k);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        cache.forceSave();
+
+        PersistentCache<String> reloaded = open();
+        assertEquals(cache.getAll(), reloaded.getAll());
+        assertEquals(cache.getWeightedSize(), reloaded.getWeightedSize());
+    }
+
+    @Test
+    @DisplayName("Should weigh entries the same after a restart as when they were written")
+    void shouldKeepWeightsAcrossRestart() {
+        PersistentCache<String> cache = open();
+        cache.put("a", "x".repeat(40));
+        cache.put("b", "y".repeat(10), Duration.ofHours(1));
+        long written = cache.getWeightedSize();
+        cache.forceSave();
+
+        // Replayed from the log
+        assertEquals(written, open().getWeightedSize());
+
+        // Loaded from the snapshot
+        cache.shutdown();
+        assertEquals(written, open().getWeightedSize());
+    }
+
+    @Test
+    @DisplayName("Should weigh entries by the UTF-8 bytes of their serialized key and value")
+    void shouldWeighUtf8Bytes() {
+        PersistentCache<String> cache = open();
+        cache.put("k", "é".repeat(10));
+
+        // "k" is 3 bytes, the quoted value 2 + 10 * 2
+        assertEquals(25, cache.getWeightedSize());
+        cache.forceSave();
+        assertEquals(25, open().getWeightedSize());
+    }
+}
@@ -0,0 +1,102 @@
+package me.hash.mediaroulette.utils.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BoundedCache
+ */
+@DisplayName("BoundedCache Tests")
+class BoundedCacheTest {
+
+    @Test
+    @DisplayName("Should load once and serve later reads from the cache")
+    void shouldLoadOnce() {
+        BoundedCache<String> cache = new BoundedCache<>(10, null);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v", cache.get("k", key -> { loads.incrementAndGet(); return "v"; }));
+        assertEquals("v", cache.get("k", key -> { loads.incrementAndGet(); return "other"; }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    @DisplayName("Should expire entries once their time to live has passed")
+    void shouldExpireAfterTtl() throws Exception {
+        BoundedCache<String> cache = new BoundedCache<>(10, Duration.ofMillis(50));
+        cache.put("k", "v");
+        assertEquals("v", cache.getIfPresent("k"));
+
+        Thread.sleep(100);
+        assertNull(cache.getIfPresent("k"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeightedSize());
+        assertEquals(1, cache.getStats().getExpirations());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry that was only read once")
+    void shouldEvictColdEntries() {
+        BoundedCache<String> cache = new BoundedCache<>(3, null);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.getIfPresent("a");
+        cache.put("d", "4");
+
+        assertEquals(3, cache.size());
+        assertEquals("1", cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should keep the total weight within its limit")
+    void shouldEvictByWeight() {
+        BoundedCache<String> cache = new BoundedCache<>(100, 10, String::length, null);
+        cache.put("a", "xxxx");
+        cache.put("b", "yyyy");
+        cache.put("c", "zzzz");
+
+        assertTrue(cache.getWeightedSize() <= 10);
+        assertEquals(2, cache.size());
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    @DisplayName("Should not cache a value loaded across an invalidation")
+    void shouldDropLoadRacingInvalidation() {
+        BoundedCache<String> cache = new BoundedCache<>(10, null);
+
+        String loaded = cache.get("k", key -> {
+            cache.invalidate("other");
+            return "stale";
+        });
+
+        assertEquals("stale", loaded);
+        assertNull(cache.getIfPresent("k"));
+    }
+
+    @Test
+    @DisplayName("Should reset entries and weight on invalidateAll")
+    void shouldInvalidateAll() {
+        BoundedCache<String> cache = new BoundedCache<>(10, 100, String::length, null);
+        cache.put("a", "xx");
+        cache.put("b", "yy");
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeightedSize());
+
+        cache.put("c", "zz");
+        assertEquals(2, cache.getWeightedSize());
+    }
+}
@@ -0,0 +1,109 @@
+package me.hash.mediaroulette.utils.media;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DominantColorKernel
+ */
+@DisplayName("DominantColorKernel Tests")
+class DominantColorKernelTest {
+
+    /**
+     * Three quarters {@code main}, one quarter {@code accent}, with a black border that must be ignored
+     */
+    private static BufferedImage image(int type, Color main, Color accent) {
+        BufferedImage image = new BufferedImage(200, 100, type);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, 200, 100);
+        g.setColor(main);
+        g.fillRect(10, 10, 180, 80);
+        g.setColor(accent);
+        g.fillRect(145, 10, 45, 80);
+        g.dispose();
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, format, out));
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Should average the same colors from int and byte rasters")
+    void shouldAverageAcrossRasterLayouts() {
+        Color main = new Color(200, 40, 40);
+        Color accent = new Color(40, 40, 200);
+
+        Color fromInts = DominantColorKernel.dominantColor(image(BufferedImage.TYPE_INT_RGB, main, accent), DominantColorKernel.Mode.AVERAGE);
+        Color fromBytes = DominantColorKernel.dominantColor(image(BufferedImage.TYPE_3BYTE_BGR, main, accent), DominantColorKernel.Mode.AVERAGE);
+        Color fromAlpha = DominantColorKernel.dominantColor(image(BufferedImage.TYPE_4BYTE_ABGR, main, accent), DominantColorKernel.Mode.AVERAGE);
+
+        assertNotNull(fromInts);
+        assertEquals(fromInts, fromBytes);
+        assertEquals(fromInts, fromAlpha);
+        assertTrue(fromInts.getRed() > fromInts.getBlue());
+        assertTrue(fromInts.getBlue() > 40);
+    }
+
+    @Test
+    @DisplayName("Should pick the largest cluster in palette mode")
+    void shouldPickLargestCluster() {
+        Color main = new Color(30, 160, 60);
+        Color accent = new Color(220, 200, 40);
+
+        Color dominant = DominantColorKernel.dominantColor(image(BufferedImage.TYPE_INT_RGB, main, accent), DominantColorKernel.Mode.PALETTE);
+        List<DominantColorKernel.Swatch> palette = DominantColorKernel.palette(image(BufferedImage.TYPE_INT_RGB, main, accent), 4);
+
+        assertEquals(main, dominant);
+        assertEquals(2, palette.size());
+        assertEquals(accent, palette.get(1).color());
+        assertTrue(palette.get(0).population() > palette.get(1).population());
+    }
+
+    @Test
+    @DisplayName("Should return null when every pixel is too dark or too light")
+    void shouldIgnoreExtremes() {
+        BufferedImage image = image(BufferedImage.TYPE_INT_RGB, Color.WHITE, Color.BLACK);
+
+        assertNull(DominantColorKernel.dominantColor(image, DominantColorKernel.Mode.AVERAGE));
+        assertTrue(DominantColorKernel.palette(image, 4).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should decode large images subsampled")
+    void shouldDecodeSubsampled() throws Exception {
+        BufferedImage large = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+        byte[] png = encode(large, "png");
+
+        BufferedImage decoded = DominantColorKernel.decode(png, 100);
+
+        assertNotNull(decoded);
+        assertEquals(200, decoded.getWidth());
+        assertEquals(100, decoded.getHeight());
+        assertNull(DominantColorKernel.decode(new byte[]{1, 2, 3, 4}));
+    }
+
+    @Test
+    @DisplayName("Should read indexed GIF pixels")
+    void shouldReadIndexedImages() throws Exception {
+        Color main = new Color(200, 40, 40);
+        byte[] gif = encode(image(BufferedImage.TYPE_INT_RGB, main, main), "gif");
+
+        BufferedImage decoded = DominantColorKernel.decode(gif);
+
+        assertNotNull(decoded);
+        assertEquals(main, DominantColorKernel.dominantColor(decoded, DominantColorKernel.Mode.AVERAGE));
+    }
+}
@@ -0,0 +1,76 @@
+package me.hash.mediaroulette.utils.media;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ImageProbe
+ */
+@DisplayName("ImageProbe Tests")
+class ImageProbeTest {
+
+    private static byte[] encode(String format, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, format, out));
+        return out.toByteArray();
+    }
+
+    @ParameterizedTest
+    @DisplayName("Should read dimensions from encoded images")
+    @CsvSource({
+        "png, png, 321, 123",
+        "jpg, jpeg, 640, 480",
+        "gif, gif, 198, 160"
+    })
+    void shouldReadDimensions(String writerFormat, String expectedFormat, int width, int height) throws Exception {
+        ImageProbe.Dimensions dimensions = ImageProbe.probe(new ByteArrayInputStream(encode(writerFormat, width, height)), 64 * 1024);
+
+        assertNotNull(dimensions);
+        assertEquals(expectedFormat, dimensions.format());
+        assertEquals(width, dimensions.width());
+        assertEquals(height, dimensions.height());
+    }
+
+    @Test
+    @DisplayName("Should only read the header bytes")
+    void shouldReadOnlyHeader() throws Exception {
+        byte[] png = encode("png", 2000, 2000);
+        AtomicInteger bytesRead = new AtomicInteger();
+        InputStream counting = new ByteArrayInputStream(png) {
+            @Override
+            public synchronized int read() {
+                bytesRead.incrementAndGet();
+                return super.read();
+            }
+        };
+
+        assertNotNull(ImageProbe.probe(counting, 64 * 1024));
+        assertTrue(bytesRead.get() <= 32);
+    }
+
+    @Test
+    @DisplayName("Should return null for non-image data")
+    void shouldReturnNullForUnknownData() throws Exception {
+        assertNull(ImageProbe.probe(new ByteArrayInputStream("<html>removed</html>".getBytes()), 1024));
+        assertNull(ImageProbe.probe(new ByteArrayInputStream(new byte[0]), 1024));
+    }
+
+    @Test
+    @DisplayName("Should give up when the header is beyond the byte budget")
+    void shouldRespectByteBudget() throws Exception {
+        byte[] jpeg = encode("jpg", 100, 100);
+        assertNull(ImageProbe.probe(new ByteArrayInputStream(jpeg), 4));
+    }
+}
@@ -0,0 +1,33 @@
+package me.hash.mediaroulette.utils.media.ffmpeg.models;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("FFmpegResult Tests")
+class FFmpegResultTest {
+
+    @Test
+    @DisplayName("Should report no savings unless they are attached")
+    void shouldDefaultToNoSavings() {
+        FFmpegResult<String> result = FFmpegResult.success("out.gif", 120, "https://example.com/v.mp4");
+
+        assertEquals(0, result.getBytesSaved());
+        assertEquals(0, result.getTimeSavedMs());
+    }
+
+    @Test
+    @DisplayName("Should keep the outcome when savings are attached")
+    void shouldAttachSavings() {
+        FFmpegResult<String> result = FFmpegResult.success("out.gif", 120, "https://example.com/v.mp4")
+                .withSavings(5_000_000, 800);
+
+        assertTrue(result.isSuccess());
+        assertEquals("out.gif", result.getData());
+        assertEquals(120, result.getExecutionTimeMs());
+        assertEquals(5_000_000, result.getBytesSaved());
+        assertEquals(800, result.getTimeSavedMs());
+        assertTrue(result.toString().contains("saved=5000000 bytes/800ms"));
+    }
+}
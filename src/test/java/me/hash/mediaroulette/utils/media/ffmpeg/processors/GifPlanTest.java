@@ -0,0 +1,53 @@
+package me.hash.mediaroulette.utils.media.ffmpeg.processors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GifProcessor.GifPlan
+ */
+@DisplayName("GifPlan Tests")
+class GifPlanTest {
+
+    private static final long DISCORD_LIMIT = 25 * 1024 * 1024L;
+
+    @Test
+    @DisplayName("Should keep parameters that already fit the limit")
+    void shouldKeepFittingParameters() {
+        GifProcessor.GifPlan plan = GifProcessor.GifPlan.fit(480, 270, 10, 20.0, DISCORD_LIMIT);
+
+        assertEquals(new GifProcessor.GifPlan(480, 270, 10, 20.0), plan);
+    }
+
+    @Test
+    @DisplayName("Should not adapt parameters without a limit")
+    void shouldIgnoreUnlimited() {
+        GifProcessor.GifPlan plan = GifProcessor.GifPlan.fit(1921, 1080, 30, 120.0, Long.MAX_VALUE);
+
+        assertEquals(new GifProcessor.GifPlan(1920, 1080, 30, 120.0), plan);
+    }
+
+    @Test
+    @DisplayName("Should lower frame rate before size and duration")
+    void shouldLowerFrameRateFirst() {
+        GifProcessor.GifPlan plan = GifProcessor.GifPlan.fit(480, 270, 10, 30.0, 10 * 1024 * 1024L);
+
+        assertTrue(plan.fps() < 10);
+        assertEquals(480, plan.width());
+        assertEquals(30.0, plan.duration());
+        assertTrue(plan.estimatedBytes() <= 10 * 1024 * 1024L);
+    }
+
+    @Test
+    @DisplayName("Should shrink large clips under the limit keeping even dimensions")
+    void shouldFitLargeClips() {
+        GifProcessor.GifPlan plan = GifProcessor.GifPlan.fit(1920, 1080, 30, 60.0, DISCORD_LIMIT);
+
+        assertTrue(plan.estimatedBytes() <= DISCORD_LIMIT);
+        assertEquals(0, plan.width() % 2);
+        assertEquals(0, plan.height() % 2);
+        assertTrue(plan.width() >= 240);
+    }
+}
@@ -0,0 +1,153 @@
+package me.hash.mediaroulette.utils.media.ffmpeg.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ArtifactCache
+ */
+@DisplayName("ArtifactCache Tests")
+class ArtifactCacheTest {
+
+    private static final ArtifactCache.Codec<String> TEXT = new ArtifactCache.Codec<>() {
+        @Override
+        public void write(String value, Path target) throws IOException {
+            Files.writeString(target, value);
+        }
+
+        @Override
+        public String read(Path file) throws IOException {
+            return Files.readString(file);
+        }
+    };
+
+    @TempDir
+    Path root;
+
+    private final List<ArtifactCache> opened = new ArrayList<>();
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(ArtifactCache::shutdown);
+    }
+
+    private ArtifactCache open(long maxBytes, long maxAgeMs) {
+        ArtifactCache cache = new ArtifactCache(root.resolve("ffmpeg"), root, maxBytes, 100, maxAgeMs);
+        opened.add(cache);
+        return cache;
+    }
+
+    private ArtifactCache open() {
+        return open(Long.MAX_VALUE, TimeUnit.DAYS.toMillis(1));
+    }
+
+    private String get(ArtifactCache cache, String key, String value) throws Exception {
+        return cache.get(key, "txt", TEXT, () -> {
+            computations.incrementAndGet();
+            return CompletableFuture.completedFuture(value);
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    private Path fileOf(String key) {
+        return root.resolve("ffmpeg").resolve(key + ".txt");
+    }
+
+    @Test
+    @DisplayName("Should share one computation between concurrent misses and then hit")
+    void shouldCoalesceConcurrentMisses() throws Exception {
+        ArtifactCache cache = open();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> first = cache.get("k", "txt", TEXT, () -> {
+            computations.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<String> second = cache.get("k", "txt", TEXT, () -> {
+            computations.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        assertSame(first, second);
+        assertFalse(first.isDone());
+
+        pending.complete("gif");
+        assertEquals("gif", first.get(5, TimeUnit.SECONDS));
+        assertEquals("gif", get(cache, "k", "unused"));
+        assertEquals(1, computations.get());
+        assertEquals(1, cache.getStats().getHits());
+    }
+
+    @Test
+    @DisplayName("Should evict the coldest artifacts and delete their files past the byte budget")
+    void shouldEvictByBytes() throws Exception {
+        ArtifactCache cache = open(100, TimeUnit.DAYS.toMillis(1));
+        get(cache, "a", "x".repeat(40));
+        get(cache, "b", "y".repeat(40));
+        get(cache, "c", "z".repeat(40));
+
+        assertFalse(Files.exists(fileOf("a")));
+        assertTrue(Files.exists(fileOf("b")));
+        assertTrue(Files.exists(fileOf("c")));
+        assertTrue(cache.getWeightedSize() <= 100);
+        assertEquals(1, cache.getStats().getEvictions());
+
+        assertEquals("x".repeat(40), get(cache, "a", "x".repeat(40)));
+        assertEquals(4, computations.get());
+    }
+
+    @Test
+    @DisplayName("Should restore the index after a restart and sweep files it does not reference")
+    void shouldRestoreIndexAndSweepOrphans() throws Exception {
+        ArtifactCache cache = open();
+        get(cache, "kept", "1");
+        get(cache, "lost", "2");
+        cache.shutdown();
+
+        Path orphan = Files.writeString(root.resolve("ffmpeg").resolve("stray.gif"), "?");
+        Files.delete(fileOf("lost"));
+
+        ArtifactCache restored = open();
+        assertFalse(Files.exists(orphan));
+        assertEquals("1", get(restored, "kept", "unused"));
+        assertEquals(2, computations.get());
+        assertEquals("2", get(restored, "lost", "2"));
+        assertEquals(3, computations.get());
+    }
+
+    @Test
+    @DisplayName("Should treat artifacts older than the maximum age as misses")
+    void shouldExpireOldArtifacts() throws Exception {
+        ArtifactCache cache = open(Long.MAX_VALUE, 50);
+        get(cache, "k", "old");
+        Thread.sleep(100);
+
+        assertEquals("new", get(cache, "k", "new"));
+        assertEquals(2, computations.get());
+        assertEquals(1, cache.getStats().getExpirations());
+        assertEquals("new", Files.readString(fileOf("k")));
+    }
+
+    @Test
+    @DisplayName("Should recompute an artifact whose file was evicted after its index lookup")
+    void shouldRecomputeVanishedFile() throws Exception {
+        ArtifactCache cache = open();
+        get(cache, "k", "first");
+        Files.delete(fileOf("k"));
+
+        assertEquals("second", get(cache, "k", "second"));
+        assertEquals(2, computations.get());
+    }
+}
@@ -0,0 +1,108 @@
+package me.hash.mediaroulette.utils.media.ffmpeg.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FFmpegJobScheduler
+ */
+@DisplayName("FFmpegJobScheduler Tests")
+class FFmpegJobSchedulerTest {
+
+    private final FFmpegJobScheduler scheduler = new FFmpegJobScheduler(1, 2);
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        scheduler.shutdown();
+    }
+
+    /**
+     * Occupy the single worker until the gate opens
+     */
+    private CompletableFuture<String> block() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> blocker = scheduler.submit(FFmpegJobScheduler.Priority.GIF, () -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "blocker";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return blocker;
+    }
+
+    private CompletableFuture<String> submit(FFmpegJobScheduler.Priority priority, String name) {
+        return scheduler.submit(priority, () -> {
+            order.add(name);
+            return name;
+        });
+    }
+
+    @Test
+    @DisplayName("Should run more urgent lanes first")
+    void shouldRunByPriority() throws Exception {
+        CompletableFuture<String> blocker = block();
+        CompletableFuture<String> gif = submit(FFmpegJobScheduler.Priority.GIF, "gif");
+        CompletableFuture<String> probe = submit(FFmpegJobScheduler.Priority.PROBE, "probe");
+
+        gate.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        gif.get(5, TimeUnit.SECONDS);
+        probe.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("probe", "gif"), order);
+    }
+
+    @Test
+    @DisplayName("Should shed less urgent jobs and reject when nothing can be shed")
+    void shouldShedWhenSaturated() throws Exception {
+        block();
+        CompletableFuture<String> firstGif = submit(FFmpegJobScheduler.Priority.GIF, "gif1");
+        CompletableFuture<String> secondGif = submit(FFmpegJobScheduler.Priority.GIF, "gif2");
+
+        CompletableFuture<String> probe = submit(FFmpegJobScheduler.Priority.PROBE, "probe");
+        assertTrue(secondGif.isCompletedExceptionally());
+        assertFalse(firstGif.isDone());
+
+        CompletableFuture<String> thirdGif = submit(FFmpegJobScheduler.Priority.GIF, "gif3");
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> thirdGif.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+
+        gate.countDown();
+        assertEquals("probe", probe.get(5, TimeUnit.SECONDS));
+        assertEquals("gif1", firstGif.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should count queued, completed and rejected jobs per lane")
+    void shouldTrackLaneStats() throws Exception {
+        block();
+        submit(FFmpegJobScheduler.Priority.GIF, "gif1");
+        submit(FFmpegJobScheduler.Priority.GIF, "gif2");
+        submit(FFmpegJobScheduler.Priority.GIF, "gif3");
+
+        FFmpegJobScheduler.LaneStats gifs = scheduler.getStats().get(FFmpegJobScheduler.Priority.GIF.ordinal());
+        assertEquals(4, gifs.submitted());
+        assertEquals(1, gifs.rejected());
+        assertEquals(2, gifs.queued());
+        assertEquals(0, gifs.completed());
+    }
+}
@@ -0,0 +1,93 @@
+package me.hash.mediaroulette.utils.media.image_generation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PngEncoder
+ */
+@DisplayName("PngEncoder Tests")
+class PngEncoderTest {
+
+    private static BufferedImage randomImage(int type, int width, int height, boolean translucent) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int alpha = translucent ? random.nextInt(256) : 0xFF;
+                image.setRGB(x, y, (alpha << 24) | (random.nextInt() & 0xFFFFFF));
+            }
+        }
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @DisplayName("Should round-trip translucent images with every filter")
+    @EnumSource(PngEncoder.Filter.class)
+    void shouldRoundTripWithEveryFilter(PngEncoder.Filter filter) throws Exception {
+        BufferedImage image = randomImage(BufferedImage.TYPE_INT_ARGB, 37, 23, true);
+
+        byte[] png = new PngEncoder(6, filter).encode(image, 0);
+
+        assertSamePixels(image, ImageIO.read(new ByteArrayInputStream(png)));
+    }
+
+    @Test
+    @DisplayName("Should write opaque images without an alpha channel")
+    void shouldDropAlphaForOpaqueImages() throws Exception {
+        BufferedImage image = randomImage(BufferedImage.TYPE_INT_ARGB, 16, 16, false);
+
+        byte[] png = new PngEncoder(1, PngEncoder.Filter.UP).encode(image, 0);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+
+        assertEquals(2, png[25], "IHDR colour type should be RGB");
+        assertFalse(decoded.getColorModel().hasAlpha());
+        assertSamePixels(image, decoded);
+    }
+
+    @Test
+    @DisplayName("Should encode image types without an int raster")
+    void shouldEncodeOtherImageTypes() throws Exception {
+        BufferedImage image = randomImage(BufferedImage.TYPE_3BYTE_BGR, 20, 10, false);
+
+        byte[] png = new PngEncoder(4, PngEncoder.Filter.ADAPTIVE).encode(image, 0);
+
+        assertSamePixels(image, ImageIO.read(new ByteArrayInputStream(png)));
+    }
+
+    @Test
+    @DisplayName("Should split large images over several IDAT chunks")
+    void shouldEncodeLargeImages() throws Exception {
+        BufferedImage image = randomImage(BufferedImage.TYPE_INT_RGB, 400, 300, false);
+
+        byte[] png = new PngEncoder(0, PngEncoder.Filter.NONE).encode(image, 0);
+
+        assertTrue(png.length > 64 * 1024);
+        assertSamePixels(image, ImageIO.read(new ByteArrayInputStream(png)));
+    }
+
+    @Test
+    @DisplayName("Should reject invalid compression levels")
+    void shouldRejectInvalidCompressionLevel() {
+        assertThrows(IllegalArgumentException.class, () -> new PngEncoder(10, PngEncoder.Filter.NONE));
+    }
+}
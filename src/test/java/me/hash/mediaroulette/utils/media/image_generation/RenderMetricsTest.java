@@ -0,0 +1,48 @@
+package me.hash.mediaroulette.utils.media.image_generation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RenderMetrics Tests")
+class RenderMetricsTest {
+
+    @Test
+    @DisplayName("Should count cards, failures and output size")
+    void shouldCountCards() {
+        RenderMetrics metrics = new RenderMetrics();
+        metrics.record(0, 0, 1000);
+        metrics.record(0, 0, 3000);
+        metrics.recordFailure();
+
+        assertEquals(2, metrics.getCards());
+        assertEquals(1, metrics.getFailures());
+        assertEquals(4000, metrics.getOutputBytes());
+        assertEquals(2000, metrics.getAverageOutputBytes());
+    }
+
+    @Test
+    @DisplayName("Should report render and encode percentiles separately")
+    void shouldReportPercentiles() {
+        RenderMetrics metrics = new RenderMetrics();
+        for (int ms = 1; ms <= 100; ms++) {
+            metrics.record(TimeUnit.MILLISECONDS.toNanos(ms), TimeUnit.MILLISECONDS.toNanos(ms * 2L), 1);
+        }
+
+        assertEquals(50.0, metrics.getRenderPercentileMs(50), 0.001);
+        assertEquals(99.0, metrics.getRenderPercentileMs(99), 0.001);
+        assertEquals(100.0, metrics.getEncodePercentileMs(50), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should report zeros before any card is generated")
+    void shouldStartEmpty() {
+        RenderMetrics metrics = new RenderMetrics();
+
+        assertEquals(0, metrics.getAverageOutputBytes());
+        assertEquals(0, metrics.getRenderPercentileMs(99));
+    }
+}
@@ -0,0 +1,124 @@
+package me.hash.mediaroulette.utils.media.image_generation;
+
+import me.hash.mediaroulette.utils.media.image_generation.components.TextLayoutCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ThemeAssetCache
+ */
+@DisplayName("ThemeAssetCache Tests")
+class ThemeAssetCacheTest {
+
+    // No TTF or image exists under these names, so lookups resolve to the fallbacks
+    private static final String MISSING_FONT = "ThemeAssetCacheTest-missing-font";
+    private static final String MISSING_BACKGROUND = "images/ThemeAssetCacheTest-missing.png";
+
+    private ThemeAssetCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = ThemeAssetCache.getInstance();
+        cache.invalidate();
+    }
+
+    @Test
+    @DisplayName("Should count the first font lookup as a miss and repeats as hits")
+    void shouldHitOnRepeatedFontLookup() {
+        long misses = cache.getMisses();
+        long hits = cache.getHits();
+
+        Font first = cache.getFont(MISSING_FONT, Font.BOLD, 24f);
+        Font second = cache.getFont(MISSING_FONT, Font.BOLD, 24f);
+
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(misses + 1, cache.getMisses());
+        assertEquals(hits + 1, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Should miss for a different style or size of the same family")
+    void shouldMissOnDifferentFontKey() {
+        Font regular = cache.getFont(MISSING_FONT, Font.PLAIN, 24f);
+        long misses = cache.getMisses();
+
+        Font bold = cache.getFont(MISSING_FONT, Font.BOLD, 24f);
+        Font larger = cache.getFont(MISSING_FONT, Font.PLAIN, 32f);
+
+        assertEquals(misses + 2, cache.getMisses());
+        assertNotSame(regular, bold);
+        assertNotSame(regular, larger);
+        assertEquals(Font.BOLD, bold.getStyle());
+        assertEquals(32, larger.getSize());
+    }
+
+    @Test
+    @DisplayName("Should cache a missing background so it is not looked up again")
+    void shouldCacheMissingBackground() {
+        assertNull(cache.getBackground(MISSING_BACKGROUND, 100, 50));
+        long hits = cache.getHits();
+
+        assertNull(cache.getBackground(MISSING_BACKGROUND, 100, 50));
+
+        assertEquals(hits + 1, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Should not cache empty background paths")
+    void shouldIgnoreEmptyBackgroundPath() {
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+
+        assertNull(cache.getBackground(null, 100, 50));
+        assertNull(cache.getBackground("  ", 100, 50));
+
+        assertEquals(hits, cache.getHits());
+        assertEquals(misses, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Should miss again after invalidation")
+    void shouldMissAfterInvalidate() {
+        Font before = cache.getFont(MISSING_FONT, Font.PLAIN, 20f);
+        cache.getBackground(MISSING_BACKGROUND, 100, 50);
+
+        cache.invalidate();
+        long misses = cache.getMisses();
+        Font after = cache.getFont(MISSING_FONT, Font.PLAIN, 20f);
+        cache.getBackground(MISSING_BACKGROUND, 100, 50);
+
+        assertEquals(misses + 2, cache.getMisses());
+        assertNotSame(before, after);
+        assertEquals(before, after);
+    }
+
+    @Test
+    @DisplayName("Should clear text layouts when resources are reloaded")
+    void shouldClearTextLayoutsOnResourceReload() {
+        TextLayoutCache layouts = TextLayoutCache.getInstance();
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            Font font = cache.getFont(MISSING_FONT, Font.PLAIN, 20f);
+            layouts.getLayout("reload me", font, g2d, 180, 80, 200, 100);
+        } finally {
+            g2d.dispose();
+        }
+        assertTrue(layouts.size() > 0);
+        long misses = cache.getMisses();
+
+        cache.onResourcesReloaded();
+
+        assertEquals(0, layouts.size());
+        cache.getFont(MISSING_FONT, Font.PLAIN, 20f);
+        assertEquals(misses + 1, cache.getMisses());
+    }
+}
@@ -0,0 +1,87 @@
+package me.hash.mediaroulette.utils.media.image_generation.components;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TextLayoutCache
+ */
+@DisplayName("TextLayoutCache Tests")
+class TextLayoutCacheTest {
+
+    private final Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 20);
+    private Graphics2D g2d;
+
+    @BeforeEach
+    void setUp() {
+        g2d = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB).createGraphics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        g2d.dispose();
+    }
+
+    private TextLayoutCache.Layout layout(TextLayoutCache cache, String text, int maxTextWidth) {
+        return cache.getLayout(text, font, g2d, maxTextWidth, 150, 400, 200);
+    }
+
+    @Test
+    @DisplayName("Should reuse the layout of a repeated text")
+    void shouldHitOnRepeatedText() {
+        TextLayoutCache cache = new TextLayoutCache(10, Long.MAX_VALUE);
+        TextLayoutCache.Layout first = layout(cache, "hello **world**", 300);
+        TextLayoutCache.Layout second = layout(cache, "hello **world**", 300);
+
+        assertSame(first, second);
+        assertEquals("hello **world**", first.text());
+        assertEquals(first.wrapped().getLines().size(), first.lineWidths().length);
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    @DisplayName("Should lay out the same text again for a different text box")
+    void shouldKeySeparateBoxes() {
+        TextLayoutCache cache = new TextLayoutCache(10, Long.MAX_VALUE);
+        TextLayoutCache.Layout wide = layout(cache, "a fairly long line of card text", 380);
+        TextLayoutCache.Layout narrow = layout(cache, "a fairly long line of card text", 80);
+
+        assertNotSame(wide, narrow);
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getStats().getHits());
+    }
+
+    @Test
+    @DisplayName("Should evict layouts beyond its entry limit")
+    void shouldEvictBeyondLimit() {
+        TextLayoutCache cache = new TextLayoutCache(3, Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            layout(cache, "text " + i, 300);
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(2, cache.getStats().getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should drop every layout and its weight on clear")
+    void shouldClear() {
+        TextLayoutCache cache = new TextLayoutCache(10, Long.MAX_VALUE);
+        layout(cache, "one", 300);
+        layout(cache, "two", 300);
+        assertTrue(cache.getWeightedSize() > 0);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeightedSize());
+    }
+}
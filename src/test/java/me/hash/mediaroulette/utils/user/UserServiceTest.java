@@ -0,0 +1,222 @@
+package me.hash.mediaroulette.utils.user;
+
+import me.hash.mediaroulette.model.User;
+import me.hash.mediaroulette.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UserService's write-behind cache
+ */
+@DisplayName("UserService Tests")
+class UserServiceTest {
+
+    /**
+     * In-memory repository that records every write and can be made to fail or block.
+     * It keeps copies of the fields these tests change, so cached instances never alias stored ones.
+     */
+    private static final class FakeUserRepository implements UserRepository {
+        final Map<String, User> stored = new ConcurrentHashMap<>();
+        final List<String> savedIds = new CopyOnWriteArrayList<>();
+        final List<String> writerThreads = new CopyOnWriteArrayList<>();
+        final AtomicInteger finds = new AtomicInteger();
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        volatile CountDownLatch findGate;
+        volatile String gatedId;
+
+        @Override
+        public Optional<User> findById(String userId) {
+            finds.incrementAndGet();
+            CountDownLatch gate = findGate;
+            if (gate != null && userId.equals(gatedId)) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Optional.ofNullable(stored.get(userId)).map(FakeUserRepository::copy);
+        }
+
+        @Override
+        public User save(User user) {
+            if (failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new IllegalStateException("database unavailable");
+            }
+            stored.put(user.getUserId(), copy(user));
+            savedIds.add(user.getUserId());
+            writerThreads.add(Thread.currentThread().getName());
+            return user;
+        }
+
+        @Override
+        public void saveAll(Collection<User> users) {
+            if (failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new IllegalStateException("database unavailable");
+            }
+            users.forEach(this::save);
+        }
+
+        @Override
+        public boolean exists(String userId) {
+            return stored.containsKey(userId);
+        }
+
+        @Override
+        public long getTotalUsers() {
+            return stored.size();
+        }
+
+        @Override
+        public long getTotalImagesGenerated() {
+            return stored.values().stream().mapToLong(User::getImagesGenerated).sum();
+        }
+
+        private static User copy(User user) {
+            User copy = new User(user.getUserId());
+            copy.setLocale(user.getLocale());
+            copy.setNsfw(user.isNsfw());
+            copy.setImagesGenerated(user.getImagesGenerated());
+            return copy;
+        }
+    }
+
+    private FakeUserRepository repository;
+    private UserService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = new FakeUserRepository();
+        for (String id : List.of("1", "2", "3", "4")) {
+            repository.stored.put(id, new User(id));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should coalesce a burst of updates into one write on flush")
+    void shouldCoalesceUpdates() {
+        service = new UserService(repository, null);
+        for (int i = 0; i < 5; i++) {
+            service.incrementImagesGenerated("1");
+        }
+        assertTrue(repository.savedIds.isEmpty());
+
+        service.flush();
+        assertEquals(List.of("1"), repository.savedIds);
+        assertEquals(5, repository.stored.get("1").getImagesGenerated());
+
+        service.flush();
+        assertEquals(1, repository.savedIds.size());
+    }
+
+    @Test
+    @DisplayName("Should keep a user dirty after a failed flush and write it on the next one")
+    void shouldRetryFailedFlush() {
+        service = new UserService(repository, null);
+        service.setNsfwEnabled("1", true);
+        repository.failuresLeft.set(1);
+
+        service.flush();
+        assertTrue(repository.savedIds.isEmpty());
+        assertTrue(service.getCacheStats().contains("dirty=1"));
+
+        service.flush();
+        assertEquals(List.of("1"), repository.savedIds);
+        assertTrue(repository.stored.get("1").isNsfw());
+        assertTrue(service.getCacheStats().contains("dirty=0"));
+    }
+
+    @Test
+    @DisplayName("Should write dirty users back on the flusher when the size limit evicts them")
+    void shouldWriteBackEvictedUsersOnFlusher() throws Exception {
+        service = new UserService(repository, null, 2);
+        service.updateLocale("1", "de_DE");
+        service.getOrCreateUser("2");
+        service.getOrCreateUser("3");
+        service.getOrCreateUser("4");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.cachedUserCount() > 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, service.cachedUserCount());
+        assertTrue(repository.savedIds.contains("1"));
+        assertEquals(List.of("User-Write-Behind"), repository.writerThreads);
+
+        // The evicted user comes back from the repository with its change
+        int finds = repository.finds.get();
+        assertEquals("de_DE", service.getOrCreateUser("1").getLocale());
+        assertEquals(finds + 1, repository.finds.get());
+    }
+
+    @Test
+    @DisplayName("Should share one repository load between concurrent misses for a user")
+    void shouldShareConcurrentLoads() throws Exception {
+        service = new UserService(repository, null);
+        repository.gatedId = "1";
+        repository.findGate = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<User>> lookups = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                lookups.add(pool.submit(() -> service.getOrCreateUser("1")));
+            }
+            Thread.sleep(100);
+            repository.findGate.countDown();
+
+            User first = lookups.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<User> lookup : lookups) {
+                assertSame(first, lookup.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, repository.finds.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should not hold up other users while one user's load is slow")
+    void shouldNotBlockOtherUsersDuringLoad() throws Exception {
+        service = new UserService(repository, null);
+        repository.gatedId = "1";
+        repository.findGate = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<User> slow = pool.submit(() -> service.getOrCreateUser("1"));
+            Thread.sleep(50);
+
+            assertEquals("2", service.getOrCreateUser("2").getUserId());
+            assertFalse(slow.isDone());
+
+            repository.findGate.countDown();
+            assertEquals("1", slow.get(5, TimeUnit.SECONDS).getUserId());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}